@@ -24,6 +24,7 @@
  */
 package de.xirp.db;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Properties;
 
@@ -165,6 +166,19 @@ public final class DatabaseManager extends AbstractManager {
 		return sessionFactory.getCurrentSession( );
 	}
 
+	/**
+	 * Returns a pooled JDBC connection to the database, f.e. for
+	 * batch inserts which would be too slow with Hibernate. The
+	 * connection must be closed after use.
+	 * 
+	 * @return A JDBC connection.
+	 * @throws SQLException
+	 *             if no connection is available.
+	 */
+	protected static Connection getConnection() throws SQLException {
+		return XConnectionProvider.getPooledConnection( );
+	}
+
 	/**
 	 * Returns the connection URL for the given driver name.
 	 * 
@@ -0,0 +1,443 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * ObservedRecorder.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * Streams observed values of a {@link de.xirp.db.Record} to the
+ * database while recording.<br/><br/>
+ * Values are handed over to a bounded queue and written by a
+ * background thread with JDBC batch inserts, either when
+ * {@link #BATCH_SIZE} values are pending or {@link #FLUSH_INTERVAL}
+ * milliseconds have passed. Nothing is collected in the record
+ * itself, so the heap stays flat for recordings of any length. If
+ * the database can not keep up and the queue is full, new values are
+ * dropped and counted instead of blocking the datapool.
+ * 
+ * @author agent
+ * @see de.xirp.db.Record
+ * @see de.xirp.db.Observed
+ */
+public final class ObservedRecorder {
+
+	/**
+	 * The logger of this class.
+	 */
+	private static final Logger logClass = Logger.getLogger(ObservedRecorder.class);
+	/**
+	 * Maximum number of values written with one batch.
+	 */
+	public static final int BATCH_SIZE = 1000;
+	/**
+	 * Maximum time in milliseconds a value waits before it is written.
+	 */
+	public static final long FLUSH_INTERVAL = 500;
+	/**
+	 * Maximum number of values waiting to be written.
+	 */
+	public static final int QUEUE_CAPACITY = 100000;
+	/**
+	 * The statement for inserting one observed value.
+	 */
+	private static final String INSERT = "INSERT INTO OBSERVED_VALUES (OBSERVED_KEY, OBSERVED_VALUE, OBSERVED_TIMESTAMP, RECORD_ID) VALUES (?, ?, ?, ?)"; //$NON-NLS-1$
+
+	/**
+	 * A recorded value waiting to be written.
+	 */
+	private static final class Sample {
+
+		/**
+		 * The time stamp of the value.
+		 */
+		private final long timestamp;
+		/**
+		 * The datapool key of the value.
+		 */
+		private final String key;
+		/**
+		 * The value.
+		 */
+		private final double value;
+
+		/**
+		 * Constructs a new sample.
+		 * 
+		 * @param timestamp
+		 *            The time stamp.
+		 * @param key
+		 *            The key.
+		 * @param value
+		 *            The value.
+		 */
+		private Sample(long timestamp, String key, double value) {
+			this.timestamp = timestamp;
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The record the values belong to.
+	 */
+	private final Record record;
+	/**
+	 * The values waiting to be written.
+	 */
+	private final BlockingQueue<Sample> queue = new ArrayBlockingQueue<Sample>(QUEUE_CAPACITY);
+	/**
+	 * The thread writing the values.
+	 */
+	private final Thread writer;
+	/**
+	 * <code>true</code> while values are accepted.
+	 */
+	private volatile boolean running = false;
+	/**
+	 * Guards accepting a value against stopping the recorder, so no
+	 * value is queued after the writer has finished.
+	 */
+	private final Object lock = new Object( );
+	/**
+	 * <code>true</code> after the recorder was stopped.
+	 */
+	private boolean stopped = false;
+	/**
+	 * Number of values written to the database.
+	 */
+	private volatile long rowsWritten = 0;
+	/**
+	 * Number of values which could not be written.
+	 */
+	private volatile long rowsFailed = 0;
+	/**
+	 * Number of executed batches.
+	 */
+	private volatile long batchCount = 0;
+	/**
+	 * Number of values written per second, updated about once per
+	 * second.
+	 */
+	private volatile double rowsPerSecond = 0;
+	/**
+	 * Number of values dropped because the queue was full.
+	 */
+	private final AtomicLong dropped = new AtomicLong( );
+	/**
+	 * Start time of the writer in milliseconds.
+	 */
+	private long startTime;
+
+	/**
+	 * Constructs a new recorder for the given record.
+	 * 
+	 * @param record
+	 *            The record to write the values for.
+	 */
+	public ObservedRecorder(Record record) {
+		this.record = record;
+		this.writer = new Thread(new Runnable( ) {
+
+			public void run() {
+				write( );
+			}
+		}, "ObservedRecorder_" + record.getRobotName( )); //$NON-NLS-1$
+		this.writer.setDaemon(true);
+	}
+
+	/**
+	 * Saves the record to get its id and starts writing values.
+	 * 
+	 * @return <code>true</code> if the recorder was started.
+	 */
+	public boolean start() {
+		RecordDatabaseUtil.persistRecord(record);
+		if (record.getId( ) == 0) {
+			logClass.error(I18n.getString("ObservedRecorder.log.recordNotSaved", record.getRobotName( )) //$NON-NLS-1$
+					+ Constants.LINE_SEPARATOR);
+			return false;
+		}
+		startTime = System.currentTimeMillis( );
+		running = true;
+		writer.start( );
+		return true;
+	}
+
+	/**
+	 * Queues the given value for writing. This method never blocks,
+	 * if the queue is full the value is dropped.
+	 * 
+	 * @param timestamp
+	 *            The time stamp.
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value.
+	 */
+	public void record(long timestamp, String key, double value) {
+		synchronized (lock) {
+			if (running && queue.offer(new Sample(timestamp, key, value))) {
+				return;
+			}
+		}
+		dropped.incrementAndGet( );
+	}
+
+	/**
+	 * Stops accepting values and waits until all queued values are
+	 * written. Values which are still queued after the writer has
+	 * finished, f.e. because writing failed, are counted as dropped.
+	 */
+	public void stop() {
+		synchronized (lock) {
+			if (stopped || startTime == 0) {
+				return;
+			}
+			stopped = true;
+			running = false;
+		}
+		try {
+			writer.join( );
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread( ).interrupt( );
+		}
+		if (!writer.isAlive( )) {
+			dropped.addAndGet(queue.size( ));
+			queue.clear( );
+		}
+		long duration = Math.max(1, System.currentTimeMillis( ) - startTime);
+		logClass.info(I18n.getString("ObservedRecorder.log.finished", //$NON-NLS-1$
+				record.getRobotName( ),
+				rowsWritten,
+				I18n.getDefaultDecimalFormat( ).format(rowsWritten * 1000.0 / duration),
+				dropped.get( ),
+				rowsFailed) + Constants.LINE_SEPARATOR);
+	}
+
+	/**
+	 * Writes the queued values until the recorder is stopped and the
+	 * queue is empty.
+	 */
+	private void write() {
+		List<Sample> batch = new ArrayList<Sample>(BATCH_SIZE);
+		Connection connection = null;
+		PreparedStatement statement = null;
+		long lastRate = startTime;
+		long lastRows = 0;
+		try {
+			connection = DatabaseManager.getConnection( );
+			connection.setAutoCommit(false);
+			statement = connection.prepareStatement(INSERT);
+
+			long deadline = System.currentTimeMillis( ) + FLUSH_INTERVAL;
+			while (running || !queue.isEmpty( )) {
+				long wait = deadline - System.currentTimeMillis( );
+				if (wait > 0 && batch.size( ) < BATCH_SIZE) {
+					Sample sample = queue.poll(wait, TimeUnit.MILLISECONDS);
+					if (sample != null) {
+						batch.add(sample);
+						queue.drainTo(batch, BATCH_SIZE - batch.size( ));
+					}
+				}
+				long now = System.currentTimeMillis( );
+				if (batch.size( ) >= BATCH_SIZE || now >= deadline
+						|| (!running && queue.isEmpty( ))) {
+					flush(connection, statement, batch);
+					deadline = now + FLUSH_INTERVAL;
+				}
+				if (now - lastRate >= 1000) {
+					rowsPerSecond = (rowsWritten - lastRows) * 1000.0
+							/ (now - lastRate);
+					lastRate = now;
+					lastRows = rowsWritten;
+				}
+			}
+			flush(connection, statement, batch);
+		}
+		catch (SQLException e) {
+			DatabaseManager.printSQLError(e);
+			rowsFailed += batch.size( ) + queue.size( );
+			queue.clear( );
+		}
+		catch (InterruptedException e) {
+			rowsFailed += batch.size( ) + queue.size( );
+			queue.clear( );
+		}
+		finally {
+			running = false;
+			rowsPerSecond = 0;
+			close(connection, statement);
+		}
+	}
+
+	/**
+	 * Writes the given values with one batch and clears the list. If
+	 * the batch fails it is rolled back and the values are counted as
+	 * failed.
+	 * 
+	 * @param connection
+	 *            The connection.
+	 * @param statement
+	 *            The prepared insert statement.
+	 * @param batch
+	 *            The values to write.
+	 * @throws SQLException
+	 *             if the connection is unusable.
+	 */
+	private void flush(Connection connection, PreparedStatement statement,
+			List<Sample> batch) throws SQLException {
+
+		if (batch.isEmpty( )) {
+			return;
+		}
+		long id = record.getId( );
+		try {
+			for (Sample sample : batch) {
+				statement.setString(1, sample.key);
+				statement.setDouble(2, sample.value);
+				statement.setLong(3, sample.timestamp);
+				statement.setLong(4, id);
+				statement.addBatch( );
+			}
+			statement.executeBatch( );
+			connection.commit( );
+			rowsWritten += batch.size( );
+			batchCount++;
+		}
+		catch (SQLException e) {
+			DatabaseManager.printSQLError(e);
+			rowsFailed += batch.size( );
+			statement.clearBatch( );
+			connection.rollback( );
+		}
+		finally {
+			batch.clear( );
+		}
+	}
+
+	/**
+	 * Closes the statement and returns the connection to the pool.
+	 * 
+	 * @param connection
+	 *            The connection, may be <code>null</code>.
+	 * @param statement
+	 *            The statement, may be <code>null</code>.
+	 */
+	private static void close(Connection connection,
+			PreparedStatement statement) {
+
+		try {
+			if (statement != null) {
+				statement.close( );
+			}
+			if (connection != null) {
+				connection.setAutoCommit(true);
+				connection.close( );
+			}
+		}
+		catch (SQLException e) {
+			DatabaseManager.printSQLError(e);
+		}
+	}
+
+	/**
+	 * Returns the number of values written to the database.
+	 * 
+	 * @return The number of written values.
+	 */
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+	/**
+	 * Returns the number of values written per second during the
+	 * last second.
+	 * 
+	 * @return The write rate.
+	 */
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	/**
+	 * Returns the number of values waiting to be written.
+	 * 
+	 * @return The backlog.
+	 */
+	public int getBacklog() {
+		return queue.size( );
+	}
+
+	/**
+	 * Returns the number of values dropped because the queue was
+	 * full or the recorder was not running.
+	 * 
+	 * @return The number of dropped values.
+	 */
+	public long getDroppedCount() {
+		return dropped.get( );
+	}
+
+	/**
+	 * Returns the number of values which could not be written.
+	 * 
+	 * @return The number of failed values.
+	 */
+	public long getFailedCount() {
+		return rowsFailed;
+	}
+
+	/**
+	 * Returns the number of executed batches.
+	 * 
+	 * @return The number of batches.
+	 */
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * Returns <code>true</code> while the recorder accepts values.
+	 * 
+	 * @return <code>true</code> if running.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+}
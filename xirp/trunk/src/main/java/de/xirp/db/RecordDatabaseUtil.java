@@ -111,4 +111,33 @@ public class RecordDatabaseUtil {
 			}
 		}
 	}
+
+	/**
+	 * Updates the given {@link de.xirp.db.Record} in the database,
+	 * f.e. its name, comment and stop time after the observed values
+	 * were written by an {@link ObservedRecorder}.
+	 * 
+	 * @param record
+	 *            The record to update.
+	 * @see de.xirp.db.Record
+	 */
+	public static void updateRecord(Record record) {
+		Session session = DatabaseManager.getCurrentHibernateSession( );
+		session.getTransaction( ).begin( );
+
+		try {
+			session.update(record);
+			session.getTransaction( ).commit( );
+		}
+		catch (HibernateException e) {
+			session.getTransaction( ).rollback( );
+			logClass.error("Error: " + e.getMessage( ) //$NON-NLS-1$
+					+ Constants.LINE_SEPARATOR, e);
+		}
+		finally {
+			if (session.isOpen( )) {
+				session.close( );
+			}
+		}
+	}
 }
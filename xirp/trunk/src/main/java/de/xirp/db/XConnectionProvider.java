@@ -170,6 +170,23 @@ public class XConnectionProvider implements ConnectionProvider {
 		}
 	}
 
+	/**
+	 * Gets a connection from the pool for direct JDBC access outside
+	 * of Hibernate. The connection has to be closed by the caller to
+	 * return it to the pool.
+	 * 
+	 * @return a pooled connection
+	 * @throws SQLException
+	 *             if the pool is not initialized or no connection
+	 *             could be opened
+	 */
+	static Connection getPooledConnection() throws SQLException {
+		if (ds != null) {
+			return ds.getConnection( );
+		}
+		throw new SQLException(I18n.getString("XConnectionProvider.exception.datasourceNotAvailable")); //$NON-NLS-1$
+	}
+
 	/**
 	 * This implementation does not support aggressive release.
 	 * 
@@ -25,13 +25,24 @@
 package de.xirp.io.comm;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Vector;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -40,12 +51,14 @@ import de.xirp.io.comm.data.Datapool;
 import de.xirp.io.comm.data.DatapoolException;
 import de.xirp.io.comm.data.DatapoolManager;
 import de.xirp.io.comm.handler.IHandler;
+import de.xirp.io.comm.lowlevel.AbstractCommunicationInterface;
 import de.xirp.io.comm.lowlevel.ByteEvent;
 import de.xirp.io.comm.lowlevel.IByteListener;
 import de.xirp.io.comm.lowlevel.ICommunicationInterface;
 import de.xirp.io.comm.protocol.IProtocol;
 import de.xirp.io.event.ConnectionEvent;
 import de.xirp.io.event.ConnectionListener;
+import de.xirp.io.format.FormatRegistry;
 import de.xirp.managers.AbstractManager;
 import de.xirp.managers.ManagerException;
 import de.xirp.plugin.IPlugable;
@@ -57,6 +70,7 @@ import de.xirp.profile.CommunicationProtocol;
 import de.xirp.profile.ProfileManager;
 import de.xirp.profile.Robot;
 import de.xirp.profile.RobotNotFoundException;
+import de.xirp.settings.PropertiesManager;
 import de.xirp.util.Constants;
 import de.xirp.util.I18n;
 
@@ -77,35 +91,59 @@ public final class CommunicationManager extends AbstractManager {
 	 * The currently used protocol classes(value) for each robot(key)
 	 */
 	@SuppressWarnings("unchecked")
-	private static Map<String, IProtocol> protocols = new HashMap<String, IProtocol>( );
+	private static Map<String, IProtocol> protocols = new ConcurrentHashMap<String, IProtocol>( );
 	/**
 	 * The currently used communication classes(value) for each
 	 * robot(key)
 	 */
 	@SuppressWarnings("unchecked")
-	private static Map<String, ICommunicationInterface> cInterfaces = new HashMap<String, ICommunicationInterface>( );
+	private static Map<String, ICommunicationInterface> cInterfaces = new ConcurrentHashMap<String, ICommunicationInterface>( );
 	/**
 	 * List of connected robot names
 	 */
-	private static Set<String> connected = new HashSet<String>( );
+	private static Set<String> connected = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>( ));
+	/**
+	 * Names of the robots a connect is currently running for
+	 */
+	private static Set<String> connecting = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>( ));
 	/**
 	 * Listeners which are informed on connects and disconnects
 	 */
-	private static Vector<ConnectionListener> listeners = new Vector<ConnectionListener>( );
+	private static CopyOnWriteArrayList<ConnectionListener> listeners = new CopyOnWriteArrayList<ConnectionListener>( );
 
 	/**
-	 * Received data amount for each robot
+	 * Byte, packet and error counters for each connected robot
 	 */
-	private static Map<String, DataAmount> received = new HashMap<String, DataAmount>( );
-
+	private static Map<String, ConnectionStatistics> statistics = new ConcurrentHashMap<String, ConnectionStatistics>( );
 	/**
-	 * Sent data amount for each robot
+	 * Supervisors reconnecting to the robots after a lost connection
 	 */
-	private static Map<String, DataAmount> sent = new HashMap<String, DataAmount>( );
+	private static Map<String, ReconnectSupervisor> supervisors = new ConcurrentHashMap<String, ReconnectSupervisor>( );
 	/**
 	 * List of robot names for which listeners are registered
 	 */
-	private static List<String> listening = new ArrayList<String>( );
+	private static Set<String> listening = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>( ));
+
+	/**
+	 * Default number of connects which are run at the same time by
+	 * {@link #connectAll(Collection)}
+	 */
+	private static final int DEFAULT_MAX_PARALLEL_CONNECTS = 8;
+	/**
+	 * Default time in milliseconds a single connect of
+	 * {@link #connectAll(Collection)} may take before it is
+	 * cancelled
+	 */
+	private static final long DEFAULT_CONNECT_TIMEOUT = 30000;
+	/**
+	 * Number used for naming the connect threads
+	 */
+	private static final AtomicInteger connectThreadCount = new AtomicInteger( );
+	/**
+	 * Timer which cancels connects exceeding their timeout, created
+	 * on first use
+	 */
+	private static Timer connectWatchdog;
 
 	/**
 	 * Constructs a new CommunicationManager. The manager is
@@ -250,9 +288,7 @@ public final class CommunicationManager extends AbstractManager {
 	 *            The listener to add
 	 */
 	public static void addConnectionListener(ConnectionListener listener) {
-		if (!listeners.contains(listener)) {
-			listeners.add(listener);
-		}
+		listeners.addIfAbsent(listener);
 	}
 
 	/**
@@ -343,31 +379,37 @@ public final class CommunicationManager extends AbstractManager {
 	@SuppressWarnings("unchecked")
 	private static void register(final String robotName,
 			ICommunicationInterface com) {
-		if (!listening.contains(robotName)) {
-			com.addBytesReceivedListener(new IByteListener( ) {
-
-				public void handleBytes(ByteEvent e) {
-					DataAmount r = received.get(robotName);
-					if (r == null) {
-						r = new DataAmount( );
+		// interfaces based on the abstract implementation count
+		// themselves, the others are counted using their events
+		boolean counting = com instanceof AbstractCommunicationInterface;
+		statistics.put(robotName,
+				counting ? ((AbstractCommunicationInterface) com).getStatistics( )
+						: new ConnectionStatistics( ));
+
+		if (listening.add(robotName)) {
+			if (!counting) {
+				com.addBytesReceivedListener(new IByteListener( ) {
+
+					public void handleBytes(ByteEvent e) {
+						ConnectionStatistics s = statistics.get(robotName);
+						if (s != null) {
+							s.receivedBytes((long) e.getAmount( ).getBytes( ));
+						}
 					}
-					received.put(robotName, r.add(e.getAmount( )));
 
-				}
-
-			});
+				});
 
-			com.addBytesSendListener(new IByteListener( ) {
+				com.addBytesSendListener(new IByteListener( ) {
 
-				public void handleBytes(ByteEvent e) {
-					DataAmount s = sent.get(robotName);
-					if (s == null) {
-						s = new DataAmount( );
+					public void handleBytes(ByteEvent e) {
+						ConnectionStatistics s = statistics.get(robotName);
+						if (s != null) {
+							s.sentBytes((long) e.getAmount( ).getBytes( ));
+						}
 					}
-					sent.put(robotName, s.add(e.getAmount( )));
-				}
 
-			});
+				});
+			}
 
 			com.addConnectionEventListener(new ConnectionListener( ) {
 
@@ -383,8 +425,6 @@ public final class CommunicationManager extends AbstractManager {
 				}
 
 			});
-
-			listening.add(robotName);
 		}
 
 		ConnectionEvent event = new ConnectionEvent(CommunicationManager.class,
@@ -397,16 +437,21 @@ public final class CommunicationManager extends AbstractManager {
 
 	/**
 	 * Connects to the robot using the data contained in the given
-	 * connection object.<br/><br/>Note: Should not be called from
-	 * outside this applications API.
+	 * connection object.<br/><br/>The connect runs in the calling
+	 * thread. If a connect for the same robot is already running in
+	 * another thread, this method returns <code>false</code>
+	 * immediately.<br/><br/>If reconnecting is enabled in the
+	 * settings, the connection is supervised and reestablished when
+	 * it gets lost.<br/><br/>Note: Should not be called from outside
+	 * this applications API.
 	 * 
 	 * @param connectObj
 	 *            data for the connection
 	 * @return <code>true</code> if connection was established, or
 	 *         the robot was already connected<br>
 	 *         <code>false</code> otherwise
+	 * @see #connectAll(Collection)
 	 */
-	@SuppressWarnings("unchecked")
 	public static boolean connect(ConnectionObject connectObj) {
 
 		final String robotName = connectObj.getRobotName( );
@@ -418,6 +463,118 @@ public final class CommunicationManager extends AbstractManager {
 			}
 			return true;
 		}
+		if (!connecting.add(robotName)) {
+			LOGGER.warn(I18n.getString("CommunicationManager.log.alreadyConnecting", //$NON-NLS-1$
+					robotName) +
+					Constants.LINE_SEPARATOR);
+			return false;
+		}
+		try {
+			boolean success = doConnect(connectObj);
+			if (success) {
+				supervise(connectObj);
+			}
+			return success;
+		}
+		finally {
+			connecting.remove(robotName);
+		}
+	}
+
+	/**
+	 * Creates a reconnect supervisor for the robot of the given
+	 * connection object if reconnecting is enabled in the settings.
+	 * An existing supervisor for the same connection is kept so its
+	 * statistics are not lost.
+	 * 
+	 * @param connectObj
+	 *            data for the connection
+	 */
+	private static void supervise(ConnectionObject connectObj) {
+		String robotName = connectObj.getRobotName( );
+		if (!PropertiesManager.isReconnect( )) {
+			supervisors.remove(robotName);
+			return;
+		}
+		ReconnectSupervisor supervisor = supervisors.get(robotName);
+		if (supervisor != null) {
+			ConnectionObject old = supervisor.getConnectionObject( );
+			if (old == connectObj
+					|| (old.getCommunicationClass( ).equals(connectObj.getCommunicationClass( )) && old.getProtocolClass( )
+							.equals(connectObj.getProtocolClass( )))) {
+				return;
+			}
+		}
+		supervisors.put(robotName,
+				new ReconnectSupervisor(connectObj,
+						ReconnectSupervisor.Policy.getPolicy(PropertiesManager.getReconnectPolicy( )),
+						PropertiesManager.getReconnectMinDelay( ),
+						PropertiesManager.getReconnectMaxDelay( ),
+						PropertiesManager.getReconnectMaxAttempts( )));
+	}
+
+	/**
+	 * Gets the supervisor which reconnects to the given robot after
+	 * the connection was lost.
+	 * 
+	 * @param robotName
+	 *            the name of the robot
+	 * @return the supervisor or <code>null</code> if reconnecting is
+	 *         disabled or the robot was never connected
+	 */
+	public static ReconnectSupervisor getReconnectSupervisor(String robotName) {
+		return supervisors.get(robotName);
+	}
+
+	/**
+	 * Called by the communication interfaces if they detect that the
+	 * connection to the robot is broken. The connection is shut down
+	 * and, if the robot is supervised, a reconnect is started.
+	 * Listeners are notified with a disconnect event showing that a
+	 * reconnect is running.
+	 * 
+	 * @param robotName
+	 *            name of the robot
+	 * @see ConnectionEvent#isReconnecting()
+	 */
+	public static void connectionLost(String robotName) {
+		ReconnectSupervisor supervisor = supervisors.get(robotName);
+		if (supervisor == null) {
+			disconnect(robotName);
+		}
+		else if (disconnect(robotName, true)) {
+			supervisor.connectionLost( );
+		}
+	}
+
+	/**
+	 * Notifies the listeners that a running reconnect to the given
+	 * robot was given up or stopped.
+	 * 
+	 * @param robotName
+	 *            name of the robot
+	 */
+	static void reconnectFinished(String robotName) {
+		ConnectionEvent connectionEvent = new ConnectionEvent(CommunicationManager.class,
+				robotName);
+		for (ConnectionListener listener : listeners) {
+			listener.disconnected(connectionEvent);
+		}
+	}
+
+	/**
+	 * Connects to the robot using the data contained in the given
+	 * connection object. The caller has to make sure that no other
+	 * connect for the same robot is running.
+	 * 
+	 * @param connectObj
+	 *            data for the connection
+	 * @return <code>true</code> if connection was established<br>
+	 *         <code>false</code> otherwise
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean doConnect(ConnectionObject connectObj) {
+		final String robotName = connectObj.getRobotName( );
 		boolean success = false;
 		try {
 			// Get communication interface
@@ -493,35 +650,272 @@ public final class CommunicationManager extends AbstractManager {
 		return success;
 	}
 
+	/**
+	 * Connects to all robots of the given connection objects in
+	 * parallel using at most {@value #DEFAULT_MAX_PARALLEL_CONNECTS}
+	 * connects at the same time. A single connect is cancelled if it
+	 * does not finish within {@value #DEFAULT_CONNECT_TIMEOUT}
+	 * milliseconds.
+	 * 
+	 * @param connectObjs
+	 *            data for the connections
+	 * @return the results of the connects in the order of the given
+	 *         connection objects
+	 * @see #connectAll(Collection, int, long)
+	 */
+	public static List<Future<Boolean>> connectAll(
+			Collection<ConnectionObject> connectObjs) {
+		return connectAll(connectObjs,
+				DEFAULT_MAX_PARALLEL_CONNECTS,
+				DEFAULT_CONNECT_TIMEOUT);
+	}
+
+	/**
+	 * Connects to all robots of the given connection objects in
+	 * parallel. This method returns immediately, the connects are
+	 * run by at most <code>maxParallel</code> daemon threads, so a
+	 * slow handshake with one robot does not stall the others.<br/><br/>
+	 * Each robot which comes up is registered and the
+	 * {@link ConnectionListener}s are notified as for
+	 * {@link #connect(ConnectionObject)}. Note that the listeners
+	 * are called from the connect threads.<br/><br/>If a connect
+	 * does not finish within the given timeout (measured from its
+	 * start, not from the call of this method) its future is
+	 * cancelled and the connecting thread is interrupted. Should the
+	 * robot come up nevertheless, it is disconnected again.
+	 * 
+	 * @param connectObjs
+	 *            data for the connections
+	 * @param maxParallel
+	 *            the maximum number of connects run at the same time
+	 * @param timeout
+	 *            the time in milliseconds a single connect may take,
+	 *            <code>0</code> for no timeout
+	 * @return the results of the connects in the order of the given
+	 *         connection objects, the future of a connect which
+	 *         timed out is cancelled
+	 */
+	public static List<Future<Boolean>> connectAll(
+			Collection<ConnectionObject> connectObjs, int maxParallel,
+			long timeout) {
+
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(connectObjs.size( ));
+		if (connectObjs.isEmpty( )) {
+			return futures;
+		}
+		ExecutorService executor = createExecutor(Math.min(Math.max(maxParallel,
+				1),
+				connectObjs.size( )));
+		for (ConnectionObject connectObj : connectObjs) {
+			ConnectTask task = new ConnectTask(connectObj, timeout);
+			futures.add(task);
+			executor.execute(task);
+		}
+		// already queued tasks are still run, idle threads terminate
+		executor.shutdown( );
+		return futures;
+	}
+
+	/**
+	 * Disconnects from all the given robots in parallel using at
+	 * most {@value #DEFAULT_MAX_PARALLEL_CONNECTS} threads. Listeners
+	 * are notified as for {@link #disconnect(String)}.
+	 * 
+	 * @param robotNames
+	 *            names of the robots
+	 * @return the results of the disconnects in the order of the
+	 *         given names, <code>true</code> if the robot was
+	 *         connected
+	 */
+	public static List<Future<Boolean>> disconnectAll(
+			Collection<String> robotNames) {
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(robotNames.size( ));
+		if (robotNames.isEmpty( )) {
+			return futures;
+		}
+		ExecutorService executor = createExecutor(Math.min(DEFAULT_MAX_PARALLEL_CONNECTS,
+				robotNames.size( )));
+		for (final String robotName : robotNames) {
+			futures.add(executor.submit(new Callable<Boolean>( ) {
+
+				public Boolean call() {
+					return disconnect(robotName);
+				}
+
+			}));
+		}
+		executor.shutdown( );
+		return futures;
+	}
+
+	/**
+	 * Creates an executor with the given number of daemon threads
+	 * for connecting or disconnecting.
+	 * 
+	 * @param threads
+	 *            the number of threads
+	 * @return the executor
+	 */
+	private static ExecutorService createExecutor(int threads) {
+		return new ThreadPoolExecutor(threads,
+				threads,
+				0L,
+				TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>( ),
+				new ThreadFactory( ) {
+
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r,
+								"CommunicationManager-connect-" + connectThreadCount.incrementAndGet( )); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+
+				});
+	}
+
+	/**
+	 * Gets the timer which cancels connects exceeding their timeout.
+	 * 
+	 * @return the watchdog timer
+	 */
+	private static synchronized Timer getConnectWatchdog() {
+		if (connectWatchdog == null) {
+			connectWatchdog = new Timer("CommunicationManager-watchdog", true); //$NON-NLS-1$
+		}
+		return connectWatchdog;
+	}
+
+	/**
+	 * A connect run by {@link CommunicationManager#connectAll}. The
+	 * timeout is armed when the connect starts.
+	 */
+	private static final class ConnectTask extends FutureTask<Boolean> {
+
+		/**
+		 * The robot to connect to
+		 */
+		private final String robotName;
+		/**
+		 * The time in milliseconds the connect may take
+		 */
+		private final long timeout;
+
+		/**
+		 * Constructs a new connect task.
+		 * 
+		 * @param connectObj
+		 *            data for the connection
+		 * @param timeout
+		 *            the time in milliseconds the connect may take,
+		 *            <code>0</code> for no timeout
+		 */
+		public ConnectTask(final ConnectionObject connectObj, long timeout) {
+			super(new Callable<Boolean>( ) {
+
+				public Boolean call() {
+					return connect(connectObj);
+				}
+
+			});
+			this.robotName = connectObj.getRobotName( );
+			this.timeout = timeout;
+		}
+
+		/**
+		 * Runs the connect and cancels it if the timeout elapses.
+		 * 
+		 * @see java.util.concurrent.FutureTask#run()
+		 */
+		@Override
+		public void run() {
+			TimerTask watchdog = null;
+			if (timeout > 0) {
+				watchdog = new TimerTask( ) {
+
+					@Override
+					public void run() {
+						if (ConnectTask.this.cancel(true)) {
+							LOGGER.warn(I18n.getString("CommunicationManager.log.connectTimeout", //$NON-NLS-1$
+									robotName,
+									timeout) +
+									Constants.LINE_SEPARATOR);
+						}
+					}
+
+				};
+				getConnectWatchdog( ).schedule(watchdog, timeout);
+			}
+			try {
+				super.run( );
+			}
+			finally {
+				if (watchdog != null) {
+					watchdog.cancel( );
+				}
+			}
+			if (isCancelled( ) && isConnected(robotName)) {
+				// the caller was told the connect failed
+				disconnect(robotName);
+			}
+		}
+	}
+
 	/**
 	 * Disconnect from the robot with the given name. Listeners are
 	 * notified about the disconnect. Sent and received bytes are
-	 * reset.<br/><br/>Note: Should not be called from outside this
-	 * applications API.
+	 * reset. A running reconnect to the robot is stopped.<br/><br/>
+	 * Note: Should not be called from outside this applications API.
 	 * 
 	 * @param robotName
 	 *            name of the robot
+	 * @return <code>true</code> if the robot was connected
 	 */
-	@SuppressWarnings("unchecked")
-	public static void disconnect(String robotName) {
-		if (connected.contains(robotName)) {
-			IProtocol robotCom = getProtocol(robotName);
-			if (robotCom != null) {
-				robotCom.stopCommunication( );
-
-				ConnectionEvent connectionEvent = new ConnectionEvent(CommunicationManager.class,
-						robotName);
-				for (ConnectionListener listener : listeners) {
-					listener.disconnected(connectionEvent);
-				}
+	public static boolean disconnect(String robotName) {
+		ReconnectSupervisor supervisor = supervisors.get(robotName);
+		if (supervisor != null && supervisor.cancel( )) {
+			reconnectFinished(robotName);
+		}
+		return disconnect(robotName, false);
+	}
 
-				removeRobot(robotName);
-				received.remove(robotName);
-				sent.remove(robotName);
+	/**
+	 * Disconnect from the robot with the given name and notifies the
+	 * listeners.
+	 * 
+	 * @param robotName
+	 *            name of the robot
+	 * @param reconnecting
+	 *            <code>true</code> if the connection was lost and
+	 *            will be reestablished
+	 * @return <code>true</code> if the robot was connected
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean disconnect(String robotName, boolean reconnecting) {
+		// removing first lets only one of two concurrent calls for
+		// the same robot tear the connection down
+		if (!connected.remove(robotName)) {
+			return false;
+		}
+		IProtocol robotCom = getProtocol(robotName);
+		if (robotCom != null) {
+			robotCom.stopCommunication( );
+			ICommunicationInterface com = cInterfaces.get(robotName);
+			if (com instanceof AbstractCommunicationInterface) {
+				((AbstractCommunicationInterface) com).resetStatistics( );
+			}
 
-				connected.remove(robotName);
+			ConnectionEvent connectionEvent = new ConnectionEvent(CommunicationManager.class,
+					robotName,
+					reconnecting);
+			for (ConnectionListener listener : listeners) {
+				listener.disconnected(connectionEvent);
 			}
+
+			removeRobot(robotName);
+			statistics.remove(robotName);
 		}
+		return true;
 	}
 
 	/**
@@ -561,6 +955,9 @@ public final class CommunicationManager extends AbstractManager {
 					.getCommunicationProtocols( )) {
 
 				if (comSpec.getClassName( ).equalsIgnoreCase(protocolClass)) {
+					// parse the receive formats before the first
+					// message arrives
+					FormatRegistry.preload(robotName, comSpec);
 					String mainClass = comSpec.getMessageHandler( );
 
 					IPlugable<?> plugin = PluginManager.runPlugin(robotName,
@@ -684,11 +1081,11 @@ public final class CommunicationManager extends AbstractManager {
 	 * @return dataAmount received from the robot
 	 */
 	public static DataAmount getBytesReceived(String robotName) {
-		DataAmount r = received.get(robotName);
-		if (r == null) {
+		ConnectionStatistics s = statistics.get(robotName);
+		if (s == null) {
 			return new DataAmount( );
 		}
-		return r;
+		return s.getBytesReceivedAmount( );
 	}
 
 	/**
@@ -701,11 +1098,25 @@ public final class CommunicationManager extends AbstractManager {
 	 * @return DataAmount sent to the robot
 	 */
 	public static DataAmount getBytesSend(String robotName) {
-		DataAmount s = sent.get(robotName);
+		ConnectionStatistics s = statistics.get(robotName);
 		if (s == null) {
 			return new DataAmount( );
 		}
-		return s;
+		return s.getBytesSentAmount( );
+	}
+
+	/**
+	 * Gets the counters for the bytes, packets and errors of the
+	 * connection to the given robot, including the rates over the
+	 * last seconds.
+	 * 
+	 * @param robotName
+	 *            the name of the robot
+	 * @return the statistics or <code>null</code> if the robot is
+	 *         not connected
+	 */
+	public static ConnectionStatistics getStatistics(String robotName) {
+		return statistics.get(robotName);
 	}
 
 	/**
@@ -731,7 +1142,10 @@ public final class CommunicationManager extends AbstractManager {
 	@Override
 	protected void stop() throws ManagerException {
 		super.stop( );
-		for (String robotName : protocols.keySet( )) {
+		for (ReconnectSupervisor supervisor : supervisors.values( )) {
+			supervisor.cancel( );
+		}
+		for (String robotName : new ArrayList<String>(protocols.keySet( ))) {
 			disconnect(robotName);
 		}
 	}
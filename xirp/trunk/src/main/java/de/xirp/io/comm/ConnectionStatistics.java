@@ -0,0 +1,458 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * ConnectionStatistics.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for the bytes, packets and errors received from and sent
+ * to a robot.<br/><br/>The counters are updated without locking, so
+ * they may be updated for every packet by the threads of the
+ * communication interface. Besides the totals the rates over the
+ * last 1, 10 and 60 seconds are available.<br/><br/>Packets are
+ * only counted where the frames are known, f.e. by the protocol
+ * which forwards the decoded messages. As long as nothing counted
+ * packets in a direction the packet getters return
+ * {@link #UNAVAILABLE} instead of a misleading <code>0</code>.<br/><br/>For displaying
+ * the byte counts use the {@link DataAmount} views like
+ * {@link #getBytesReceivedAmount()}.
+ * 
+ * @author agent
+ */
+public final class ConnectionStatistics {
+
+	/**
+	 * Longest window in seconds for rates
+	 */
+	public static final int MAX_WINDOW = 60;
+	/**
+	 * Returned by the packet getters if packets are not counted for
+	 * the connection
+	 */
+	public static final long UNAVAILABLE = -1;
+
+	/**
+	 * Bytes received from the robot
+	 */
+	private final Counter bytesReceived = new Counter( );
+	/**
+	 * Bytes sent to the robot
+	 */
+	private final Counter bytesSent = new Counter( );
+	/**
+	 * Packets received from the robot
+	 */
+	private final Counter packetsReceived = new Counter( );
+	/**
+	 * Packets sent to the robot
+	 */
+	private final Counter packetsSent = new Counter( );
+	/**
+	 * Errors while receiving
+	 */
+	private final AtomicLong receiveErrors = new AtomicLong( );
+	/**
+	 * Errors while sending
+	 */
+	private final AtomicLong sendErrors = new AtomicLong( );
+	/**
+	 * <code>true</code> if received packets are counted
+	 */
+	private volatile boolean packetsReceivedCounted = false;
+	/**
+	 * <code>true</code> if sent packets are counted
+	 */
+	private volatile boolean packetsSentCounted = false;
+
+	/**
+	 * Records received data.
+	 * 
+	 * @param bytes
+	 *            the number of received bytes
+	 * @param packets
+	 *            the number of received packets
+	 */
+	public void received(long bytes, long packets) {
+		long second = currentSecond( );
+		bytesReceived.add(second, bytes);
+		packetsReceived.add(second, packets);
+		packetsReceivedCounted = true;
+	}
+
+	/**
+	 * Records received bytes for a source which does not know the
+	 * packet boundaries.
+	 * 
+	 * @param bytes
+	 *            the number of received bytes
+	 */
+	public void receivedBytes(long bytes) {
+		bytesReceived.add(currentSecond( ), bytes);
+	}
+
+	/**
+	 * Records received packets for a source which knows the frames,
+	 * f.e. a protocol forwarding its decoded messages. The bytes are
+	 * counted by the communication interface.
+	 * 
+	 * @param packets
+	 *            the number of received packets
+	 */
+	public void receivedPackets(long packets) {
+		packetsReceived.add(currentSecond( ), packets);
+		packetsReceivedCounted = true;
+	}
+
+	/**
+	 * Records sent data.
+	 * 
+	 * @param bytes
+	 *            the number of sent bytes
+	 * @param packets
+	 *            the number of sent packets
+	 */
+	public void sent(long bytes, long packets) {
+		long second = currentSecond( );
+		bytesSent.add(second, bytes);
+		packetsSent.add(second, packets);
+		packetsSentCounted = true;
+	}
+
+	/**
+	 * Records sent bytes for a source which does not know the packet
+	 * boundaries.
+	 * 
+	 * @param bytes
+	 *            the number of sent bytes
+	 */
+	public void sentBytes(long bytes) {
+		bytesSent.add(currentSecond( ), bytes);
+	}
+
+	/**
+	 * Records an error while receiving.
+	 */
+	public void receiveError() {
+		receiveErrors.incrementAndGet( );
+	}
+
+	/**
+	 * Records an error while sending.
+	 */
+	public void sendError() {
+		sendErrors.incrementAndGet( );
+	}
+
+	/**
+	 * Gets the number of received bytes.
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get( );
+	}
+
+	/**
+	 * Gets the number of sent bytes.
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getBytesSent() {
+		return bytesSent.get( );
+	}
+
+	/**
+	 * Gets the number of received packets.
+	 * 
+	 * @return the number of packets or {@link #UNAVAILABLE} if
+	 *         received packets are not counted
+	 */
+	public long getPacketsReceived() {
+		return packetsReceivedCounted ? packetsReceived.get( ) : UNAVAILABLE;
+	}
+
+	/**
+	 * Gets the number of sent packets.
+	 * 
+	 * @return the number of packets or {@link #UNAVAILABLE} if sent
+	 *         packets are not counted
+	 */
+	public long getPacketsSent() {
+		return packetsSentCounted ? packetsSent.get( ) : UNAVAILABLE;
+	}
+
+	/**
+	 * Checks if received packets are counted for the connection.
+	 * 
+	 * @return <code>true</code> if the received packet counts are
+	 *         available
+	 */
+	public boolean isPacketsReceivedAvailable() {
+		return packetsReceivedCounted;
+	}
+
+	/**
+	 * Checks if sent packets are counted for the connection.
+	 * 
+	 * @return <code>true</code> if the sent packet counts are
+	 *         available
+	 */
+	public boolean isPacketsSentAvailable() {
+		return packetsSentCounted;
+	}
+
+	/**
+	 * Gets the number of errors while receiving.
+	 * 
+	 * @return the number of errors
+	 */
+	public long getReceiveErrors() {
+		return receiveErrors.get( );
+	}
+
+	/**
+	 * Gets the number of errors while sending.
+	 * 
+	 * @return the number of errors
+	 */
+	public long getSendErrors() {
+		return sendErrors.get( );
+	}
+
+	/**
+	 * Gets the received bytes formatted with the best unit.
+	 * 
+	 * @return a view of the received bytes
+	 */
+	public DataAmount getBytesReceivedAmount() {
+		return new DataAmount(getBytesReceived( )).add(0);
+	}
+
+	/**
+	 * Gets the sent bytes formatted with the best unit.
+	 * 
+	 * @return a view of the sent bytes
+	 */
+	public DataAmount getBytesSentAmount() {
+		return new DataAmount(getBytesSent( )).add(0);
+	}
+
+	/**
+	 * Gets the average number of bytes received per second during
+	 * the given window.
+	 * 
+	 * @param seconds
+	 *            the window in seconds, f.e. 1, 10 or 60 up to
+	 *            {@link #MAX_WINDOW}
+	 * @return the bytes per second
+	 */
+	public double getReceiveRate(int seconds) {
+		return bytesReceived.rate(seconds);
+	}
+
+	/**
+	 * Gets the average number of bytes sent per second during the
+	 * given window.
+	 * 
+	 * @param seconds
+	 *            the window in seconds, f.e. 1, 10 or 60 up to
+	 *            {@link #MAX_WINDOW}
+	 * @return the bytes per second
+	 */
+	public double getSendRate(int seconds) {
+		return bytesSent.rate(seconds);
+	}
+
+	/**
+	 * Gets the average number of packets received per second during
+	 * the given window.
+	 * 
+	 * @param seconds
+	 *            the window in seconds, f.e. 1, 10 or 60 up to
+	 *            {@link #MAX_WINDOW}
+	 * @return the packets per second or {@link #UNAVAILABLE} if
+	 *         received packets are not counted
+	 */
+	public double getPacketReceiveRate(int seconds) {
+		return packetsReceivedCounted ? packetsReceived.rate(seconds)
+				: UNAVAILABLE;
+	}
+
+	/**
+	 * Gets the average number of packets sent per second during the
+	 * given window.
+	 * 
+	 * @param seconds
+	 *            the window in seconds, f.e. 1, 10 or 60 up to
+	 *            {@link #MAX_WINDOW}
+	 * @return the packets per second or {@link #UNAVAILABLE} if sent
+	 *         packets are not counted
+	 */
+	public double getPacketSendRate(int seconds) {
+		return packetsSentCounted ? packetsSent.rate(seconds) : UNAVAILABLE;
+	}
+
+	/**
+	 * Gets the receive rate formatted with the best unit.
+	 * 
+	 * @param seconds
+	 *            the window in seconds
+	 * @return a view of the bytes received per second
+	 * @see #getReceiveRate(int)
+	 */
+	public DataAmount getReceiveRateAmount(int seconds) {
+		return new DataAmount(getReceiveRate(seconds)).add(0);
+	}
+
+	/**
+	 * Gets the send rate formatted with the best unit.
+	 * 
+	 * @param seconds
+	 *            the window in seconds
+	 * @return a view of the bytes sent per second
+	 * @see #getSendRate(int)
+	 */
+	public DataAmount getSendRateAmount(int seconds) {
+		return new DataAmount(getSendRate(seconds)).add(0);
+	}
+
+	/**
+	 * Gets the current time in seconds.
+	 * 
+	 * @return the seconds since the epoch
+	 */
+	private static long currentSecond() {
+		return System.currentTimeMillis( ) / 1000;
+	}
+
+	/**
+	 * A lock free counter which remembers its total at the start of
+	 * each of the last {@link ConnectionStatistics#MAX_WINDOW}
+	 * seconds. The rate over a window is the difference between the
+	 * current total and the total at the start of the window.
+	 */
+	private static final class Counter {
+
+		/**
+		 * The total
+		 */
+		private final AtomicLong total = new AtomicLong( );
+		/**
+		 * The total at the start of each second, indexed by the
+		 * second modulo the length
+		 */
+		private final AtomicLongArray snapshots = new AtomicLongArray(MAX_WINDOW + 1);
+		/**
+		 * The last second a snapshot was taken for
+		 */
+		private final AtomicLong lastSecond;
+		/**
+		 * The second the counter was created
+		 */
+		private final long firstSecond;
+
+		/**
+		 * Constructs a new counter.
+		 */
+		private Counter() {
+			firstSecond = currentSecond( );
+			lastSecond = new AtomicLong(firstSecond);
+		}
+
+		/**
+		 * Adds the given value.
+		 * 
+		 * @param second
+		 *            the current second
+		 * @param value
+		 *            the value to add
+		 */
+		private void add(long second, long value) {
+			roll(second);
+			total.addAndGet(value);
+		}
+
+		/**
+		 * Gets the total.
+		 * 
+		 * @return the total
+		 */
+		private long get() {
+			return total.get( );
+		}
+
+		/**
+		 * Takes the snapshots for all seconds since the last
+		 * snapshot. Nothing was added in between, so all of them get
+		 * the current total.
+		 * 
+		 * @param second
+		 *            the current second
+		 */
+		private void roll(long second) {
+			long last = lastSecond.get( );
+			if (second > last && lastSecond.compareAndSet(last, second)) {
+				long value = total.get( );
+				for (long s = Math.max(last + 1, second - MAX_WINDOW); s <= second; s++) {
+					snapshots.set(index(s), value);
+				}
+			}
+		}
+
+		/**
+		 * Calculates the rate over the given window. The window
+		 * starts the given number of full seconds ago and includes
+		 * the current second.
+		 * 
+		 * @param seconds
+		 *            the window in seconds
+		 * @return the rate per second
+		 */
+		private double rate(int seconds) {
+			long now = System.currentTimeMillis( );
+			long second = now / 1000;
+			roll(second);
+			long start = Math.max(firstSecond, second
+					- Math.min(Math.max(seconds, 1), MAX_WINDOW));
+			long elapsed = now - start * 1000;
+			long value = total.get( )
+					- (start == firstSecond ? 0 : snapshots.get(index(start)));
+			return elapsed > 0 ? value * 1000d / elapsed : 0;
+		}
+
+		/**
+		 * Gets the index of the snapshot of the given second.
+		 * 
+		 * @param second
+		 *            the second
+		 * @return the index
+		 */
+		private static int index(long second) {
+			return (int) (second % (MAX_WINDOW + 1));
+		}
+	}
+
+}
@@ -334,6 +334,15 @@ public final class DataAmount {
 		}
 	}
 
+	/**
+	 * Gets the number of bytes of this data amount.
+	 * 
+	 * @return the number of bytes
+	 */
+	public double getBytes() {
+		return convert(this, DataAmountUnit.BYTES);
+	}
+
 	/**
 	 * @return the data
 	 */
@@ -0,0 +1,390 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * PipelineBenchmark.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.io.FileUtils;
+
+import de.xirp.io.comm.data.Datapool;
+import de.xirp.io.comm.data.DatapoolDispatcher;
+import de.xirp.io.comm.data.DatapoolEvent;
+import de.xirp.io.comm.data.DatapoolListener;
+import de.xirp.io.comm.data.DatapoolManager;
+import de.xirp.io.comm.data.DatapoolMessage;
+import de.xirp.io.comm.handler.AbstractHandler;
+import de.xirp.io.comm.handler.IHandlerMessage;
+import de.xirp.io.comm.lowlevel.LoopbackCommunicationInterface;
+import de.xirp.io.comm.protocol.AbstractProtocol;
+import de.xirp.io.comm.protocol.IProtocolMessage;
+import de.xirp.plugin.AbstractData;
+import de.xirp.plugin.AbstractPluginGUI;
+import de.xirp.plugin.PluginInfo;
+import de.xirp.profile.Robot;
+import de.xirp.settings.PropertiesManager;
+
+/**
+ * Measures throughput and latency of the whole receive path from the
+ * communication interface over the protocol and the handler to the
+ * listeners of the datapool, without hardware.<br/><br/>A simulated
+ * robot writes frames to a {@link LoopbackCommunicationInterface},
+ * the protocol reads them and forwards them over the handler to the
+ * datapool. A listener for the benchmark key measures the time from
+ * writing a frame to being notified. Each frame has to result in
+ * exactly one message for the key, so the n-th notification belongs
+ * to the n-th frame. The first tenth of the frames warms up and is
+ * not measured.<br/><br/>Without further arguments a built-in
+ * protocol and handler are used. Any other pair can be measured by
+ * giving the classes, which need the usual plugin constructor, the
+ * key and a file containing one frame in the protocol's format.<br/><br/>
+ * Usage:
+ * <code>PipelineBenchmark [messages] [messagesPerSecond] [protocolClass handlerClass key frameFile]</code>,
+ * <code>0</code> messages per second for sending as fast as possible.
+ * 
+ * @author agent
+ */
+final class PipelineBenchmark {
+
+	/**
+	 * The name of the simulated robot
+	 */
+	private static final String ROBOT = "PipelineBenchmark"; //$NON-NLS-1$
+	/**
+	 * The key used by the built-in handler
+	 */
+	private static final String KEY = "benchmark"; //$NON-NLS-1$
+
+	/**
+	 * Utility class, no instances.
+	 */
+	private PipelineBenchmark() {
+		// no instances
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args
+	 *            optional number of messages, messages per second and
+	 *            protocol, handler, key and frame file
+	 * @throws Exception
+	 *             if the protocol or handler could not be created or
+	 *             the frame file could not be read
+	 */
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) throws Exception {
+		final int messages = args.length > 0 ? Integer.parseInt(args[0])
+				: 500000;
+		final int rate = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+		// measure every message, even if drop_oldest is configured
+		PropertiesManager.setDispatchPolicy("block"); //$NON-NLS-1$
+
+		Robot robot = new Robot( );
+		robot.setName(ROBOT);
+		Datapool pool = DatapoolManager.getDatapool(robot);
+
+		AbstractProtocol<byte[], InputStream> protocol;
+		AbstractHandler handler;
+		String key;
+		byte[] frame;
+		if (args.length > 5) {
+			protocol = (AbstractProtocol<byte[], InputStream>) createPlugin(args[2]);
+			handler = (AbstractHandler) createPlugin(args[3]);
+			key = args[4];
+			frame = FileUtils.readFileToByteArray(new File(args[5]));
+		}
+		else {
+			protocol = new BenchmarkProtocol( );
+			handler = new BenchmarkHandler( );
+			key = KEY;
+			frame = null;
+		}
+
+		LoopbackCommunicationInterface com = new LoopbackCommunicationInterface(ROBOT,
+				null);
+		protocol.setCInterface(com);
+		handler.setIProtocol(protocol);
+		pool.setHandler(handler);
+
+		final long[] written = new long[messages];
+		final long[] latencies = new long[messages];
+		final long[] end = new long[1];
+		final AtomicInteger received = new AtomicInteger( );
+		final CountDownLatch done = new CountDownLatch(1);
+		pool.addDatapoolReceiveListener(key, new DatapoolListener( ) {
+
+			public void valueChanged(@SuppressWarnings("unused")
+			DatapoolEvent e) {
+				long now = System.nanoTime( );
+				int index = received.getAndIncrement( );
+				if (index < messages) {
+					latencies[index] = now - written[index];
+					if (index == messages - 1) {
+						end[0] = now;
+						done.countDown( );
+					}
+				}
+			}
+
+			public boolean notifyOnlyWhenChanged() {
+				return false;
+			}
+		});
+
+		if (!protocol.startCommunication( )) {
+			System.out.println("Could not start the communication."); //$NON-NLS-1$
+			return;
+		}
+		OutputStream robotOut = com.getRobotOutputStream( );
+		DataOutputStream data = new DataOutputStream(robotOut);
+		long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+		long start = System.nanoTime( );
+		for (int i = 0; i < messages; i++) {
+			if (interval > 0) {
+				long due = start + i * interval;
+				long wait;
+				while ((wait = due - System.nanoTime( )) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+			}
+			written[i] = System.nanoTime( );
+			if (frame != null) {
+				robotOut.write(frame);
+			}
+			else {
+				data.writeInt(i);
+				data.writeDouble(i * 0.5);
+			}
+		}
+
+		if (!done.await(5, TimeUnit.MINUTES)) {
+			System.out.println("Timeout, received " + received.get( ) //$NON-NLS-1$
+					+ " of " + messages + " messages."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		else {
+			int warmup = messages / 10;
+			long[] measured = Arrays.copyOfRange(latencies, warmup, messages);
+			Arrays.sort(measured);
+			double seconds = (end[0] - written[warmup]) / 1e9;
+			System.out.println(protocol.getClass( ).getSimpleName( ) + " / " //$NON-NLS-1$
+					+ handler.getClass( ).getSimpleName( ) + ": " //$NON-NLS-1$
+					+ Math.round(measured.length / seconds) + " msg/s, latency p50 " //$NON-NLS-1$
+					+ percentile(measured, 0.5) + " us, p99 " //$NON-NLS-1$
+					+ percentile(measured, 0.99) + " us, p99.9 " //$NON-NLS-1$
+					+ percentile(measured, 0.999) + " us, max " //$NON-NLS-1$
+					+ measured[measured.length - 1] / 1000 + " us"); //$NON-NLS-1$
+			System.out.println("Dispatched events dropped: " //$NON-NLS-1$
+					+ DatapoolDispatcher.getInstance( ).getDroppedCount( ));
+		}
+		protocol.stopCommunication( );
+		// the datapool threads keep running without the manager
+		System.exit(0);
+	}
+
+	/**
+	 * Gets the given percentile of the sorted latencies.
+	 * 
+	 * @param sorted
+	 *            the sorted latencies in nanoseconds
+	 * @param fraction
+	 *            the percentile as fraction
+	 * @return the latency in microseconds
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		int index = Math.min(sorted.length - 1,
+				(int) (fraction * sorted.length));
+		return sorted[index] / 1000;
+	}
+
+	/**
+	 * Creates the plugin with the given class using the plugin
+	 * constructor.
+	 * 
+	 * @param className
+	 *            the main class of the plugin
+	 * @return the plugin
+	 * @throws Exception
+	 *             if the plugin could not be created
+	 */
+	private static Object createPlugin(String className) throws Exception {
+		return Class.forName(className)
+				.getConstructor(String.class, PluginInfo.class)
+				.newInstance(ROBOT, null);
+	}
+
+	/**
+	 * A received frame of the built-in protocol.
+	 */
+	private static final class BenchmarkFrame implements IHandlerMessage {
+
+		/**
+		 * The sequence number of the frame
+		 */
+		private final int sequence;
+		/**
+		 * The value of the frame
+		 */
+		private final double value;
+
+		/**
+		 * Constructs a new frame.
+		 * 
+		 * @param sequence
+		 *            the sequence number
+		 * @param value
+		 *            the value
+		 */
+		public BenchmarkFrame(int sequence, double value) {
+			this.sequence = sequence;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Protocol reading frames of a sequence number and a value.
+	 */
+	private static final class BenchmarkProtocol extends
+			AbstractProtocol<byte[], InputStream> {
+
+		/**
+		 * Constructs the protocol for the simulated robot.
+		 */
+		public BenchmarkProtocol() {
+			super(ROBOT, null);
+		}
+
+		/**
+		 * Starts a thread reading the frames until the stream is
+		 * closed.
+		 * 
+		 * @see de.xirp.io.comm.protocol.IProtocol#receive()
+		 */
+		public void receive() {
+			final DataInputStream in = new DataInputStream(cInterface.receive( ));
+			new Thread("PipelineBenchmarkReceive") { //$NON-NLS-1$
+
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							int sequence = in.readInt( );
+							double value = in.readDouble( );
+							forwardToDatapoolOverHandler(new BenchmarkFrame(sequence,
+									value));
+						}
+					}
+					catch (IOException e) {
+						// stream closed
+					}
+				}
+			}.start( );
+		}
+
+		/**
+		 * Sends the given data to the simulated robot.
+		 * 
+		 * @see de.xirp.io.comm.protocol.IProtocol#sendToRobot(de.xirp.io.comm.protocol.IProtocolMessage)
+		 */
+		public void sendToRobot(IProtocolMessage message) {
+			// the simulated robot does not read
+		}
+
+		/**
+		 * @see de.xirp.plugin.IPlugable#getNameKey()
+		 */
+		public String getNameKey() {
+			return null;
+		}
+
+		/**
+		 * @see de.xirp.plugin.IPlugable#getDescriptionKey()
+		 */
+		public String getDescriptionKey() {
+			return null;
+		}
+	}
+
+	/**
+	 * Handler converting each frame of the built-in protocol to one
+	 * message for the benchmark key.
+	 */
+	private static final class BenchmarkHandler extends
+			AbstractHandler<AbstractData, AbstractPluginGUI> {
+
+		/**
+		 * Constructs the handler for the simulated robot.
+		 */
+		public BenchmarkHandler() {
+			super(ROBOT, null);
+		}
+
+		/**
+		 * @see de.xirp.io.comm.handler.AbstractHandler#convert(de.xirp.io.comm.data.DatapoolMessage)
+		 */
+		@Override
+		protected List<IProtocolMessage> convert(
+				@SuppressWarnings("unused") DatapoolMessage message) {
+			return null;
+		}
+
+		/**
+		 * @see de.xirp.io.comm.handler.AbstractHandler#convert(de.xirp.io.comm.handler.IHandlerMessage)
+		 */
+		@Override
+		protected List<DatapoolMessage> convert(IHandlerMessage message) {
+			BenchmarkFrame frame = (BenchmarkFrame) message;
+			List<DatapoolMessage> messages = new ArrayList<DatapoolMessage>(1);
+			messages.add(new DatapoolMessage(KEY, frame.value, false));
+			return messages;
+		}
+
+		/**
+		 * @see de.xirp.plugin.IPlugable#getNameKey()
+		 */
+		public String getNameKey() {
+			return null;
+		}
+
+		/**
+		 * @see de.xirp.plugin.IPlugable#getDescriptionKey()
+		 */
+		public String getDescriptionKey() {
+			return null;
+		}
+	}
+}
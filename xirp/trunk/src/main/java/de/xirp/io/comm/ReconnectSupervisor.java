@@ -0,0 +1,470 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * ReconnectSupervisor.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import de.xirp.io.ConnectionObject;
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * Reconnects to a robot after its connection was lost.<br/><br/>
+ * The attempts are delayed by an exponential backoff with jitter: the
+ * n-th attempt waits a random time between the half and the full of
+ * <code>minDelay * 2<sup>n</sup></code>, limited by
+ * <code>maxDelay</code>. So a fleet of robots which lost the
+ * connection to the same access point does not reconnect in
+ * lockstep.<br/><br/>While reconnecting, the datapool of the robot
+ * handles the commands sent to the robot according to the
+ * {@link Policy} of this supervisor.<br/><br/>Supervisors are created
+ * by the {@link CommunicationManager} on connect if reconnecting is
+ * enabled in the settings.
+ * 
+ * @author agent
+ * @see CommunicationManager#connectionLost(String)
+ */
+public final class ReconnectSupervisor {
+
+	/**
+	 * Log4j Logger for this class
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ReconnectSupervisor.class);
+
+	/**
+	 * What to do with the commands sent to a robot while reconnecting
+	 */
+	public enum Policy {
+		/**
+		 * All commands are kept and sent after the reconnect
+		 */
+		KEEP,
+		/**
+		 * Commands which may be dropped are coalesced to the latest
+		 * command for each key, all others are kept
+		 * 
+		 * @see de.xirp.io.comm.data.DatapoolMessage#isMayDrop()
+		 */
+		COALESCE,
+		/**
+		 * All commands are dropped
+		 */
+		DROP;
+
+		/**
+		 * Gets the policy for the given name from the xirp.ini.
+		 * 
+		 * @param name
+		 *            <code>keep</code>, <code>coalesce</code> or
+		 *            <code>drop</code>
+		 * @return the policy, {@link #COALESCE} if the name is
+		 *         unknown
+		 */
+		public static Policy getPolicy(String name) {
+			if ("keep".equalsIgnoreCase(name)) { //$NON-NLS-1$
+				return KEEP;
+			}
+			if ("drop".equalsIgnoreCase(name)) { //$NON-NLS-1$
+				return DROP;
+			}
+			return COALESCE;
+		}
+	}
+
+	/**
+	 * Number used for naming the reconnect threads
+	 */
+	private static final AtomicInteger threadCount = new AtomicInteger( );
+	/**
+	 * Scheduler running the reconnect attempts of all robots
+	 */
+	private static final ScheduledExecutorService SCHEDULER = new ScheduledThreadPoolExecutor(2,
+			new ThreadFactory( ) {
+
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ReconnectSupervisor-" //$NON-NLS-1$
+							+ threadCount.incrementAndGet( ));
+					thread.setDaemon(true);
+					return thread;
+				}
+
+			});
+
+	/**
+	 * Data for connecting to the robot
+	 */
+	private final ConnectionObject connectObj;
+	/**
+	 * What to do with commands while reconnecting
+	 */
+	private final Policy policy;
+	/**
+	 * Delay in milliseconds before the first attempt
+	 */
+	private final long minDelay;
+	/**
+	 * Maximum delay in milliseconds between two attempts
+	 */
+	private final long maxDelay;
+	/**
+	 * Number of attempts before giving up, <code>0</code> for
+	 * unlimited attempts
+	 */
+	private final int maxAttempts;
+	/**
+	 * Random numbers for the jitter
+	 */
+	private final Random random = new Random( );
+
+	/**
+	 * Flag showing if a reconnect is in progress
+	 */
+	private boolean reconnecting;
+	/**
+	 * Number of the current attempt of the running reconnect
+	 */
+	private int attempt;
+	/**
+	 * Time in nanoseconds at which the connection was lost
+	 */
+	private long outageStart;
+	/**
+	 * The next scheduled attempt
+	 */
+	private ScheduledFuture<?> pending;
+
+	/**
+	 * Number of lost connections
+	 */
+	private long outages;
+	/**
+	 * Number of attempts over all reconnects
+	 */
+	private long attempts;
+	/**
+	 * Number of successful reconnects
+	 */
+	private long reconnects;
+	/**
+	 * Number of reconnects given up
+	 */
+	private long giveUps;
+	/**
+	 * Time in milliseconds the last successful reconnect took
+	 */
+	private long lastTimeToReconnect;
+	/**
+	 * Longest time in milliseconds a successful reconnect took
+	 */
+	private long maxTimeToReconnect;
+	/**
+	 * Sum of the times in milliseconds of all successful reconnects
+	 */
+	private long totalTimeToReconnect;
+
+	/**
+	 * Constructs a new supervisor for the robot of the given
+	 * connection object.
+	 * 
+	 * @param connectObj
+	 *            data for connecting to the robot
+	 * @param policy
+	 *            what to do with commands while reconnecting
+	 * @param minDelay
+	 *            delay in milliseconds before the first attempt
+	 * @param maxDelay
+	 *            maximum delay in milliseconds between two attempts
+	 * @param maxAttempts
+	 *            number of attempts before giving up, <code>0</code>
+	 *            for unlimited attempts
+	 */
+	public ReconnectSupervisor(ConnectionObject connectObj, Policy policy,
+			long minDelay, long maxDelay, int maxAttempts) {
+		this.connectObj = connectObj;
+		this.policy = policy;
+		this.minDelay = Math.max(minDelay, 1);
+		this.maxDelay = Math.max(maxDelay, this.minDelay);
+		this.maxAttempts = Math.max(maxAttempts, 0);
+	}
+
+	/**
+	 * Starts reconnecting. Called by the {@link CommunicationManager}
+	 * after the lost connection was shut down.
+	 */
+	synchronized void connectionLost() {
+		if (reconnecting) {
+			return;
+		}
+		reconnecting = true;
+		attempt = 0;
+		outageStart = System.nanoTime( );
+		outages++;
+		LOGGER.info(I18n.getString("ReconnectSupervisor.log.connectionLost", //$NON-NLS-1$
+				getRobotName( ),
+				policy) +
+				Constants.LINE_SEPARATOR);
+		schedule( );
+	}
+
+	/**
+	 * Schedules the next attempt. Has to be called while holding the
+	 * lock of this supervisor.
+	 */
+	private void schedule() {
+		pending = SCHEDULER.schedule(new Runnable( ) {
+
+			public void run() {
+				attempt( );
+			}
+
+		}, getDelay(attempt), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Gets the delay before the attempt with the given number.
+	 * 
+	 * @param number
+	 *            the number of the attempt starting with
+	 *            <code>0</code>
+	 * @return the delay in milliseconds
+	 */
+	long getDelay(int number) {
+		long delay = maxDelay;
+		if (number < 62 && (minDelay << number) >> number == minDelay) {
+			delay = Math.min(minDelay << number, maxDelay);
+		}
+		long half = delay / 2;
+		return delay - half + (long) (random.nextDouble( ) * (half + 1));
+	}
+
+	/**
+	 * Tries to connect to the robot and schedules the next attempt if
+	 * this fails.
+	 */
+	private void attempt() {
+		synchronized (this) {
+			if (!reconnecting) {
+				return;
+			}
+			attempt++;
+			attempts++;
+		}
+		boolean success = CommunicationManager.connect(connectObj);
+		boolean giveUp = false;
+		boolean cancelled = false;
+		synchronized (this) {
+			if (!reconnecting) {
+				cancelled = true;
+			}
+			else if (success && CommunicationManager.isConnected(getRobotName( ))) {
+				// the connection may have been lost again while
+				// connecting, then the next attempt is scheduled
+				reconnecting = false;
+				long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime( )
+						- outageStart);
+				reconnects++;
+				lastTimeToReconnect = time;
+				maxTimeToReconnect = Math.max(maxTimeToReconnect, time);
+				totalTimeToReconnect += time;
+				LOGGER.info(I18n.getString("ReconnectSupervisor.log.reconnected", //$NON-NLS-1$
+						getRobotName( ),
+						attempt,
+						time) +
+						Constants.LINE_SEPARATOR);
+			}
+			else if (maxAttempts > 0 && attempt >= maxAttempts) {
+				reconnecting = false;
+				giveUps++;
+				giveUp = true;
+				LOGGER.warn(I18n.getString("ReconnectSupervisor.log.gaveUp", //$NON-NLS-1$
+						getRobotName( ),
+						attempt) +
+						Constants.LINE_SEPARATOR);
+			}
+			else {
+				schedule( );
+			}
+		}
+		if (cancelled && success) {
+			// the reconnect was stopped while connecting
+			CommunicationManager.disconnect(getRobotName( ));
+		}
+		else if (giveUp) {
+			CommunicationManager.reconnectFinished(getRobotName( ));
+		}
+	}
+
+	/**
+	 * Stops a running reconnect.
+	 * 
+	 * @return <code>true</code> if a reconnect was running
+	 */
+	synchronized boolean cancel() {
+		if (!reconnecting) {
+			return false;
+		}
+		reconnecting = false;
+		if (pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the name of the supervised robot.
+	 * 
+	 * @return the robot name
+	 */
+	public String getRobotName() {
+		return connectObj.getRobotName( );
+	}
+
+	/**
+	 * Gets the data used for connecting to the robot.
+	 * 
+	 * @return the connection object
+	 */
+	public ConnectionObject getConnectionObject() {
+		return connectObj;
+	}
+
+	/**
+	 * Gets what happens to commands while reconnecting.
+	 * 
+	 * @return the policy
+	 */
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Checks if a reconnect is in progress.
+	 * 
+	 * @return <code>true</code> if the connection was lost and the
+	 *         supervisor is trying to reconnect
+	 */
+	public synchronized boolean isReconnecting() {
+		return reconnecting;
+	}
+
+	/**
+	 * Gets the number of attempts of the running or last reconnect.
+	 * 
+	 * @return the number of attempts
+	 */
+	public synchronized int getAttempt() {
+		return attempt;
+	}
+
+	/**
+	 * Gets the time since the connection was lost.
+	 * 
+	 * @return the time in milliseconds or <code>0</code> if no
+	 *         reconnect is in progress
+	 */
+	public synchronized long getCurrentOutage() {
+		if (!reconnecting) {
+			return 0;
+		}
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime( ) - outageStart);
+	}
+
+	/**
+	 * Gets the number of times the connection was lost.
+	 * 
+	 * @return the number of outages
+	 */
+	public synchronized long getOutageCount() {
+		return outages;
+	}
+
+	/**
+	 * Gets the number of attempts over all reconnects.
+	 * 
+	 * @return the number of attempts
+	 */
+	public synchronized long getAttemptCount() {
+		return attempts;
+	}
+
+	/**
+	 * Gets the number of successful reconnects.
+	 * 
+	 * @return the number of reconnects
+	 */
+	public synchronized long getReconnectCount() {
+		return reconnects;
+	}
+
+	/**
+	 * Gets the number of reconnects which were given up after the
+	 * maximum number of attempts.
+	 * 
+	 * @return the number of reconnects given up
+	 */
+	public synchronized long getGiveUpCount() {
+		return giveUps;
+	}
+
+	/**
+	 * Gets the time the last successful reconnect took, from the loss
+	 * of the connection to the established new connection.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public synchronized long getLastTimeToReconnect() {
+		return lastTimeToReconnect;
+	}
+
+	/**
+	 * Gets the longest time a successful reconnect took.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public synchronized long getMaxTimeToReconnect() {
+		return maxTimeToReconnect;
+	}
+
+	/**
+	 * Gets the average time of the successful reconnects.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	public synchronized long getAverageTimeToReconnect() {
+		if (reconnects == 0) {
+			return 0;
+		}
+		return totalTimeToReconnect / reconnects;
+	}
+}
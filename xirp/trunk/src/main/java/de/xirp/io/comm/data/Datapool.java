@@ -25,20 +25,21 @@
  */
 package de.xirp.io.comm.data;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import javolution.util.FastMap;
-import javolution.util.FastTable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 import de.xirp.io.comm.CommunicationManager;
+import de.xirp.io.comm.ReconnectSupervisor;
 import de.xirp.io.comm.handler.IHandler;
 import de.xirp.io.event.ConnectionEvent;
 import de.xirp.io.event.ConnectionListener;
@@ -47,7 +48,6 @@ import de.xirp.profile.Robot;
 import de.xirp.ui.Application;
 import de.xirp.util.Constants;
 import de.xirp.util.I18n;
-import de.xirp.util.collections.ConcurrentMultiValueHashMap;
 
 /**
  * The datapool is the main point for data which is received from the
@@ -56,7 +56,25 @@ import de.xirp.util.collections.ConcurrentMultiValueHashMap;
  * the keys ir_front and ir_rear whereas incoming data of a laser
  * scanner may be saved as whole float array under the key
  * laser_front.<br/><br/>Plugins may add listeners for send and
- * received data to the datapool and/or just get the actual value.
+ * received data to the datapool and/or just get the actual value.<br/><br/>
+ * High rate numeric data may be received using the typed methods like
+ * {@link #receiveDouble(String, long, double)} and distributed to
+ * typed listeners like {@link DoubleDatapoolListener}. The values are
+ * stored as primitives and no objects are created for each sample.
+ * Listeners of the object API registered for the same key are still
+ * notified with boxed values.<br/><br/>All methods taking a key name
+ * have a counterpart taking a {@link DatapoolKey} handle. The values
+ * and listeners are stored in an array indexed by the handle, so
+ * using handles avoids hashing the key name for every access.<br/><br/>
+ * Listeners may also be registered for all keys matching a
+ * {@link DatapoolKeyPattern}, f.e. <code>laser*</code>. The matching
+ * pattern listeners are stored with each key, so they cost no more
+ * than listeners registered for the key itself.<br/><br/>While the
+ * connection to the robot is reestablished after it was lost, the
+ * commands sent to the robot are kept, coalesced or dropped according
+ * to the {@link ReconnectSupervisor.Policy} of the robot.<br/><br/>
+ * Commands are sent in the order of their {@link SendPriority}, so
+ * control commands are not delayed by a backlog of bulk data.
  * 
  * @author Matthias Gernand
  * @author Rabea Gransberger
@@ -69,9 +87,10 @@ public final class Datapool {
 	private static RobotLogger logClass = RobotLogger.getLogger(Datapool.class);
 
 	/**
-	 * Key for listeners registered for all data of the robot
+	 * Time in milliseconds the send and receive threads wait for new
+	 * data before checking if they should keep running
 	 */
-	private final static String ROBOT_KEY = "%ROBOTALL%"; //$NON-NLS-1$
+	private final static long WAIT_TIMEOUT = 250;
 
 	/**
 	 * The robot this datapool is for
@@ -83,23 +102,20 @@ public final class Datapool {
 	private IHandler handler;
 
 	/**
-	 * Listeners for incoming data.
-	 * 
-	 * @see #ROBOT_KEY is a special key for this
+	 * Listeners for all incoming data of the robot
 	 */
-	private ConcurrentMultiValueHashMap<String, DatapoolListener> recvListeners = new ConcurrentMultiValueHashMap<String, DatapoolListener>( );
+	private volatile DatapoolListener[] robotReceiveListeners = DatapoolSlot.NO_LISTENERS;
 	/**
-	 * Listeners for outgoing data.
-	 * 
-	 * @see #ROBOT_KEY is a special key for this
+	 * Listeners for all outgoing data of the robot
 	 */
-	private ConcurrentMultiValueHashMap<String, DatapoolListener> sendListeners = new ConcurrentMultiValueHashMap<String, DatapoolListener>( );
+	private volatile DatapoolListener[] robotSendListeners = DatapoolSlot.NO_LISTENERS;
 
 	/**
 	 * Queue for sending data. Data is not sent directly, to prevent
-	 * failures and to decouple the sender from the sending
+	 * failures and to decouple the sender from the sending. The queue
+	 * has a lane for each {@link SendPriority}.
 	 */
-	private final Queue<DatapoolMessage> sendQueue = new ConcurrentLinkedQueue<DatapoolMessage>( );
+	private final SendQueue sendQueue = new SendQueue( );
 	/**
 	 * Queue for received data. Data is not distributed directly to
 	 * the registered listeners, to decouple the sending robot from
@@ -109,20 +125,80 @@ public final class Datapool {
 	// ConcurrentLinkedQueue<DatapoolMessage>( );
 	private final DatapoolQueue receiveQueue = new DatapoolQueue( );
 	/**
-	 * Current data for each key
+	 * Current data, history and listeners for each key indexed by
+	 * {@link DatapoolKey#getIndex()}. The array is replaced by a copy
+	 * when a slot is added.
 	 */
-	private FastMap<String, Object> data = new FastMap<String, Object>( ).setShared(true);
-
+	private volatile DatapoolSlot[] slots = new DatapoolSlot[0];
+	/**
+	 * Lock for adding slots and modifying the listeners
+	 */
+	private final Object slotLock = new Object( );
+	/**
+	 * Receive listeners registered with a pattern, guarded by
+	 * {@link #slotLock}
+	 */
+	private final List<PatternSubscription> receivePatterns = new ArrayList<PatternSubscription>( );
+	/**
+	 * Send listeners registered with a pattern, guarded by
+	 * {@link #slotLock}
+	 */
+	private final List<PatternSubscription> sendPatterns = new ArrayList<PatternSubscription>( );
+	/**
+	 * Number of notifications suppressed by filters
+	 */
+	private final AtomicLong suppressed = new AtomicLong( );
+	/**
+	 * Filtered listeners with a value held back by the minimum
+	 * interval, only accessed by the receive thread
+	 */
+	private final List<FilteredListener> pendingFilters = new ArrayList<FilteredListener>( );
+	/**
+	 * Journal recording the received and sent data or
+	 * <code>null</code> if no journal is recorded
+	 */
+	private volatile DatapoolJournal journal;
 	/**
-	 * Threadpool used for distributing received data
+	 * What to do with commands while reconnecting, <code>null</code>
+	 * if the robot is not reconnecting. Changed while holding
+	 * {@link #outageLock}.
 	 */
-	private ExecutorService threadPool = Executors.newCachedThreadPool( );
+	private volatile ReconnectSupervisor.Policy outage;
+	/**
+	 * Lock for changing the send queue while reconnecting, the send
+	 * thread waits on it until the reconnect finished
+	 */
+	private final Object outageLock = new Object( );
+	/**
+	 * The queued commands which may be dropped, by key, if the
+	 * commands are coalesced while reconnecting. Guarded by
+	 * {@link #outageLock}.
+	 */
+	private final Map<String, DatapoolMessage> coalesced = new HashMap<String, DatapoolMessage>( );
+	/**
+	 * Number of commands dropped while reconnecting
+	 */
+	private final AtomicLong outageDropped = new AtomicLong( );
+	/**
+	 * Number of commands replaced by a newer command for the same key
+	 * while reconnecting
+	 */
+	private final AtomicLong outageCoalesced = new AtomicLong( );
 
 	/**
 	 * Flag showing if the datapool is stopped. If this is the case
 	 * all running threads should also stop
 	 */
-	private boolean stopped = false;
+	private volatile boolean stopped = false;
+
+	/**
+	 * The thread working on the send queue
+	 */
+	private Thread sendThread;
+	/**
+	 * The thread working on the receive queue
+	 */
+	private Thread receiveThread;
 
 	/**
 	 * Constructs a new datapool for the given robot, initializes
@@ -141,23 +217,43 @@ public final class Datapool {
 	/**
 	 * Initializes all robot dependant listeners for this datapool
 	 * which might give important event.<br/><br/> - On disconnect
-	 * all queues and data for this robot is cleared
+	 * all queues and data for this robot is cleared<br/> - If the
+	 * connection was lost and is reestablished, sending is suspended
+	 * and the send queue is kept according to the policy of the
+	 * robot until the robot is connected again
 	 */
 	private void initListeners() {
 		CommunicationManager.addConnectionListener(new ConnectionListener( ) {
 
 			@Override
-			public void connectionEstablished(@SuppressWarnings("unused")
-			ConnectionEvent event) {
-				// not used
+			public void connectionEstablished(ConnectionEvent event) {
+				if (event.getRobotName( ).equals(robot.getName( ))) {
+					endOutage( );
+				}
 			}
 
 			@Override
 			public void disconnected(ConnectionEvent event) {
 				if (event.getRobotName( ).equals(robot.getName( ))) {
-					sendQueue.clear( );
+					if (event.isReconnecting( )) {
+						ReconnectSupervisor supervisor = CommunicationManager.getReconnectSupervisor(robot.getName( ));
+						beginOutage(supervisor != null ? supervisor.getPolicy( )
+								: ReconnectSupervisor.Policy.DROP);
+					}
+					else {
+						endOutage( );
+						sendQueue.clear( );
+					}
 					receiveQueue.clear( );
-					data.clear( );
+					for (DatapoolSlot slot : slots) {
+						if (slot != null) {
+							slot.value = null;
+							PrimitiveChannel channel = slot.getChannel( );
+							if (channel != null) {
+								channel.reset( );
+							}
+						}
+					}
 				}
 			}
 
@@ -171,72 +267,126 @@ public final class Datapool {
 	 *         the main shell is not disposed
 	 */
 	private boolean keepThreadRunning() {
-		return !stopped
-				&& !Application.getApplication( ).getShell( ).isDisposed( );
+		if (stopped) {
+			return false;
+		}
+		// the datapool may be used without UI, f.e. for replaying
+		// recorded data
+		Application app = Application.getApplication( );
+		return app == null || app.getShell( ) == null
+				|| !app.getShell( ).isDisposed( );
 	}
 
 	/**
 	 * Starts all threads of the datapool. Currently these are the
 	 * send and receive thread which work on the send and receive
-	 * queues and will stop when the datapool itself is stopped
+	 * queues and will stop when the datapool itself is stopped.<br/><br/>
+	 * The threads block until data is offered to the queues and then
+	 * process all pending messages at once.
 	 */
 	private void startThreads() {
-		Thread sendThread = new Thread("DatapoolSend_" + robot.getName( )) { //$NON-NLS-1$
+		sendThread = new Thread("DatapoolSend_" + robot.getName( )) { //$NON-NLS-1$
 
 			@Override
 			public void run() {
 				while (keepThreadRunning( )) {
-					// get the next message to send
-					DatapoolMessage sendMsg = sendQueue.poll( );
-					if (sendMsg != null && handler != null) {
-						// Send over Robot and fire the event
-						handler.sendToRobot(sendMsg);
-						fireSendEvent(new DatapoolEvent(this,
-								robot,
-								sendMsg.getTimestamp( ),
-								sendMsg.getKey( ),
-								sendMsg.getValue( )));
-					}
+					DatapoolMessage message;
 					try {
-						Thread.sleep(5);
+						if (outage != null) {
+							// keep the messages until reconnected
+							synchronized (outageLock) {
+								if (outage != null) {
+									outageLock.wait(WAIT_TIMEOUT);
+								}
+							}
+							continue;
+						}
+						// wait for the next message to send, one message
+						// is taken at a time so a command of higher
+						// priority is sent next even if a backlog is
+						// queued
+						message = sendQueue.poll(WAIT_TIMEOUT,
+								TimeUnit.MILLISECONDS);
+						if (message == null) {
+							continue;
+						}
 					}
 					catch (InterruptedException e) {
-						// do nothing
+						// check if the thread should keep running
+						continue;
+					}
+					IHandler currentHandler = handler;
+					if (currentHandler != null) {
+						// a failing message must not stop this thread,
+						// otherwise no more commands reach the robot
+						try {
+							// Send over Robot and fire the event
+							currentHandler.sendToRobot(message);
+							fireSendEvent(getSlot(message.getDatapoolKey( )),
+									new DatapoolEvent(this,
+											robot,
+											message.getTimestamp( ),
+											message.getKey( ),
+											message.getValue( )));
+						}
+						catch (RuntimeException e) {
+							logClass.error(robot.getName( ),
+									I18n.getString("Datapool.log.sendFailed", //$NON-NLS-1$
+											message.getKey( ),
+											e.getMessage( ))
+											+ Constants.LINE_SEPARATOR,
+									e);
+						}
 					}
 				}
 			}
 		};
 		sendThread.start( );
-		Thread receiveThread = new Thread("DatapoolReceive_" + robot.getName( )) { //$NON-NLS-1$
+		receiveThread = new Thread("DatapoolReceive_" + robot.getName( )) { //$NON-NLS-1$
 
 			@Override
 			public void run() {
+				List<DatapoolMessage> pending = new ArrayList<DatapoolMessage>( );
+				List<PrimitiveChannel> pendingChannels = new ArrayList<PrimitiveChannel>( );
 				while (keepThreadRunning( )) {
-					// Get the next receive message
-					DatapoolMessage receiveMsg = receiveQueue.poll( );
-					if (receiveMsg != null) {
+					try {
+						// wait for received messages, but not longer
+						// than until the next held back value is due
+						receiveQueue.drainTo(pending,
+								pendingChannels,
+								getReceiveTimeout( ),
+								TimeUnit.MILLISECONDS);
+					}
+					catch (InterruptedException e) {
+						// check if the thread should keep running
+						continue;
+					}
+					for (DatapoolMessage receiveMsg : pending) {
 						// get the old data for this key and
 						// check if the current data is really new
-						Object aux = data.put(receiveMsg.getKey( ),
-								receiveMsg.getValue( ));
+						DatapoolSlot slot = getOrCreateSlot(receiveMsg.getDatapoolKey( ));
+						Object aux = slot.value;
+						slot.value = receiveMsg.getValue( );
 
 						boolean changed = aux == null
 								|| !aux.equals(receiveMsg.getValue( ));
 
 						// fire the event to the listeners
-						fireReceiveEvent(new DatapoolEvent(this,
-								robot,
+						fireReceiveEvent(slot,
 								receiveMsg.getTimestamp( ),
 								receiveMsg.getKey( ),
-								receiveMsg.getValue( )), changed);
-
-					}
-					try {
-						Thread.sleep(5);
+								receiveMsg.getValue( ),
+								changed,
+								receiveMsg.isMayDrop( ));
 					}
-					catch (InterruptedException e) {
-						// do nothing
+					pending.clear( );
+					for (PrimitiveChannel channel : pendingChannels) {
+						if (channel.publish( )) {
+							fireChannel(channel);
+						}
 					}
+					pendingChannels.clear( );
+					notifyPendingFilters( );
 				}
 			}
 		};
@@ -250,13 +400,34 @@ public final class Datapool {
 	 * 
 	 * @param message
 	 *            the message to send
-	 * @return <code>false</code> if there was no more space in the
-	 *         send queue or there was no handler available
+	 * @return <code>false</code> if the message or its key was
+	 *         <code>null</code>, there was no more space in the send
+	 *         queue or there was no handler available
 	 */
 	public boolean sendToRobot(DatapoolMessage message) {
+		if (message == null || message.getKey( ) == null) {
+			logClass.warn(robot.getName( ),
+					I18n.getString("Datapool.log.failedToSendMessageNull") //$NON-NLS-1$
+							+ Constants.LINE_SEPARATOR);
+			return false;
+		}
 		boolean ableToSend = false;
 		if (handler != null) {
-			ableToSend = sendQueue.offer(message);
+			ReconnectSupervisor.Policy policy = outage;
+			if (policy == null) {
+				ableToSend = sendQueue.offer(message, getSendPriority(message));
+			}
+			else if (policy == ReconnectSupervisor.Policy.DROP) {
+				outageDropped.incrementAndGet( );
+				return false;
+			}
+			else {
+				ableToSend = offerWhileReconnecting(message);
+			}
+			DatapoolJournal currentJournal = journal;
+			if (ableToSend && currentJournal != null) {
+				currentJournal.recordSend(message);
+			}
 			if (!ableToSend) {
 				logClass.warn(robot.getName( ),
 						I18n.getString("Datapool.log.failedToSend") //$NON-NLS-1$
@@ -288,13 +459,24 @@ public final class Datapool {
 	 *         listeners
 	 */
 	public boolean receiveToDatapool(DatapoolMessage message) {
-		if (message == null || message.getValue( ) == null) {
+		if (message == null || message.getKey( ) == null
+				|| message.getValue( ) == null) {
 			logClass.warn(robot.getName( ),
 					I18n.getString("Datapool.log.failedToReceiveMessageNull") //$NON-NLS-1$
 							+ Constants.LINE_SEPARATOR);
 			return false;
 		}
 
+		DatapoolSlot slot = getSlot(message.getDatapoolKey( ));
+		DatapoolHistory history = slot != null ? slot.history : null;
+		if (history != null) {
+			history.add(message.getTimestamp( ), message.getValue( ));
+		}
+		DatapoolJournal currentJournal = journal;
+		if (currentJournal != null) {
+			currentJournal.recordReceive(message);
+		}
+
 		boolean ableToReceive = receiveQueue.offer(message);
 		if (!ableToReceive) {
 			logClass.warn(robot.getName( ),
@@ -308,252 +490,1714 @@ public final class Datapool {
 	}
 
 	/**
-	 * Sets the handler which is used by this datapool for sending
-	 * messages to the robot</br> This method is called automatically
-	 * when connecting to the robot, and must not be called explictly
+	 * Adds all messages of the given batch to the queue of messages
+	 * which were received from the robot. The messages are added at
+	 * once, so the receive thread is woken up only once for the whole
+	 * batch. Invalid messages are skipped as in
+	 * {@link #receiveToDatapool(DatapoolMessage)}.<br/><br/>The
+	 * batch is cleared afterwards and may be reused by the caller.
 	 * 
-	 * @param handler
-	 *            the handler to set
+	 * @param batch
+	 *            the messages which were received
+	 * @return the number of messages added to the queue
 	 */
-	public void setHandler(IHandler handler) {
-		this.handler = handler;
+	public int offerAll(DatapoolBatch batch) {
+		DatapoolMessage[] messages = batch.messages;
+		DatapoolJournal currentJournal = journal;
+		int count = 0;
+		for (int i = 0; i < batch.size; i++) {
+			DatapoolMessage message = messages[i];
+			if (message == null || message.getKey( ) == null
+					|| message.getValue( ) == null) {
+				logClass.warn(robot.getName( ),
+						I18n.getString("Datapool.log.failedToReceiveMessageNull") //$NON-NLS-1$
+								+ Constants.LINE_SEPARATOR);
+				continue;
+			}
+			DatapoolSlot slot = getSlot(message.getDatapoolKey( ));
+			DatapoolHistory history = slot != null ? slot.history : null;
+			if (history != null) {
+				history.add(message.getTimestamp( ), message.getValue( ));
+			}
+			if (currentJournal != null) {
+				currentJournal.recordReceive(message);
+			}
+			messages[count++] = message;
+		}
+		receiveQueue.addAll(messages, count);
+		batch.clear( );
+		return count;
 	}
 
 	/**
-	 * Get's the handler of the datapools robot
+	 * Receives the given double value for the given key. The value is
+	 * stored as primitive and distributed to the registered
+	 * {@link DoubleDatapoolListener}s without creating objects. If a
+	 * new value is received before the last one was distributed, only
+	 * the new value is distributed.
 	 * 
-	 * @return the handler for the robot or <code>null</code> if the
-	 *         handler was not set yet, f.e. if no connection to the
-	 *         robot was ever established
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value in milliseconds
+	 * @param value
+	 *            the value
+	 * @return <code>false</code> if the key was <code>null</code>
+	 * @see #addDoubleReceiveListener(String, DoubleDatapoolListener)
 	 */
-	public IHandler getHandler() {
-		return handler;
+	public boolean receiveDouble(String key, long timestamp, double value) {
+		return receiveDouble(DatapoolKey.get(key), timestamp, value);
 	}
 
 	/**
-	 * Distributes the given event to all listeners which are
-	 * registered to the events key or to the robot in an own thread
+	 * Receives the given double value for the given key.
 	 * 
-	 * @param event
-	 *            the event to distribute
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value in milliseconds
+	 * @param value
+	 *            the value
+	 * @return <code>false</code> if the key was <code>null</code>
+	 * @see #receiveDouble(String, long, double)
 	 */
-	private void fireSendEvent(final DatapoolEvent event) {
-		threadPool.execute(new Runnable( ) {
-
-			public void run() {
-				for (DatapoolListener listener : sendListeners.get(event.getKey( ))) {
-					listener.valueChanged(event);
-				}
-				for (DatapoolListener listener : sendListeners.get(ROBOT_KEY)) {
-					listener.valueChanged(event);
-				}
-			}
-
-		});
-
+	public boolean receiveDouble(DatapoolKey key, long timestamp,
+			double value) {
+		if (key == null) {
+			logNullReceive( );
+			return false;
+		}
+		DatapoolSlot slot = getOrCreateSlot(key);
+		DatapoolHistory history = slot.history;
+		if (history != null) {
+			history.add(timestamp, value);
+		}
+		DatapoolJournal currentJournal = journal;
+		if (currentJournal != null) {
+			currentJournal.recordDouble(key.getName( ), timestamp, value);
+		}
+		PrimitiveChannel channel = slot.getOrCreateChannel( );
+		channel.setDouble(timestamp, value);
+		receiveQueue.offerChannel(channel);
+		return true;
 	}
 
 	/**
-	 * Distributes the given event to all listeners which are
-	 * registered to the events key or to the robot in an own thread
+	 * Receives the given long value for the given key. The value is
+	 * stored as primitive and distributed to the registered
+	 * {@link LongDatapoolListener}s and {@link DoubleDatapoolListener}s
+	 * without creating objects. If a new value is received before the
+	 * last one was distributed, only the new value is distributed.
 	 * 
-	 * @param event
-	 *            the event to distribute
-	 * @param changed
-	 *            listeners which like to be notified only when data
-	 *            has changed are skipped is this flag is
-	 *            <code>false</code>
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value in milliseconds
+	 * @param value
+	 *            the value
+	 * @return <code>false</code> if the key was <code>null</code>
+	 * @see #addLongReceiveListener(String, LongDatapoolListener)
 	 */
-	private void fireReceiveEvent(final DatapoolEvent event,
-			final boolean changed) {
-		threadPool.execute(new Runnable( ) {
+	public boolean receiveLong(String key, long timestamp, long value) {
+		return receiveLong(DatapoolKey.get(key), timestamp, value);
+	}
 
-			public void run() {
-				for (DatapoolListener listener : recvListeners.get(event.getKey( ))) {
-					if (listener.notifyOnlyWhenChanged( )) {
-						if (changed) {
-							listener.valueChanged(event);
-						}
-					}
-					else {
-						listener.valueChanged(event);
-					}
-				}
-				for (DatapoolListener listener : recvListeners.get(ROBOT_KEY)) {
-					if (listener.notifyOnlyWhenChanged( )) {
-						if (changed) {
-							listener.valueChanged(event);
-						}
-					}
-					else {
-						listener.valueChanged(event);
-					}
-				}
-			}
-		});
+	/**
+	 * Receives the given long value for the given key.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value in milliseconds
+	 * @param value
+	 *            the value
+	 * @return <code>false</code> if the key was <code>null</code>
+	 * @see #receiveLong(String, long, long)
+	 */
+	public boolean receiveLong(DatapoolKey key, long timestamp, long value) {
+		if (key == null) {
+			logNullReceive( );
+			return false;
+		}
+		DatapoolSlot slot = getOrCreateSlot(key);
+		DatapoolHistory history = slot.history;
+		if (history != null) {
+			history.add(timestamp, value);
+		}
+		DatapoolJournal currentJournal = journal;
+		if (currentJournal != null) {
+			currentJournal.recordLong(key.getName( ), timestamp, value);
+		}
+		PrimitiveChannel channel = slot.getOrCreateChannel( );
+		channel.setLong(timestamp, value);
+		receiveQueue.offerChannel(channel);
+		return true;
 	}
 
 	/**
-	 * Gets the received value for the given key from the datapool
+	 * Receives the given float array for the given key. The values
+	 * are copied to a buffer which is reused for later arrays, so the
+	 * caller may reuse the given array. The values are distributed to
+	 * the registered {@link FloatArrayDatapoolListener}s. If new values
+	 * are received before the last ones were distributed, only the new
+	 * values are distributed.
 	 * 
 	 * @param key
-	 *            the key to get the value for
-	 * @return the value or <code>null</code> if no value for the
-	 *         given key exists
+	 *            the key of the values
+	 * @param timestamp
+	 *            the timestamp of the values in milliseconds
+	 * @param values
+	 *            the values
+	 * @return <code>false</code> if the key or values were
+	 *         <code>null</code>
+	 * @see #addFloatArrayReceiveListener(String,
+	 *      FloatArrayDatapoolListener)
 	 */
-	public Object getValue(String key) {
-		return data.get(key);
+	public boolean receiveFloatArray(String key, long timestamp,
+			float[] values) {
+		return receiveFloatArray(DatapoolKey.get(key), timestamp, values);
 	}
 
 	/**
-	 * Adds the given listeners to the list of listeners which are
-	 * notified if data for the given key is received from the robot
+	 * Receives the given float array for the given key.
 	 * 
 	 * @param key
-	 *            the key to register on
-	 * @param listener
-	 *            the listener to register
-	 * @see #addRobotReceiveListener(DatapoolListener)
+	 *            the key of the values
+	 * @param timestamp
+	 *            the timestamp of the values in milliseconds
+	 * @param values
+	 *            the values
+	 * @return <code>false</code> if the key or values were
+	 *         <code>null</code>
+	 * @see #receiveFloatArray(String, long, float[])
 	 */
-	public void addDatapoolReceiveListener(String key, DatapoolListener listener) {
-		if (key != null && listener != null) {
-			recvListeners.put(key, listener);
+	public boolean receiveFloatArray(DatapoolKey key, long timestamp,
+			float[] values) {
+		if (key == null || values == null) {
+			logNullReceive( );
+			return false;
+		}
+		DatapoolSlot slot = getOrCreateSlot(key);
+		DatapoolHistory history = slot.history;
+		if (history != null) {
+			history.add(timestamp, values.clone( ));
 		}
+		DatapoolJournal currentJournal = journal;
+		if (currentJournal != null) {
+			currentJournal.recordFloatArray(key.getName( ), timestamp, values);
+		}
+		PrimitiveChannel channel = slot.getOrCreateChannel( );
+		channel.setFloatArray(timestamp, values);
+		receiveQueue.offerChannel(channel);
+		return true;
 	}
 
 	/**
-	 * Adds the given listeners to the list of listeners which are
-	 * notified if data is received from the robot
-	 * 
-	 * @param listener
-	 *            the listener to register
-	 * @see #addRobotReceiveListener(DatapoolListener)
+	 * Logs that a typed value could not be received because the key
+	 * or value was <code>null</code>.
 	 */
-	public void addRobotReceiveListener(DatapoolListener listener) {
-		addDatapoolReceiveListener(ROBOT_KEY, listener);
+	private void logNullReceive() {
+		logClass.warn(robot.getName( ),
+				I18n.getString("Datapool.log.failedToReceiveMessageNull") //$NON-NLS-1$
+						+ Constants.LINE_SEPARATOR);
 	}
 
 	/**
-	 * Removes the given listeners from the list of listeners which
-	 * are notified if data for the given key is received from the
-	 * robot
+	 * Gets the slot for the given key.
 	 * 
 	 * @param key
-	 *            the key to deregister from
-	 * @param listener
-	 *            the listener to deregister
-	 * @return <code>true</code> if the listener was removed or the
-	 *         key or listener given were <code>null</code>
-	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 *            the key to get the slot for
+	 * @return the slot or <code>null</code> if there is no slot for
+	 *         the key yet or the key was <code>null</code>
 	 */
-	public boolean removeDatapoolReceiveListener(String key,
-			DatapoolListener listener) {
-		if (key != null && listener != null) {
-			return recvListeners.remove(key, listener);
+	private DatapoolSlot getSlot(DatapoolKey key) {
+		if (key == null) {
+			return null;
 		}
-		return true;
+		DatapoolSlot[] aux = slots;
+		int idx = key.getIndex( );
+		return idx < aux.length ? aux[idx] : null;
 	}
 
 	/**
-	 * Removes the given listeners from the list of listeners which
-	 * are notified if data is received from the robot
+	 * Gets the slot for the given key and creates it if it does not
+	 * exist yet.
 	 * 
-	 * @param listener
-	 *            the listener to deregister
-	 * @return <code>true</code> if the listener was removed or the
-	 *         key or listener given were <code>null</code>
-	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 * @param key
+	 *            the key to get the slot for, must not be
+	 *            <code>null</code>
+	 * @return the slot
 	 */
-	public boolean removeRobotReceiveListener(DatapoolListener listener) {
-		return removeDatapoolReceiveListener(ROBOT_KEY, listener);
+	private DatapoolSlot getOrCreateSlot(DatapoolKey key) {
+		DatapoolSlot slot = getSlot(key);
+		if (slot != null) {
+			return slot;
+		}
+		synchronized (slotLock) {
+			DatapoolSlot[] old = slots;
+			int idx = key.getIndex( );
+			if (idx < old.length && old[idx] != null) {
+				return old[idx];
+			}
+			// copy, so threads reading the old array are not affected
+			int length = Math.max(old.length,
+					Math.max(idx + 1, DatapoolKey.getKeyCount( )));
+			DatapoolSlot[] aux = Arrays.copyOf(old, length);
+			slot = new DatapoolSlot(key);
+			rebuildPatternListeners(slot);
+			aux[idx] = slot;
+			slots = aux;
+			return slot;
+		}
 	}
 
 	/**
-	 * Removes every occurrence of the given listeners from the list
-	 * of listeners which are notified if data is received from the
-	 * robot
+	 * Distributes the published sample of the given channel. The typed
+	 * listeners are notified directly from the receive thread, the
+	 * listeners of the object API are notified with the boxed value
+	 * using the {@link DatapoolDispatcher}.
 	 * 
-	 * @param listener
-	 *            the listener to deregister
-	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 * @param channel
+	 *            the channel to distribute the sample of
 	 */
-	public void removeDatapoolReceiveListener(DatapoolListener listener) {
-		List<String> keys = new ArrayList<String>( );
-
-		for (Entry<String, FastTable<DatapoolListener>> e : recvListeners.entrySet( )) {
-			for (DatapoolListener dl : e.getValue( )) {
-				if (dl.equals(listener)) {
-					keys.add(e.getKey( ));
+	private void fireChannel(PrimitiveChannel channel) {
+		String key = channel.getKey( ).getName( );
+		long timestamp = channel.getTimestamp( );
+		boolean changed = channel.isChanged( );
+		// each listener is guarded on its own, so a failing listener
+		// does not keep the others from being notified
+		switch (channel.getType( )) {
+			case PrimitiveChannel.DOUBLE:
+				double doubleValue = channel.getDouble( );
+				for (DoubleDatapoolListener listener : channel.getDoubleListeners( )) {
+					if (changed || !listener.notifyOnlyWhenChanged( )) {
+						try {
+							listener.valueChanged(key, timestamp, doubleValue);
+						}
+						catch (RuntimeException e) {
+							logListenerFailure(key, e);
+						}
+					}
 				}
-			}
+				break;
+			case PrimitiveChannel.LONG:
+				long longValue = channel.getLong( );
+				for (LongDatapoolListener listener : channel.getLongListeners( )) {
+					if (changed || !listener.notifyOnlyWhenChanged( )) {
+						try {
+							listener.valueChanged(key, timestamp, longValue);
+						}
+						catch (RuntimeException e) {
+							logListenerFailure(key, e);
+						}
+					}
+				}
+				for (DoubleDatapoolListener listener : channel.getDoubleListeners( )) {
+					if (changed || !listener.notifyOnlyWhenChanged( )) {
+						try {
+							listener.valueChanged(key, timestamp, longValue);
+						}
+						catch (RuntimeException e) {
+							logListenerFailure(key, e);
+						}
+					}
+				}
+				break;
+			case PrimitiveChannel.FLOAT_ARRAY:
+				float[] array = channel.getArray( );
+				int length = channel.getLength( );
+				for (FloatArrayDatapoolListener listener : channel.getFloatArrayListeners( )) {
+					try {
+						listener.valueChanged(key, timestamp, array, length);
+					}
+					catch (RuntimeException e) {
+						logListenerFailure(key, e);
+					}
+				}
+				break;
 		}
 
-		for (String key : keys) {
-			removeDatapoolReceiveListener(key, listener);
+		// compatibility with the object API, values are only boxed if
+		// someone is listening
+		DatapoolSlot slot = getSlot(channel.getKey( ));
+		if (slot.receiveListeners.length > 0
+				|| slot.receivePatternListeners.length > 0
+				|| robotReceiveListeners.length > 0) {
+			Object value = channel.getPublishedValue( );
+			if (value != null) {
+				// a channel only keeps its latest sample anyway
+				fireReceiveEvent(slot, timestamp, key, value, changed, true);
+			}
 		}
 	}
 
 	/**
-	 * Adds the given listeners to the list of listeners which are
-	 * notified if data for the given key is send to the robot
+	 * Logs the failure of a typed listener.
 	 * 
 	 * @param key
-	 *            the key to register on
-	 * @param listener
-	 *            the listener to register
-	 * @see #addRobotSendListener(DatapoolListener)
+	 *            the key the listener was notified for
+	 * @param e
+	 *            the exception thrown by the listener
 	 */
-	public void addDatapoolSendListener(String key, DatapoolListener listener) {
-		if (key != null && listener != null) {
-			sendListeners.put(key, listener);
-		}
+	private void logListenerFailure(String key, RuntimeException e) {
+		logClass.error(robot.getName( ),
+				I18n.getString("Datapool.log.listenerFailed", key, //$NON-NLS-1$
+						e.getMessage( ))
+						+ Constants.LINE_SEPARATOR,
+				e);
 	}
 
 	/**
-	 * Adds the given listeners to the list of listeners which are
-	 * notified if data is send to the robot
+	 * Sets the handler which is used by this datapool for sending
+	 * messages to the robot</br> This method is called automatically
+	 * when connecting to the robot, and must not be called explictly
 	 * 
-	 * @param listener
-	 *            the listener to register
-	 * @see #addRobotSendListener(DatapoolListener)
+	 * @param handler
+	 *            the handler to set
 	 */
-	public void addRobotSendListener(DatapoolListener listener) {
-		addDatapoolSendListener(ROBOT_KEY, listener);
+	public void setHandler(IHandler handler) {
+		this.handler = handler;
 	}
 
 	/**
-	 * Removes the given listeners from the list of listeners which
-	 * are notified if data for the given key is received from the
-	 * robot
+	 * Get's the handler of the datapools robot
 	 * 
-	 * @param key
-	 *            the key to deregister from
-	 * @param listener
-	 *            the listener to deregister
-	 * @return <code>true</code> if the listener was removed or the
-	 *         key or listener given were <code>null</code>
-	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 * @return the handler for the robot or <code>null</code> if the
+	 *         handler was not set yet, f.e. if no connection to the
+	 *         robot was ever established
 	 */
-	public boolean removeDatapoolSendListener(String key,
-			DatapoolListener listener) {
-		if (key != null && listener != null) {
-			return sendListeners.remove(key, listener);
-		}
-		return true;
+	public IHandler getHandler() {
+		return handler;
 	}
 
 	/**
-	 * Removes the given listeners from the list of listeners which
-	 * are notified if data is received from the robot
+	 * Starts recording all data received from and sent to the robot
+	 * to a new journal file in the journal directory. A running
+	 * journal is stopped.
 	 * 
-	 * @param listener
-	 *            the listener to deregister
-	 * @return <code>true</code> if the listener was removed or the
-	 *         key or listener given were <code>null</code>
-	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 * @return the new journal
+	 * @throws IOException
+	 *             if the journal file could not be created
+	 * @see DatapoolReplayer
 	 */
-	public boolean removeRobotSendListener(DatapoolListener listener) {
-		return removeDatapoolSendListener(ROBOT_KEY, listener);
+	public DatapoolJournal startJournal() throws IOException {
+		return startJournal(DatapoolJournal.create(robot.getName( )));
+	}
+
+	/**
+	 * Starts recording all data received from and sent to the robot
+	 * to the given file. A running journal is stopped.
+	 * 
+	 * @param file
+	 *            the file to record to, an existing file is
+	 *            overwritten
+	 * @return the new journal
+	 * @throws IOException
+	 *             if the journal file could not be created
+	 */
+	public DatapoolJournal startJournal(File file) throws IOException {
+		return startJournal(new DatapoolJournal(file));
+	}
+
+	/**
+	 * Replaces the running journal by the given one.
+	 * 
+	 * @param newJournal
+	 *            the journal to record to
+	 * @return the given journal
+	 */
+	private DatapoolJournal startJournal(DatapoolJournal newJournal) {
+		stopJournal( );
+		journal = newJournal;
+		logClass.info(robot.getName( ),
+				I18n.getString("Datapool.log.journalStarted", //$NON-NLS-1$
+						newJournal.getFile( ).getAbsolutePath( ))
+						+ Constants.LINE_SEPARATOR);
+		return newJournal;
+	}
+
+	/**
+	 * Stops recording to the running journal.
+	 * 
+	 * @return the file of the stopped journal or <code>null</code>
+	 *         if no journal was running
+	 */
+	public File stopJournal() {
+		DatapoolJournal oldJournal = journal;
+		if (oldJournal == null) {
+			return null;
+		}
+		journal = null;
+		oldJournal.close( );
+		logClass.info(robot.getName( ),
+				I18n.getString("Datapool.log.journalStopped", //$NON-NLS-1$
+						oldJournal.getFile( ).getAbsolutePath( ),
+						oldJournal.getFrameCount( ),
+						oldJournal.getSkippedCount( ))
+						+ Constants.LINE_SEPARATOR);
+		return oldJournal.getFile( );
+	}
+
+	/**
+	 * Gets the running journal.
+	 * 
+	 * @return the journal or <code>null</code> if no journal is
+	 *         running
+	 */
+	public DatapoolJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Distributes a message to the send listeners without sending it
+	 * to the robot. Used by the {@link DatapoolReplayer} for
+	 * replaying recorded messages which were sent to the robot.
+	 * 
+	 * @param message
+	 *            the message to distribute
+	 */
+	void replaySend(DatapoolMessage message) {
+		fireSendEvent(getSlot(message.getDatapoolKey( )),
+				new DatapoolEvent(this,
+						robot,
+						message.getTimestamp( ),
+						message.getKey( ),
+						message.getValue( )));
+	}
+
+	/**
+	 * Distributes the given event to all listeners which are
+	 * registered to the events key or to the robot using the shared
+	 * {@link DatapoolDispatcher}
+	 * 
+	 * @param slot
+	 *            the slot of the events key or <code>null</code> if
+	 *            there is none
+	 * @param event
+	 *            the event to distribute
+	 */
+	private void fireSendEvent(DatapoolSlot slot, DatapoolEvent event) {
+		DatapoolDispatcher dispatcher = DatapoolDispatcher.getInstance( );
+		if (slot != null) {
+			for (DatapoolListener listener : slot.sendListeners) {
+				dispatcher.dispatch(listener, event);
+			}
+			for (DatapoolListener listener : slot.sendPatternListeners) {
+				dispatcher.dispatch(listener, event);
+			}
+		}
+		for (DatapoolListener listener : robotSendListeners) {
+			dispatcher.dispatch(listener, event);
+		}
+	}
+
+	/**
+	 * Distributes the given value to all listeners which are
+	 * registered to the key or to the robot using the shared
+	 * {@link DatapoolDispatcher}.<br/><br/>The filters of the
+	 * listeners are checked before dispatching, the event is only
+	 * created if at least one listener has to be notified.
+	 * 
+	 * @param slot
+	 *            the slot of the key
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param key
+	 *            the key of the value
+	 * @param value
+	 *            the value to distribute
+	 * @param changed
+	 *            listeners which like to be notified only when data
+	 *            has changed are skipped is this flag is
+	 *            <code>false</code>
+	 * @param droppable
+	 *            <code>true</code> if the dispatcher may drop the
+	 *            event when a listener falls behind
+	 */
+	private void fireReceiveEvent(DatapoolSlot slot, long timestamp,
+			String key, Object value, boolean changed,
+			boolean droppable) {
+		DatapoolDispatcher dispatcher = DatapoolDispatcher.getInstance( );
+		DatapoolEvent event = null;
+		for (DatapoolListener listener : slot.receiveListeners) {
+			if (listener instanceof FilteredDatapoolListener) {
+				FilteredDatapoolListener filtered = (FilteredDatapoolListener) listener;
+				if (!filtered.accept(key, timestamp, value, changed)) {
+					suppressed.incrementAndGet( );
+					if (filtered.getState( ).hasPending( )) {
+						schedulePending(filtered);
+					}
+					continue;
+				}
+				listener = filtered.getListener( );
+			}
+			else if (!changed && listener.notifyOnlyWhenChanged( )) {
+				continue;
+			}
+			if (event == null) {
+				event = new DatapoolEvent(this, robot, timestamp, key, value);
+			}
+			dispatcher.dispatch(listener, event, droppable);
+		}
+		for (DatapoolListener listener : slot.receivePatternListeners) {
+			if (changed || !listener.notifyOnlyWhenChanged( )) {
+				if (event == null) {
+					event = new DatapoolEvent(this,
+							robot,
+							timestamp,
+							key,
+							value);
+				}
+				dispatcher.dispatch(listener, event, droppable);
+			}
+		}
+		for (DatapoolListener listener : robotReceiveListeners) {
+			if (changed || !listener.notifyOnlyWhenChanged( )) {
+				if (event == null) {
+					event = new DatapoolEvent(this,
+							robot,
+							timestamp,
+							key,
+							value);
+				}
+				dispatcher.dispatch(listener, event, droppable);
+			}
+		}
+	}
+
+	/**
+	 * Counts a notification which was suppressed by a
+	 * {@link DatapoolFilter}.
+	 */
+	void countSuppressed() {
+		suppressed.incrementAndGet( );
+	}
+
+	/**
+	 * Watches the given filtered listener until its pending value is
+	 * delivered. Must only be called by the receive thread.
+	 * 
+	 * @param listener
+	 *            the listener with a pending value
+	 */
+	void schedulePending(FilteredListener listener) {
+		FilterState state = listener.getState( );
+		if (!state.isScheduled( )) {
+			state.setScheduled(true);
+			pendingFilters.add(listener);
+		}
+	}
+
+	/**
+	 * Gets the time the receive thread may wait for new messages.
+	 * 
+	 * @return the time in milliseconds
+	 */
+	private long getReceiveTimeout() {
+		if (pendingFilters.isEmpty( )) {
+			return WAIT_TIMEOUT;
+		}
+		long due = Long.MAX_VALUE;
+		for (FilteredListener listener : pendingFilters) {
+			due = Math.min(due, listener.getState( ).getPendingDue( ));
+		}
+		long wait = due - System.currentTimeMillis( );
+		return Math.max(1, Math.min(WAIT_TIMEOUT, wait));
+	}
+
+	/**
+	 * Notifies the filtered listeners whose pending value is due.
+	 * Listeners whose pending value was cleared in the meantime are
+	 * not watched anymore.
+	 */
+	private void notifyPendingFilters() {
+		if (pendingFilters.isEmpty( )) {
+			return;
+		}
+		long now = System.currentTimeMillis( );
+		for (int i = pendingFilters.size( ) - 1; i >= 0; i--) {
+			FilteredListener listener = pendingFilters.get(i);
+			FilterState state = listener.getState( );
+			if (state.takePending(now)) {
+				try {
+					listener.notifyPending( );
+				}
+				catch (RuntimeException e) {
+					logListenerFailure(state.getPendingKey( ), e);
+				}
+			}
+			else if (state.hasPending( )) {
+				continue;
+			}
+			state.setScheduled(false);
+			pendingFilters.remove(i);
+		}
+	}
+
+	/**
+	 * Dispatches a value which was held back by the minimum interval
+	 * of a filter to the given listener.
+	 * 
+	 * @param listener
+	 *            the listener to notify
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the value
+	 */
+	void dispatchPending(DatapoolListener listener, String key,
+			long timestamp, Object value) {
+		// the latest value must reach the listener, so it's not
+		// droppable
+		DatapoolDispatcher.getInstance( ).dispatch(listener,
+				new DatapoolEvent(this, robot, timestamp, key, value),
+				false);
+	}
+
+	/**
+	 * Suspends sending while the robot is reconnecting and applies
+	 * the given policy to the already queued commands.
+	 * 
+	 * @param policy
+	 *            what to do with the commands
+	 */
+	private void beginOutage(ReconnectSupervisor.Policy policy) {
+		synchronized (outageLock) {
+			outage = policy;
+			coalesced.clear( );
+			if (policy == ReconnectSupervisor.Policy.DROP) {
+				List<DatapoolMessage> dropped = new ArrayList<DatapoolMessage>( );
+				sendQueue.drainTo(dropped);
+				outageDropped.addAndGet(dropped.size( ));
+			}
+			else if (policy == ReconnectSupervisor.Policy.COALESCE) {
+				List<DatapoolMessage> queued = new ArrayList<DatapoolMessage>( );
+				sendQueue.drainTo(queued);
+				// the latest droppable message of each key wins
+				for (DatapoolMessage message : queued) {
+					if (message.isMayDrop( )) {
+						coalesced.put(message.getKey( ), message);
+					}
+				}
+				for (DatapoolMessage message : queued) {
+					if (!message.isMayDrop( )
+							|| coalesced.get(message.getKey( )) == message) {
+						sendQueue.offer(message, getSendPriority(message));
+					}
+					else {
+						outageCoalesced.incrementAndGet( );
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Queues the given message while the robot is reconnecting. A
+	 * queued droppable message for the same key is replaced if the
+	 * messages are coalesced.
+	 * 
+	 * @param message
+	 *            the message to send
+	 * @return <code>true</code> if the message was queued
+	 */
+	private boolean offerWhileReconnecting(DatapoolMessage message) {
+		synchronized (outageLock) {
+			if (outage == ReconnectSupervisor.Policy.COALESCE
+					&& message.isMayDrop( )) {
+				DatapoolMessage previous = coalesced.put(message.getKey( ),
+						message);
+				if (previous != null && sendQueue.remove(previous)) {
+					outageCoalesced.incrementAndGet( );
+				}
+			}
+			return sendQueue.offer(message, getSendPriority(message));
+		}
+	}
+
+	/**
+	 * Gets the priority for sending the given message. The priority
+	 * of the message overrides the priority of its key.
+	 * 
+	 * @param message
+	 *            the message
+	 * @return the priority
+	 */
+	private SendPriority getSendPriority(DatapoolMessage message) {
+		SendPriority priority = message.getPriority( );
+		if (priority == null) {
+			DatapoolSlot slot = getSlot(message.getDatapoolKey( ));
+			priority = slot != null ? slot.sendPriority : null;
+		}
+		return priority != null ? priority : SendPriority.CONTROL;
+	}
+
+	/**
+	 * Sets the priority for sending values of the given key. Messages
+	 * with their own priority are not affected.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param priority
+	 *            the priority or <code>null</code> for the default
+	 *            priority {@link SendPriority#CONTROL}
+	 */
+	public void setSendPriority(String key, SendPriority priority) {
+		setSendPriority(DatapoolKey.get(key), priority);
+	}
+
+	/**
+	 * Sets the priority for sending values of the given key. Messages
+	 * with their own priority are not affected.
+	 * 
+	 * @param key
+	 *            the handle of the key
+	 * @param priority
+	 *            the priority or <code>null</code> for the default
+	 *            priority {@link SendPriority#CONTROL}
+	 */
+	public void setSendPriority(DatapoolKey key, SendPriority priority) {
+		getOrCreateSlot(key).sendPriority = priority;
+	}
+
+	/**
+	 * Gets the number of commands of the given priority waiting to be
+	 * sent.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the number of queued commands
+	 */
+	public int getSendQueueSize(SendPriority priority) {
+		return sendQueue.size(priority);
+	}
+
+	/**
+	 * Gets the number of commands of the given priority which were
+	 * taken from the send queue since the datapool was created.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the number of sent commands
+	 */
+	public long getSentCount(SendPriority priority) {
+		return sendQueue.getTakenCount(priority);
+	}
+
+	/**
+	 * Gets the average time the commands of the given priority waited
+	 * in the send queue.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the average time in milliseconds
+	 */
+	public double getAverageSendLatency(SendPriority priority) {
+		return sendQueue.getAverageLatency(priority);
+	}
+
+	/**
+	 * Gets the maximum time a command of the given priority waited in
+	 * the send queue.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the maximum time in milliseconds
+	 */
+	public double getMaxSendLatency(SendPriority priority) {
+		return sendQueue.getMaxLatency(priority);
+	}
+
+	/**
+	 * Gets the time the oldest queued command of the given priority
+	 * is already waiting to be sent.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the time in milliseconds or <code>0</code> if no
+	 *         command of this priority is queued
+	 */
+	public double getOldestSendAge(SendPriority priority) {
+		return sendQueue.getOldestAge(priority);
+	}
+
+	/**
+	 * Resumes sending after the robot was reconnected or the
+	 * reconnect was given up.
+	 */
+	private void endOutage() {
+		synchronized (outageLock) {
+			outage = null;
+			coalesced.clear( );
+			outageLock.notifyAll( );
+		}
+	}
+
+	/**
+	 * Gets the number of commands which were dropped while the robot
+	 * was reconnecting.
+	 * 
+	 * @return the number of dropped commands
+	 */
+	public long getOutageDroppedCount() {
+		return outageDropped.get( );
+	}
+
+	/**
+	 * Gets the number of commands which were replaced by a newer
+	 * command for the same key while the robot was reconnecting.
+	 * 
+	 * @return the number of coalesced commands
+	 */
+	public long getOutageCoalescedCount() {
+		return outageCoalesced.get( );
+	}
+
+	/**
+	 * Gets the number of notifications which were suppressed by the
+	 * {@link DatapoolFilter}s of the registered listeners since the
+	 * datapool was created.
+	 * 
+	 * @return the number of suppressed notifications
+	 */
+	public long getSuppressedCount() {
+		return suppressed.get( );
+	}
+
+	/**
+	 * Gets the received value for the given key from the datapool.<br/><br/>
+	 * Values which were received with the typed methods are returned
+	 * boxed, float arrays are copied.
+	 * 
+	 * @param key
+	 *            the key to get the value for
+	 * @return the value or <code>null</code> if no value for the
+	 *         given key exists
+	 */
+	public Object getValue(String key) {
+		return getValue(DatapoolKey.find(key));
+	}
+
+	/**
+	 * Gets the received value for the given key from the datapool.
+	 * 
+	 * @param key
+	 *            the key to get the value for
+	 * @return the value or <code>null</code> if no value for the
+	 *         given key exists
+	 * @see #getValue(String)
+	 */
+	public Object getValue(DatapoolKey key) {
+		DatapoolSlot slot = getSlot(key);
+		if (slot == null) {
+			return null;
+		}
+		Object value = slot.value;
+		if (value == null) {
+			PrimitiveChannel channel = slot.getChannel( );
+			if (channel != null) {
+				value = channel.getValue( );
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Gets the numeric value for the given key which was received
+	 * using {@link #receiveDouble(String, long, double)} or
+	 * {@link #receiveLong(String, long, long)} without creating
+	 * objects.
+	 * 
+	 * @param key
+	 *            the key to get the value for
+	 * @param defaultValue
+	 *            the value to return if no numeric value was received
+	 *            for the key
+	 * @return the value or the given default value
+	 */
+	public double getDoubleValue(String key, double defaultValue) {
+		return getDoubleValue(DatapoolKey.find(key), defaultValue);
+	}
+
+	/**
+	 * Gets the numeric value for the given key without creating
+	 * objects.
+	 * 
+	 * @param key
+	 *            the key to get the value for
+	 * @param defaultValue
+	 *            the value to return if no numeric value was received
+	 *            for the key
+	 * @return the value or the given default value
+	 * @see #getDoubleValue(String, double)
+	 */
+	public double getDoubleValue(DatapoolKey key, double defaultValue) {
+		DatapoolSlot slot = getSlot(key);
+		PrimitiveChannel channel = slot != null ? slot.getChannel( ) : null;
+		if (channel == null) {
+			return defaultValue;
+		}
+		return channel.getDoubleValue(defaultValue);
+	}
+
+	/**
+	 * Enables the history for the given key. The last received values
+	 * of the key are kept, so they can be retrieved later on using
+	 * {@link #getHistory(String, long, long)} or
+	 * {@link #getLatest(String, int)}.<br/><br/>If the history is
+	 * already enabled with a smaller capacity, it's replaced by a new
+	 * empty history with the given capacity.
+	 * 
+	 * @param key
+	 *            the key to keep the values for
+	 * @param capacity
+	 *            the maximum number of values to keep
+	 */
+	public void enableHistory(String key, int capacity) {
+		if (key == null || capacity <= 0) {
+			return;
+		}
+		DatapoolSlot slot = getOrCreateSlot(DatapoolKey.get(key));
+		synchronized (slotLock) {
+			DatapoolHistory history = slot.history;
+			if (history == null || history.getCapacity( ) < capacity) {
+				slot.history = new DatapoolHistory(capacity);
+			}
+		}
+	}
+
+	/**
+	 * Disables the history for the given key and discards the kept
+	 * values.
+	 * 
+	 * @param key
+	 *            the key to disable the history for
+	 */
+	public void disableHistory(String key) {
+		DatapoolSlot slot = getSlot(DatapoolKey.find(key));
+		if (slot != null) {
+			slot.history = null;
+		}
+	}
+
+	/**
+	 * Gets the kept values of the given key which were received
+	 * between the given times.
+	 * 
+	 * @param key
+	 *            the key to get the values for
+	 * @param fromMillis
+	 *            the earliest timestamp (inclusive)
+	 * @param toMillis
+	 *            the latest timestamp (inclusive)
+	 * @return the values ordered by the time they were received, the
+	 *         snapshot is empty if no history is enabled for the key
+	 * @see #enableHistory(String, int)
+	 */
+	public HistorySnapshot getHistory(String key, long fromMillis,
+			long toMillis) {
+		DatapoolHistory history = getHistory(key);
+		if (history == null) {
+			return HistorySnapshot.EMPTY;
+		}
+		return history.getRange(fromMillis, toMillis);
+	}
+
+	/**
+	 * Gets the latest kept values of the given key.
+	 * 
+	 * @param key
+	 *            the key to get the values for
+	 * @param n
+	 *            the maximum number of values to get
+	 * @return the values ordered by the time they were received, the
+	 *         snapshot is empty if no history is enabled for the key
+	 * @see #enableHistory(String, int)
+	 */
+	public HistorySnapshot getLatest(String key, int n) {
+		DatapoolHistory history = getHistory(key);
+		if (history == null || n <= 0) {
+			return HistorySnapshot.EMPTY;
+		}
+		return history.getLatest(n);
+	}
+
+	/**
+	 * Gets the history of the given key.
+	 * 
+	 * @param key
+	 *            the key to get the history for
+	 * @return the history or <code>null</code> if no history is
+	 *         enabled for the key
+	 */
+	private DatapoolHistory getHistory(String key) {
+		DatapoolSlot slot = getSlot(DatapoolKey.find(key));
+		return slot != null ? slot.history : null;
+	}
+
+	/**
+	 * Adds the given listeners to the list of listeners which are
+	 * notified if data for the given key is received from the robot
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see #addRobotReceiveListener(DatapoolListener)
+	 */
+	public void addDatapoolReceiveListener(String key, DatapoolListener listener) {
+		addDatapoolReceiveListener(DatapoolKey.get(key), listener);
+	}
+
+	/**
+	 * Adds the given listeners to the list of listeners which are
+	 * notified if data for the given key is received from the robot
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see #addDatapoolReceiveListener(String, DatapoolListener)
+	 */
+	public void addDatapoolReceiveListener(DatapoolKey key,
+			DatapoolListener listener) {
+		if (key != null && listener != null) {
+			DatapoolSlot slot = getOrCreateSlot(key);
+			synchronized (slotLock) {
+				slot.receiveListeners = DatapoolSlot.add(slot.receiveListeners,
+						listener);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given listener to the list of listeners which are
+	 * notified if data for the given key is received from the robot.
+	 * The listener is only notified if the given filter accepts the
+	 * value, f.e. if a numeric value changed by more than the deadband
+	 * of the filter.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @param filter
+	 *            the filter for the notifications of the listener or
+	 *            <code>null</code> for no filter
+	 * @see DatapoolFilter
+	 */
+	public void addDatapoolReceiveListener(String key,
+			DatapoolListener listener, DatapoolFilter filter) {
+		addDatapoolReceiveListener(DatapoolKey.get(key), listener, filter);
+	}
+
+	/**
+	 * Adds the given listener to the list of listeners which are
+	 * notified if data for the given key is received from the robot.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @param filter
+	 *            the filter for the notifications of the listener or
+	 *            <code>null</code> for no filter
+	 * @see #addDatapoolReceiveListener(String, DatapoolListener,
+	 *      DatapoolFilter)
+	 */
+	public void addDatapoolReceiveListener(DatapoolKey key,
+			DatapoolListener listener, DatapoolFilter filter) {
+		if (listener != null && filter != null) {
+			addDatapoolReceiveListener(key,
+					new FilteredDatapoolListener(listener, filter, this));
+		}
+		else {
+			addDatapoolReceiveListener(key, listener);
+		}
+	}
+
+	/**
+	 * Adds the given listeners to the list of listeners which are
+	 * notified if data is received from the robot
+	 * 
+	 * @param listener
+	 *            the listener to register
+	 * @see #addRobotReceiveListener(DatapoolListener)
+	 */
+	public void addRobotReceiveListener(DatapoolListener listener) {
+		if (listener != null) {
+			synchronized (slotLock) {
+				robotReceiveListeners = DatapoolSlot.add(robotReceiveListeners,
+						listener);
+			}
+		}
+	}
+
+	/**
+	 * Removes the given listeners from the list of listeners which
+	 * are notified if data for the given key is received from the
+	 * robot
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 */
+	public boolean removeDatapoolReceiveListener(String key,
+			DatapoolListener listener) {
+		DatapoolKey handle = DatapoolKey.find(key);
+		if (handle == null) {
+			// nothing can be registered for an unknown key
+			return key == null || listener == null;
+		}
+		return removeDatapoolReceiveListener(handle, listener);
+	}
+
+	/**
+	 * Removes the given listeners from the list of listeners which
+	 * are notified if data for the given key is received from the
+	 * robot
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeDatapoolReceiveListener(String, DatapoolListener)
+	 */
+	public boolean removeDatapoolReceiveListener(DatapoolKey key,
+			DatapoolListener listener) {
+		if (key != null && listener != null) {
+			DatapoolSlot slot = getSlot(key);
+			if (slot == null) {
+				return false;
+			}
+			synchronized (slotLock) {
+				DatapoolListener[] old = slot.receiveListeners;
+				slot.receiveListeners = DatapoolSlot.remove(old, listener);
+				return old != slot.receiveListeners;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the given listeners from the list of listeners which
+	 * are notified if data is received from the robot
+	 * 
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 */
+	public boolean removeRobotReceiveListener(DatapoolListener listener) {
+		if (listener != null) {
+			synchronized (slotLock) {
+				DatapoolListener[] old = robotReceiveListeners;
+				robotReceiveListeners = DatapoolSlot.remove(old, listener);
+				return old != robotReceiveListeners;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes every occurrence of the given listeners from the list
+	 * of listeners which are notified if data is received from the
+	 * robot
+	 * 
+	 * @param listener
+	 *            the listener to deregister
+	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 */
+	public void removeDatapoolReceiveListener(DatapoolListener listener) {
+		if (listener == null) {
+			return;
+		}
+		for (DatapoolSlot slot : slots) {
+			if (slot != null) {
+				while (removeDatapoolReceiveListener(slot.getKey( ), listener)) {
+					// remove all occurrences
+				}
+			}
+		}
+		while (removeRobotReceiveListener(listener)) {
+			// remove all occurrences
+		}
+		synchronized (slotLock) {
+			if (removeSubscriptions(receivePatterns, null, listener)) {
+				rebuildPatternListeners( );
+			}
+		}
+	}
+
+	/**
+	 * Adds the given listener to the list of listeners which are
+	 * notified if data for a key matching the given pattern is
+	 * received from the robot. The pattern is matched once against
+	 * every key when registering and when a new key is received.
+	 * 
+	 * @param pattern
+	 *            the pattern of the keys to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see DatapoolKeyPattern
+	 */
+	public void addDatapoolReceiveListener(DatapoolKeyPattern pattern,
+			DatapoolListener listener) {
+		if (pattern != null && listener != null) {
+			synchronized (slotLock) {
+				receivePatterns.add(new PatternSubscription(pattern, listener));
+				rebuildPatternListeners( );
+			}
+		}
+	}
+
+	/**
+	 * Removes the given listener which was registered with the given
+	 * pattern.
+	 * 
+	 * @param pattern
+	 *            the pattern the listener was registered with
+	 * @param listener
+	 *            the listener to remove
+	 * @return <code>true</code> if the listener was registered with
+	 *         the pattern
+	 */
+	public boolean removeDatapoolReceiveListener(DatapoolKeyPattern pattern,
+			DatapoolListener listener) {
+		if (pattern == null || listener == null) {
+			return false;
+		}
+		synchronized (slotLock) {
+			boolean removed = removeSubscriptions(receivePatterns,
+					pattern,
+					listener);
+			if (removed) {
+				rebuildPatternListeners( );
+			}
+			return removed;
+		}
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a numeric value for the given key is received using
+	 * {@link #receiveDouble(String, long, double)} or
+	 * {@link #receiveLong(String, long, long)}.<br/><br/>The listener
+	 * is called from the receive thread of the datapool and has to
+	 * return quickly.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 */
+	public void addDoubleReceiveListener(String key,
+			DoubleDatapoolListener listener) {
+		addDoubleReceiveListener(DatapoolKey.get(key), listener);
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a numeric value for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see #addDoubleReceiveListener(String, DoubleDatapoolListener)
+	 */
+	public void addDoubleReceiveListener(DatapoolKey key,
+			DoubleDatapoolListener listener) {
+		if (key != null && listener != null) {
+			getOrCreateSlot(key).getOrCreateChannel( ).addListener(listener);
+		}
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a numeric value for the given key is received. The listener is
+	 * only notified if the given filter accepts the value.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @param filter
+	 *            the filter for the notifications of the listener or
+	 *            <code>null</code> for no filter
+	 * @see DatapoolFilter
+	 */
+	public void addDoubleReceiveListener(String key,
+			DoubleDatapoolListener listener, DatapoolFilter filter) {
+		addDoubleReceiveListener(DatapoolKey.get(key), listener, filter);
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a numeric value for the given key is received. The listener is
+	 * only notified if the given filter accepts the value.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @param filter
+	 *            the filter for the notifications of the listener or
+	 *            <code>null</code> for no filter
+	 * @see #addDoubleReceiveListener(String, DoubleDatapoolListener,
+	 *      DatapoolFilter)
+	 */
+	public void addDoubleReceiveListener(DatapoolKey key,
+			DoubleDatapoolListener listener, DatapoolFilter filter) {
+		if (listener != null && filter != null) {
+			addDoubleReceiveListener(key, new FilteredDoubleListener(listener,
+					filter,
+					this));
+		}
+		else {
+			addDoubleReceiveListener(key, listener);
+		}
+	}
+
+	/**
+	 * Removes the given listener from the listeners which are notified
+	 * if a numeric value for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 */
+	public boolean removeDoubleReceiveListener(String key,
+			DoubleDatapoolListener listener) {
+		DatapoolKey handle = DatapoolKey.find(key);
+		if (handle == null) {
+			// nothing can be registered for an unknown key
+			return key == null || listener == null;
+		}
+		return removeDoubleReceiveListener(handle, listener);
+	}
+
+	/**
+	 * Removes the given listener from the listeners which are notified
+	 * if a numeric value for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeDoubleReceiveListener(String, DoubleDatapoolListener)
+	 */
+	public boolean removeDoubleReceiveListener(DatapoolKey key,
+			DoubleDatapoolListener listener) {
+		if (key != null && listener != null) {
+			PrimitiveChannel channel = getChannel(key);
+			return channel != null && channel.removeListener(listener);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a value for the given key is received using
+	 * {@link #receiveLong(String, long, long)}.<br/><br/>The listener
+	 * is called from the receive thread of the datapool and has to
+	 * return quickly.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 */
+	public void addLongReceiveListener(String key,
+			LongDatapoolListener listener) {
+		addLongReceiveListener(DatapoolKey.get(key), listener);
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a long value for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see #addLongReceiveListener(String, LongDatapoolListener)
+	 */
+	public void addLongReceiveListener(DatapoolKey key,
+			LongDatapoolListener listener) {
+		if (key != null && listener != null) {
+			getOrCreateSlot(key).getOrCreateChannel( ).addListener(listener);
+		}
+	}
+
+	/**
+	 * Removes the given listener from the listeners which are notified
+	 * if a long value for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 */
+	public boolean removeLongReceiveListener(String key,
+			LongDatapoolListener listener) {
+		DatapoolKey handle = DatapoolKey.find(key);
+		if (handle == null) {
+			// nothing can be registered for an unknown key
+			return key == null || listener == null;
+		}
+		return removeLongReceiveListener(handle, listener);
+	}
+
+	/**
+	 * Removes the given listener from the listeners which are notified
+	 * if a long value for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeLongReceiveListener(String, LongDatapoolListener)
+	 */
+	public boolean removeLongReceiveListener(DatapoolKey key,
+			LongDatapoolListener listener) {
+		if (key != null && listener != null) {
+			PrimitiveChannel channel = getChannel(key);
+			return channel != null && channel.removeListener(listener);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a float array for the given key is received using
+	 * {@link #receiveFloatArray(String, long, float[])}.<br/><br/>The
+	 * listener is called from the receive thread of the datapool and
+	 * has to return quickly.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 */
+	public void addFloatArrayReceiveListener(String key,
+			FloatArrayDatapoolListener listener) {
+		addFloatArrayReceiveListener(DatapoolKey.get(key), listener);
+	}
+
+	/**
+	 * Adds the given listener to the listeners which are notified if
+	 * a float array for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see #addFloatArrayReceiveListener(String,
+	 *      FloatArrayDatapoolListener)
+	 */
+	public void addFloatArrayReceiveListener(DatapoolKey key,
+			FloatArrayDatapoolListener listener) {
+		if (key != null && listener != null) {
+			getOrCreateSlot(key).getOrCreateChannel( ).addListener(listener);
+		}
+	}
+
+	/**
+	 * Removes the given listener from the listeners which are notified
+	 * if a float array for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 */
+	public boolean removeFloatArrayReceiveListener(String key,
+			FloatArrayDatapoolListener listener) {
+		DatapoolKey handle = DatapoolKey.find(key);
+		if (handle == null) {
+			// nothing can be registered for an unknown key
+			return key == null || listener == null;
+		}
+		return removeFloatArrayReceiveListener(handle, listener);
+	}
+
+	/**
+	 * Removes the given listener from the listeners which are notified
+	 * if a float array for the given key is received.
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeFloatArrayReceiveListener(String,
+	 *      FloatArrayDatapoolListener)
+	 */
+	public boolean removeFloatArrayReceiveListener(DatapoolKey key,
+			FloatArrayDatapoolListener listener) {
+		if (key != null && listener != null) {
+			PrimitiveChannel channel = getChannel(key);
+			return channel != null && channel.removeListener(listener);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the channel for typed values of the given key.
+	 * 
+	 * @param key
+	 *            the key to get the channel for
+	 * @return the channel or <code>null</code> if there is none
+	 */
+	private PrimitiveChannel getChannel(DatapoolKey key) {
+		DatapoolSlot slot = getSlot(key);
+		return slot != null ? slot.getChannel( ) : null;
+	}
+
+	/**
+	 * Adds the given listeners to the list of listeners which are
+	 * notified if data for the given key is send to the robot
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see #addRobotSendListener(DatapoolListener)
+	 */
+	public void addDatapoolSendListener(String key, DatapoolListener listener) {
+		addDatapoolSendListener(DatapoolKey.get(key), listener);
+	}
+
+	/**
+	 * Adds the given listeners to the list of listeners which are
+	 * notified if data for the given key is send to the robot
+	 * 
+	 * @param key
+	 *            the key to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see #addDatapoolSendListener(String, DatapoolListener)
+	 */
+	public void addDatapoolSendListener(DatapoolKey key,
+			DatapoolListener listener) {
+		if (key != null && listener != null) {
+			DatapoolSlot slot = getOrCreateSlot(key);
+			synchronized (slotLock) {
+				slot.sendListeners = DatapoolSlot.add(slot.sendListeners,
+						listener);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given listeners to the list of listeners which are
+	 * notified if data is send to the robot
+	 * 
+	 * @param listener
+	 *            the listener to register
+	 * @see #addRobotSendListener(DatapoolListener)
+	 */
+	public void addRobotSendListener(DatapoolListener listener) {
+		if (listener != null) {
+			synchronized (slotLock) {
+				robotSendListeners = DatapoolSlot.add(robotSendListeners,
+						listener);
+			}
+		}
+	}
+
+	/**
+	 * Removes the given listeners from the list of listeners which
+	 * are notified if data for the given key is received from the
+	 * robot
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 */
+	public boolean removeDatapoolSendListener(String key,
+			DatapoolListener listener) {
+		DatapoolKey handle = DatapoolKey.find(key);
+		if (handle == null) {
+			// nothing can be registered for an unknown key
+			return key == null || listener == null;
+		}
+		return removeDatapoolSendListener(handle, listener);
+	}
+
+	/**
+	 * Removes the given listeners from the list of listeners which
+	 * are notified if data for the given key is send to the robot
+	 * 
+	 * @param key
+	 *            the key to deregister from
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeDatapoolSendListener(String, DatapoolListener)
+	 */
+	public boolean removeDatapoolSendListener(DatapoolKey key,
+			DatapoolListener listener) {
+		if (key != null && listener != null) {
+			DatapoolSlot slot = getSlot(key);
+			if (slot == null) {
+				return false;
+			}
+			synchronized (slotLock) {
+				DatapoolListener[] old = slot.sendListeners;
+				slot.sendListeners = DatapoolSlot.remove(old, listener);
+				return old != slot.sendListeners;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the given listeners from the list of listeners which
+	 * are notified if data is received from the robot
+	 * 
+	 * @param listener
+	 *            the listener to deregister
+	 * @return <code>true</code> if the listener was removed or the
+	 *         key or listener given were <code>null</code>
+	 * @see #removeRobotReceiveListener(DatapoolListener)
+	 */
+	public boolean removeRobotSendListener(DatapoolListener listener) {
+		if (listener != null) {
+			synchronized (slotLock) {
+				DatapoolListener[] old = robotSendListeners;
+				robotSendListeners = DatapoolSlot.remove(old, listener);
+				return old != robotSendListeners;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -566,18 +2210,182 @@ public final class Datapool {
 	 * @see #removeRobotReceiveListener(DatapoolListener)
 	 */
 	public void removeDatapoolSendListener(DatapoolListener listener) {
-		List<String> keys = new ArrayList<String>( );
+		if (listener == null) {
+			return;
+		}
+		for (DatapoolSlot slot : slots) {
+			if (slot != null) {
+				while (removeDatapoolSendListener(slot.getKey( ), listener)) {
+					// remove all occurrences
+				}
+			}
+		}
+		while (removeRobotSendListener(listener)) {
+			// remove all occurrences
+		}
+		synchronized (slotLock) {
+			if (removeSubscriptions(sendPatterns, null, listener)) {
+				rebuildPatternListeners( );
+			}
+		}
+	}
+
+	/**
+	 * Adds the given listener to the list of listeners which are
+	 * notified if data for a key matching the given pattern is sent
+	 * to the robot.
+	 * 
+	 * @param pattern
+	 *            the pattern of the keys to register on
+	 * @param listener
+	 *            the listener to register
+	 * @see DatapoolKeyPattern
+	 */
+	public void addDatapoolSendListener(DatapoolKeyPattern pattern,
+			DatapoolListener listener) {
+		if (pattern != null && listener != null) {
+			synchronized (slotLock) {
+				sendPatterns.add(new PatternSubscription(pattern, listener));
+				rebuildPatternListeners( );
+			}
+		}
+	}
+
+	/**
+	 * Removes the given send listener which was registered with the
+	 * given pattern.
+	 * 
+	 * @param pattern
+	 *            the pattern the listener was registered with
+	 * @param listener
+	 *            the listener to remove
+	 * @return <code>true</code> if the listener was registered with
+	 *         the pattern
+	 */
+	public boolean removeDatapoolSendListener(DatapoolKeyPattern pattern,
+			DatapoolListener listener) {
+		if (pattern == null || listener == null) {
+			return false;
+		}
+		synchronized (slotLock) {
+			boolean removed = removeSubscriptions(sendPatterns,
+					pattern,
+					listener);
+			if (removed) {
+				rebuildPatternListeners( );
+			}
+			return removed;
+		}
+	}
+
+	/**
+	 * Removes the subscriptions of the given listener from the given
+	 * list. The lock has to be held by the caller.
+	 * 
+	 * @param subscriptions
+	 *            the list to remove from
+	 * @param pattern
+	 *            the pattern of the subscription to remove or
+	 *            <code>null</code> to remove all subscriptions of the
+	 *            listener
+	 * @param listener
+	 *            the listener to remove
+	 * @return <code>true</code> if a subscription was removed
+	 */
+	private static boolean removeSubscriptions(
+			List<PatternSubscription> subscriptions,
+			DatapoolKeyPattern pattern, DatapoolListener listener) {
+		boolean removed = false;
+		for (Iterator<PatternSubscription> it = subscriptions.iterator( ); it.hasNext( );) {
+			PatternSubscription subscription = it.next( );
+			if (subscription.listener.equals(listener)
+					&& (pattern == null || subscription.pattern.equals(pattern))) {
+				it.remove( );
+				removed = true;
+				if (pattern != null) {
+					break;
+				}
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Rebuilds the pattern listeners of all slots. The lock has to be
+	 * held by the caller.
+	 */
+	private void rebuildPatternListeners() {
+		for (DatapoolSlot slot : slots) {
+			if (slot != null) {
+				rebuildPatternListeners(slot);
+			}
+		}
+	}
+
+	/**
+	 * Sets the listeners of all patterns matching the key of the
+	 * given slot to the slot. The lock has to be held by the caller.
+	 * 
+	 * @param slot
+	 *            the slot to rebuild
+	 */
+	private void rebuildPatternListeners(DatapoolSlot slot) {
+		String key = slot.getKey( ).getName( );
+		slot.receivePatternListeners = match(receivePatterns, key);
+		slot.sendPatternListeners = match(sendPatterns, key);
+	}
 
-		for (Entry<String, FastTable<DatapoolListener>> e : sendListeners.entrySet( )) {
-			for (DatapoolListener dl : e.getValue( )) {
-				if (dl.equals(listener)) {
-					keys.add(e.getKey( ));
+	/**
+	 * Gets the listeners of the subscriptions whose pattern matches
+	 * the given key.
+	 * 
+	 * @param subscriptions
+	 *            the subscriptions to match
+	 * @param key
+	 *            the key
+	 * @return the matching listeners
+	 */
+	private static DatapoolListener[] match(
+			List<PatternSubscription> subscriptions, String key) {
+		List<DatapoolListener> matching = null;
+		for (PatternSubscription subscription : subscriptions) {
+			if (subscription.pattern.matches(key)) {
+				if (matching == null) {
+					matching = new ArrayList<DatapoolListener>( );
 				}
+				matching.add(subscription.listener);
 			}
 		}
+		return matching == null ? DatapoolSlot.NO_LISTENERS
+				: matching.toArray(new DatapoolListener[matching.size( )]);
+	}
+
+	/**
+	 * A listener registered with a pattern.
+	 */
+	private static final class PatternSubscription {
+
+		/**
+		 * The pattern
+		 */
+		private final DatapoolKeyPattern pattern;
+		/**
+		 * The listener
+		 */
+		private final DatapoolListener listener;
 
-		for (String key : keys) {
-			removeDatapoolSendListener(key, listener);
+		/**
+		 * Constructs a new subscription.
+		 * 
+		 * @param pattern
+		 *            the pattern
+		 * @param listener
+		 *            the listener
+		 */
+		private PatternSubscription(DatapoolKeyPattern pattern,
+				DatapoolListener listener) {
+			this.pattern = pattern;
+			this.listener = listener;
 		}
 	}
 
@@ -588,7 +2396,8 @@ public final class Datapool {
 	 * calling this method.
 	 */
 	protected void stop() {
-		this.threadPool.shutdown( );
 		stopped = true;
+		sendThread.interrupt( );
+		receiveThread.interrupt( );
 	}
 }
@@ -0,0 +1,148 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolBatch.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.Arrays;
+
+/**
+ * A reusable batch of datapool messages, f.e. all values converted
+ * from one message received from the robot.<br/><br/>A batch is
+ * filled by a handler and then forwarded with
+ * {@link Datapool#offerAll(DatapoolBatch)}, which adds the whole
+ * batch to the receive queue at once. The batch keeps its array when
+ * it is cleared, so a handler can use the same batch for each
+ * received message without creating objects besides the messages.
+ * <br/><br/>A batch is not thread safe.
+ * 
+ * @author agent
+ */
+public final class DatapoolBatch {
+
+	/**
+	 * Initial capacity of a batch
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The messages of the batch
+	 */
+	DatapoolMessage[] messages;
+	/**
+	 * The number of messages in the batch
+	 */
+	int size;
+
+	/**
+	 * Constructs a new empty batch.
+	 */
+	public DatapoolBatch() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new empty batch with the given initial capacity.
+	 * The batch grows if more messages are added.
+	 * 
+	 * @param capacity
+	 *            the initial capacity
+	 */
+	public DatapoolBatch(int capacity) {
+		messages = new DatapoolMessage[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Adds a message to the end of this batch.
+	 * 
+	 * @param message
+	 *            the message to add
+	 */
+	public void add(DatapoolMessage message) {
+		if (size == messages.length) {
+			messages = Arrays.copyOf(messages, size << 1);
+		}
+		messages[size++] = message;
+	}
+
+	/**
+	 * Adds a new message for the given key and value to the end of
+	 * this batch.
+	 * 
+	 * @param timestamp
+	 *            the time the value was received
+	 * @param key
+	 *            the key of the value
+	 * @param value
+	 *            the value
+	 * @param mayDrop
+	 *            <code>true</code> if the message may be replaced by
+	 *            a newer message for the same key
+	 */
+	public void add(long timestamp, DatapoolKey key, Object value,
+			boolean mayDrop) {
+		add(new DatapoolMessage(timestamp, key, value, mayDrop));
+	}
+
+	/**
+	 * Gets the message at the given position.
+	 * 
+	 * @param index
+	 *            the position of the message
+	 * @return the message
+	 * @throws IndexOutOfBoundsException
+	 *             if the position is not less than {@link #size()}
+	 */
+	public DatapoolMessage get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException(index + " >= " + size); //$NON-NLS-1$
+		}
+		return messages[index];
+	}
+
+	/**
+	 * Gets the number of messages in this batch.
+	 * 
+	 * @return the number of messages
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if this batch is empty.
+	 * 
+	 * @return <code>true</code> if the batch contains no messages
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all messages from this batch. The capacity is kept.
+	 */
+	public void clear() {
+		Arrays.fill(messages, 0, size, null);
+		size = 0;
+	}
+}
@@ -0,0 +1,131 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolBenchmark.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.xirp.profile.Robot;
+
+/**
+ * Measures latency and throughput of the receive path of the
+ * datapool without a connected robot.<br/><br/>For each simulated
+ * robot a datapool is created and a producer thread offers messages
+ * which may not be dropped, so every message is delivered to the
+ * registered listener. The benchmark prints the number of messages
+ * per second for each robot and the average latency between offering
+ * a message and the notification of the listener.<br/><br/>Usage:
+ * <code>DatapoolBenchmark [robots] [messagesPerRobot]</code>
+ * 
+ * @author agent
+ */
+final class DatapoolBenchmark {
+
+	/**
+	 * The key used for the benchmark messages
+	 */
+	private static final String KEY = "benchmark"; //$NON-NLS-1$
+
+	/**
+	 * Utility class, no instances.
+	 */
+	private DatapoolBenchmark() {
+		// no instances
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args
+	 *            optional number of robots and number of messages per
+	 *            robot
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the results
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int robots = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		final int messages = args.length > 1 ? Integer.parseInt(args[1])
+				: 200000;
+
+		final CountDownLatch done = new CountDownLatch(robots);
+		Datapool[] pools = new Datapool[robots];
+		final AtomicLong[] latencies = new AtomicLong[robots];
+		final long[] durations = new long[robots];
+
+		for (int i = 0; i < robots; i++) {
+			Robot robot = new Robot( );
+			robot.setName("Benchmark_" + i); //$NON-NLS-1$
+			pools[i] = new Datapool(robot);
+			latencies[i] = new AtomicLong( );
+
+			final int idx = i;
+			final AtomicLong received = new AtomicLong( );
+			final long start = System.nanoTime( );
+			pools[i].addDatapoolReceiveListener(KEY, new DatapoolListener( ) {
+
+				public void valueChanged(DatapoolEvent e) {
+					long now = System.nanoTime( );
+					latencies[idx].addAndGet(now - (Long) e.getValue( ));
+					if (received.incrementAndGet( ) == messages) {
+						durations[idx] = now - start;
+						done.countDown( );
+					}
+				}
+
+				public boolean notifyOnlyWhenChanged() {
+					return false;
+				}
+			});
+		}
+
+		for (int i = 0; i < robots; i++) {
+			final Datapool pool = pools[i];
+			new Thread("DatapoolBenchmarkProducer_" + i) { //$NON-NLS-1$
+
+				@Override
+				public void run() {
+					for (int j = 0; j < messages; j++) {
+						pool.receiveToDatapool(new DatapoolMessage(KEY,
+								System.nanoTime( ),
+								false));
+					}
+				}
+			}.start( );
+		}
+
+		if (!done.await(5, TimeUnit.MINUTES)) {
+			System.out.println("Timeout while waiting for the listeners."); //$NON-NLS-1$
+		}
+
+		for (int i = 0; i < robots; i++) {
+			double seconds = durations[i] / 1e9;
+			System.out.println("Robot " + i + ": " //$NON-NLS-1$ //$NON-NLS-2$
+					+ Math.round(messages / seconds) + " msg/s, " //$NON-NLS-1$
+					+ (latencies[i].get( ) / messages / 1000) + " us average latency"); //$NON-NLS-1$
+			pools[i].stop( );
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolDispatcher.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import de.xirp.settings.PropertiesManager;
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * Distributes the events of all datapools to the registered
+ * listeners.<br/><br/>The dispatcher is shared by all datapools of
+ * this application and uses one thread per available processor. Each
+ * thread works on an own bounded queue. All events for the same
+ * listener and datapool key are handled by the same thread, so a
+ * listener sees the events of a key in the order they were received.<br/><br/>
+ * The size of the queues and the behavior when a queue is full are
+ * read from the <code>[Datapool]</code> section of the xirp.ini. By
+ * default the datapool waits for space in the queue. Events which are
+ * not droppable are never discarded.
+ * 
+ * @author agent
+ */
+public final class DatapoolDispatcher {
+
+	/**
+	 * Log4j Logger for this class
+	 */
+	private static final Logger logClass = Logger.getLogger(DatapoolDispatcher.class);
+
+	/**
+	 * Default number of events which may wait for dispatching
+	 */
+	private static final int DEFAULT_BACKLOG = 4096;
+
+	/**
+	 * Behavior of the dispatcher if the backlog of a thread is full.
+	 */
+	public enum Policy {
+		/**
+		 * The oldest waiting droppable event of the same listener and
+		 * key is dropped, as it is superseded by the new one. If there
+		 * is none the new event is dropped. Events of other listeners
+		 * or keys and events which are not droppable are never
+		 * dropped.
+		 */
+		DROP_OLDEST,
+		/**
+		 * The datapool waits until there's space in the backlog
+		 */
+		BLOCK;
+
+		/**
+		 * Gets the policy for the given name from the xirp.ini.
+		 * 
+		 * @param name
+		 *            <code>drop_oldest</code> or <code>block</code>
+		 * @return the policy, {@link #BLOCK} if the name is unknown
+		 */
+		public static Policy getPolicy(String name) {
+			if ("drop_oldest".equalsIgnoreCase(name)) { //$NON-NLS-1$
+				return DROP_OLDEST;
+			}
+			return BLOCK;
+		}
+	}
+
+	/**
+	 * An event for a single listener.
+	 */
+	private static final class Dispatch {
+
+		/**
+		 * The listener to notify
+		 */
+		private final DatapoolListener listener;
+		/**
+		 * The event for the listener
+		 */
+		private final DatapoolEvent event;
+		/**
+		 * Flag showing if the event may be dropped
+		 */
+		private final boolean droppable;
+
+		/**
+		 * Constructs a new dispatch.
+		 * 
+		 * @param listener
+		 *            the listener to notify
+		 * @param event
+		 *            the event for the listener
+		 * @param droppable
+		 *            <code>true</code> if the event may be dropped
+		 */
+		private Dispatch(DatapoolListener listener, DatapoolEvent event,
+				boolean droppable) {
+			this.listener = listener;
+			this.event = event;
+			this.droppable = droppable;
+		}
+	}
+
+	/**
+	 * The shared instance or <code>null</code> if not yet created or
+	 * shut down
+	 */
+	private static DatapoolDispatcher instance;
+
+	/**
+	 * Backlog for each thread
+	 */
+	private final BlockingQueue<Dispatch>[] lanes;
+	/**
+	 * The dispatching threads
+	 */
+	private final Thread[] threads;
+	/**
+	 * Mask to calculate the lane for a hash code
+	 */
+	private final int mask;
+	/**
+	 * Behavior if a backlog is full
+	 */
+	private final Policy policy;
+	/**
+	 * Flag showing if the dispatcher is shut down
+	 */
+	private volatile boolean stopped = false;
+
+	/**
+	 * Number of events put to the backlog
+	 */
+	private final AtomicLong queued = new AtomicLong( );
+	/**
+	 * Number of events delivered to the listeners
+	 */
+	private final AtomicLong dispatched = new AtomicLong( );
+	/**
+	 * Number of events dropped because the backlog was full
+	 */
+	private final AtomicLong dropped = new AtomicLong( );
+
+	/**
+	 * Constructs a new dispatcher and starts its threads.
+	 * 
+	 * @param threadCount
+	 *            the minimum number of threads, the used number is
+	 *            the next power of two
+	 * @param backlog
+	 *            the maximum number of waiting events for each thread
+	 * @param policy
+	 *            the behavior if a backlog is full
+	 */
+	@SuppressWarnings("unchecked")
+	private DatapoolDispatcher(int threadCount, int backlog, Policy policy) {
+		int count = Integer.highestOneBit(Math.max(1, threadCount));
+		if (count < threadCount) {
+			count <<= 1;
+		}
+		this.mask = count - 1;
+		this.policy = policy;
+		this.lanes = new BlockingQueue[count];
+		this.threads = new Thread[count];
+		int laneBacklog = Math.max(1, backlog / count);
+		for (int i = 0; i < count; i++) {
+			final BlockingQueue<Dispatch> lane = new ArrayBlockingQueue<Dispatch>(laneBacklog);
+			lanes[i] = lane;
+			threads[i] = new Thread("DatapoolDispatcher_" + i) { //$NON-NLS-1$
+
+				@Override
+				public void run() {
+					while (!stopped) {
+						Dispatch dispatch;
+						try {
+							dispatch = lane.take( );
+						}
+						catch (InterruptedException e) {
+							continue;
+						}
+						try {
+							dispatch.listener.valueChanged(dispatch.event);
+						}
+						catch (RuntimeException e) {
+							logClass.error(I18n.getString("DatapoolDispatcher.log.listenerFailed", //$NON-NLS-1$
+									dispatch.event.getKey( ),
+									e.getMessage( )) +
+									Constants.LINE_SEPARATOR,
+									e);
+						}
+						dispatched.incrementAndGet( );
+					}
+				}
+			};
+			threads[i].setDaemon(true);
+			threads[i].start( );
+		}
+	}
+
+	/**
+	 * Gets the dispatcher shared by all datapools. The dispatcher is
+	 * created on the first call.
+	 * 
+	 * @return the dispatcher
+	 */
+	public static synchronized DatapoolDispatcher getInstance() {
+		if (instance == null) {
+			int backlog = PropertiesManager.getDispatchBacklog( );
+			instance = new DatapoolDispatcher(Runtime.getRuntime( )
+					.availableProcessors( ),
+					backlog > 0 ? backlog : DEFAULT_BACKLOG,
+					Policy.getPolicy(PropertiesManager.getDispatchPolicy( )));
+		}
+		return instance;
+	}
+
+	/**
+	 * Stops the threads of the shared dispatcher. Waiting events are
+	 * discarded. A new dispatcher is created on the next call to
+	 * {@link #getInstance()}.
+	 */
+	protected static synchronized void shutdown() {
+		if (instance != null) {
+			instance.stopped = true;
+			for (Thread thread : instance.threads) {
+				thread.interrupt( );
+			}
+			instance = null;
+		}
+	}
+
+	/**
+	 * Queues the given event for notifying the given listener. Events
+	 * for the same listener and key are delivered in the order of
+	 * calls to this method. The event is never dropped.
+	 * 
+	 * @param listener
+	 *            the listener to notify
+	 * @param event
+	 *            the event to deliver
+	 */
+	public void dispatch(DatapoolListener listener, DatapoolEvent event) {
+		dispatch(listener, event, false);
+	}
+
+	/**
+	 * Queues the given event for notifying the given listener. Events
+	 * for the same listener and key are delivered in the order of
+	 * calls to this method.<br/><br/>If the backlog is full and the
+	 * policy is {@link Policy#DROP_OLDEST} a droppable event replaces
+	 * the oldest waiting droppable event of the same listener and key,
+	 * or is dropped itself if there is none. The latest waiting sample
+	 * of another key is never replaced. Events which are not droppable
+	 * always wait for space in the backlog.
+	 * 
+	 * @param listener
+	 *            the listener to notify
+	 * @param event
+	 *            the event to deliver
+	 * @param droppable
+	 *            <code>true</code> if the event is a sample which may
+	 *            be dropped
+	 */
+	public void dispatch(DatapoolListener listener, DatapoolEvent event,
+			boolean droppable) {
+		int hash = System.identityHashCode(listener) * 31
+				+ event.getKey( ).hashCode( );
+		// spread the bits, identity hash codes are often aligned
+		hash ^= (hash >>> 16);
+		BlockingQueue<Dispatch> lane = lanes[hash & mask];
+		Dispatch dispatch = new Dispatch(listener, event, droppable);
+
+		if (policy == Policy.BLOCK || !droppable) {
+			try {
+				lane.put(dispatch);
+			}
+			catch (InterruptedException e) {
+				dropped.incrementAndGet( );
+				Thread.currentThread( ).interrupt( );
+				return;
+			}
+		}
+		else {
+			while (!lane.offer(dispatch)) {
+				Dispatch oldest = findDroppable(lane,
+						listener,
+						event.getKey( ));
+				if (oldest == null) {
+					// nothing of this listener and key to replace
+					dropped.incrementAndGet( );
+					return;
+				}
+				if (lane.remove(oldest)) {
+					dropped.incrementAndGet( );
+				}
+			}
+		}
+		queued.incrementAndGet( );
+	}
+
+	/**
+	 * Searches the oldest droppable event of the given listener and
+	 * key in the given backlog. A listener of several keys may share
+	 * a backlog for them, so only an event of the same key is
+	 * superseded by a new one.
+	 * 
+	 * @param lane
+	 *            the backlog to search
+	 * @param listener
+	 *            the listener of the event
+	 * @param key
+	 *            the key of the event
+	 * @return the waiting event or <code>null</code> if there is none
+	 */
+	private static Dispatch findDroppable(BlockingQueue<Dispatch> lane,
+			DatapoolListener listener, String key) {
+		for (Dispatch waiting : lane) {
+			if (waiting.listener == listener && waiting.droppable
+					&& waiting.event.getKey( ).equals(key)) {
+				return waiting;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the number of events which were queued for dispatching.
+	 * 
+	 * @return the number of queued events
+	 */
+	public long getQueuedCount() {
+		return queued.get( );
+	}
+
+	/**
+	 * Gets the number of events which were delivered to listeners.
+	 * 
+	 * @return the number of dispatched events
+	 */
+	public long getDispatchedCount() {
+		return dispatched.get( );
+	}
+
+	/**
+	 * Gets the number of events which were dropped because the
+	 * backlog was full.
+	 * 
+	 * @return the number of dropped events
+	 */
+	public long getDroppedCount() {
+		return dropped.get( );
+	}
+
+	/**
+	 * Gets the number of events currently waiting for dispatching.
+	 * 
+	 * @return the number of waiting events
+	 */
+	public int getBacklog() {
+		int cnt = 0;
+		for (BlockingQueue<Dispatch> lane : lanes) {
+			cnt += lane.size( );
+		}
+		return cnt;
+	}
+
+	/**
+	 * Gets the behavior of this dispatcher if the backlog is full.
+	 * 
+	 * @return the policy
+	 */
+	public Policy getPolicy() {
+		return policy;
+	}
+}
@@ -0,0 +1,129 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolFilter.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * Filter which suppresses notifications of a listener registered for
+ * a datapool key.<br/><br/>A numeric value is only distributed to the
+ * listener if it differs from the value the listener was notified
+ * with last by more than the absolute deadband and by more than the
+ * relative deadband multiplied with the magnitude of that value.
+ * Additionally the listener is notified at most once in the given
+ * minimum interval. Values which are not numeric are compared with
+ * <code>equals()</code> as usual.<br/><br/>The suppression is
+ * evaluated by the datapool before the event is dispatched, so no
+ * event and no task is created for suppressed values. This keeps
+ * noisy analog sensors from flooding GUI widgets.
+ * 
+ * @author agent
+ * @see Datapool#addDatapoolReceiveListener(String, DatapoolListener,
+ *      DatapoolFilter)
+ */
+public final class DatapoolFilter {
+
+	/**
+	 * The absolute deadband
+	 */
+	private final double absoluteDeadband;
+	/**
+	 * The relative deadband
+	 */
+	private final double relativeDeadband;
+	/**
+	 * The minimum interval between two notifications in milliseconds
+	 */
+	private final long minInterval;
+
+	/**
+	 * Constructs a new filter.
+	 * 
+	 * @param absoluteDeadband
+	 *            the absolute amount a numeric value has to change
+	 *            before the listener is notified again, <code>0</code>
+	 *            for no absolute deadband
+	 * @param relativeDeadband
+	 *            the fraction of the last notified value a numeric
+	 *            value has to change before the listener is notified
+	 *            again, f.e. <code>0.01</code> for 1%,
+	 *            <code>0</code> for no relative deadband
+	 * @param minIntervalMillis
+	 *            the minimum time in milliseconds between two
+	 *            notifications, <code>0</code> for no limit
+	 */
+	public DatapoolFilter(double absoluteDeadband, double relativeDeadband,
+			long minIntervalMillis) {
+		this.absoluteDeadband = Math.max(0, absoluteDeadband);
+		this.relativeDeadband = Math.max(0, relativeDeadband);
+		this.minInterval = Math.max(0, minIntervalMillis);
+	}
+
+	/**
+	 * Gets the absolute deadband.
+	 * 
+	 * @return the absolute deadband
+	 */
+	public double getAbsoluteDeadband() {
+		return absoluteDeadband;
+	}
+
+	/**
+	 * Gets the relative deadband.
+	 * 
+	 * @return the relative deadband as fraction of the last notified
+	 *         value
+	 */
+	public double getRelativeDeadband() {
+		return relativeDeadband;
+	}
+
+	/**
+	 * Gets the minimum interval between two notifications.
+	 * 
+	 * @return the interval in milliseconds
+	 */
+	public long getMinInterval() {
+		return minInterval;
+	}
+
+	/**
+	 * Checks if the given numeric value is outside the deadband around
+	 * the given last notified value.
+	 * 
+	 * @param last
+	 *            the value the listener was notified with last
+	 * @param value
+	 *            the new value
+	 * @return <code>true</code> if the value has changed enough
+	 */
+	boolean isOutsideDeadband(double last, double value) {
+		if (Double.isNaN(last) || Double.isNaN(value)) {
+			return Double.isNaN(last) != Double.isNaN(value);
+		}
+		double delta = Math.abs(value - last);
+		return delta > absoluteDeadband
+				&& delta > relativeDeadband * Math.abs(last);
+	}
+
+}
@@ -0,0 +1,168 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolHistory.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * Ring buffer with a fixed capacity holding the last received values
+ * of a datapool key together with their timestamps.<br/><br/>
+ * Numbers are stored as primitive doubles. Other values are kept as
+ * objects in an additional array, which is only created when the
+ * first non numeric value is added. If the buffer is full the oldest
+ * value is overwritten.
+ * 
+ * @author agent
+ * @see Datapool#enableHistory(String, int)
+ */
+final class DatapoolHistory {
+
+	/**
+	 * Timestamps of the values
+	 */
+	private final long[] timestamps;
+	/**
+	 * Numeric values
+	 */
+	private final double[] values;
+	/**
+	 * Non numeric values or <code>null</code> if only numbers were
+	 * added so far
+	 */
+	private Object[] objects;
+	/**
+	 * Total number of added values, the next value is written to
+	 * <code>count % capacity</code>
+	 */
+	private long count = 0;
+
+	/**
+	 * Constructs a new history with the given capacity.
+	 * 
+	 * @param capacity
+	 *            the maximum number of values to keep
+	 */
+	DatapoolHistory(int capacity) {
+		timestamps = new long[capacity];
+		values = new double[capacity];
+	}
+
+	/**
+	 * Gets the maximum number of values kept by this history.
+	 * 
+	 * @return the capacity
+	 */
+	int getCapacity() {
+		return values.length;
+	}
+
+	/**
+	 * Adds a value to this history.
+	 * 
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the value
+	 */
+	synchronized void add(long timestamp, Object value) {
+		if (value instanceof Number) {
+			add(timestamp, ((Number) value).doubleValue( ));
+			return;
+		}
+		if (objects == null) {
+			objects = new Object[values.length];
+		}
+		int pos = (int) (count % values.length);
+		timestamps[pos] = timestamp;
+		values[pos] = Double.NaN;
+		objects[pos] = value;
+		count++;
+	}
+
+	/**
+	 * Adds a numeric value to this history.
+	 * 
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the value
+	 */
+	synchronized void add(long timestamp, double value) {
+		int pos = (int) (count % values.length);
+		timestamps[pos] = timestamp;
+		values[pos] = value;
+		if (objects != null) {
+			objects[pos] = null;
+		}
+		count++;
+	}
+
+	/**
+	 * Gets all kept values with a timestamp between the given times.
+	 * 
+	 * @param fromMillis
+	 *            the earliest timestamp (inclusive)
+	 * @param toMillis
+	 *            the latest timestamp (inclusive)
+	 * @return the values ordered by the time they were added
+	 */
+	synchronized HistorySnapshot getRange(long fromMillis, long toMillis) {
+		long first = Math.max(0, count - values.length);
+		int size = 0;
+		for (long i = first; i < count; i++) {
+			long timestamp = timestamps[(int) (i % values.length)];
+			if (timestamp >= fromMillis && timestamp <= toMillis) {
+				size++;
+			}
+		}
+		HistorySnapshot snapshot = new HistorySnapshot(size, objects != null);
+		for (long i = first; i < count; i++) {
+			int pos = (int) (i % values.length);
+			long timestamp = timestamps[pos];
+			if (timestamp >= fromMillis && timestamp <= toMillis) {
+				snapshot.add(timestamp, values[pos], objects != null ? objects[pos]
+						: null);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Gets the latest values.
+	 * 
+	 * @param n
+	 *            the maximum number of values
+	 * @return the latest values ordered by the time they were added
+	 */
+	synchronized HistorySnapshot getLatest(int n) {
+		long first = Math.max(0, count - Math.min(values.length, n));
+		HistorySnapshot snapshot = new HistorySnapshot((int) (count - first),
+				objects != null);
+		for (long i = first; i < count; i++) {
+			int pos = (int) (i % values.length);
+			snapshot.add(timestamps[pos], values[pos], objects != null ? objects[pos]
+					: null);
+		}
+		return snapshot;
+	}
+}
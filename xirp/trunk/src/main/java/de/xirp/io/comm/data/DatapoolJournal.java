@@ -0,0 +1,734 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolJournal.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * Append-only binary journal of the data a {@link Datapool} received
+ * from and sent to a robot. A journal can be replayed with the
+ * {@link DatapoolReplayer}, f.e. for reproducing incidents offline.<br/><br/>
+ * The journal file is written through memory mapped chunks, so
+ * recording a frame only copies some bytes. The file starts with a
+ * header holding a magic number, the format version and the number
+ * of bytes written so far, followed by the frames:
+ * 
+ * <pre>
+ * int  length (of the rest of the frame)
+ * byte kind   (key definition, received, sent)
+ * byte type   (type of the value)
+ * int  key    (id of the key)
+ * long timestamp
+ * ...  value
+ * </pre>
+ * 
+ * The name of a key is written once in a key definition frame, later
+ * frames only refer to the id of the key. Values of unsupported types
+ * which are not serializable are skipped and counted.
+ * 
+ * @author agent
+ * @see Datapool#startJournal(File)
+ */
+public final class DatapoolJournal {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logClass = Logger.getLogger(DatapoolJournal.class);
+
+	/**
+	 * Magic number at the start of each journal file
+	 */
+	static final int MAGIC = 0x584A4E4C;
+	/**
+	 * Version of the journal format
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Size of the header
+	 */
+	static final int HEADER_SIZE = 16;
+	/**
+	 * Position of the number of written bytes in the header
+	 */
+	static final int HEADER_LENGTH_POSITION = 8;
+	/**
+	 * Size of the frame fields after the length field and before the
+	 * value
+	 */
+	static final int FRAME_HEADER_SIZE = 1 + 1 + 4 + 8;
+
+	/**
+	 * Frame kind: definition of a key
+	 */
+	static final byte KIND_KEY = 1;
+	/**
+	 * Frame kind: message received which may not be dropped
+	 */
+	static final byte KIND_RECEIVE = 2;
+	/**
+	 * Frame kind: message received which may be dropped
+	 */
+	static final byte KIND_RECEIVE_DROPPABLE = 3;
+	/**
+	 * Frame kind: primitive value received with the typed methods
+	 */
+	static final byte KIND_RECEIVE_TYPED = 4;
+	/**
+	 * Frame kind: message sent to the robot
+	 */
+	static final byte KIND_SEND = 5;
+
+	/**
+	 * Value type of key definitions
+	 */
+	static final byte TYPE_NONE = 0;
+	/**
+	 * Value type {@link Boolean}
+	 */
+	static final byte TYPE_BOOLEAN = 1;
+	/**
+	 * Value type {@link Byte}
+	 */
+	static final byte TYPE_BYTE = 2;
+	/**
+	 * Value type {@link Short}
+	 */
+	static final byte TYPE_SHORT = 3;
+	/**
+	 * Value type {@link Integer}
+	 */
+	static final byte TYPE_INT = 4;
+	/**
+	 * Value type {@link Long}
+	 */
+	static final byte TYPE_LONG = 5;
+	/**
+	 * Value type {@link Float}
+	 */
+	static final byte TYPE_FLOAT = 6;
+	/**
+	 * Value type {@link Double}
+	 */
+	static final byte TYPE_DOUBLE = 7;
+	/**
+	 * Value type {@link String}, UTF-8 encoded
+	 */
+	static final byte TYPE_STRING = 8;
+	/**
+	 * Value type <code>float[]</code>
+	 */
+	static final byte TYPE_FLOAT_ARRAY = 9;
+	/**
+	 * Value type <code>double[]</code>
+	 */
+	static final byte TYPE_DOUBLE_ARRAY = 10;
+	/**
+	 * Value type <code>int[]</code>
+	 */
+	static final byte TYPE_INT_ARRAY = 11;
+	/**
+	 * Value type <code>byte[]</code>
+	 */
+	static final byte TYPE_BYTE_ARRAY = 12;
+	/**
+	 * Value type for other serializable objects
+	 */
+	static final byte TYPE_SERIALIZED = 13;
+
+	/**
+	 * Encoding of strings
+	 */
+	static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+	/**
+	 * Size of the chunks which are mapped for writing
+	 */
+	private static final int CHUNK_SIZE = 16 << 20;
+
+	/**
+	 * The journal file
+	 */
+	private final File file;
+	/**
+	 * The opened journal file
+	 */
+	private final RandomAccessFile raf;
+	/**
+	 * Channel of the journal file
+	 */
+	private final FileChannel channel;
+	/**
+	 * Mapped header of the file
+	 */
+	private final MappedByteBuffer header;
+	/**
+	 * Currently mapped chunk of the file
+	 */
+	private MappedByteBuffer chunk;
+	/**
+	 * File position of the mapped chunk
+	 */
+	private long chunkPosition;
+	/**
+	 * Ids of the keys which were already defined in the journal
+	 */
+	private final Map<String, Integer> keyIds = new HashMap<String, Integer>( );
+	/**
+	 * Number of recorded frames without key definitions
+	 */
+	private long frameCount = 0;
+	/**
+	 * Number of values which were skipped because their type is not
+	 * supported
+	 */
+	private long skippedCount = 0;
+	/**
+	 * Flag showing if the journal is closed
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Creates a new journal in the given file. An existing file is
+	 * overwritten.
+	 * 
+	 * @param file
+	 *            the file to write the journal to
+	 * @throws IOException
+	 *             if the file could not be created
+	 */
+	public DatapoolJournal(File file) throws IOException {
+		this.file = file;
+		File parent = file.getAbsoluteFile( ).getParentFile( );
+		if (parent != null && !parent.exists( )) {
+			parent.mkdirs( );
+		}
+		raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		raf.setLength(0);
+		channel = raf.getChannel( );
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putLong(HEADER_SIZE);
+		chunkPosition = HEADER_SIZE;
+		chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+				chunkPosition,
+				CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new journal file for the given robot in the journal
+	 * directory. The name of the file contains the name of the robot
+	 * and the current time.
+	 * 
+	 * @param robotName
+	 *            the name of the robot
+	 * @return the new journal
+	 * @throws IOException
+	 *             if the file could not be created
+	 * @see Constants#JOURNAL_DIR
+	 */
+	public static DatapoolJournal create(String robotName)
+			throws IOException {
+		String time = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date( )); //$NON-NLS-1$
+		return new DatapoolJournal(new File(Constants.JOURNAL_DIR, robotName
+				+ "_" + time + Constants.JOURNAL_POSTFIX)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Records a message received from the robot.
+	 * 
+	 * @param message
+	 *            the received message
+	 */
+	void recordReceive(DatapoolMessage message) {
+		record(message.isMayDrop( ) ? KIND_RECEIVE_DROPPABLE : KIND_RECEIVE,
+				message.getTimestamp( ),
+				message.getKey( ),
+				message.getValue( ));
+	}
+
+	/**
+	 * Records a message sent to the robot.
+	 * 
+	 * @param message
+	 *            the sent message
+	 */
+	void recordSend(DatapoolMessage message) {
+		record(KIND_SEND,
+				message.getTimestamp( ),
+				message.getKey( ),
+				message.getValue( ));
+	}
+
+	/**
+	 * Records a double value received with the typed methods.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the value
+	 */
+	synchronized void recordDouble(String key, long timestamp, double value) {
+		if (begin(KIND_RECEIVE_TYPED,
+				TYPE_DOUBLE,
+				key,
+				timestamp,
+				8)) {
+			chunk.putDouble(value);
+			finish( );
+		}
+	}
+
+	/**
+	 * Records a long value received with the typed methods.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the value
+	 */
+	synchronized void recordLong(String key, long timestamp, long value) {
+		if (begin(KIND_RECEIVE_TYPED,
+				TYPE_LONG,
+				key,
+				timestamp,
+				8)) {
+			chunk.putLong(value);
+			finish( );
+		}
+	}
+
+	/**
+	 * Records a float array received with the typed methods.
+	 * 
+	 * @param key
+	 *            the key of the values
+	 * @param timestamp
+	 *            the timestamp of the values
+	 * @param values
+	 *            the values
+	 */
+	synchronized void recordFloatArray(String key, long timestamp,
+			float[] values) {
+		if (begin(KIND_RECEIVE_TYPED,
+				TYPE_FLOAT_ARRAY,
+				key,
+				timestamp,
+				4 + 4 * values.length)) {
+			putFloats(values);
+			finish( );
+		}
+	}
+
+	/**
+	 * Records a frame for the given value.
+	 * 
+	 * @param kind
+	 *            the kind of the frame
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param key
+	 *            the key of the value
+	 * @param value
+	 *            the value
+	 */
+	private synchronized void record(byte kind, long timestamp, String key,
+			Object value) {
+		if (closed) {
+			return;
+		}
+		byte type;
+		int length;
+		byte[] bytes = null;
+		if (value instanceof Double) {
+			type = TYPE_DOUBLE;
+			length = 8;
+		}
+		else if (value instanceof Float) {
+			type = TYPE_FLOAT;
+			length = 4;
+		}
+		else if (value instanceof Integer) {
+			type = TYPE_INT;
+			length = 4;
+		}
+		else if (value instanceof Long) {
+			type = TYPE_LONG;
+			length = 8;
+		}
+		else if (value instanceof Short) {
+			type = TYPE_SHORT;
+			length = 2;
+		}
+		else if (value instanceof Byte) {
+			type = TYPE_BYTE;
+			length = 1;
+		}
+		else if (value instanceof Boolean) {
+			type = TYPE_BOOLEAN;
+			length = 1;
+		}
+		else if (value instanceof float[]) {
+			type = TYPE_FLOAT_ARRAY;
+			length = 4 + 4 * ((float[]) value).length;
+		}
+		else if (value instanceof double[]) {
+			type = TYPE_DOUBLE_ARRAY;
+			length = 4 + 8 * ((double[]) value).length;
+		}
+		else if (value instanceof int[]) {
+			type = TYPE_INT_ARRAY;
+			length = 4 + 4 * ((int[]) value).length;
+		}
+		else if (value instanceof byte[]) {
+			type = TYPE_BYTE_ARRAY;
+			length = 4 + ((byte[]) value).length;
+		}
+		else if (value instanceof String) {
+			type = TYPE_STRING;
+			bytes = encode((String) value);
+			length = bytes.length;
+		}
+		else if (value instanceof Serializable) {
+			type = TYPE_SERIALIZED;
+			bytes = serialize(value);
+			if (bytes == null) {
+				skippedCount++;
+				return;
+			}
+			length = bytes.length;
+		}
+		else {
+			skippedCount++;
+			return;
+		}
+
+		if (!begin(kind, type, key, timestamp, length)) {
+			return;
+		}
+		switch (type) {
+			case TYPE_DOUBLE:
+				chunk.putDouble((Double) value);
+				break;
+			case TYPE_FLOAT:
+				chunk.putFloat((Float) value);
+				break;
+			case TYPE_INT:
+				chunk.putInt((Integer) value);
+				break;
+			case TYPE_LONG:
+				chunk.putLong((Long) value);
+				break;
+			case TYPE_SHORT:
+				chunk.putShort((Short) value);
+				break;
+			case TYPE_BYTE:
+				chunk.put((Byte) value);
+				break;
+			case TYPE_BOOLEAN:
+				chunk.put((byte) (((Boolean) value) ? 1 : 0));
+				break;
+			case TYPE_FLOAT_ARRAY:
+				putFloats((float[]) value);
+				break;
+			case TYPE_DOUBLE_ARRAY:
+				double[] doubles = (double[]) value;
+				chunk.putInt(doubles.length);
+				chunk.asDoubleBuffer( ).put(doubles);
+				chunk.position(chunk.position( ) + 8 * doubles.length);
+				break;
+			case TYPE_INT_ARRAY:
+				int[] ints = (int[]) value;
+				chunk.putInt(ints.length);
+				chunk.asIntBuffer( ).put(ints);
+				chunk.position(chunk.position( ) + 4 * ints.length);
+				break;
+			case TYPE_BYTE_ARRAY:
+				byte[] array = (byte[]) value;
+				chunk.putInt(array.length);
+				chunk.put(array);
+				break;
+			default:
+				chunk.put(bytes);
+				break;
+		}
+		finish( );
+	}
+
+	/**
+	 * Writes the given floats with their number to the current chunk.
+	 * 
+	 * @param values
+	 *            the values to write
+	 */
+	private void putFloats(float[] values) {
+		chunk.putInt(values.length);
+		chunk.asFloatBuffer( ).put(values);
+		chunk.position(chunk.position( ) + 4 * values.length);
+	}
+
+	/**
+	 * Starts a new frame: defines the key if necessary, makes sure
+	 * the current chunk has enough space and writes the frame header.
+	 * The lock has to be held by the caller.
+	 * 
+	 * @param kind
+	 *            the kind of the frame
+	 * @param type
+	 *            the type of the value
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param valueLength
+	 *            the number of bytes of the value
+	 * @return <code>false</code> if the frame could not be started
+	 *         because the journal is closed or an error occurred
+	 */
+	private boolean begin(byte kind, byte type, String key,
+			long timestamp, int valueLength) {
+		if (closed) {
+			return false;
+		}
+		try {
+			Integer id = keyIds.get(key);
+			if (id == null) {
+				id = keyIds.size( );
+				keyIds.put(key, id);
+				byte[] name = encode(key);
+				ensureCapacity(4 + FRAME_HEADER_SIZE + name.length);
+				putFrameHeader(KIND_KEY,
+						TYPE_NONE,
+						id,
+						0,
+						name.length);
+				chunk.put(name);
+				updateLength( );
+			}
+			ensureCapacity(4 + FRAME_HEADER_SIZE + valueLength);
+			putFrameHeader(kind, type, id, timestamp, valueLength);
+			return true;
+		}
+		catch (IOException e) {
+			logClass.error(I18n.getString("DatapoolJournal.log.writeFailed", //$NON-NLS-1$
+					file.getName( ),
+					e.getMessage( ))
+					+ Constants.LINE_SEPARATOR, e);
+			close( );
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the header of a frame.
+	 * 
+	 * @param kind
+	 *            the kind of the frame
+	 * @param type
+	 *            the type of the value
+	 * @param id
+	 *            the id of the key
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param valueLength
+	 *            the number of bytes of the value
+	 */
+	private void putFrameHeader(byte kind, byte type, int id,
+			long timestamp, int valueLength) {
+		chunk.putInt(FRAME_HEADER_SIZE + valueLength);
+		chunk.put(kind);
+		chunk.put(type);
+		chunk.putInt(id);
+		chunk.putLong(timestamp);
+	}
+
+	/**
+	 * Finishes the current frame.
+	 */
+	private void finish() {
+		frameCount++;
+		updateLength( );
+	}
+
+	/**
+	 * Updates the number of written bytes in the header, so the
+	 * journal is readable even if the application is not shut down
+	 * properly.
+	 */
+	private void updateLength() {
+		header.putLong(HEADER_LENGTH_POSITION, chunkPosition
+				+ chunk.position( ));
+	}
+
+	/**
+	 * Maps the next chunk if the current chunk has not enough space
+	 * left for the given number of bytes.
+	 * 
+	 * @param bytes
+	 *            the number of bytes to write
+	 * @throws IOException
+	 *             if mapping the next chunk failed
+	 */
+	private void ensureCapacity(int bytes) throws IOException {
+		if (chunk.remaining( ) < bytes) {
+			chunkPosition += chunk.position( );
+			chunk = channel.map(FileChannel.MapMode.READ_WRITE,
+					chunkPosition,
+					Math.max(CHUNK_SIZE, bytes));
+		}
+	}
+
+	/**
+	 * Encodes the given string.
+	 * 
+	 * @param value
+	 *            the string to encode
+	 * @return the UTF-8 bytes of the string
+	 */
+	static byte[] encode(String value) {
+		try {
+			return value.getBytes(ENCODING);
+		}
+		catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			return value.getBytes( );
+		}
+	}
+
+	/**
+	 * Serializes the given object.
+	 * 
+	 * @param value
+	 *            the object to serialize
+	 * @return the serialized object or <code>null</code> if the
+	 *         object could not be serialized
+	 */
+	private static byte[] serialize(Object value) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(value);
+			out.close( );
+			return bytes.toByteArray( );
+		}
+		catch (IOException e) {
+			logClass.debug("Value not serializable: " + e.getMessage( ) //$NON-NLS-1$
+					+ Constants.LINE_SEPARATOR);
+			return null;
+		}
+	}
+
+	/**
+	 * Closes this journal. The file is truncated to the written data.
+	 * Frames recorded afterwards are ignored.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		long length = chunkPosition + chunk.position( );
+		header.putLong(HEADER_LENGTH_POSITION, length);
+		header.force( );
+		chunk.force( );
+		try {
+			// may fail on some platforms while the chunks are still
+			// mapped, the length in the header is used then
+			channel.truncate(length);
+		}
+		catch (IOException e) {
+			logClass.debug("Journal not truncated: " + e.getMessage( ) //$NON-NLS-1$
+					+ Constants.LINE_SEPARATOR);
+		}
+		try {
+			raf.close( );
+		}
+		catch (IOException e) {
+			logClass.error(I18n.getString("DatapoolJournal.log.writeFailed", //$NON-NLS-1$
+					file.getName( ),
+					e.getMessage( ))
+					+ Constants.LINE_SEPARATOR, e);
+		}
+	}
+
+	/**
+	 * Gets the journal file.
+	 * 
+	 * @return the file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the number of recorded frames.
+	 * 
+	 * @return the number of frames
+	 */
+	public synchronized long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Gets the number of values which were not recorded because their
+	 * type is not supported.
+	 * 
+	 * @return the number of skipped values
+	 */
+	public synchronized long getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * Checks if this journal is closed.
+	 * 
+	 * @return <code>true</code> if the journal is closed
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+}
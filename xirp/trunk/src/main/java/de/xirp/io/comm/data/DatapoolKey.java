@@ -0,0 +1,165 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolKey.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Handle for a datapool key. Each key name is resolved once to a
+ * handle which holds a dense index. The datapool stores the values
+ * and listeners of a key in arrays at this index, so using a handle
+ * avoids hashing the key name for every value.<br/><br/>Handles are
+ * interned: there is exactly one handle for each key name, so handles
+ * may be compared by identity. The handles of the sensors of all
+ * robots are resolved when the profiles are loaded, see
+ * {@link de.xirp.profile.ProfileManager#getSensorDatapoolKeyHandles(String)}.
+ * 
+ * @author agent
+ */
+public final class DatapoolKey {
+
+	/**
+	 * The handles by their names
+	 */
+	private static final ConcurrentHashMap<String, DatapoolKey> keys = new ConcurrentHashMap<String, DatapoolKey>( );
+	/**
+	 * The index the next handle will get
+	 */
+	private static int nextIndex = 0;
+
+	/**
+	 * The name of the key
+	 */
+	private final String name;
+	/**
+	 * The dense index of the key
+	 */
+	private final int index;
+
+	/**
+	 * Constructs a new handle. Use {@link #get(String)} or
+	 * {@link #find(String)} for getting a handle.
+	 * 
+	 * @param name
+	 *            the name of the key
+	 * @param index
+	 *            the index of the key
+	 */
+	private DatapoolKey(String name, int index) {
+		this.name = name;
+		this.index = index;
+	}
+
+	/**
+	 * Gets the handle for the given key name. The handle is created if
+	 * the name was not resolved before.
+	 * 
+	 * @param name
+	 *            the name of the key
+	 * @return the handle for the name or <code>null</code> if the
+	 *         name was <code>null</code>
+	 */
+	public static DatapoolKey get(String name) {
+		if (name == null) {
+			return null;
+		}
+		DatapoolKey key = keys.get(name);
+		if (key == null) {
+			key = create(name);
+		}
+		return key;
+	}
+
+	/**
+	 * Gets the handle for the given key name if it was resolved
+	 * before. Other than {@link #get(String)} this method never creates
+	 * a handle, so it should be used for lookups with names which may
+	 * not be keys, f.e. names entered by the user.
+	 * 
+	 * @param name
+	 *            the name of the key
+	 * @return the handle for the name or <code>null</code> if the
+	 *         name was not resolved before or was <code>null</code>
+	 */
+	public static DatapoolKey find(String name) {
+		if (name == null) {
+			return null;
+		}
+		return keys.get(name);
+	}
+
+	/**
+	 * Creates the handle for the given name if it does not exist yet.
+	 * 
+	 * @param name
+	 *            the name of the key
+	 * @return the handle for the name
+	 */
+	private static synchronized DatapoolKey create(String name) {
+		DatapoolKey key = keys.get(name);
+		if (key == null) {
+			key = new DatapoolKey(name, nextIndex++);
+			keys.put(name, key);
+		}
+		return key;
+	}
+
+	/**
+	 * Gets the number of handles resolved so far. All indexes are
+	 * lower than this number.
+	 * 
+	 * @return the number of handles
+	 */
+	public static synchronized int getKeyCount() {
+		return nextIndex;
+	}
+
+	/**
+	 * Gets the name of the key.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the dense index of the key.
+	 * 
+	 * @return the index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Gives back the name of the key.
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,249 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolKeyPattern.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * A pattern for datapool keys used for registering a listener on all
+ * keys matching the pattern, f.e. on all keys starting with
+ * <code>laser</code>.<br/><br/>
+ * Patterns are written as globs: <code>*</code> matches any number
+ * of characters and <code>?</code> matches exactly one character.
+ * All other characters match themselves.<br/><br/>
+ * The pattern is only matched once for each key when a listener or
+ * a key is added to the datapool, the datapool keeps the matching
+ * listeners of each key in a table. So the number of pattern
+ * listeners does not affect the cost of distributing a value.
+ * 
+ * @author agent
+ * @see Datapool#addDatapoolReceiveListener(DatapoolKeyPattern,
+ *      DatapoolListener)
+ */
+public final class DatapoolKeyPattern {
+
+	/**
+	 * Wildcard for any number of characters
+	 */
+	private static final char ANY = '*';
+	/**
+	 * Wildcard for a single character
+	 */
+	private static final char ONE = '?';
+
+	/**
+	 * The pattern
+	 */
+	private final String pattern;
+	/**
+	 * The prefix of the pattern if the pattern is a literal followed
+	 * by a single <code>*</code>, <code>null</code> otherwise
+	 */
+	private final String prefix;
+	/**
+	 * A key which is matched in addition to the glob or
+	 * <code>null</code>
+	 */
+	private final String exact;
+
+	/**
+	 * Constructs a new pattern.
+	 * 
+	 * @param pattern
+	 *            the glob
+	 */
+	private DatapoolKeyPattern(String pattern) {
+		this(pattern, null);
+	}
+
+	/**
+	 * Constructs a new pattern.
+	 * 
+	 * @param pattern
+	 *            the glob
+	 * @param exact
+	 *            a key which is matched in addition to the glob or
+	 *            <code>null</code>
+	 */
+	private DatapoolKeyPattern(String pattern, String exact) {
+		this.pattern = pattern;
+		this.exact = exact;
+		int any = pattern.indexOf(ANY);
+		if (any >= 0 && any == pattern.length( ) - 1
+				&& pattern.indexOf(ONE) < 0) {
+			prefix = pattern.substring(0, any);
+		}
+		else {
+			prefix = null;
+		}
+	}
+
+	/**
+	 * Creates a pattern from the given glob.
+	 * 
+	 * @param glob
+	 *            the glob, <code>*</code> matches any number of
+	 *            characters and <code>?</code> a single character
+	 * @return the pattern or <code>null</code> if the glob was
+	 *         <code>null</code>
+	 */
+	public static DatapoolKeyPattern glob(String glob) {
+		if (glob == null) {
+			return null;
+		}
+		return new DatapoolKeyPattern(glob);
+	}
+
+	/**
+	 * Creates a pattern matching all keys starting with the given
+	 * prefix.
+	 * 
+	 * @param prefix
+	 *            the prefix, wildcards are not interpreted
+	 * @return the pattern or <code>null</code> if the prefix was
+	 *         <code>null</code> or contains wildcards
+	 */
+	public static DatapoolKeyPattern prefix(String prefix) {
+		if (prefix == null || prefix.indexOf(ANY) >= 0
+				|| prefix.indexOf(ONE) >= 0) {
+			return null;
+		}
+		return new DatapoolKeyPattern(prefix + ANY);
+	}
+
+	/**
+	 * Creates a pattern matching the given key and all keys which
+	 * consist of the key, the separator and a sub key. F.e. the pattern
+	 * for key <code>ir</code> and separator <code>_</code> matches
+	 * <code>ir</code> and <code>ir_front</code>, but not
+	 * <code>ir2_front</code> or <code>irfront</code>.
+	 * 
+	 * @param key
+	 *            the key, wildcards are not interpreted
+	 * @param separator
+	 *            the separator between key and sub key
+	 * @return the pattern or <code>null</code> if the key or
+	 *         separator was <code>null</code> or contains wildcards
+	 * @see de.xirp.util.Constants#KEY_SUBKEY_SEPARATOR
+	 */
+	public static DatapoolKeyPattern subKeys(String key, String separator) {
+		if (key == null || separator == null) {
+			return null;
+		}
+		String aux = key + separator;
+		if (aux.indexOf(ANY) >= 0 || aux.indexOf(ONE) >= 0) {
+			return null;
+		}
+		return new DatapoolKeyPattern(aux + ANY, key);
+	}
+
+	/**
+	 * Checks if the given key matches this pattern.
+	 * 
+	 * @param key
+	 *            the key to check
+	 * @return <code>true</code> if the key matches
+	 */
+	public boolean matches(String key) {
+		if (key == null) {
+			return false;
+		}
+		if (exact != null && exact.equals(key)) {
+			return true;
+		}
+		if (prefix != null) {
+			return key.startsWith(prefix);
+		}
+		// iterative glob matching, backtracking to the last star only
+		int p = 0;
+		int k = 0;
+		int star = -1;
+		int starKey = 0;
+		int length = pattern.length( );
+		while (k < key.length( )) {
+			if (p < length
+					&& (pattern.charAt(p) == ONE || pattern.charAt(p) == key.charAt(k))) {
+				p++;
+				k++;
+			}
+			else if (p < length && pattern.charAt(p) == ANY) {
+				star = p++;
+				starKey = k;
+			}
+			else if (star >= 0) {
+				p = star + 1;
+				k = ++starKey;
+			}
+			else {
+				return false;
+			}
+		}
+		while (p < length && pattern.charAt(p) == ANY) {
+			p++;
+		}
+		return p == length;
+	}
+
+	/**
+	 * Gets the glob of this pattern.
+	 * 
+	 * @return the glob
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DatapoolKeyPattern)) {
+			return false;
+		}
+		DatapoolKeyPattern other = (DatapoolKeyPattern) obj;
+		return pattern.equals(other.pattern)
+				&& (exact == null ? other.exact == null
+						: exact.equals(other.exact));
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return pattern.hashCode( );
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return exact != null ? exact + "|" + pattern : pattern; //$NON-NLS-1$
+	}
+
+}
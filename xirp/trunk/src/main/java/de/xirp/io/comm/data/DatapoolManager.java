@@ -94,7 +94,8 @@ public final class DatapoolManager extends AbstractManager {
 
 	/**
 	 * Returns the datapool for a given robot. If the datapool does
-	 * not exist, it will be created.
+	 * not exist, it will be created. An existing datapool is returned
+	 * without looking up the robot in the profiles.
 	 * 
 	 * @param robotName
 	 *            The robots name.
@@ -104,6 +105,10 @@ public final class DatapoolManager extends AbstractManager {
 	 */
 	public static Datapool getDatapool(String robotName)
 			throws DatapoolException {
+		Datapool pool = datapools.get(robotName);
+		if (pool != null) {
+			return pool;
+		}
 		try {
 			return getDatapool(ProfileManager.getRobot(robotName));
 		}
@@ -152,5 +157,6 @@ public final class DatapoolManager extends AbstractManager {
 			pool.stop( );
 		}
 		datapools.clear( );
+		DatapoolDispatcher.shutdown( );
 	}
 }
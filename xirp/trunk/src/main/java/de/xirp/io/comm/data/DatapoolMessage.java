@@ -38,6 +38,10 @@ public class DatapoolMessage {
 	 * the datapool key
 	 */
 	private String key;
+	/**
+	 * the handle of the datapool key, resolved on first use
+	 */
+	private DatapoolKey handle;
 	/**
 	 * the value
 	 */
@@ -52,6 +56,11 @@ public class DatapoolMessage {
 	 * The timestamp at which the message was received by the robot
 	 */
 	private long timestamp;
+	/**
+	 * [Send only] The priority for sending the message or
+	 * <code>null</code> to use the priority of the key
+	 */
+	private SendPriority priority;
 
 	/**
 	 * Constructs a new message with the given key and value, the
@@ -121,6 +130,28 @@ public class DatapoolMessage {
 		this.mayDrop = mayDrop;
 	}
 
+	/**
+	 * Constructs a new message with the given parameters. Using a
+	 * handle for the key avoids resolving the key name in the
+	 * datapool.
+	 * 
+	 * @param timestamp
+	 *            the timestamp for this message
+	 * @param key
+	 *            the handle of the datapool key of the message
+	 * @param value
+	 *            the value of the message
+	 * @param mayDrop
+	 *            <code>true</code> if the message may be dropped if
+	 *            a message with the same key is already in process at
+	 *            the datapool
+	 */
+	public DatapoolMessage(long timestamp, DatapoolKey key, Object value,
+			boolean mayDrop) {
+		this(timestamp, key != null ? key.getName( ) : null, value, mayDrop);
+		this.handle = key;
+	}
+
 	/**
 	 * Gets the datapool key of the message
 	 * 
@@ -130,6 +161,22 @@ public class DatapoolMessage {
 		return key;
 	}
 
+	/**
+	 * Gets the handle of the datapool key of the message. The handle
+	 * is resolved once and kept for later calls.
+	 * 
+	 * @return the handle or <code>null</code> if the key is
+	 *         <code>null</code>
+	 */
+	public DatapoolKey getDatapoolKey() {
+		DatapoolKey aux = handle;
+		if (aux == null) {
+			aux = DatapoolKey.get(key);
+			handle = aux;
+		}
+		return aux;
+	}
+
 	/**
 	 * Gets the value of the message
 	 * 
@@ -161,4 +208,27 @@ public class DatapoolMessage {
 		return timestamp;
 	}
 
+	/**
+	 * [Send only] Gets the priority for sending this message.
+	 * 
+	 * @return the priority or <code>null</code> if the priority of
+	 *         the key is used
+	 * @see Datapool#setSendPriority(String, SendPriority)
+	 */
+	public SendPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * [Send only] Sets the priority for sending this message. The
+	 * priority overrides the priority of the key.
+	 * 
+	 * @param priority
+	 *            the priority or <code>null</code> to use the
+	 *            priority of the key
+	 */
+	public void setPriority(SendPriority priority) {
+		this.priority = priority;
+	}
+
 }
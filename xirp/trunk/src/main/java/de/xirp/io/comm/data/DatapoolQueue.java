@@ -21,32 +21,102 @@
  * Changes
  * -------
  * 06.06.2007:		Created by Rabea Gransberger.
+ * 18.10.2026:		Replaced linear key lookup with a key to slot index.
  */
 package de.xirp.io.comm.data;
 
-import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
-import de.xirp.util.collections.MultiValueHashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Queue for received datapool messages. The queue preserves the order
- * of the incoming messages and handles dropping of messages.
+ * of the incoming messages and handles dropping of messages.<br/><br/>
+ * The messages are kept in a ring in the order they were added. For
+ * each key the queue remembers the position of the last droppable
+ * message which was not yet taken from the queue, so a new droppable
+ * message for the same key replaces the old one in constant time
+ * while preserving the old order. Messages which may not be dropped
+ * are never replaced.<br/><br/> Consumers may block on the queue with
+ * {@link #drainTo(Collection, long, TimeUnit)} and are woken up as soon
+ * as a message is offered. All producers and the consumer share one
+ * lock. Producers hold it for amortized constant time: if the ring is
+ * full it is doubled, which copies the queued messages while the lock
+ * is held. The ring never shrinks, so this only happens the first few
+ * times the backlog reaches a new maximum.<br/><br/>Additionally the queue
+ * holds the {@link PrimitiveChannel}s which have a pending sample.
+ * Each channel is queued at most once, the channels are linked
+ * directly so queueing a channel does not allocate memory.
  * 
  * @author Rabea Gransberger
  */
 class DatapoolQueue {
 
 	/**
-	 * Order of the queue with the keys of the received messages
+	 * Initial capacity of the ring, has to be a power of two. Chosen
+	 * large enough that the ring rarely has to grow.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Position of the last droppable message for a key which is still
+	 * queued.
+	 */
+	private static final class Slot {
+
+		/**
+		 * The sequence number of the message or <code>-1</code> if
+		 * there is no replaceable message for the key
+		 */
+		long sequence = -1;
+	}
+
+	/**
+	 * Lock guarding the ring and the index
+	 */
+	private final ReentrantLock lock = new ReentrantLock( );
+	/**
+	 * Condition signaled when a message is added to an empty queue
+	 */
+	private final Condition notEmpty = lock.newCondition( );
+	/**
+	 * Index from the key handle of a message to the position of its
+	 * last droppable message
+	 * 
+	 * @see DatapoolKey#getIndex()
+	 */
+	private Slot[] index = new Slot[0];
+	/**
+	 * The queued messages. The message with sequence number
+	 * <code>s</code> is located at <code>s &amp; mask</code>.
+	 */
+	private DatapoolMessage[] ring = new DatapoolMessage[INITIAL_CAPACITY];
+	/**
+	 * Mask for calculating the ring position of a sequence number
+	 */
+	private int mask = INITIAL_CAPACITY - 1;
+	/**
+	 * Sequence number of the first queued message
+	 */
+	private long head = 0;
+	/**
+	 * Sequence number the next added message will get
+	 */
+	private long tail = 0;
+	/**
+	 * First queued channel
 	 */
-	private ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<String>( );
+	private PrimitiveChannel firstChannel;
 	/**
-	 * The messages of the queue. There might be more than one message
-	 * for one key. In this case the key can be found more than once
-	 * in the order list.
+	 * Last queued channel
 	 */
-	private MultiValueHashMap<String, DatapoolMessage> data = new MultiValueHashMap<String, DatapoolMessage>( );
+	private PrimitiveChannel lastChannel;
+	/**
+	 * Number of queued channels
+	 */
+	private int channelCount = 0;
 
 	/**
 	 * Adds the given message to this queue.<br>
@@ -60,27 +130,198 @@ class DatapoolQueue {
 	 * @return <code>true</code> if the message was added to this
 	 *         queue
 	 */
-	public synchronized boolean add(DatapoolMessage m) {
-		if (m.isMayDrop( ) && order.contains(m.getKey( ))) {
-			// replace
-			data.remove(m.getKey( ));
-			data.put(m.getKey( ), m);
+	public boolean add(DatapoolMessage m) {
+		lock.lock( );
+		try {
+			boolean wasEmpty = isEmptyLocked( );
+			enqueue(m);
+			if (wasEmpty) {
+				notEmpty.signal( );
+			}
 		}
-		else {
-			order.add(m.getKey( ));
-			data.put(m.getKey( ), m);
+		finally {
+			lock.unlock( );
 		}
-
 		return true;
 	}
 
 	/**
-	 * Gets the number of queued messages.
+	 * Adds the given messages to this queue in their order. The lock
+	 * is taken only once and a waiting consumer is woken up only once
+	 * for all messages.
+	 * 
+	 * @param messages
+	 *            the array with the messages to add
+	 * @param count
+	 *            the number of messages to add from the start of the
+	 *            array
+	 * @see #add(DatapoolMessage)
+	 */
+	public void addAll(DatapoolMessage[] messages, int count) {
+		if (count <= 0) {
+			return;
+		}
+		lock.lock( );
+		try {
+			boolean wasEmpty = isEmptyLocked( );
+			for (int i = 0; i < count; i++) {
+				enqueue(messages[i]);
+			}
+			if (wasEmpty) {
+				notEmpty.signal( );
+			}
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Adds the given channel to this queue if it is not queued yet.
+	 * 
+	 * @param channel
+	 *            the channel with a pending sample
+	 */
+	public void offerChannel(PrimitiveChannel channel) {
+		lock.lock( );
+		try {
+			if (channel.queued) {
+				return;
+			}
+			boolean wasEmpty = isEmptyLocked( );
+			channel.queued = true;
+			channel.next = null;
+			if (lastChannel == null) {
+				firstChannel = channel;
+			}
+			else {
+				lastChannel.next = channel;
+			}
+			lastChannel = channel;
+			channelCount++;
+			if (wasEmpty) {
+				notEmpty.signal( );
+			}
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Checks if neither messages nor channels are queued. The lock has
+	 * to be held by the caller.
 	 * 
-	 * @return the number of queued messages
+	 * @return <code>true</code> if the queue is empty
 	 */
-	public synchronized int size() {
-		return order.size( );
+	private boolean isEmptyLocked() {
+		return head == tail && firstChannel == null;
+	}
+
+	/**
+	 * Removes all channels from the queue and adds them to the given
+	 * collection. The lock has to be held by the caller.
+	 * 
+	 * @param target
+	 *            the collection to add the channels to or
+	 *            <code>null</code> to just discard them
+	 */
+	private void dequeueChannels(Collection<PrimitiveChannel> target) {
+		PrimitiveChannel channel = firstChannel;
+		while (channel != null) {
+			PrimitiveChannel aux = channel.next;
+			channel.next = null;
+			channel.queued = false;
+			if (target != null) {
+				target.add(channel);
+			}
+			channel = aux;
+		}
+		firstChannel = null;
+		lastChannel = null;
+		channelCount = 0;
+	}
+
+	/**
+	 * Adds or replaces the message. The lock has to be held by the
+	 * caller.
+	 * 
+	 * @param m
+	 *            the message to add
+	 */
+	private void enqueue(DatapoolMessage m) {
+		int idx = m.getDatapoolKey( ).getIndex( );
+		Slot slot = idx < index.length ? index[idx] : null;
+		if (m.isMayDrop( )) {
+			if (slot == null) {
+				if (idx >= index.length) {
+					index = Arrays.copyOf(index,
+							Math.max(idx + 1, DatapoolKey.getKeyCount( )));
+				}
+				slot = new Slot( );
+				index[idx] = slot;
+			}
+			else if (slot.sequence >= head) {
+				// replace
+				ring[(int) (slot.sequence & mask)] = m;
+				return;
+			}
+			slot.sequence = tail;
+		}
+		else if (slot != null) {
+			// a later droppable message must not overtake this one
+			slot.sequence = -1;
+		}
+		if (tail - head == ring.length) {
+			grow( );
+		}
+		ring[(int) (tail & mask)] = m;
+		tail++;
+	}
+
+	/**
+	 * Doubles the capacity of the ring. The lock has to be held by
+	 * the caller. This copies all queued messages, so it takes linear
+	 * time, but the ring never shrinks and adding stays constant time
+	 * amortized.
+	 */
+	private void grow() {
+		DatapoolMessage[] newRing = new DatapoolMessage[ring.length << 1];
+		int newMask = newRing.length - 1;
+		for (long s = head; s < tail; s++) {
+			newRing[(int) (s & newMask)] = ring[(int) (s & mask)];
+		}
+		ring = newRing;
+		mask = newMask;
+	}
+
+	/**
+	 * Removes the first message. The lock has to be held by the
+	 * caller and the queue must not be empty.
+	 * 
+	 * @return the removed message
+	 */
+	private DatapoolMessage dequeue() {
+		int pos = (int) (head & mask);
+		DatapoolMessage message = ring[pos];
+		ring[pos] = null;
+		head++;
+		return message;
+	}
+
+	/**
+	 * Gets the number of queued messages and channels.
+	 * 
+	 * @return the number of queued messages and channels
+	 */
+	public int size() {
+		lock.lock( );
+		try {
+			return (int) (tail - head) + channelCount;
+		}
+		finally {
+			lock.unlock( );
+		}
 	}
 
 	/**
@@ -91,7 +332,7 @@ class DatapoolQueue {
 	 * @return <code>true</code> if the message was added to this
 	 *         queue
 	 */
-	public synchronized boolean offer(DatapoolMessage message) {
+	public boolean offer(DatapoolMessage message) {
 		return add(message);
 	}
 
@@ -102,11 +343,17 @@ class DatapoolQueue {
 	 *         if the queue is empty
 	 * @see java.util.Queue#peek()
 	 */
-	public synchronized DatapoolMessage peek() {
-		if (!isEmpty( )) {
-			return data.get(order.peek( )).get(0);
+	public DatapoolMessage peek() {
+		lock.lock( );
+		try {
+			if (head != tail) {
+				return ring[(int) (head & mask)];
+			}
+			return null;
+		}
+		finally {
+			lock.unlock( );
 		}
-		return null;
 	}
 
 	/**
@@ -116,33 +363,125 @@ class DatapoolQueue {
 	 *         if the queue is empty
 	 * @see java.util.Queue#poll()
 	 */
-	public synchronized DatapoolMessage poll() {
-		if (!isEmpty( )) {
-			String key = order.poll( );
-			List<DatapoolMessage> list = data.get(key);
-			DatapoolMessage message = list.get(0);
-			data.remove(key, message);
-			return message;
+	public DatapoolMessage poll() {
+		lock.lock( );
+		try {
+			if (head != tail) {
+				return dequeue( );
+			}
+			return null;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Removes all messages of this queue and adds them to the given
+	 * collection in the order of the queue. If the queue is empty this
+	 * method waits until a message is offered or the given timeout
+	 * elapsed.
+	 * 
+	 * @param target
+	 *            the collection to add the messages to
+	 * @param timeout
+	 *            the maximum time to wait for a message
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the number of messages added to the collection
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public int drainTo(Collection<DatapoolMessage> target, long timeout,
+			TimeUnit unit) throws InterruptedException {
+		lock.lockInterruptibly( );
+		try {
+			long nanos = unit.toNanos(timeout);
+			while (head == tail && nanos > 0) {
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			int cnt = (int) (tail - head);
+			while (head != tail) {
+				target.add(dequeue( ));
+			}
+			return cnt;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Removes all messages and channels of this queue and adds them to
+	 * the given collections in the order of the queue. If the queue is
+	 * empty this method waits until a message or channel is offered or
+	 * the given timeout elapsed.
+	 * 
+	 * @param messages
+	 *            the collection to add the messages to
+	 * @param channels
+	 *            the collection to add the channels to
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the number of messages and channels added to the
+	 *         collections
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public int drainTo(Collection<DatapoolMessage> messages,
+			Collection<PrimitiveChannel> channels, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		lock.lockInterruptibly( );
+		try {
+			long nanos = unit.toNanos(timeout);
+			while (isEmptyLocked( ) && nanos > 0) {
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			int cnt = (int) (tail - head) + channelCount;
+			while (head != tail) {
+				messages.add(dequeue( ));
+			}
+			dequeueChannels(channels);
+			return cnt;
+		}
+		finally {
+			lock.unlock( );
 		}
-		return null;
 	}
 
 	/**
 	 * Clears this queue. This means that all messages are removed.
 	 */
-	public synchronized void clear() {
-		order.clear( );
-		data.clear( );
+	public void clear() {
+		lock.lock( );
+		try {
+			while (head != tail) {
+				dequeue( );
+			}
+			Arrays.fill(index, null);
+			dequeueChannels(null);
+		}
+		finally {
+			lock.unlock( );
+		}
 	}
 
 	/**
 	 * Checks if this queue is empty.
 	 * 
 	 * @return <code>true</code> if this queue is empty (contains no
-	 *         messages).
+	 *         messages and no channels).
 	 */
-	public synchronized boolean isEmpty() {
-		return order.isEmpty( );
+	public boolean isEmpty() {
+		lock.lock( );
+		try {
+			return isEmptyLocked( );
+		}
+		finally {
+			lock.unlock( );
+		}
 	}
 
 }
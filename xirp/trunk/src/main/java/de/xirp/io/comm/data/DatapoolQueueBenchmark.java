@@ -0,0 +1,226 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolQueueBenchmark.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.xirp.util.collections.MultiValueHashMap;
+
+/**
+ * Compares the throughput of the {@link DatapoolQueue} with the
+ * former implementation which used a linear search for finding
+ * queued messages of the same key.<br/><br/>A producer thread adds
+ * droppable messages for 10, 100 and 1000 distinct keys while a
+ * consumer thread empties the queue. The benchmark prints the number
+ * of added messages per second for both implementations.
+ * 
+ * @author agent
+ */
+final class DatapoolQueueBenchmark {
+
+	/**
+	 * Number of messages added per run
+	 */
+	private static final int MESSAGES = 1000000;
+
+	/**
+	 * Numbers of distinct keys to test
+	 */
+	private static final int[] KEY_COUNTS = {10, 100, 1000};
+
+	/**
+	 * Common operations of the compared queues.
+	 */
+	private interface BenchmarkQueue {
+
+		/**
+		 * Adds a message.
+		 * 
+		 * @param message
+		 *            the message
+		 */
+		void offer(DatapoolMessage message);
+
+		/**
+		 * Removes all queued messages.
+		 * 
+		 * @param target
+		 *            list for the removed messages
+		 */
+		void drain(List<DatapoolMessage> target);
+	}
+
+	/**
+	 * The former implementation of the datapool queue.
+	 */
+	private static final class LegacyQueue implements BenchmarkQueue {
+
+		/**
+		 * Order of the queue with the keys of the received messages
+		 */
+		private ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<String>( );
+		/**
+		 * The messages of the queue
+		 */
+		private MultiValueHashMap<String, DatapoolMessage> data = new MultiValueHashMap<String, DatapoolMessage>( );
+
+		/**
+		 * @see de.xirp.io.comm.data.DatapoolQueueBenchmark.BenchmarkQueue#offer(de.xirp.io.comm.data.DatapoolMessage)
+		 */
+		public synchronized void offer(DatapoolMessage m) {
+			if (m.isMayDrop( ) && order.contains(m.getKey( ))) {
+				data.remove(m.getKey( ));
+				data.put(m.getKey( ), m);
+			}
+			else {
+				order.add(m.getKey( ));
+				data.put(m.getKey( ), m);
+			}
+		}
+
+		/**
+		 * @see de.xirp.io.comm.data.DatapoolQueueBenchmark.BenchmarkQueue#drain(java.util.List)
+		 */
+		public synchronized void drain(List<DatapoolMessage> target) {
+			while (!order.isEmpty( )) {
+				String key = order.poll( );
+				List<DatapoolMessage> list = data.get(key);
+				DatapoolMessage message = list.get(0);
+				data.remove(key, message);
+				target.add(message);
+			}
+		}
+	}
+
+	/**
+	 * Adapter for the current implementation of the datapool queue.
+	 */
+	private static final class CurrentQueue implements BenchmarkQueue {
+
+		/**
+		 * The queue
+		 */
+		private DatapoolQueue queue = new DatapoolQueue( );
+
+		/**
+		 * @see de.xirp.io.comm.data.DatapoolQueueBenchmark.BenchmarkQueue#offer(de.xirp.io.comm.data.DatapoolMessage)
+		 */
+		public void offer(DatapoolMessage message) {
+			queue.offer(message);
+		}
+
+		/**
+		 * @see de.xirp.io.comm.data.DatapoolQueueBenchmark.BenchmarkQueue#drain(java.util.List)
+		 */
+		public void drain(List<DatapoolMessage> target) {
+			try {
+				queue.drainTo(target, 0, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread( ).interrupt( );
+			}
+		}
+	}
+
+	/**
+	 * Utility class, no instances.
+	 */
+	private DatapoolQueueBenchmark() {
+		// no instances
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args
+	 *            not used
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the consumer
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		for (int keys : KEY_COUNTS) {
+			// warm up
+			run(new LegacyQueue( ), keys);
+			run(new CurrentQueue( ), keys);
+
+			long legacy = run(new LegacyQueue( ), keys);
+			long current = run(new CurrentQueue( ), keys);
+			System.out.println(keys + " keys: legacy " + legacy //$NON-NLS-1$
+					+ " msg/s, current " + current + " msg/s"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Adds {@link #MESSAGES} droppable messages for the given number
+	 * of keys to the queue while a second thread empties it.
+	 * 
+	 * @param queue
+	 *            the queue to test
+	 * @param keyCount
+	 *            the number of distinct keys
+	 * @return added messages per second
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the consumer
+	 */
+	private static long run(final BenchmarkQueue queue, int keyCount)
+			throws InterruptedException {
+		String[] keys = new String[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = "key_" + i; //$NON-NLS-1$
+		}
+		DatapoolMessage[] messages = new DatapoolMessage[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			messages[i] = new DatapoolMessage(keys[i], i, true);
+		}
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread consumer = new Thread("DatapoolQueueBenchmarkConsumer") { //$NON-NLS-1$
+
+			@Override
+			public void run() {
+				List<DatapoolMessage> target = new ArrayList<DatapoolMessage>( );
+				while (running.get( )) {
+					queue.drain(target);
+					target.clear( );
+				}
+			}
+		};
+		consumer.start( );
+
+		long start = System.nanoTime( );
+		for (int i = 0; i < MESSAGES; i++) {
+			queue.offer(messages[i % keyCount]);
+		}
+		long duration = System.nanoTime( ) - start;
+
+		running.set(false);
+		consumer.join( );
+		return Math.round(MESSAGES / (duration / 1e9));
+	}
+}
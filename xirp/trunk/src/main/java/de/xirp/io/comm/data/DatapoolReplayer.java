@@ -0,0 +1,428 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolReplayer.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * Replays a journal recorded with the {@link DatapoolJournal} into a
+ * datapool. The received data is offered to the datapool in the
+ * recorded order, the sent data is only distributed to the send
+ * listeners and not sent to the robot.<br/><br/>
+ * The data may be replayed with the recorded timing, scaled by a
+ * speed factor, or as fast as possible. The number of replayed
+ * frames per second of an unpaced replay shows the throughput of the
+ * datapool and its listeners.
+ * 
+ * @author agent
+ */
+public final class DatapoolReplayer {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logClass = Logger.getLogger(DatapoolReplayer.class);
+
+	/**
+	 * Size of the windows of the file which are mapped for reading
+	 */
+	private static final int WINDOW_SIZE = 16 << 20;
+
+	/**
+	 * The journal file
+	 */
+	private final File file;
+	/**
+	 * The datapool to replay to
+	 */
+	private final Datapool datapool;
+	/**
+	 * Flag showing if the replay should be stopped
+	 */
+	private volatile boolean stopped = false;
+	/**
+	 * Number of replayed frames
+	 */
+	private long frameCount = 0;
+	/**
+	 * Duration of the last replay in milliseconds
+	 */
+	private long elapsed = 0;
+
+	/**
+	 * Constructs a new replayer for the given journal.
+	 * 
+	 * @param file
+	 *            the journal file to replay
+	 * @param datapool
+	 *            the datapool to replay to
+	 */
+	public DatapoolReplayer(File file, Datapool datapool) {
+		this.file = file;
+		this.datapool = datapool;
+	}
+
+	/**
+	 * Replays the journal. This method blocks until all frames were
+	 * replayed or {@link #stop()} was called.
+	 * 
+	 * @param speed
+	 *            the speed factor, <code>1</code> replays with the
+	 *            recorded timing, <code>2</code> twice as fast and
+	 *            values <code>&lt;= 0</code> as fast as possible
+	 * @return the number of replayed frames
+	 * @throws IOException
+	 *             if the file could not be read or is no journal
+	 * @throws InterruptedException
+	 *             if the thread was interrupted while waiting for the
+	 *             next frame
+	 */
+	public long replay(double speed) throws IOException,
+			InterruptedException {
+		stopped = false;
+		frameCount = 0;
+		long start = System.currentTimeMillis( );
+		RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = raf.getChannel( );
+			long end = readHeader(channel);
+			List<String> keys = new ArrayList<String>( );
+			long position = DatapoolJournal.HEADER_SIZE;
+			MappedByteBuffer window = null;
+			long windowPosition = position;
+			long firstTimestamp = -1;
+			long startNanos = System.nanoTime( );
+
+			while (position < end && !stopped) {
+				if (window == null
+						|| !hasFrame(window, position - windowPosition)) {
+					windowPosition = position;
+					window = channel.map(FileChannel.MapMode.READ_ONLY,
+							windowPosition,
+							Math.min(WINDOW_SIZE, end - windowPosition));
+					if (!hasFrame(window, 0)) {
+						// frame bigger than the window
+						int length = window.getInt(0);
+						window = channel.map(FileChannel.MapMode.READ_ONLY,
+								windowPosition,
+								Math.min(4L + length, end - windowPosition));
+						if (!hasFrame(window, 0)) {
+							throw new IOException(I18n.getString("DatapoolReplayer.exception.truncated", //$NON-NLS-1$
+									file.getName( )));
+						}
+					}
+				}
+				window.position((int) (position - windowPosition));
+				int length = window.getInt( );
+				int frameEnd = window.position( ) + length;
+				byte kind = window.get( );
+				byte type = window.get( );
+				int id = window.getInt( );
+				long timestamp = window.getLong( );
+				position += 4 + length;
+
+				if (kind == DatapoolJournal.KIND_KEY) {
+					keys.add(decode(window, frameEnd - window.position( )));
+					continue;
+				}
+				if (id < 0 || id >= keys.size( )) {
+					throw new IOException(I18n.getString("DatapoolReplayer.exception.unknownKey", //$NON-NLS-1$
+							file.getName( ),
+							id));
+				}
+				String key = keys.get(id);
+
+				if (speed > 0) {
+					if (firstTimestamp < 0) {
+						firstTimestamp = timestamp;
+					}
+					long due = (long) ((timestamp - firstTimestamp) / speed);
+					long wait = due - (System.nanoTime( ) - startNanos)
+							/ 1000000;
+					if (wait > 0) {
+						Thread.sleep(wait);
+					}
+				}
+
+				if (kind == DatapoolJournal.KIND_RECEIVE_TYPED) {
+					replayTyped(window, type, key, timestamp);
+				}
+				else {
+					Object value = readValue(window,
+							type,
+							frameEnd - window.position( ));
+					if (value == null) {
+						continue;
+					}
+					if (kind == DatapoolJournal.KIND_SEND) {
+						datapool.replaySend(new DatapoolMessage(timestamp,
+								key,
+								value));
+					}
+					else {
+						datapool.receiveToDatapool(new DatapoolMessage(timestamp,
+								key,
+								value,
+								kind == DatapoolJournal.KIND_RECEIVE_DROPPABLE));
+					}
+				}
+				frameCount++;
+			}
+		}
+		finally {
+			raf.close( );
+			elapsed = System.currentTimeMillis( ) - start;
+		}
+		logClass.info(I18n.getString("DatapoolReplayer.log.replayed", //$NON-NLS-1$
+				file.getName( ),
+				frameCount,
+				elapsed,
+				getFramesPerSecond( ))
+				+ Constants.LINE_SEPARATOR);
+		return frameCount;
+	}
+
+	/**
+	 * Checks the header of the journal.
+	 * 
+	 * @param channel
+	 *            the channel of the journal file
+	 * @return the end of the recorded data in the file
+	 * @throws IOException
+	 *             if the file is no journal or has an unsupported
+	 *             version
+	 */
+	private long readHeader(FileChannel channel) throws IOException {
+		if (channel.size( ) < DatapoolJournal.HEADER_SIZE) {
+			throw new IOException(I18n.getString("DatapoolReplayer.exception.noJournal", //$NON-NLS-1$
+					file.getName( )));
+		}
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+				0,
+				DatapoolJournal.HEADER_SIZE);
+		if (header.getInt( ) != DatapoolJournal.MAGIC) {
+			throw new IOException(I18n.getString("DatapoolReplayer.exception.noJournal", //$NON-NLS-1$
+					file.getName( )));
+		}
+		int version = header.getInt( );
+		if (version != DatapoolJournal.VERSION) {
+			throw new IOException(I18n.getString("DatapoolReplayer.exception.version", //$NON-NLS-1$
+					file.getName( ),
+					version));
+		}
+		return Math.min(header.getLong( ), channel.size( ));
+	}
+
+	/**
+	 * Checks if the complete frame at the given offset is available
+	 * in the window.
+	 * 
+	 * @param window
+	 *            the mapped window
+	 * @param offset
+	 *            the offset of the frame in the window
+	 * @return <code>true</code> if the frame is complete
+	 */
+	private static boolean hasFrame(MappedByteBuffer window, long offset) {
+		long remaining = window.limit( ) - offset;
+		return remaining >= 4 && remaining >= 4L + window.getInt((int) offset);
+	}
+
+	/**
+	 * Replays a value recorded by the typed receive methods of the
+	 * datapool.
+	 * 
+	 * @param window
+	 *            the window positioned at the value
+	 * @param type
+	 *            the type of the value
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 */
+	private void replayTyped(MappedByteBuffer window, byte type,
+			String key, long timestamp) {
+		switch (type) {
+			case DatapoolJournal.TYPE_DOUBLE:
+				datapool.receiveDouble(key, timestamp, window.getDouble( ));
+				break;
+			case DatapoolJournal.TYPE_LONG:
+				datapool.receiveLong(key, timestamp, window.getLong( ));
+				break;
+			case DatapoolJournal.TYPE_FLOAT_ARRAY:
+				float[] values = new float[window.getInt( )];
+				window.asFloatBuffer( ).get(values);
+				datapool.receiveFloatArray(key, timestamp, values);
+				break;
+			default:
+				logClass.warn(I18n.getString("DatapoolReplayer.log.unknownType", //$NON-NLS-1$
+						file.getName( ),
+						type)
+						+ Constants.LINE_SEPARATOR);
+				break;
+		}
+	}
+
+	/**
+	 * Reads the value of a frame.
+	 * 
+	 * @param window
+	 *            the window positioned at the value
+	 * @param type
+	 *            the type of the value
+	 * @param length
+	 *            the number of bytes of the value
+	 * @return the value or <code>null</code> if the value could not
+	 *         be read
+	 */
+	private Object readValue(MappedByteBuffer window, byte type, int length) {
+		switch (type) {
+			case DatapoolJournal.TYPE_BOOLEAN:
+				return window.get( ) != 0;
+			case DatapoolJournal.TYPE_BYTE:
+				return window.get( );
+			case DatapoolJournal.TYPE_SHORT:
+				return window.getShort( );
+			case DatapoolJournal.TYPE_INT:
+				return window.getInt( );
+			case DatapoolJournal.TYPE_LONG:
+				return window.getLong( );
+			case DatapoolJournal.TYPE_FLOAT:
+				return window.getFloat( );
+			case DatapoolJournal.TYPE_DOUBLE:
+				return window.getDouble( );
+			case DatapoolJournal.TYPE_STRING:
+				return decode(window, length);
+			case DatapoolJournal.TYPE_FLOAT_ARRAY:
+				float[] floats = new float[window.getInt( )];
+				window.asFloatBuffer( ).get(floats);
+				return floats;
+			case DatapoolJournal.TYPE_DOUBLE_ARRAY:
+				double[] doubles = new double[window.getInt( )];
+				window.asDoubleBuffer( ).get(doubles);
+				return doubles;
+			case DatapoolJournal.TYPE_INT_ARRAY:
+				int[] ints = new int[window.getInt( )];
+				window.asIntBuffer( ).get(ints);
+				return ints;
+			case DatapoolJournal.TYPE_BYTE_ARRAY:
+				byte[] bytes = new byte[window.getInt( )];
+				window.get(bytes);
+				return bytes;
+			case DatapoolJournal.TYPE_SERIALIZED:
+				byte[] serialized = new byte[length];
+				window.get(serialized);
+				try {
+					ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized));
+					return in.readObject( );
+				}
+				catch (Exception e) {
+					logClass.warn(I18n.getString("DatapoolReplayer.log.notDeserializable", //$NON-NLS-1$
+							file.getName( ),
+							e.getMessage( ))
+							+ Constants.LINE_SEPARATOR);
+					return null;
+				}
+			default:
+				logClass.warn(I18n.getString("DatapoolReplayer.log.unknownType", //$NON-NLS-1$
+						file.getName( ),
+						type)
+						+ Constants.LINE_SEPARATOR);
+				return null;
+		}
+	}
+
+	/**
+	 * Decodes a string from the given window.
+	 * 
+	 * @param window
+	 *            the window positioned at the string
+	 * @param length
+	 *            the number of bytes of the string
+	 * @return the decoded string
+	 */
+	private static String decode(MappedByteBuffer window, int length) {
+		byte[] bytes = new byte[length];
+		window.get(bytes);
+		try {
+			return new String(bytes, DatapoolJournal.ENCODING);
+		}
+		catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			return new String(bytes);
+		}
+	}
+
+	/**
+	 * Stops a running replay after the current frame.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Gets the number of frames replayed by the last or running
+	 * replay.
+	 * 
+	 * @return the number of frames
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * Gets the duration of the last replay.
+	 * 
+	 * @return the duration in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsed;
+	}
+
+	/**
+	 * Gets the number of frames per second of the last replay.
+	 * 
+	 * @return the frames per second
+	 */
+	public double getFramesPerSecond() {
+		return elapsed > 0 ? frameCount * 1000d / elapsed : frameCount;
+	}
+
+}
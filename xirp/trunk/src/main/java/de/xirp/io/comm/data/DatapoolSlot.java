@@ -0,0 +1,187 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DatapoolSlot.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * The values and listeners of a single key of a {@link Datapool}.
+ * The datapool keeps the slots in an array indexed by
+ * {@link DatapoolKey#getIndex()}.<br/><br/>The listeners are kept in
+ * arrays which are copied on modification, so the threads of the
+ * datapool can iterate them without locking.
+ * 
+ * @author agent
+ */
+final class DatapoolSlot {
+
+	/**
+	 * Empty array of listeners
+	 */
+	static final DatapoolListener[] NO_LISTENERS = new DatapoolListener[0];
+
+	/**
+	 * The key of this slot
+	 */
+	private final DatapoolKey key;
+	/**
+	 * The current value of the key
+	 */
+	volatile Object value;
+	/**
+	 * The history of the key or <code>null</code> if no history is
+	 * enabled
+	 */
+	volatile DatapoolHistory history;
+	/**
+	 * The priority for sending values of the key or <code>null</code>
+	 * for the default priority
+	 */
+	volatile SendPriority sendPriority;
+	/**
+	 * The channel for typed values of the key or <code>null</code> if
+	 * no typed values were received or listened to
+	 */
+	private volatile PrimitiveChannel channel;
+	/**
+	 * Listeners for incoming data
+	 */
+	volatile DatapoolListener[] receiveListeners = NO_LISTENERS;
+	/**
+	 * Listeners for outgoing data
+	 */
+	volatile DatapoolListener[] sendListeners = NO_LISTENERS;
+	/**
+	 * Listeners for incoming data registered with a
+	 * {@link DatapoolKeyPattern} matching the key. Rebuilt by the
+	 * datapool when the pattern listeners change.
+	 */
+	volatile DatapoolListener[] receivePatternListeners = NO_LISTENERS;
+	/**
+	 * Listeners for outgoing data registered with a
+	 * {@link DatapoolKeyPattern} matching the key. Rebuilt by the
+	 * datapool when the pattern listeners change.
+	 */
+	volatile DatapoolListener[] sendPatternListeners = NO_LISTENERS;
+
+	/**
+	 * Constructs a new slot for the given key.
+	 * 
+	 * @param key
+	 *            the key
+	 */
+	DatapoolSlot(DatapoolKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Gets the key of this slot.
+	 * 
+	 * @return the key
+	 */
+	DatapoolKey getKey() {
+		return key;
+	}
+
+	/**
+	 * Gets the channel for typed values of the key.
+	 * 
+	 * @return the channel or <code>null</code> if there is none
+	 */
+	PrimitiveChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Gets the channel for typed values of the key and creates it if
+	 * it does not exist yet.
+	 * 
+	 * @return the channel
+	 */
+	PrimitiveChannel getOrCreateChannel() {
+		PrimitiveChannel aux = channel;
+		if (aux == null) {
+			synchronized (this) {
+				aux = channel;
+				if (aux == null) {
+					aux = new PrimitiveChannel(key);
+					channel = aux;
+				}
+			}
+		}
+		return aux;
+	}
+
+	/**
+	 * Creates a copy of the given listeners with the given listener
+	 * added.
+	 * 
+	 * @param listeners
+	 *            the current listeners
+	 * @param listener
+	 *            the listener to add
+	 * @return the new listeners
+	 */
+	static DatapoolListener[] add(DatapoolListener[] listeners,
+			DatapoolListener listener) {
+		DatapoolListener[] aux = new DatapoolListener[listeners.length + 1];
+		System.arraycopy(listeners, 0, aux, 0, listeners.length);
+		aux[listeners.length] = listener;
+		return aux;
+	}
+
+	/**
+	 * Creates a copy of the given listeners with the first occurrence
+	 * of the given listener removed. Registrations with a filter are
+	 * removed by their wrapped listener.
+	 * 
+	 * @param listeners
+	 *            the current listeners
+	 * @param listener
+	 *            the listener to remove
+	 * @return the new listeners or the given array if the listener
+	 *         was not contained
+	 */
+	static DatapoolListener[] remove(DatapoolListener[] listeners,
+			DatapoolListener listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			DatapoolListener aux = listeners[i];
+			if (aux instanceof FilteredDatapoolListener) {
+				aux = ((FilteredDatapoolListener) aux).getListener( );
+			}
+			if (aux.equals(listener)) {
+				if (listeners[i] instanceof FilteredDatapoolListener) {
+					// don't deliver a pending value after removal
+					((FilteredDatapoolListener) listeners[i]).getState( )
+							.cancel( );
+				}
+				DatapoolListener[] copy = new DatapoolListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, copy, 0, i);
+				System.arraycopy(listeners, i + 1, copy, i, copy.length - i);
+				return copy;
+			}
+		}
+		return listeners;
+	}
+
+}
@@ -72,4 +72,39 @@ public final class DatapoolUtil {
 		return createDatapoolKey(sensorGroup.getDatapoolKey( ),
 				sensor.getSubKey( ));
 	}
+
+	/**
+	 * Gets the handle of the datapool key for the given sensor group
+	 * and sensor.
+	 * 
+	 * @param sensorGroup
+	 *            the sensor group
+	 * @param sensor
+	 *            a sensor of the group
+	 * @return the handle which may be used for
+	 *         {@link Datapool#addDatapoolReceiveListener(DatapoolKey, DatapoolListener)}
+	 *         as first argument
+	 * @see #createDatapoolKey(Sensorgroup, Sensor)
+	 */
+	public static DatapoolKey getDatapoolKey(Sensorgroup sensorGroup,
+			Sensor sensor) {
+		return DatapoolKey.get(createDatapoolKey(sensorGroup, sensor));
+	}
+
+	/**
+	 * Creates a pattern matching the datapool keys of all sensors of
+	 * the given sensor group. Keys of other groups whose key starts
+	 * with the same characters are not matched.
+	 * 
+	 * @param sensorGroup
+	 *            the sensor group
+	 * @return the pattern which may be used for
+	 *         {@link Datapool#addDatapoolReceiveListener(DatapoolKeyPattern, DatapoolListener)}
+	 *         as first argument
+	 */
+	public static DatapoolKeyPattern createDatapoolKeyPattern(
+			Sensorgroup sensorGroup) {
+		return DatapoolKeyPattern.subKeys(sensorGroup.getDatapoolKey( ),
+				Constants.KEY_SUBKEY_SEPARATOR);
+	}
 }
@@ -0,0 +1,65 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DoubleDatapoolListener.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.EventListener;
+
+/**
+ * Listener for numeric datapool values which are received as
+ * primitives using
+ * {@link Datapool#receiveDouble(String, long, double)} or
+ * {@link Datapool#receiveLong(String, long, long)}.<br/><br/>The
+ * listener is called directly by the receive thread of the datapool,
+ * so no objects are created for notifying it. Implementations have to
+ * return quickly and must not block.
+ * 
+ * @author agent
+ * @see Datapool#addDoubleReceiveListener(String, DoubleDatapoolListener)
+ */
+public interface DoubleDatapoolListener extends EventListener {
+
+	/**
+	 * Called when a value for the key, the listener is registered to,
+	 * was received.
+	 * 
+	 * @param key
+	 *            the datapool key of the value
+	 * @param timestamp
+	 *            the timestamp of the value in milliseconds
+	 * @param value
+	 *            the value
+	 */
+	public void valueChanged(String key, long timestamp, double value);
+
+	/**
+	 * Test if the listener should only be notified if the value has
+	 * changed
+	 * 
+	 * @return <code>true</code> if this listener should only be
+	 *         notified if the value has changed
+	 */
+	public boolean notifyOnlyWhenChanged();
+
+}
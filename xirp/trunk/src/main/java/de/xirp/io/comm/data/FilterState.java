@@ -0,0 +1,323 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FilterState.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * State of a {@link DatapoolFilter} for a single listener
+ * registration. The state is only accessed by the receive thread of
+ * the datapool, so it's not synchronized.<br/><br/>A value which
+ * passes the deadband but arrives before the minimum interval elapsed
+ * is kept as pending value. The datapool delivers it when the interval
+ * elapsed, unless a newer value replaced or cleared it before, so the
+ * listener always ends up with the latest value.
+ * 
+ * @author agent
+ */
+final class FilterState {
+
+	/**
+	 * The filter
+	 */
+	private final DatapoolFilter filter;
+	/**
+	 * Flag showing if the listener was notified yet
+	 */
+	private boolean notified = false;
+	/**
+	 * The numeric value the listener was notified with last
+	 */
+	private double lastValue;
+	/**
+	 * Flag showing if the last notified value was numeric
+	 */
+	private boolean lastNumeric;
+	/**
+	 * The time of the last notification in milliseconds
+	 */
+	private long lastTime;
+	/**
+	 * Flag showing if there is a value which was held back by the
+	 * minimum interval
+	 */
+	private boolean pending = false;
+	/**
+	 * The key of the pending value
+	 */
+	private String pendingKey;
+	/**
+	 * The timestamp of the pending value
+	 */
+	private long pendingTimestamp;
+	/**
+	 * The pending value, <code>null</code> for values of the typed
+	 * API
+	 */
+	private Object pendingValue;
+	/**
+	 * The pending value as number if it is numeric
+	 */
+	private double pendingNumber;
+	/**
+	 * Flag showing if the pending value is numeric
+	 */
+	private boolean pendingNumeric;
+	/**
+	 * Flag showing if the datapool watches this state for a pending
+	 * value
+	 */
+	private boolean scheduled = false;
+	/**
+	 * Flag showing if the listener was removed
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Constructs a new state for the given filter.
+	 * 
+	 * @param filter
+	 *            the filter
+	 */
+	FilterState(DatapoolFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Checks if the listener should be notified with the given value
+	 * and remembers the value if this is the case. If only the minimum
+	 * interval prevents the notification the value becomes the pending
+	 * value.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the received value
+	 * @param changed
+	 *            <code>true</code> if the value is not equal to the
+	 *            value received before or the listener likes to be
+	 *            notified for every value
+	 * @return <code>true</code> if the listener should be notified
+	 */
+	boolean accept(String key, long timestamp, Object value,
+			boolean changed) {
+		if (value instanceof Number) {
+			return accept(key,
+					timestamp,
+					value,
+					true,
+					((Number) value).doubleValue( ));
+		}
+		if (!changed) {
+			// a pending value is still up to date
+			return false;
+		}
+		return accept(key, timestamp, value, false, 0);
+	}
+
+	/**
+	 * Checks if the listener should be notified with the given value
+	 * and remembers the value if this is the case. If only the minimum
+	 * interval prevents the notification the value becomes the pending
+	 * value.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the received value
+	 * @return <code>true</code> if the listener should be notified
+	 */
+	boolean accept(String key, long timestamp, double value) {
+		return accept(key, timestamp, null, true, value);
+	}
+
+	/**
+	 * Checks the deadband and the minimum interval for a value.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the value of the object API or <code>null</code>
+	 * @param numeric
+	 *            <code>true</code> if the value is numeric
+	 * @param number
+	 *            the numeric value
+	 * @return <code>true</code> if the listener should be notified
+	 */
+	private boolean accept(String key, long timestamp, Object value,
+			boolean numeric, double number) {
+		if (numeric && notified && lastNumeric
+				&& !filter.isOutsideDeadband(lastValue, number)) {
+			// the listener is close enough to the current value
+			pending = false;
+			pendingValue = null;
+			return false;
+		}
+		if (!checkInterval( )) {
+			pending = true;
+			pendingKey = key;
+			pendingTimestamp = timestamp;
+			pendingValue = value;
+			pendingNumeric = numeric;
+			pendingNumber = number;
+			return false;
+		}
+		pending = false;
+		pendingValue = null;
+		lastNumeric = numeric;
+		lastValue = number;
+		return true;
+	}
+
+	/**
+	 * Checks if the minimum interval elapsed since the last
+	 * notification and marks the listener as notified if this is the
+	 * case.
+	 * 
+	 * @return <code>true</code> if the listener may be notified
+	 */
+	private boolean checkInterval() {
+		long interval = filter.getMinInterval( );
+		if (interval > 0) {
+			long now = System.currentTimeMillis( );
+			if (notified && now - lastTime < interval) {
+				return false;
+			}
+			lastTime = now;
+		}
+		notified = true;
+		return true;
+	}
+
+	/**
+	 * Checks if there is a value held back by the minimum interval.
+	 * 
+	 * @return <code>true</code> if there is a pending value
+	 */
+	boolean hasPending() {
+		return pending && !cancelled;
+	}
+
+	/**
+	 * Gets the time the pending value is due.
+	 * 
+	 * @return the time in milliseconds or {@link Long#MAX_VALUE} if
+	 *         there is no pending value
+	 */
+	long getPendingDue() {
+		return hasPending( ) ? lastTime + filter.getMinInterval( )
+				: Long.MAX_VALUE;
+	}
+
+	/**
+	 * Takes the pending value if it is due. The value is remembered
+	 * as notified value and may afterwards be read using the
+	 * <code>getPending</code> methods.
+	 * 
+	 * @param now
+	 *            the current time in milliseconds
+	 * @return <code>true</code> if the listener has to be notified
+	 *         with the pending value
+	 */
+	boolean takePending(long now) {
+		if (!hasPending( ) || now < getPendingDue( )) {
+			return false;
+		}
+		pending = false;
+		lastTime = now;
+		lastNumeric = pendingNumeric;
+		lastValue = pendingNumber;
+		return true;
+	}
+
+	/**
+	 * Gets the key of the pending value.
+	 * 
+	 * @return the key
+	 */
+	String getPendingKey() {
+		return pendingKey;
+	}
+
+	/**
+	 * Gets the timestamp of the pending value.
+	 * 
+	 * @return the timestamp
+	 */
+	long getPendingTimestamp() {
+		return pendingTimestamp;
+	}
+
+	/**
+	 * Gets the pending value of the object API.
+	 * 
+	 * @return the value or <code>null</code> for values of the typed
+	 *         API
+	 */
+	Object getPendingValue() {
+		return pendingValue;
+	}
+
+	/**
+	 * Gets the pending value as number.
+	 * 
+	 * @return the numeric value
+	 */
+	double getPendingNumber() {
+		return pendingNumber;
+	}
+
+	/**
+	 * Checks if the datapool watches this state for a pending value.
+	 * 
+	 * @return <code>true</code> if the state is watched
+	 */
+	boolean isScheduled() {
+		return scheduled;
+	}
+
+	/**
+	 * Sets if the datapool watches this state for a pending value.
+	 * 
+	 * @param scheduled
+	 *            <code>true</code> if the state is watched
+	 */
+	void setScheduled(boolean scheduled) {
+		this.scheduled = scheduled;
+	}
+
+	/**
+	 * Marks the listener as removed, a pending value is not delivered
+	 * anymore. May be called from any thread.
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+}
@@ -0,0 +1,139 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FilteredDatapoolListener.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * Registration of a {@link DatapoolListener} with a
+ * {@link DatapoolFilter}. The datapool checks the filter before
+ * dispatching an event and dispatches it to the wrapped listener.
+ * Values held back by the minimum interval are dispatched later on by
+ * {@link #notifyPending()}.
+ * 
+ * @author agent
+ */
+final class FilteredDatapoolListener implements DatapoolListener,
+		FilteredListener {
+
+	/**
+	 * The wrapped listener
+	 */
+	private final DatapoolListener listener;
+	/**
+	 * The state of the filter
+	 */
+	private final FilterState state;
+	/**
+	 * The datapool the listener is registered to
+	 */
+	private final Datapool datapool;
+
+	/**
+	 * Constructs a new registration.
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param filter
+	 *            the filter for the listener
+	 * @param datapool
+	 *            the datapool the listener is registered to
+	 */
+	FilteredDatapoolListener(DatapoolListener listener,
+			DatapoolFilter filter, Datapool datapool) {
+		this.listener = listener;
+		this.state = new FilterState(filter);
+		this.datapool = datapool;
+	}
+
+	/**
+	 * Gets the wrapped listener.
+	 * 
+	 * @return the listener
+	 */
+	DatapoolListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Checks if the wrapped listener should be notified with the given
+	 * value. Must only be called by the receive thread of the
+	 * datapool.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param timestamp
+	 *            the timestamp of the value
+	 * @param value
+	 *            the received value
+	 * @param changed
+	 *            <code>true</code> if the value is not equal to the
+	 *            value received before
+	 * @return <code>true</code> if the listener should be notified
+	 */
+	boolean accept(String key, long timestamp, Object value,
+			boolean changed) {
+		return state.accept(key, timestamp, value, changed
+				|| !listener.notifyOnlyWhenChanged( ));
+	}
+
+	/**
+	 * Gets the state of the filter.
+	 * 
+	 * @see de.xirp.io.comm.data.FilteredListener#getState()
+	 */
+	public FilterState getState() {
+		return state;
+	}
+
+	/**
+	 * Dispatches the pending value to the wrapped listener.
+	 * 
+	 * @see de.xirp.io.comm.data.FilteredListener#notifyPending()
+	 */
+	public void notifyPending() {
+		datapool.dispatchPending(listener,
+				state.getPendingKey( ),
+				state.getPendingTimestamp( ),
+				state.getPendingValue( ));
+	}
+
+	/**
+	 * Delegates to the wrapped listener.
+	 * 
+	 * @see de.xirp.io.comm.data.DatapoolListener#valueChanged(de.xirp.io.comm.data.DatapoolEvent)
+	 */
+	public void valueChanged(DatapoolEvent e) {
+		listener.valueChanged(e);
+	}
+
+	/**
+	 * Delegates to the wrapped listener.
+	 * 
+	 * @see de.xirp.io.comm.data.DatapoolListener#notifyOnlyWhenChanged()
+	 */
+	public boolean notifyOnlyWhenChanged() {
+		return listener.notifyOnlyWhenChanged( );
+	}
+
+}
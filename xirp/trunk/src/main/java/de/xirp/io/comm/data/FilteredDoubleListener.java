@@ -0,0 +1,129 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FilteredDoubleListener.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * Registration of a {@link DoubleDatapoolListener} with a
+ * {@link DatapoolFilter}. The filter is checked when the receive
+ * thread of the datapool notifies this registration, the wrapped
+ * listener is only called for accepted values. Values held back by
+ * the minimum interval are delivered later on by
+ * {@link #notifyPending()}.
+ * 
+ * @author agent
+ */
+final class FilteredDoubleListener implements DoubleDatapoolListener,
+		FilteredListener {
+
+	/**
+	 * The wrapped listener
+	 */
+	private final DoubleDatapoolListener listener;
+	/**
+	 * The state of the filter
+	 */
+	private final FilterState state;
+	/**
+	 * The datapool counting the suppressed notifications and
+	 * delivering the pending values
+	 */
+	private final Datapool datapool;
+
+	/**
+	 * Constructs a new registration.
+	 * 
+	 * @param listener
+	 *            the listener
+	 * @param filter
+	 *            the filter for the listener
+	 * @param datapool
+	 *            the datapool the listener is registered to
+	 */
+	FilteredDoubleListener(DoubleDatapoolListener listener,
+			DatapoolFilter filter, Datapool datapool) {
+		this.listener = listener;
+		this.state = new FilterState(filter);
+		this.datapool = datapool;
+	}
+
+	/**
+	 * Gets the wrapped listener.
+	 * 
+	 * @return the listener
+	 */
+	DoubleDatapoolListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Notifies the wrapped listener if the filter accepts the value.
+	 * 
+	 * @see de.xirp.io.comm.data.DoubleDatapoolListener#valueChanged(java.lang.String,
+	 *      long, double)
+	 */
+	public void valueChanged(String key, long timestamp, double value) {
+		if (state.accept(key, timestamp, value)) {
+			listener.valueChanged(key, timestamp, value);
+		}
+		else {
+			datapool.countSuppressed( );
+			if (state.hasPending( )) {
+				datapool.schedulePending(this);
+			}
+		}
+	}
+
+	/**
+	 * Gets the state of the filter.
+	 * 
+	 * @see de.xirp.io.comm.data.FilteredListener#getState()
+	 */
+	public FilterState getState() {
+		return state;
+	}
+
+	/**
+	 * Notifies the wrapped listener with the pending value.
+	 * 
+	 * @see de.xirp.io.comm.data.FilteredListener#notifyPending()
+	 */
+	public void notifyPending() {
+		listener.valueChanged(state.getPendingKey( ),
+				state.getPendingTimestamp( ),
+				state.getPendingNumber( ));
+	}
+
+	/**
+	 * The filter decides whether the value has changed, so this
+	 * registration is always called.
+	 * 
+	 * @return <code>false</code>
+	 * @see de.xirp.io.comm.data.DoubleDatapoolListener#notifyOnlyWhenChanged()
+	 */
+	public boolean notifyOnlyWhenChanged() {
+		return false;
+	}
+
+}
@@ -0,0 +1,50 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FilteredListener.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * A listener registration with a {@link DatapoolFilter}. The datapool
+ * uses this interface for delivering values which were held back by
+ * the minimum interval of the filter.
+ * 
+ * @author agent
+ */
+interface FilteredListener {
+
+	/**
+	 * Gets the state of the filter.
+	 * 
+	 * @return the state
+	 */
+	FilterState getState();
+
+	/**
+	 * Notifies the wrapped listener with the pending value of the
+	 * state. Called by the receive thread of the datapool after
+	 * {@link FilterState#takePending(long)} returned <code>true</code>.
+	 */
+	void notifyPending();
+
+}
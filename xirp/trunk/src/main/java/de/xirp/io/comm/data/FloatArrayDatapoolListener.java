@@ -0,0 +1,60 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FloatArrayDatapoolListener.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.EventListener;
+
+/**
+ * Listener for float arrays, like laser scans, which are received
+ * using {@link Datapool#receiveFloatArray(String, long, float[])}.<br/><br/>
+ * The listener is called directly by the receive thread of the
+ * datapool, so no objects are created for notifying it.
+ * Implementations have to return quickly and must not block.
+ * 
+ * @author agent
+ * @see Datapool#addFloatArrayReceiveListener(String,
+ *      FloatArrayDatapoolListener)
+ */
+public interface FloatArrayDatapoolListener extends EventListener {
+
+	/**
+	 * Called when values for the key, the listener is registered to,
+	 * were received.<br/><br/>The given array is reused by the
+	 * datapool and is only valid during this call. Copy the values if
+	 * you need them later on.
+	 * 
+	 * @param key
+	 *            the datapool key of the values
+	 * @param timestamp
+	 *            the timestamp of the values in milliseconds
+	 * @param values
+	 *            array holding the values
+	 * @param length
+	 *            the number of valid values in the array
+	 */
+	public void valueChanged(String key, long timestamp, float[] values,
+			int length);
+
+}
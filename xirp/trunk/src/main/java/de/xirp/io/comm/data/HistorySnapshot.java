@@ -0,0 +1,142 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * HistorySnapshot.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * A copy of values kept in the history of a datapool key. The values
+ * are ordered by the time they were received.<br/><br/>Numbers are
+ * available as primitive doubles using {@link #getDouble(int)}, other
+ * values using {@link #getValue(int)}.
+ * 
+ * @author agent
+ * @see Datapool#getHistory(String, long, long)
+ * @see Datapool#getLatest(String, int)
+ */
+public final class HistorySnapshot {
+
+	/**
+	 * Empty snapshot for keys without history
+	 */
+	static final HistorySnapshot EMPTY = new HistorySnapshot(0, false);
+
+	/**
+	 * The timestamps
+	 */
+	private final long[] timestamps;
+	/**
+	 * The numeric values, <code>NaN</code> for non numeric values
+	 */
+	private final double[] values;
+	/**
+	 * The non numeric values or <code>null</code> if all values are
+	 * numbers
+	 */
+	private final Object[] objects;
+	/**
+	 * Number of values in this snapshot
+	 */
+	private int size = 0;
+
+	/**
+	 * Constructs a new snapshot.
+	 * 
+	 * @param capacity
+	 *            the number of values
+	 * @param withObjects
+	 *            <code>true</code> if there are non numeric values
+	 */
+	HistorySnapshot(int capacity, boolean withObjects) {
+		timestamps = new long[capacity];
+		values = new double[capacity];
+		objects = withObjects ? new Object[capacity] : null;
+	}
+
+	/**
+	 * Adds a value to this snapshot.
+	 * 
+	 * @param timestamp
+	 *            the timestamp
+	 * @param value
+	 *            the numeric value
+	 * @param object
+	 *            the non numeric value or <code>null</code>
+	 */
+	void add(long timestamp, double value, Object object) {
+		timestamps[size] = timestamp;
+		values[size] = value;
+		if (objects != null) {
+			objects[size] = object;
+		}
+		size++;
+	}
+
+	/**
+	 * Gets the number of values in this snapshot.
+	 * 
+	 * @return the number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the timestamp in milliseconds of the value at the given
+	 * index.
+	 * 
+	 * @param index
+	 *            the index of the value
+	 * @return the timestamp
+	 */
+	public long getTimestamp(int index) {
+		return timestamps[index];
+	}
+
+	/**
+	 * Gets the numeric value at the given index.
+	 * 
+	 * @param index
+	 *            the index of the value
+	 * @return the value or <code>NaN</code> if the value is not a
+	 *         number
+	 */
+	public double getDouble(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Gets the value at the given index. Numbers are returned as
+	 * {@link Double}.
+	 * 
+	 * @param index
+	 *            the index of the value
+	 * @return the value
+	 */
+	public Object getValue(int index) {
+		if (objects != null && objects[index] != null) {
+			return objects[index];
+		}
+		return values[index];
+	}
+}
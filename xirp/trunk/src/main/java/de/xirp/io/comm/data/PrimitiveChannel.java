@@ -0,0 +1,583 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * PrimitiveChannel.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * Storage for the primitive values of a single datapool key which are
+ * received using the typed methods of the {@link Datapool}.<br/><br/>
+ * The producer writes the latest sample to the pending fields, the
+ * receive thread of the datapool publishes it and notifies the typed
+ * listeners from the published fields. Samples which arrive before
+ * the receive thread published the previous one replace it, so only
+ * the latest value is distributed. The published fields are only
+ * written by {@link #publish()}, which is called by the receive
+ * thread, so they stay consistent while the receive thread notifies
+ * the listeners even if the channel is reset concurrently. Float
+ * arrays are double buffered,
+ * so neither the producer nor the receive thread allocate memory once
+ * the buffers are large enough.<br/><br/>The listeners are kept in
+ * arrays which are copied on modification, so the receive thread can
+ * iterate them without locking.
+ * 
+ * @author agent
+ */
+final class PrimitiveChannel {
+
+	/**
+	 * Type of a channel without samples
+	 */
+	static final int NONE = 0;
+	/**
+	 * Type of a double sample
+	 */
+	static final int DOUBLE = 1;
+	/**
+	 * Type of a long sample
+	 */
+	static final int LONG = 2;
+	/**
+	 * Type of a float array sample
+	 */
+	static final int FLOAT_ARRAY = 3;
+
+	/**
+	 * Empty array of double listeners
+	 */
+	private static final DoubleDatapoolListener[] NO_DOUBLE_LISTENERS = new DoubleDatapoolListener[0];
+	/**
+	 * Empty array of long listeners
+	 */
+	private static final LongDatapoolListener[] NO_LONG_LISTENERS = new LongDatapoolListener[0];
+	/**
+	 * Empty array of float array listeners
+	 */
+	private static final FloatArrayDatapoolListener[] NO_FLOAT_ARRAY_LISTENERS = new FloatArrayDatapoolListener[0];
+
+	/**
+	 * The datapool key of this channel
+	 */
+	private final DatapoolKey key;
+
+	/**
+	 * Next channel in the receive queue, guarded by the lock of the
+	 * {@link DatapoolQueue}
+	 */
+	PrimitiveChannel next;
+	/**
+	 * Flag showing if this channel is in the receive queue, guarded
+	 * by the lock of the {@link DatapoolQueue}
+	 */
+	boolean queued;
+
+	/**
+	 * Type of the pending sample
+	 */
+	private int pendingType = NONE;
+	/**
+	 * Timestamp of the pending sample
+	 */
+	private long pendingTimestamp;
+	/**
+	 * Pending double value
+	 */
+	private double pendingDouble;
+	/**
+	 * Pending long value
+	 */
+	private long pendingLong;
+	/**
+	 * Buffer for the pending float array
+	 */
+	private float[] pendingArray = new float[0];
+	/**
+	 * Number of valid values in the pending float array
+	 */
+	private int pendingLength;
+	/**
+	 * Flag showing that there is a sample which was not yet published
+	 */
+	private boolean dirty;
+
+	/**
+	 * Type of the published sample
+	 */
+	private int type = NONE;
+	/**
+	 * Timestamp of the published sample
+	 */
+	private long timestamp;
+	/**
+	 * Published double value
+	 */
+	private double doubleValue;
+	/**
+	 * Published long value
+	 */
+	private long longValue;
+	/**
+	 * Buffer of the published float array
+	 */
+	private float[] array = new float[0];
+	/**
+	 * Number of valid values in the published float array
+	 */
+	private int length;
+	/**
+	 * Flag showing if the published sample differs from the sample
+	 * published before
+	 */
+	private boolean changed;
+	/**
+	 * Flag showing if the published sample is valid, cleared by
+	 * {@link #reset()}
+	 */
+	private boolean valid;
+
+	/**
+	 * Registered double listeners
+	 */
+	private volatile DoubleDatapoolListener[] doubleListeners = NO_DOUBLE_LISTENERS;
+	/**
+	 * Registered long listeners
+	 */
+	private volatile LongDatapoolListener[] longListeners = NO_LONG_LISTENERS;
+	/**
+	 * Registered float array listeners
+	 */
+	private volatile FloatArrayDatapoolListener[] floatArrayListeners = NO_FLOAT_ARRAY_LISTENERS;
+
+	/**
+	 * Constructs a new channel for the given key.
+	 * 
+	 * @param key
+	 *            the datapool key
+	 */
+	PrimitiveChannel(DatapoolKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Gets the datapool key of this channel.
+	 * 
+	 * @return the key
+	 */
+	DatapoolKey getKey() {
+		return key;
+	}
+
+	/**
+	 * Sets the pending sample to the given double value.
+	 * 
+	 * @param time
+	 *            timestamp of the value
+	 * @param value
+	 *            the value
+	 */
+	synchronized void setDouble(long time, double value) {
+		pendingType = DOUBLE;
+		pendingTimestamp = time;
+		pendingDouble = value;
+		dirty = true;
+	}
+
+	/**
+	 * Sets the pending sample to the given long value.
+	 * 
+	 * @param time
+	 *            timestamp of the value
+	 * @param value
+	 *            the value
+	 */
+	synchronized void setLong(long time, long value) {
+		pendingType = LONG;
+		pendingTimestamp = time;
+		pendingLong = value;
+		dirty = true;
+	}
+
+	/**
+	 * Sets the pending sample to a copy of the given float array.
+	 * 
+	 * @param time
+	 *            timestamp of the values
+	 * @param values
+	 *            the values
+	 */
+	synchronized void setFloatArray(long time, float[] values) {
+		if (pendingArray.length < values.length) {
+			pendingArray = new float[values.length];
+		}
+		System.arraycopy(values, 0, pendingArray, 0, values.length);
+		pendingType = FLOAT_ARRAY;
+		pendingTimestamp = time;
+		pendingLength = values.length;
+		dirty = true;
+	}
+
+	/**
+	 * Publishes the pending sample. Afterwards the published values
+	 * may be read by the receive thread without locking until this
+	 * method is called again.
+	 * 
+	 * @return <code>false</code> if there was no new sample to
+	 *         publish
+	 */
+	synchronized boolean publish() {
+		if (!dirty) {
+			return false;
+		}
+		dirty = false;
+		switch (pendingType) {
+			case DOUBLE:
+				changed = !valid || type != DOUBLE
+						|| Double.compare(doubleValue, pendingDouble) != 0;
+				doubleValue = pendingDouble;
+				break;
+			case LONG:
+				changed = !valid || type != LONG
+						|| longValue != pendingLong;
+				longValue = pendingLong;
+				break;
+			case FLOAT_ARRAY:
+				// arrays are always treated as changed, like the
+				// identity comparison of the object API
+				changed = true;
+				float[] aux = array;
+				array = pendingArray;
+				pendingArray = aux;
+				length = pendingLength;
+				break;
+			default:
+				return false;
+		}
+		type = pendingType;
+		timestamp = pendingTimestamp;
+		valid = true;
+		return true;
+	}
+
+	/**
+	 * Discards the pending sample and invalidates the published one.
+	 * The published fields are left untouched, because the receive
+	 * thread may still be reading them. The listeners stay
+	 * registered.
+	 */
+	synchronized void reset() {
+		dirty = false;
+		pendingType = NONE;
+		pendingLength = 0;
+		valid = false;
+	}
+
+	/**
+	 * Gets the type of the published sample.
+	 * 
+	 * @return the type, one of {@link #NONE}, {@link #DOUBLE},
+	 *         {@link #LONG}, {@link #FLOAT_ARRAY}
+	 */
+	int getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the timestamp of the published sample.
+	 * 
+	 * @return the timestamp
+	 */
+	long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Gets the published double value.
+	 * 
+	 * @return the value
+	 */
+	double getDouble() {
+		return doubleValue;
+	}
+
+	/**
+	 * Gets the published long value.
+	 * 
+	 * @return the value
+	 */
+	long getLong() {
+		return longValue;
+	}
+
+	/**
+	 * Gets the buffer of the published float array. The buffer may
+	 * be larger than the number of valid values.
+	 * 
+	 * @return the buffer
+	 * @see #getLength()
+	 */
+	float[] getArray() {
+		return array;
+	}
+
+	/**
+	 * Gets the number of valid values of the published float array.
+	 * 
+	 * @return the number of values
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Checks if the published sample differs from the sample
+	 * published before.
+	 * 
+	 * @return <code>true</code> if the value has changed
+	 */
+	boolean isChanged() {
+		return changed;
+	}
+
+	/**
+	 * Gets the published sample as object, as used by the object API
+	 * of the datapool. Float arrays are copied.<br/><br/>This method
+	 * may be called from any thread.
+	 * 
+	 * @return the boxed value or <code>null</code> if no sample was
+	 *         published
+	 */
+	synchronized Object getValue() {
+		if (!valid) {
+			return null;
+		}
+		return getPublishedValue( );
+	}
+
+	/**
+	 * Gets the sample published by the last call to
+	 * {@link #publish()} as object, whether the channel was reset
+	 * since or not. Float arrays are copied.<br/><br/>This method
+	 * may only be called by the receive thread.
+	 * 
+	 * @return the boxed value or <code>null</code> if no sample was
+	 *         published
+	 */
+	Object getPublishedValue() {
+		switch (type) {
+			case DOUBLE:
+				return doubleValue;
+			case LONG:
+				return longValue;
+			case FLOAT_ARRAY:
+				float[] copy = new float[length];
+				System.arraycopy(array, 0, copy, 0, length);
+				return copy;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Gets the published sample as double. This method may be called
+	 * from any thread.
+	 * 
+	 * @param defaultValue
+	 *            the value to return if no numeric sample was
+	 *            published
+	 * @return the value
+	 */
+	synchronized double getDoubleValue(double defaultValue) {
+		if (!valid) {
+			return defaultValue;
+		}
+		switch (type) {
+			case DOUBLE:
+				return doubleValue;
+			case LONG:
+				return longValue;
+			default:
+				return defaultValue;
+		}
+	}
+
+	/**
+	 * Gets the registered double listeners. The returned array must
+	 * not be modified.
+	 * 
+	 * @return the listeners
+	 */
+	DoubleDatapoolListener[] getDoubleListeners() {
+		return doubleListeners;
+	}
+
+	/**
+	 * Gets the registered long listeners. The returned array must not
+	 * be modified.
+	 * 
+	 * @return the listeners
+	 */
+	LongDatapoolListener[] getLongListeners() {
+		return longListeners;
+	}
+
+	/**
+	 * Gets the registered float array listeners. The returned array
+	 * must not be modified.
+	 * 
+	 * @return the listeners
+	 */
+	FloatArrayDatapoolListener[] getFloatArrayListeners() {
+		return floatArrayListeners;
+	}
+
+	/**
+	 * Adds the given double listener.
+	 * 
+	 * @param listener
+	 *            the listener to add
+	 */
+	synchronized void addListener(DoubleDatapoolListener listener) {
+		DoubleDatapoolListener[] old = doubleListeners;
+		DoubleDatapoolListener[] aux = new DoubleDatapoolListener[old.length + 1];
+		System.arraycopy(old, 0, aux, 0, old.length);
+		aux[old.length] = listener;
+		doubleListeners = aux;
+	}
+
+	/**
+	 * Adds the given long listener.
+	 * 
+	 * @param listener
+	 *            the listener to add
+	 */
+	synchronized void addListener(LongDatapoolListener listener) {
+		LongDatapoolListener[] old = longListeners;
+		LongDatapoolListener[] aux = new LongDatapoolListener[old.length + 1];
+		System.arraycopy(old, 0, aux, 0, old.length);
+		aux[old.length] = listener;
+		longListeners = aux;
+	}
+
+	/**
+	 * Adds the given float array listener.
+	 * 
+	 * @param listener
+	 *            the listener to add
+	 */
+	synchronized void addListener(FloatArrayDatapoolListener listener) {
+		FloatArrayDatapoolListener[] old = floatArrayListeners;
+		FloatArrayDatapoolListener[] aux = new FloatArrayDatapoolListener[old.length + 1];
+		System.arraycopy(old, 0, aux, 0, old.length);
+		aux[old.length] = listener;
+		floatArrayListeners = aux;
+	}
+
+	/**
+	 * Removes the given double listener.
+	 * 
+	 * @param listener
+	 *            the listener to remove
+	 * @return <code>true</code> if the listener was removed
+	 */
+	synchronized boolean removeListener(DoubleDatapoolListener listener) {
+		DoubleDatapoolListener[] old = doubleListeners;
+		int idx = indexOf(old, listener);
+		if (idx < 0) {
+			return false;
+		}
+		if (old[idx] instanceof FilteredDoubleListener) {
+			// don't deliver a pending value after removal
+			((FilteredDoubleListener) old[idx]).getState( ).cancel( );
+		}
+		DoubleDatapoolListener[] aux = new DoubleDatapoolListener[old.length - 1];
+		System.arraycopy(old, 0, aux, 0, idx);
+		System.arraycopy(old, idx + 1, aux, idx, aux.length - idx);
+		doubleListeners = aux;
+		return true;
+	}
+
+	/**
+	 * Removes the given long listener.
+	 * 
+	 * @param listener
+	 *            the listener to remove
+	 * @return <code>true</code> if the listener was removed
+	 */
+	synchronized boolean removeListener(LongDatapoolListener listener) {
+		LongDatapoolListener[] old = longListeners;
+		int idx = indexOf(old, listener);
+		if (idx < 0) {
+			return false;
+		}
+		LongDatapoolListener[] aux = new LongDatapoolListener[old.length - 1];
+		System.arraycopy(old, 0, aux, 0, idx);
+		System.arraycopy(old, idx + 1, aux, idx, aux.length - idx);
+		longListeners = aux;
+		return true;
+	}
+
+	/**
+	 * Removes the given float array listener.
+	 * 
+	 * @param listener
+	 *            the listener to remove
+	 * @return <code>true</code> if the listener was removed
+	 */
+	synchronized boolean removeListener(FloatArrayDatapoolListener listener) {
+		FloatArrayDatapoolListener[] old = floatArrayListeners;
+		int idx = indexOf(old, listener);
+		if (idx < 0) {
+			return false;
+		}
+		FloatArrayDatapoolListener[] aux = new FloatArrayDatapoolListener[old.length - 1];
+		System.arraycopy(old, 0, aux, 0, idx);
+		System.arraycopy(old, idx + 1, aux, idx, aux.length - idx);
+		floatArrayListeners = aux;
+		return true;
+	}
+
+	/**
+	 * Gets the index of the given listener in the given array.
+	 * Registrations with a filter are found by their wrapped listener.
+	 * 
+	 * @param listeners
+	 *            the array to search
+	 * @param listener
+	 *            the listener to search for
+	 * @return the index or <code>-1</code> if the listener was not
+	 *         found
+	 */
+	private static int indexOf(Object[] listeners, Object listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			Object aux = listeners[i];
+			if (aux instanceof FilteredDoubleListener) {
+				aux = ((FilteredDoubleListener) aux).getListener( );
+			}
+			if (aux.equals(listener)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,72 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * SendPriority.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+/**
+ * Priority of a command sent to the robot. The {@link Datapool} keeps
+ * a queue for each priority and always sends the commands of the
+ * highest priority first. So a stop command is not delayed by a large
+ * backlog of configuration data. To prevent starvation a lower
+ * priority still gets one command sent after a number of commands of
+ * higher priorities were sent while it was waiting.<br/><br/>The
+ * priority is chosen per message with
+ * {@link DatapoolMessage#setPriority(SendPriority)} or per key with
+ * {@link Datapool#setSendPriority(String, SendPriority)}. Messages
+ * without priority are sent with {@link #CONTROL}.
+ * 
+ * @author agent
+ */
+public enum SendPriority {
+	/**
+	 * Safety critical commands like an emergency stop
+	 */
+	CRITICAL,
+	/**
+	 * Commands controlling the robot like drive commands, the default
+	 */
+	CONTROL,
+	/**
+	 * Bulk data like configuration uploads or periodic requests
+	 */
+	BULK;
+
+	/**
+	 * Gets the priority for the given name.
+	 * 
+	 * @param name
+	 *            the name of the priority, the case is ignored
+	 * @return the priority or {@link #CONTROL} if the name is unknown
+	 */
+	public static SendPriority getPriority(String name) {
+		if (name != null) {
+			for (SendPriority priority : values( )) {
+				if (priority.name( ).equalsIgnoreCase(name.trim( ))) {
+					return priority;
+				}
+			}
+		}
+		return CONTROL;
+	}
+}
@@ -0,0 +1,458 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * SendQueue.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.data;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue for commands sent to the robot with a lane for each
+ * {@link SendPriority}.<br/><br/>{@link #poll(long, TimeUnit)}
+ * returns the first message of the highest priority lane which is
+ * not empty. A lower lane which was passed over
+ * {@link #STARVATION_LIMIT} times in a row is served next, so bulk
+ * data still gets a share of the connection under load.<br/><br/>
+ * Each lane is a ring of messages together with the time they were
+ * queued, so the queue counts the number of sent messages and the
+ * time they waited in the queue without creating objects.
+ * 
+ * @author agent
+ */
+final class SendQueue {
+
+	/**
+	 * Number of times a lane may be passed over by higher lanes
+	 * before it is served
+	 */
+	static final int STARVATION_LIMIT = 16;
+	/**
+	 * Initial capacity of a lane, has to be a power of two
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The queue and statistics for one priority
+	 */
+	private static final class Lane {
+
+		/**
+		 * The queued messages
+		 */
+		DatapoolMessage[] ring = new DatapoolMessage[INITIAL_CAPACITY];
+		/**
+		 * The time in nanoseconds each message was queued
+		 */
+		long[] queued = new long[INITIAL_CAPACITY];
+		/**
+		 * Mask for calculating the ring position
+		 */
+		int mask = INITIAL_CAPACITY - 1;
+		/**
+		 * Position of the first message
+		 */
+		long head;
+		/**
+		 * Position the next message is added to
+		 */
+		long tail;
+		/**
+		 * Number of times the lane was passed over in a row
+		 */
+		int skipped;
+		/**
+		 * Number of messages taken from the lane
+		 */
+		long taken;
+		/**
+		 * Sum of the waiting times of the taken messages in
+		 * nanoseconds
+		 */
+		long latencySum;
+		/**
+		 * Maximum waiting time of a taken message in nanoseconds
+		 */
+		long latencyMax;
+
+		/**
+		 * Gets the number of queued messages.
+		 * 
+		 * @return the number of messages
+		 */
+		int size() {
+			return (int) (tail - head);
+		}
+
+		/**
+		 * Adds a message to the end of the lane.
+		 * 
+		 * @param message
+		 *            the message
+		 * @param time
+		 *            the time in nanoseconds
+		 */
+		void add(DatapoolMessage message, long time) {
+			if (size( ) == ring.length) {
+				int length = ring.length << 1;
+				DatapoolMessage[] newRing = new DatapoolMessage[length];
+				long[] newQueued = new long[length];
+				int newMask = length - 1;
+				for (long s = head; s < tail; s++) {
+					newRing[(int) (s & newMask)] = ring[(int) (s & mask)];
+					newQueued[(int) (s & newMask)] = queued[(int) (s & mask)];
+				}
+				ring = newRing;
+				queued = newQueued;
+				mask = newMask;
+			}
+			int pos = (int) (tail & mask);
+			ring[pos] = message;
+			queued[pos] = time;
+			tail++;
+		}
+
+		/**
+		 * Removes the first message and counts its waiting time.
+		 * 
+		 * @param now
+		 *            the current time in nanoseconds
+		 * @return the message
+		 */
+		DatapoolMessage take(long now) {
+			int pos = (int) (head & mask);
+			DatapoolMessage message = ring[pos];
+			ring[pos] = null;
+			head++;
+			long latency = now - queued[pos];
+			taken++;
+			latencySum += latency;
+			if (latency > latencyMax) {
+				latencyMax = latency;
+			}
+			return message;
+		}
+
+		/**
+		 * Removes the given message if it is queued. The order of
+		 * the other messages is kept.
+		 * 
+		 * @param message
+		 *            the message
+		 * @return <code>true</code> if the message was removed
+		 */
+		boolean remove(DatapoolMessage message) {
+			for (long s = head; s < tail; s++) {
+				if (ring[(int) (s & mask)] == message) {
+					for (long t = s + 1; t < tail; t++) {
+						ring[(int) ((t - 1) & mask)] = ring[(int) (t & mask)];
+						queued[(int) ((t - 1) & mask)] = queued[(int) (t & mask)];
+					}
+					tail--;
+					ring[(int) (tail & mask)] = null;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Removes all messages.
+		 * 
+		 * @param target
+		 *            the collection to add the messages to or
+		 *            <code>null</code> to discard them
+		 */
+		void drainTo(Collection<DatapoolMessage> target) {
+			while (head != tail) {
+				int pos = (int) (head & mask);
+				if (target != null) {
+					target.add(ring[pos]);
+				}
+				ring[pos] = null;
+				head++;
+			}
+			skipped = 0;
+		}
+	}
+
+	/**
+	 * Lock guarding the lanes
+	 */
+	private final ReentrantLock lock = new ReentrantLock( );
+	/**
+	 * Condition signaled when a message is added to an empty queue
+	 */
+	private final Condition notEmpty = lock.newCondition( );
+	/**
+	 * The lanes indexed by the ordinal of their priority
+	 */
+	private final Lane[] lanes = new Lane[SendPriority.values( ).length];
+	/**
+	 * Number of queued messages of all lanes
+	 */
+	private int count;
+
+	/**
+	 * Constructs a new empty queue.
+	 */
+	SendQueue() {
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new Lane( );
+		}
+	}
+
+	/**
+	 * Adds the given message to the lane of the given priority.
+	 * 
+	 * @param message
+	 *            the message to add
+	 * @param priority
+	 *            the priority of the message
+	 * @return <code>true</code>
+	 */
+	boolean offer(DatapoolMessage message, SendPriority priority) {
+		long now = System.nanoTime( );
+		lock.lock( );
+		try {
+			lanes[priority.ordinal( )].add(message, now);
+			if (count++ == 0) {
+				notEmpty.signal( );
+			}
+		}
+		finally {
+			lock.unlock( );
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the next message to send, waiting for the given time if
+	 * the queue is empty.
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the message or <code>null</code> if the timeout
+	 *         elapsed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	DatapoolMessage poll(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		lock.lockInterruptibly( );
+		try {
+			long nanos = unit.toNanos(timeout);
+			while (count == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			count--;
+			return nextLane( ).take(System.nanoTime( ));
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Selects the lane to take the next message from. The lock has to
+	 * be held by the caller and the queue must not be empty.
+	 * 
+	 * @return the lane
+	 */
+	private Lane nextLane() {
+		// a starving lane is served first, the lowest one wins
+		for (int i = lanes.length - 1; i > 0; i--) {
+			Lane lane = lanes[i];
+			if (lane.skipped >= STARVATION_LIMIT && lane.size( ) > 0) {
+				lane.skipped = 0;
+				return lane;
+			}
+		}
+		Lane selected = null;
+		for (Lane lane : lanes) {
+			if (lane.size( ) > 0) {
+				if (selected == null) {
+					selected = lane;
+				}
+				else {
+					lane.skipped++;
+				}
+			}
+		}
+		selected.skipped = 0;
+		return selected;
+	}
+
+	/**
+	 * Removes the given message from the queue.
+	 * 
+	 * @param message
+	 *            the message to remove
+	 * @return <code>true</code> if the message was queued
+	 */
+	boolean remove(DatapoolMessage message) {
+		lock.lock( );
+		try {
+			for (Lane lane : lanes) {
+				if (lane.remove(message)) {
+					count--;
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Removes all messages and adds them to the given collection,
+	 * the messages of higher priority first.
+	 * 
+	 * @param target
+	 *            the collection to add the messages to
+	 */
+	void drainTo(Collection<DatapoolMessage> target) {
+		lock.lock( );
+		try {
+			for (Lane lane : lanes) {
+				lane.drainTo(target);
+			}
+			count = 0;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Removes all messages.
+	 */
+	void clear() {
+		drainTo(null);
+	}
+
+	/**
+	 * Gets the number of queued messages of the given priority.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the number of messages
+	 */
+	int size(SendPriority priority) {
+		lock.lock( );
+		try {
+			return lanes[priority.ordinal( )].size( );
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Gets the number of messages of the given priority which were
+	 * taken from the queue.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the number of messages
+	 */
+	long getTakenCount(SendPriority priority) {
+		lock.lock( );
+		try {
+			return lanes[priority.ordinal( )].taken;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Gets the average time the messages of the given priority waited
+	 * in the queue.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the average time in milliseconds or <code>0</code> if
+	 *         no message was taken
+	 */
+	double getAverageLatency(SendPriority priority) {
+		lock.lock( );
+		try {
+			Lane lane = lanes[priority.ordinal( )];
+			return lane.taken == 0 ? 0 : lane.latencySum / 1e6 / lane.taken;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Gets the maximum time a message of the given priority waited in
+	 * the queue.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the maximum time in milliseconds
+	 */
+	double getMaxLatency(SendPriority priority) {
+		lock.lock( );
+		try {
+			return lanes[priority.ordinal( )].latencyMax / 1e6;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+
+	/**
+	 * Gets the time the oldest queued message of the given priority
+	 * is waiting.
+	 * 
+	 * @param priority
+	 *            the priority
+	 * @return the time in milliseconds or <code>0</code> if the lane
+	 *         is empty
+	 */
+	double getOldestAge(SendPriority priority) {
+		lock.lock( );
+		try {
+			Lane lane = lanes[priority.ordinal( )];
+			if (lane.size( ) == 0) {
+				return 0;
+			}
+			return (System.nanoTime( ) - lane.queued[(int) (lane.head & lane.mask)]) / 1e6;
+		}
+		finally {
+			lock.unlock( );
+		}
+	}
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import org.apache.log4j.Logger;
 
 import de.xirp.io.comm.data.Datapool;
+import de.xirp.io.comm.data.DatapoolBatch;
 import de.xirp.io.comm.data.DatapoolException;
 import de.xirp.io.comm.data.DatapoolManager;
 import de.xirp.io.comm.data.DatapoolMessage;
@@ -74,6 +75,10 @@ public abstract class AbstractHandler<GAbstractData extends AbstractData, GAbstr
 	 * The datapool to write data to
 	 */
 	protected Datapool datapool;
+	/**
+	 * The batch reused for converting received messages
+	 */
+	private final DatapoolBatch batch = new DatapoolBatch( );
 
 	/**
 	 * Constructs a new hander plugin for the given robot and
@@ -114,19 +119,22 @@ public abstract class AbstractHandler<GAbstractData extends AbstractData, GAbstr
 	}
 
 	/**
-	 * Calls {@link #convert(IHandlerMessage)} to convert the message
-	 * to a form the datapool understands and than forwards it to the
-	 * datapool
+	 * Calls {@link #convert(IHandlerMessage, DatapoolBatch)} to
+	 * convert the message to a form the datapool understands and than
+	 * forwards all resulting messages to the datapool at once.
 	 * 
 	 * @see de.xirp.io.comm.handler.IHandler#receiveToDatapool(de.xirp.io.comm.handler.IHandlerMessage)
 	 */
 	public void receiveToDatapool(IHandlerMessage message) {
 		Datapool datapool = getDatapool( );
 		if (datapool != null) {
-			List<DatapoolMessage> messages = convert(message);
-			if (messages != null) {
-				for (DatapoolMessage m : messages) {
-					datapool.receiveToDatapool(m);
+			synchronized (batch) {
+				try {
+					convert(message, batch);
+					datapool.offerAll(batch);
+				}
+				finally {
+					batch.clear( );
 				}
 			}
 		}
@@ -228,4 +236,31 @@ public abstract class AbstractHandler<GAbstractData extends AbstractData, GAbstr
 	 * @return the converted messages
 	 */
 	protected abstract List<DatapoolMessage> convert(IHandlerMessage message);
+
+	/**
+	 * Converts a message received from the robot to a form the
+	 * datapool understands and adds the resulting messages to the
+	 * given batch. This method is called by
+	 * {@link #receiveToDatapool(IHandlerMessage)}.<br/><br/>The
+	 * default implementation adds the messages returned by
+	 * {@link #convert(IHandlerMessage)}. Handlers which convert one
+	 * message to many values, f.e. laser or sonar readings, should
+	 * override this method and add the values directly to the batch;
+	 * {@link #convert(IHandlerMessage)} may then return
+	 * <code>null</code>. The batch is reused for the next message,
+	 * so it must not be kept.
+	 * 
+	 * @param message
+	 *            the message to forward to the datapool
+	 * @param sink
+	 *            the batch to add the converted messages to
+	 */
+	protected void convert(IHandlerMessage message, DatapoolBatch sink) {
+		List<DatapoolMessage> messages = convert(message);
+		if (messages != null) {
+			for (DatapoolMessage m : messages) {
+				sink.add(m);
+			}
+		}
+	}
 }
@@ -27,6 +27,7 @@ package de.xirp.io.comm.lowlevel;
 
 import java.util.Vector;
 
+import de.xirp.io.comm.ConnectionStatistics;
 import de.xirp.io.event.ConnectionEvent;
 import de.xirp.io.event.ConnectionListener;
 import de.xirp.plugin.AbstractPlugin;
@@ -65,6 +66,11 @@ public abstract class AbstractCommunicationInterface<S, R> extends
 	 * connect/disconnect
 	 */
 	protected Vector<ConnectionListener> connectionListeners = new Vector<ConnectionListener>( );
+	/**
+	 * Counters for the bytes, packets and errors of the current
+	 * connection
+	 */
+	protected volatile ConnectionStatistics statistics = new ConnectionStatistics( );
 
 	/**
 	 * Constructs a new communication interface plugin for the given
@@ -81,6 +87,25 @@ public abstract class AbstractCommunicationInterface<S, R> extends
 		super(robotName, ownInfo);
 	}
 
+	/**
+	 * Gets the counters for the bytes, packets and errors of the
+	 * current connection.
+	 * 
+	 * @return the statistics
+	 */
+	public ConnectionStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Starts new counters for the bytes, packets and errors. Called
+	 * when the connection was closed, so the next connection starts
+	 * with empty counters.
+	 */
+	public void resetStatistics() {
+		statistics = new ConnectionStatistics( );
+	}
+
 	/**
 	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#addBytesReceivedListener(de.xirp.io.comm.lowlevel.IByteListener)
 	 */
@@ -0,0 +1,584 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * AbstractNioCommunicationInterface.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.InvalidNameException;
+
+import javolution.util.FastMap;
+
+import de.xirp.io.comm.CommunicationManager;
+import de.xirp.io.comm.DataAmount;
+import de.xirp.io.event.ConnectionEvent;
+import de.xirp.io.logging.RobotLogger;
+import de.xirp.plugin.PluginInfo;
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * An abstract implementation of a communication interface which
+ * communicates over a TCP {@link SocketChannel} using non blocking
+ * IO.<br/><br/>
+ * The channels of all interfaces are served by one shared selector
+ * thread, so no threads are needed per connection. Received bytes
+ * are read into a pooled direct buffer and passed to the
+ * {@link IByteBufferListener} of the protocol without copying them.
+ * Data to send is queued and written by the selector thread when the
+ * channel is writable, all queued data is gathered into as few
+ * writes as possible.<br/><br/>
+ * Implementations only have to provide the address to connect to.
+ * The protocol gets the interface itself from {@link #receive()} and
+ * registers its listener with
+ * {@link #setReceiveListener(IByteBufferListener)}.
+ * 
+ * @author agent
+ */
+public abstract class AbstractNioCommunicationInterface extends
+		AbstractCommunicationInterface<byte[], AbstractNioCommunicationInterface> {
+
+	/**
+	 * Log4j Logger for this class
+	 */
+	private static RobotLogger logClass = RobotLogger.getLogger(AbstractNioCommunicationInterface.class);
+
+	/**
+	 * Default timeout in milliseconds for connecting
+	 */
+	protected static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+
+	/**
+	 * <code>true</code> if connection to device established
+	 */
+	private volatile boolean connected = false;
+	/**
+	 * Flag showing if the loss of the connection was already handled
+	 */
+	private final AtomicBoolean lost = new AtomicBoolean( );
+	/**
+	 * The channel of the connection
+	 */
+	private SocketChannel channel;
+	/**
+	 * The selector serving the channel
+	 */
+	private NioSelector selector;
+	/**
+	 * The listener for received data
+	 */
+	private volatile IByteBufferListener receiveListener;
+
+	/**
+	 * Buffer for reading, only used by the selector thread
+	 */
+	private ByteBuffer readBuffer;
+	/**
+	 * Buffer for writing, only used by the selector thread. Between
+	 * writes the buffer contains the bytes not written yet.
+	 */
+	private ByteBuffer writeBuffer;
+	/**
+	 * The periodic sends by their names
+	 */
+	private final FastMap<String, PeriodicSend> periodicSenders = new FastMap<String, PeriodicSend>( ).setShared(true);
+	/**
+	 * Data to send
+	 */
+	private final Queue<byte[]> toSend = new ConcurrentLinkedQueue<byte[]>( );
+	/**
+	 * Number of data fragments in {@link #toSend}
+	 */
+	private final AtomicInteger queued = new AtomicInteger( );
+	/**
+	 * Flag showing if writing was requested from the selector
+	 */
+	private final AtomicBoolean writeScheduled = new AtomicBoolean( );
+	/**
+	 * Data fragment which was partially copied to the write buffer
+	 */
+	private byte[] partial;
+	/**
+	 * Number of bytes of {@link #partial} already copied
+	 */
+	private int partialOffset;
+
+	/**
+	 * Number of bytes received since the last statistics event, only
+	 * used by the selector thread
+	 */
+	private long receivedBytes = 0;
+	/**
+	 * Number of bytes sent since the last statistics event, only used
+	 * by the selector thread
+	 */
+	private long sentBytes = 0;
+	/**
+	 * Number of writes since the last statistics event, only used by
+	 * the selector thread
+	 */
+	private long writeCount = 0;
+	/**
+	 * Number of times the queued data was written since the last
+	 * statistics event, only used by the selector thread
+	 */
+	private long flushCount = 0;
+	/**
+	 * Sum of the write durations in nanoseconds since the last
+	 * statistics event, only used by the selector thread
+	 */
+	private long writeNanos = 0;
+	/**
+	 * Longest write duration in nanoseconds since the last statistics
+	 * event, only used by the selector thread
+	 */
+	private long maxWriteNanos = 0;
+
+	/**
+	 * Constructs a new communication interface plugin for the given
+	 * robot and information about the plugin itself.<br/><br/>Don't
+	 * call it on your own, it is called when a connection to the
+	 * robot is established.
+	 * 
+	 * @param robotName
+	 *            the name of the robot this handler is for
+	 * @param ownInfo
+	 *            information about this plugin
+	 */
+	public AbstractNioCommunicationInterface(String robotName,
+			PluginInfo ownInfo) {
+		super(robotName, ownInfo);
+	}
+
+	/**
+	 * Gets the address of the robot to connect to.
+	 * 
+	 * @return the address
+	 */
+	protected abstract SocketAddress getSocketAddress();
+
+	/**
+	 * Gets the timeout for connecting. Override to change the default
+	 * of {@link #DEFAULT_CONNECT_TIMEOUT}.
+	 * 
+	 * @return the timeout in milliseconds
+	 */
+	protected int getConnectTimeout() {
+		return DEFAULT_CONNECT_TIMEOUT;
+	}
+
+	/**
+	 * Connects to the address of the robot and registers the channel
+	 * with the shared selector.
+	 * 
+	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#connect()
+	 */
+	public boolean connect() {
+		if (connected) {
+			return true;
+		}
+		SocketAddress address = getSocketAddress( );
+		try {
+			SocketChannel aux = SocketChannel.open( );
+			try {
+				aux.socket( ).connect(address, getConnectTimeout( ));
+				aux.socket( ).setTcpNoDelay(true);
+				aux.configureBlocking(false);
+			}
+			catch (IOException e) {
+				aux.close( );
+				throw e;
+			}
+			selector = NioSelector.getInstance( );
+			channel = aux;
+			readBuffer = DirectBufferPool.acquire( );
+			writeBuffer = DirectBufferPool.acquire( );
+			writeBuffer.flip( );
+			partial = null;
+			lost.set(false);
+			connected = true;
+			selector.register(this, channel);
+
+			fireConnectEvent(new ConnectionEvent(this, robotName));
+			logClass.info(robotName,
+					I18n.getString("AbstractNioCommunication.log.connected", //$NON-NLS-1$
+							address)
+							+ Constants.LINE_SEPARATOR);
+			return true;
+		}
+		catch (IOException e) {
+			logClass.error(robotName,
+					I18n.getString("AbstractNioCommunication.log.connectFailed", //$NON-NLS-1$
+							address,
+							e.getMessage( ))
+							+ Constants.LINE_SEPARATOR,
+					e);
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the channel and fires a disconnect event. Data not sent
+	 * yet is discarded.
+	 * 
+	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#disconnect()
+	 */
+	public void disconnect() {
+		if (connected) {
+			connected = false;
+			for (FastMap.Entry<String, PeriodicSend> e = periodicSenders.head( ), end = periodicSenders.tail( ); (e = e.getNext( )) != end;) {
+				e.getValue( ).cancel( );
+			}
+			periodicSenders.clear( );
+			selector.cancel(channel, readBuffer, writeBuffer);
+			try {
+				channel.close( );
+			}
+			catch (IOException e) {
+				logClass.error(robotName,
+						I18n.getString("AbstractCommunication.log.errorDisconnecting", getClass( ) //$NON-NLS-1$
+								.getSimpleName( ),
+								e.getMessage( )) +
+								Constants.LINE_SEPARATOR,
+						e);
+			}
+			toSend.clear( );
+			queued.set(0);
+			writeScheduled.set(false);
+			fireDisconnectEvent(new ConnectionEvent(this, robotName));
+			logClass.info(robotName,
+					I18n.getString("AbstractCommunication.log.successfullyDisconnected", getClass( ) //$NON-NLS-1$
+							.getSimpleName( )) +
+							Constants.LINE_SEPARATOR);
+		}
+		running = false;
+	}
+
+	/**
+	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#isConnected()
+	 */
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * Queues the given data for sending. The data is written by the
+	 * selector thread, so this method never blocks.
+	 * 
+	 * @param value
+	 *            the byte array to send, it must not be modified
+	 *            afterwards
+	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#send(java.lang.Object)
+	 */
+	public void send(byte[] value) {
+		if (connected && value != null && value.length > 0) {
+			toSend.offer(value);
+			queued.incrementAndGet( );
+			if (writeScheduled.compareAndSet(false, true)) {
+				selector.requestWrite(channel);
+			}
+		}
+	}
+
+	/**
+	 * Sends data periodically. The data is sent by the shared
+	 * {@link PeriodicSendScheduler}, periodic data due at the same
+	 * time is sent together.
+	 * 
+	 * @param name
+	 *            the name to use for the periodic send
+	 * @param time
+	 *            the time interval in milliseconds between two sends
+	 * @param data
+	 *            the data to send
+	 * @throws InvalidNameException
+	 *             if the name is already in use
+	 */
+	public void sendPeriodically(String name, int time, byte[] data)
+			throws InvalidNameException {
+		if (periodicSenders.get(name) != null) {
+			throw new InvalidNameException(I18n.getString("AbstractCommunication.log.alreadyExcecutingThread") + name); //$NON-NLS-1$
+		}
+		periodicSenders.put(name, PeriodicSendScheduler.getInstance( )
+				.schedule(this, name, time, data));
+	}
+
+	/**
+	 * Stops the periodic sending for the given name.
+	 * 
+	 * @param name
+	 *            the name of the periodic send to stop
+	 * @return <code>true</code> if the periodic send was found and
+	 *         stopped, <code>false</code> otherwise
+	 */
+	public boolean stopSendPeriodically(String name) {
+		PeriodicSend periodicSend = periodicSenders.remove(name);
+		if (periodicSend != null) {
+			periodicSend.cancel( );
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the periodic send with the given name, f.e. for checking
+	 * its timing.
+	 * 
+	 * @param name
+	 *            the name of the periodic send
+	 * @return the periodic send or <code>null</code> if there is
+	 *         none with this name
+	 */
+	public PeriodicSend getPeriodicSend(String name) {
+		return periodicSenders.get(name);
+	}
+
+	/**
+	 * Returns this interface. The protocol registers its listener for
+	 * received data with
+	 * {@link #setReceiveListener(IByteBufferListener)}.
+	 * 
+	 * @return this interface
+	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#receive()
+	 */
+	public AbstractNioCommunicationInterface receive() {
+		return this;
+	}
+
+	/**
+	 * Sets the listener which gets the received data.
+	 * 
+	 * @param listener
+	 *            the listener or <code>null</code> to discard
+	 *            received data
+	 */
+	public void setReceiveListener(IByteBufferListener listener) {
+		this.receiveListener = listener;
+	}
+
+	/**
+	 * Gets the number of data fragments waiting to be sent.
+	 * 
+	 * @return the number of queued data fragments
+	 */
+	public int getSendQueueDepth() {
+		return queued.get( );
+	}
+
+	/**
+	 * Reads the available bytes and passes them to the receive
+	 * listener. Called by the selector thread.
+	 */
+	void handleRead() {
+		try {
+			int read = channel.read(readBuffer);
+			if (read < 0) {
+				closedBySelector(null);
+				return;
+			}
+			receivedBytes += read;
+			// a read is not a frame, the protocol counts the packets
+			statistics.receivedBytes(read);
+			readBuffer.flip( );
+			IByteBufferListener listener = receiveListener;
+			if (listener != null) {
+				try {
+					listener.bytesReceived(readBuffer);
+				}
+				catch (RuntimeException e) {
+					logClass.error(robotName,
+							I18n.getString("AbstractNioCommunication.log.listenerFailed", //$NON-NLS-1$
+									e.getMessage( ))
+									+ Constants.LINE_SEPARATOR,
+							e);
+					readBuffer.position(readBuffer.limit( ));
+				}
+			}
+			else {
+				readBuffer.position(readBuffer.limit( ));
+			}
+
+			if (!readBuffer.hasRemaining( )) {
+				readBuffer.clear( );
+			}
+			else if (readBuffer.position( ) == 0
+					&& readBuffer.limit( ) == readBuffer.capacity( )) {
+				// the listener waits for more data than fits into the
+				// buffer
+				logClass.warn(robotName,
+						I18n.getString("AbstractNioCommunication.log.receiveBufferFull", //$NON-NLS-1$
+								readBuffer.capacity( ))
+								+ Constants.LINE_SEPARATOR);
+				readBuffer.clear( );
+			}
+			else {
+				readBuffer.compact( );
+			}
+		}
+		catch (IOException e) {
+			statistics.receiveError( );
+			closedBySelector(e);
+		}
+	}
+
+	/**
+	 * Writes queued data until all data is written or the channel
+	 * accepts no more data. Called by the selector thread.
+	 * 
+	 * @return <code>true</code> if there is more data to write
+	 */
+	boolean handleWrite() {
+		try {
+			long start = System.nanoTime( );
+			long bytes = 0;
+			int packets = 0;
+			while (true) {
+				packets += fillWriteBuffer( );
+				if (!writeBuffer.hasRemaining( )) {
+					break;
+				}
+				int written = channel.write(writeBuffer);
+				if (written == 0) {
+					break;
+				}
+				bytes += written;
+				writeCount++;
+			}
+			sentBytes += bytes;
+			statistics.sent(bytes, packets);
+			long duration = System.nanoTime( ) - start;
+			flushCount++;
+			writeNanos += duration;
+			maxWriteNanos = Math.max(maxWriteNanos, duration);
+
+			if (writeBuffer.hasRemaining( ) || partial != null
+					|| !toSend.isEmpty( )) {
+				return true;
+			}
+			writeScheduled.set(false);
+			// data may have been queued before resetting the flag
+			return !toSend.isEmpty( )
+					&& writeScheduled.compareAndSet(false, true);
+		}
+		catch (IOException e) {
+			statistics.sendError( );
+			logClass.error(robotName,
+					I18n.getString("AbstractCommunication.log.errorSendingOver", //$NON-NLS-1$
+							getClass( ).getSimpleName( ),
+							e.getMessage( )) +
+							Constants.LINE_SEPARATOR,
+					e);
+			closedBySelector(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Copies queued data to the free space of the write buffer.
+	 * 
+	 * @return the number of data fragments taken from the queue
+	 */
+	private int fillWriteBuffer() {
+		int taken = 0;
+		writeBuffer.compact( );
+		while (writeBuffer.hasRemaining( )) {
+			if (partial == null) {
+				partial = toSend.poll( );
+				partialOffset = 0;
+				if (partial == null) {
+					break;
+				}
+				queued.decrementAndGet( );
+				taken++;
+			}
+			int length = Math.min(writeBuffer.remaining( ), partial.length
+					- partialOffset);
+			writeBuffer.put(partial, partialOffset, length);
+			partialOffset += length;
+			if (partialOffset == partial.length) {
+				partial = null;
+			}
+		}
+		writeBuffer.flip( );
+		return taken;
+	}
+
+	/**
+	 * Fires the byte statistics since the last call. Called by the
+	 * selector thread.
+	 */
+	void fireStatistics() {
+		fireByteReceivedEvent(new ByteEvent(this, new DataAmount(receivedBytes)));
+		fireByteSendEvent(new ByteEvent(this,
+				new DataAmount(sentBytes),
+				queued.get( ),
+				writeCount,
+				flushCount,
+				sentBytes,
+				writeNanos,
+				maxWriteNanos));
+		receivedBytes = 0;
+		sentBytes = 0;
+		writeCount = 0;
+		flushCount = 0;
+		writeNanos = 0;
+		maxWriteNanos = 0;
+	}
+
+	/**
+	 * Handles a connection closed by the robot or an error of the
+	 * channel. The disconnect is done in a new thread, so the selector
+	 * thread can continue serving the other interfaces.
+	 * 
+	 * @param e
+	 *            the error or <code>null</code> if the robot closed
+	 *            the connection
+	 */
+	void closedBySelector(IOException e) {
+		if (!connected || !lost.compareAndSet(false, true)) {
+			return;
+		}
+		logClass.warn(robotName,
+				I18n.getString("AbstractNioCommunication.log.connectionLost", //$NON-NLS-1$
+						getClass( ).getSimpleName( ),
+						e != null ? e.getMessage( ) : "EOF") //$NON-NLS-1$
+						+ Constants.LINE_SEPARATOR);
+		selector.cancel(channel, readBuffer, writeBuffer);
+		new Thread(robotName + "_Disconnect") { //$NON-NLS-1$
+
+			@Override
+			public void run() {
+				CommunicationManager.connectionLost(getRobotName( ));
+			}
+		}.start( );
+	}
+
+}
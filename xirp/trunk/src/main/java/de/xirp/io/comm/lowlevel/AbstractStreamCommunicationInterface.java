@@ -27,12 +27,15 @@ package de.xirp.io.comm.lowlevel;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.InvalidNameException;
 
-import javolution.util.FastList;
 import javolution.util.FastMap;
 
 import org.apache.commons.io.input.CountingInputStream;
@@ -49,7 +52,10 @@ import de.xirp.util.I18n;
 /**
  * An abstract default implementation for communication interface
  * which send <code>byte []</code> and receives over a
- * <code>InputStream</code>
+ * <code>InputStream</code><br/><br/>
+ * Data is sent by a thread which waits for data to be queued and
+ * then writes all pending data fragments at once with a single write
+ * and flush.
  * 
  * @author Matthias Gernand
  * @author Rabea Gransberger
@@ -62,23 +68,35 @@ public abstract class AbstractStreamCommunicationInterface extends
 	 */
 	private static RobotLogger logClass = RobotLogger.getLogger(AbstractStreamCommunicationInterface.class);
 
+	/**
+	 * Time in milliseconds the sending thread waits for new data
+	 * before checking if it should keep running
+	 */
+	private static final long SEND_WAIT_TIME = 250;
+	/**
+	 * Maximum number of bytes gathered into a single write
+	 */
+	private static final int MAX_WRITE_SIZE = 64 * 1024;
+
 	/**
 	 * <code>true</code> if connection to device established
 	 */
-	protected boolean connected = false;
+	protected volatile boolean connected = false;
 
 	/**
 	 * Time in milliseconds between two datums send
+	 * 
+	 * @deprecated data is sent as soon as it is queued, the field
+	 *             is not used anymore
 	 */
+	@Deprecated
 	protected int SEND_SLEEP_TIME = 15;
 
 	/**
-	 * Map which saves the sending status for each registered
-	 * periodically sending thread. If value is false, the thread does
-	 * not do anything. This is needed because there is no Thread.stop
-	 * method available.
+	 * Map which saves the periodic sends by their names. The data is
+	 * sent by the shared {@link PeriodicSendScheduler}.
 	 */
-	protected FastMap<String, Timer> periodicSenders = new FastMap<String, Timer>( ).setShared(true);
+	protected FastMap<String, PeriodicSend> periodicSenders = new FastMap<String, PeriodicSend>( ).setShared(true);
 	/**
 	 * Stream of data sent from the robot to the GUI
 	 */
@@ -93,14 +111,40 @@ public abstract class AbstractStreamCommunicationInterface extends
 	 * <code>true</code> if sending thread is active,
 	 * <code>false</code> otherwise
 	 */
-	protected boolean sending = false;
+	protected volatile boolean sending = false;
 	/**
 	 * Data is not send directly over the communication device. It's
 	 * stored in this structure and send by a Thread to be sure that
 	 * each data-fragment is sent even if the program is busy at the
 	 * moment the data originally should be sent
 	 */
-	private FastList<byte[]> toSend = new FastList<byte[]>( );
+	private final BlockingQueue<byte[]> toSend = new LinkedBlockingQueue<byte[]>( );
+	/**
+	 * The thread sending the queued data
+	 */
+	private Thread sendThread;
+	/**
+	 * Number of writes since the last statistics event
+	 */
+	private final AtomicLong writeCount = new AtomicLong( );
+	/**
+	 * Number of flushes since the last statistics event
+	 */
+	private final AtomicLong flushCount = new AtomicLong( );
+	/**
+	 * Number of bytes written since the last statistics event
+	 */
+	private final AtomicLong writtenBytes = new AtomicLong( );
+	/**
+	 * Sum of the write and flush durations in nanoseconds since the
+	 * last statistics event
+	 */
+	private final AtomicLong flushNanos = new AtomicLong( );
+	/**
+	 * Longest write and flush duration in nanoseconds since the last
+	 * statistics event
+	 */
+	private final AtomicLong maxFlushNanos = new AtomicLong( );
 
 	/**
 	 * Constructs a new communication interface plugin for the given
@@ -126,10 +170,12 @@ public abstract class AbstractStreamCommunicationInterface extends
 	}
 
 	/**
-	 * Sends data periodically.
+	 * Sends data periodically. The data is sent by the shared
+	 * {@link PeriodicSendScheduler}, periodic data due at the same
+	 * time is sent together.
 	 * 
 	 * @param name
-	 *            the name to use for the send timer
+	 *            the name to use for the periodic send
 	 * @param time
 	 *            the time interval in milliseconds between two sends
 	 * @param data
@@ -144,29 +190,8 @@ public abstract class AbstractStreamCommunicationInterface extends
 			throw new InvalidNameException(I18n.getString("AbstractCommunication.log.alreadyExcecutingThread") + name); //$NON-NLS-1$
 		}
 
-		Timer timer = new Timer(name);
-		timer.schedule(getSendPeriodicTask(data), 0, time);
-		periodicSenders.put(name, timer);
-	}
-
-	/**
-	 * Constructs a timer task which will send the given data array.
-	 * 
-	 * @param data
-	 *            byte array which will be send
-	 * @return the task to use within a timer
-	 */
-	private TimerTask getSendPeriodicTask(final byte[] data) {
-		TimerTask task = new TimerTask( ) {
-
-			@Override
-			public void run() {
-				if (connected) {
-					send(data);
-				}
-			}
-		};
-		return task;
+		periodicSenders.put(name, PeriodicSendScheduler.getInstance( )
+				.schedule(this, name, time, data));
 	}
 
 	/**
@@ -178,15 +203,27 @@ public abstract class AbstractStreamCommunicationInterface extends
 	 *         <code>false</code> otherwise
 	 */
 	public boolean stopSendPeriodically(String name) {
-		Timer timer = periodicSenders.get(name);
-		if (timer != null) {
-			timer.cancel( );
-			periodicSenders.remove(name);
+		PeriodicSend periodicSend = periodicSenders.remove(name);
+		if (periodicSend != null) {
+			periodicSend.cancel( );
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Gets the periodic send with the given name, f.e. for checking
+	 * its timing.
+	 * 
+	 * @param name
+	 *            the name of the periodic send
+	 * @return the periodic send or <code>null</code> if there is
+	 *         none with this name
+	 */
+	public PeriodicSend getPeriodicSend(String name) {
+		return periodicSenders.get(name);
+	}
+
 	/**
 	 * Stops to send data.
 	 * 
@@ -194,7 +231,7 @@ public abstract class AbstractStreamCommunicationInterface extends
 	 */
 	private boolean stopSending() {
 		// Disable periodical sending
-		for (FastMap.Entry<String, Timer> e = periodicSenders.head( ), end = periodicSenders.tail( ); (e = e.getNext( )) != end;) {
+		for (FastMap.Entry<String, PeriodicSend> e = periodicSenders.head( ), end = periodicSenders.tail( ); (e = e.getNext( )) != end;) {
 			e.getValue( ).cancel( );
 		}
 		periodicSenders.clear( );
@@ -202,6 +239,10 @@ public abstract class AbstractStreamCommunicationInterface extends
 		// do not send old data after a reconnect
 		toSend.clear( );
 		sending = false;
+		if (sendThread != null) {
+			sendThread.interrupt( );
+			sendThread = null;
+		}
 		return true;
 	}
 
@@ -210,7 +251,8 @@ public abstract class AbstractStreamCommunicationInterface extends
 	 * The data which should be send is read from an internal
 	 * structure. The GUI writes the data to this structure by calling
 	 * {@link #send(byte[])}. Furthermore a thread fires bytes
-	 * send/receive events from time to time.
+	 * send/receive events from time to time. The send events contain
+	 * the statistics of the sending thread.
 	 */
 	protected void startSend() {
 		if (sending) {
@@ -230,18 +272,28 @@ public abstract class AbstractStreamCommunicationInterface extends
 						in.available( );
 					}
 					catch (IOException e) {
-						CommunicationManager.disconnect(getRobotName( ));
+						statistics.receiveError( );
+						CommunicationManager.connectionLost(getRobotName( ));
 						logClass.debug(getRobotName( ), e.getMessage( ) +
 								Constants.LINE_SEPARATOR, e);
 					}
 
 					in.resetCount( );
 					out.resetCount( );
+					// the stream does not know about packets, the
+					// protocol counts them
+					statistics.receivedBytes(inCnt);
 
 					fireByteReceivedEvent(new ByteEvent(AbstractStreamCommunicationInterface.this,
 							new DataAmount(inCnt)));
 					fireByteSendEvent(new ByteEvent(AbstractStreamCommunicationInterface.this,
-							new DataAmount(outCnt)));
+							new DataAmount(outCnt),
+							toSend.size( ),
+							writeCount.getAndSet(0),
+							flushCount.getAndSet(0),
+							writtenBytes.getAndSet(0),
+							flushNanos.getAndSet(0),
+							maxFlushNanos.getAndSet(0)));
 					try {
 						Thread.sleep(250);
 					}
@@ -254,23 +306,32 @@ public abstract class AbstractStreamCommunicationInterface extends
 		};
 		sendReceive.start( );
 
-		Thread thread = new Thread(robotName + "_SendThread") { //$NON-NLS-1$
+		sendThread = new Thread(robotName + "_SendThread") { //$NON-NLS-1$
 
 			@Override
 			public void run() {
+				List<byte[]> pending = new ArrayList<byte[]>( );
+				byte[] buffer = new byte[1024];
 				// Run the Thread until receiving
 				// was disabled or Comm disconnected
 				while (sending && isConnected( )) {
 					try {
-						if (!toSend.isEmpty( )) {
-							byte[] value = toSend.removeFirst( );
-
-							if (value != null) {
-								out.write(value);
-							}
+						// wait for data and take all pending data
+						byte[] value = toSend.poll(SEND_WAIT_TIME,
+								TimeUnit.MILLISECONDS);
+						if (value == null) {
+							continue;
 						}
+						pending.add(value);
+						toSend.drainTo(pending);
+						buffer = write(pending, buffer);
+					}
+					catch (InterruptedException e) {
+						// check if the thread should keep running
+						continue;
 					}
 					catch (IOException e) {
+						statistics.sendError( );
 						logClass.error(robotName,
 								I18n.getString("AbstractCommunication.log.errorSendingOver", //$NON-NLS-1$
 										getClass( ).getSimpleName( ),
@@ -278,34 +339,110 @@ public abstract class AbstractStreamCommunicationInterface extends
 										Constants.LINE_SEPARATOR,
 								e);
 					}
-					// Need to sleep so that
-					// other threads can run
-					try {
-						sleep(SEND_SLEEP_TIME);
-					}
-					catch (Exception e) {
-						// do nothing
+					finally {
+						pending.clear( );
 					}
 				}
 			}
 		};
 		// Start Receiving Thread
-		thread.start( );
+		sendThread.start( );
 		logClass.debug(robotName,
 				I18n.getString("AbstractCommunication.log.runningSending") + Constants.LINE_SEPARATOR); //$NON-NLS-1$
 	}
 
 	/**
+	 * Writes the given data fragments to the output stream. The
+	 * fragments are gathered into the given buffer, so they are
+	 * written with a single write if their size does not exceed
+	 * {@link #MAX_WRITE_SIZE}. The stream is flushed once afterwards.
+	 * 
+	 * @param pending
+	 *            the data fragments to write
+	 * @param buffer
+	 *            the buffer for gathering the fragments
+	 * @return the buffer to use for the next call, which is larger
+	 *         than the given buffer if it was too small
+	 * @throws IOException
+	 *             if writing to the stream failed
+	 */
+	private byte[] write(List<byte[]> pending, byte[] buffer)
+			throws IOException {
+		long start = System.nanoTime( );
+		int writes = 0;
+		int length = 0;
+		int total = 0;
+		int packets = 0;
+		for (byte[] value : pending) {
+			if (value == null) {
+				continue;
+			}
+			packets++;
+			if (length + value.length > buffer.length) {
+				if (length + value.length <= MAX_WRITE_SIZE) {
+					byte[] aux = new byte[Math.min(MAX_WRITE_SIZE,
+							Math.max(buffer.length * 2, length + value.length))];
+					System.arraycopy(buffer, 0, aux, 0, length);
+					buffer = aux;
+				}
+				else if (length > 0) {
+					out.write(buffer, 0, length);
+					writes++;
+					length = 0;
+				}
+			}
+			if (value.length > buffer.length) {
+				out.write(value);
+				writes++;
+			}
+			else {
+				System.arraycopy(value, 0, buffer, length, value.length);
+				length += value.length;
+			}
+			total += value.length;
+		}
+		if (length > 0) {
+			out.write(buffer, 0, length);
+			writes++;
+		}
+		out.flush( );
+
+		long duration = System.nanoTime( ) - start;
+		writeCount.addAndGet(writes);
+		flushCount.incrementAndGet( );
+		writtenBytes.addAndGet(total);
+		statistics.sent(total, packets);
+		flushNanos.addAndGet(duration);
+		long max = maxFlushNanos.get( );
+		while (duration > max && !maxFlushNanos.compareAndSet(max, duration)) {
+			max = maxFlushNanos.get( );
+		}
+		return buffer;
+	}
+
+	/**
+	 * Queues the given data for sending. The data is sent by the
+	 * sending thread, so this method may be called from any thread.
+	 * 
 	 * @param value
 	 *            the byte array to send
 	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#send(java.lang.Object)
 	 */
 	public void send(byte[] value) {
-		if (connected) {
-			toSend.add(value);
+		if (connected && value != null) {
+			toSend.offer(value);
 		}
 	}
 
+	/**
+	 * Gets the number of data fragments waiting to be sent.
+	 * 
+	 * @return the number of queued data fragments
+	 */
+	public int getSendQueueDepth() {
+		return toSend.size( );
+	}
+
 	/**
 	 * Disconnects from the interface, stops sending, closes the
 	 * streams and fires a disconnect event.
@@ -29,7 +29,10 @@ import java.util.EventObject;
 import de.xirp.io.comm.DataAmount;
 
 /**
- * Event which is thrown when bytes are send or received.
+ * Event which is thrown when bytes are send or received.<br/><br/>
+ * Events for sent bytes of stream based communication interfaces
+ * additionally contain statistics of the sending thread since the
+ * last event, like the number of writes and the flush latency.
  * 
  * @author Matthias Gernand
  */
@@ -44,6 +47,31 @@ public class ByteEvent extends EventObject {
 	 * The data-amount which was send or received
 	 */
 	private DataAmount amount;
+	/**
+	 * Number of data fragments waiting to be sent
+	 */
+	private int queueDepth = 0;
+	/**
+	 * Number of writes to the stream
+	 */
+	private long writeCount = 0;
+	/**
+	 * Number of flushes, a flush writes all data pending at once and
+	 * may need several writes
+	 */
+	private long flushCount = 0;
+	/**
+	 * Number of bytes written to the stream
+	 */
+	private long writtenBytes = 0;
+	/**
+	 * Sum of the durations of writing and flushing in nanoseconds
+	 */
+	private long flushNanos = 0;
+	/**
+	 * Longest duration of writing and flushing in nanoseconds
+	 */
+	private long maxFlushNanos = 0;
 
 	/**
 	 * Constructs a new event with the given data amount.
@@ -58,6 +86,41 @@ public class ByteEvent extends EventObject {
 		this.amount = amount;
 	}
 
+	/**
+	 * Constructs a new event with the given data amount and
+	 * statistics of the sending thread.
+	 * 
+	 * @param source
+	 *            the source which threw the event
+	 * @param amount
+	 *            the data amount
+	 * @param queueDepth
+	 *            the number of data fragments waiting to be sent
+	 * @param writeCount
+	 *            the number of writes to the stream
+	 * @param flushCount
+	 *            the number of flushes of pending data
+	 * @param writtenBytes
+	 *            the number of bytes written to the stream
+	 * @param flushNanos
+	 *            the sum of the durations of writing and flushing in
+	 *            nanoseconds
+	 * @param maxFlushNanos
+	 *            the longest duration of writing and flushing in
+	 *            nanoseconds
+	 */
+	public ByteEvent(Object source, DataAmount amount, int queueDepth,
+			long writeCount, long flushCount, long writtenBytes,
+			long flushNanos, long maxFlushNanos) {
+		this(source, amount);
+		this.queueDepth = queueDepth;
+		this.writeCount = writeCount;
+		this.flushCount = flushCount;
+		this.writtenBytes = writtenBytes;
+		this.flushNanos = flushNanos;
+		this.maxFlushNanos = maxFlushNanos;
+	}
+
 	/**
 	 * Gets the data amount which was send or received when throwing
 	 * this event.
@@ -68,4 +131,65 @@ public class ByteEvent extends EventObject {
 		return amount;
 	}
 
+	/**
+	 * Gets the number of data fragments which were waiting to be sent
+	 * when throwing this event.
+	 * 
+	 * @return the queue depth
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * Gets the number of writes to the stream since the last event.
+	 * All data fragments pending at once are gathered into one write.
+	 * 
+	 * @return the number of writes
+	 */
+	public long getWriteCount() {
+		return writeCount;
+	}
+
+	/**
+	 * Gets the number of flushes of pending data since the last event.
+	 * 
+	 * @return the number of flushes
+	 */
+	public long getFlushCount() {
+		return flushCount;
+	}
+
+	/**
+	 * Gets the average number of bytes per write since the last
+	 * event.
+	 * 
+	 * @return the bytes per write or <code>0</code> if nothing was
+	 *         written
+	 */
+	public double getBytesPerWrite() {
+		return writeCount > 0 ? (double) writtenBytes / writeCount : 0;
+	}
+
+	/**
+	 * Gets the average duration of a flush, including all its
+	 * writes, since the last event.
+	 * 
+	 * @return the average latency in nanoseconds or <code>0</code>
+	 *         if nothing was flushed
+	 */
+	public long getAverageFlushNanos() {
+		return flushCount > 0 ? flushNanos / flushCount : 0;
+	}
+
+	/**
+	 * Gets the longest duration of writing and flushing since the
+	 * last event.
+	 * 
+	 * @return the longest latency in nanoseconds
+	 */
+	public long getMaxFlushNanos() {
+		return maxFlushNanos;
+	}
+
 }
@@ -0,0 +1,290 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * ByteRingBuffer.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * A bounded ring buffer of bytes for one writing and one reading
+ * thread, accessed through an output and an input stream.<br/><br/>
+ * The positions are published through volatile fields, so writing
+ * and reading do not take a lock as long as the buffer is neither
+ * full nor empty. Only a thread which has to wait takes the lock of
+ * the buffer. Closing either stream closes the buffer: the reader
+ * gets the remaining bytes and then the end of the stream, the
+ * writer gets an {@link IOException}.
+ * 
+ * @author agent
+ * @see LoopbackCommunicationInterface
+ */
+final class ByteRingBuffer {
+
+	/**
+	 * The buffered bytes
+	 */
+	private final byte[] buffer;
+	/**
+	 * Mask for calculating the index of a position
+	 */
+	private final int mask;
+	/**
+	 * Number of bytes ever written
+	 */
+	private volatile long tail;
+	/**
+	 * Number of bytes ever read
+	 */
+	private volatile long head;
+	/**
+	 * Flag showing if the buffer was closed
+	 */
+	private volatile boolean closed;
+	/**
+	 * Flag showing if the reader waits for data
+	 */
+	private volatile boolean readerWaiting;
+	/**
+	 * Flag showing if the writer waits for space
+	 */
+	private volatile boolean writerWaiting;
+	/**
+	 * Lock for waiting threads
+	 */
+	private final Object lock = new Object( );
+
+	/**
+	 * The stream for reading from the buffer
+	 */
+	private final InputStream input = new InputStream( ) {
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return ByteRingBuffer.this.read(b, off, len);
+		}
+
+		@Override
+		public int available() throws IOException {
+			int available = (int) (tail - head);
+			if (available == 0 && closed) {
+				throw new IOException("Ring buffer closed"); //$NON-NLS-1$
+			}
+			return available;
+		}
+
+		@Override
+		public void close() {
+			ByteRingBuffer.this.close( );
+		}
+	};
+
+	/**
+	 * The stream for writing to the buffer
+	 */
+	private final OutputStream output = new OutputStream( ) {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ByteRingBuffer.this.write(b, off, len);
+		}
+
+		@Override
+		public void close() {
+			ByteRingBuffer.this.close( );
+		}
+	};
+
+	/**
+	 * Constructs a new ring buffer.
+	 * 
+	 * @param capacity
+	 *            the minimal capacity in bytes, rounded up to a power
+	 *            of two
+	 */
+	ByteRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+		buffer = new byte[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Gets the stream for reading from the buffer.
+	 * 
+	 * @return the input stream
+	 */
+	InputStream getInputStream() {
+		return input;
+	}
+
+	/**
+	 * Gets the stream for writing to the buffer.
+	 * 
+	 * @return the output stream
+	 */
+	OutputStream getOutputStream() {
+		return output;
+	}
+
+	/**
+	 * Writes the given bytes, waiting for space if the buffer is
+	 * full.
+	 * 
+	 * @param b
+	 *            the bytes
+	 * @param off
+	 *            the offset of the first byte
+	 * @param len
+	 *            the number of bytes
+	 * @throws IOException
+	 *             if the buffer is closed or the writer was
+	 *             interrupted
+	 */
+	private void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (closed) {
+				throw new IOException("Ring buffer closed"); //$NON-NLS-1$
+			}
+			long t = tail;
+			int free = buffer.length - (int) (t - head);
+			if (free == 0) {
+				synchronized (lock) {
+					writerWaiting = true;
+					try {
+						while (!closed && tail - head == buffer.length) {
+							lock.wait( );
+						}
+					}
+					catch (InterruptedException e) {
+						throw new InterruptedIOException( );
+					}
+					finally {
+						writerWaiting = false;
+					}
+				}
+				continue;
+			}
+			int count = Math.min(len, free);
+			int index = (int) t & mask;
+			int first = Math.min(count, buffer.length - index);
+			System.arraycopy(b, off, buffer, index, first);
+			System.arraycopy(b, off + first, buffer, 0, count - first);
+			tail = t + count;
+			off += count;
+			len -= count;
+			if (readerWaiting) {
+				synchronized (lock) {
+					lock.notifyAll( );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the available bytes up to the given length, waiting for
+	 * data if the buffer is empty.
+	 * 
+	 * @param b
+	 *            the buffer to read into
+	 * @param off
+	 *            the offset in the buffer
+	 * @param len
+	 *            the maximum number of bytes to read
+	 * @return the number of bytes read or <code>-1</code> if the
+	 *         buffer was closed and all bytes were read
+	 * @throws IOException
+	 *             if the reader was interrupted
+	 */
+	private int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		long h = head;
+		int available = (int) (tail - h);
+		if (available == 0) {
+			synchronized (lock) {
+				readerWaiting = true;
+				try {
+					while (!closed && tail == h) {
+						lock.wait( );
+					}
+				}
+				catch (InterruptedException e) {
+					throw new InterruptedIOException( );
+				}
+				finally {
+					readerWaiting = false;
+				}
+			}
+			available = (int) (tail - h);
+			if (available == 0) {
+				return -1;
+			}
+		}
+		int count = Math.min(len, available);
+		int index = (int) h & mask;
+		int first = Math.min(count, buffer.length - index);
+		System.arraycopy(buffer, index, b, off, first);
+		System.arraycopy(buffer, 0, b, off + first, count - first);
+		head = h + count;
+		if (writerWaiting) {
+			synchronized (lock) {
+				lock.notifyAll( );
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the capacity of the buffer.
+	 * 
+	 * @return the capacity in bytes
+	 */
+	int getCapacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Closes the buffer and wakes up waiting threads.
+	 */
+	void close() {
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll( );
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DirectBufferPool.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct byte buffers of a fixed size which are used for
+ * reading from and writing to channels.<br/><br/>Direct buffers are
+ * expensive to allocate and are not freed until they are garbage
+ * collected, so buffers are returned to the pool when a connection
+ * is closed and reused by the next connection.
+ * 
+ * @author agent
+ */
+public final class DirectBufferPool {
+
+	/**
+	 * Size of the buffers in bytes
+	 */
+	public static final int BUFFER_SIZE = 64 * 1024;
+	/**
+	 * Maximum number of buffers kept in the pool
+	 */
+	private static final int MAX_POOLED = 64;
+
+	/**
+	 * The free buffers
+	 */
+	private static final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>( );
+	/**
+	 * Number of free buffers
+	 */
+	private static final AtomicInteger pooled = new AtomicInteger( );
+
+	/**
+	 * Utility class
+	 */
+	private DirectBufferPool() {
+		// static access only
+	}
+
+	/**
+	 * Takes a buffer from the pool or allocates a new one if the pool
+	 * is empty.
+	 * 
+	 * @return a cleared direct buffer of {@link #BUFFER_SIZE} bytes
+	 */
+	public static ByteBuffer acquire() {
+		ByteBuffer buffer = pool.poll( );
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		pooled.decrementAndGet( );
+		buffer.clear( );
+		return buffer;
+	}
+
+	/**
+	 * Returns the given buffer to the pool. The buffer must not be
+	 * used by the caller afterwards.
+	 * 
+	 * @param buffer
+	 *            the buffer to return, buffers not taken from this
+	 *            pool are ignored
+	 */
+	public static void release(ByteBuffer buffer) {
+		if (buffer == null || !buffer.isDirect( )
+				|| buffer.capacity( ) != BUFFER_SIZE) {
+			return;
+		}
+		if (pooled.incrementAndGet( ) <= MAX_POOLED) {
+			pool.offer(buffer);
+		}
+		else {
+			pooled.decrementAndGet( );
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * IByteBufferListener.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+import java.nio.ByteBuffer;
+import java.util.EventListener;
+
+/**
+ * Listener interface which is notified when bytes are received over
+ * an {@link AbstractNioCommunicationInterface}.
+ * 
+ * @author agent
+ */
+public interface IByteBufferListener extends EventListener {
+
+	/**
+	 * Called when bytes were received. The given buffer is the
+	 * receive buffer of the interface, the received bytes are between
+	 * the position and the limit of the buffer. No data is copied, so
+	 * the buffer must not be stored or modified except for its
+	 * position.<br/><br/>The listener should advance the position
+	 * over all bytes it used. Bytes after the position, f.e. an
+	 * incomplete message, are kept and passed to the listener again
+	 * together with the next received bytes.
+	 * 
+	 * @param data
+	 *            the buffer with the received bytes
+	 */
+	public void bytesReceived(ByteBuffer data);
+
+}
@@ -0,0 +1,189 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * LoopbackCommunicationInterface.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import de.xirp.io.event.ConnectionEvent;
+import de.xirp.io.logging.RobotLogger;
+import de.xirp.plugin.PluginInfo;
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * A communication interface which connects to a simulated robot in
+ * the same process instead of a device.<br/><br/>The data is passed
+ * through in-memory ring buffers. The simulated robot writes the
+ * data it sends to {@link #getRobotOutputStream()}, which is
+ * received by the protocol, and reads the data sent by the
+ * application from {@link #getRobotInputStream()}. In echo mode the
+ * sent data is received again instead.<br/><br/>The interface is
+ * meant for measuring and testing protocols and handlers without
+ * hardware. Closing the robot output stream simulates a lost
+ * connection.
+ * 
+ * @author agent
+ */
+public class LoopbackCommunicationInterface extends
+		AbstractStreamCommunicationInterface {
+
+	/**
+	 * Log4j Logger for this class
+	 */
+	private static RobotLogger logClass = RobotLogger.getLogger(LoopbackCommunicationInterface.class);
+
+	/**
+	 * Default capacity of each ring buffer in bytes
+	 */
+	public static final int DEFAULT_CAPACITY = 1024 * 1024;
+
+	/**
+	 * Capacity of each ring buffer in bytes
+	 */
+	private int capacity = DEFAULT_CAPACITY;
+	/**
+	 * Flag showing if sent data is received again
+	 */
+	private boolean echo = false;
+	/**
+	 * Buffer for the data sent by the robot
+	 */
+	private ByteRingBuffer fromRobot;
+	/**
+	 * Buffer for the data sent to the robot, <code>null</code> in
+	 * echo mode
+	 */
+	private ByteRingBuffer toRobot;
+
+	/**
+	 * Constructs a new loopback interface for the given robot and
+	 * information about the plugin itself.
+	 * 
+	 * @param robotName
+	 *            the name of the robot this interface is for
+	 * @param ownInfo
+	 *            information about this plugin
+	 */
+	public LoopbackCommunicationInterface(String robotName, PluginInfo ownInfo) {
+		super(robotName, ownInfo);
+	}
+
+	/**
+	 * Sets the capacity of the ring buffers. Takes effect on the next
+	 * connect.
+	 * 
+	 * @param capacity
+	 *            the capacity in bytes, rounded up to a power of two
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Sets if the data sent over this interface is received again.
+	 * Takes effect on the next connect.
+	 * 
+	 * @param echo
+	 *            <code>true</code> to receive the sent data
+	 */
+	public void setEcho(boolean echo) {
+		this.echo = echo;
+	}
+
+	/**
+	 * Creates the ring buffers and starts sending.
+	 * 
+	 * @see de.xirp.io.comm.lowlevel.ICommunicationInterface#connect()
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean connect() {
+		if (connected) {
+			return true;
+		}
+		fromRobot = new ByteRingBuffer(capacity);
+		toRobot = echo ? null : new ByteRingBuffer(capacity);
+		in = new CountingInputStream(fromRobot.getInputStream( ));
+		out = new CountingOutputStream(echo ? fromRobot.getOutputStream( )
+				: toRobot.getOutputStream( ));
+		connected = true;
+		startSend( );
+
+		fireConnectEvent(new ConnectionEvent(this, robotName));
+		logClass.info(robotName,
+				I18n.getString("LoopbackCommunication.log.connected", //$NON-NLS-1$
+						fromRobot.getCapacity( ),
+						echo) +
+						Constants.LINE_SEPARATOR);
+		return true;
+	}
+
+	/**
+	 * Gets the stream the simulated robot writes the data to, which
+	 * is received by the protocol. Closing the stream simulates a
+	 * lost connection.
+	 * 
+	 * @return the stream or <code>null</code> if not connected
+	 */
+	public OutputStream getRobotOutputStream() {
+		ByteRingBuffer buffer = fromRobot;
+		return buffer != null ? buffer.getOutputStream( ) : null;
+	}
+
+	/**
+	 * Gets the stream the simulated robot reads the data sent by the
+	 * application from.
+	 * 
+	 * @return the stream or <code>null</code> if not connected or in
+	 *         echo mode
+	 */
+	public InputStream getRobotInputStream() {
+		ByteRingBuffer buffer = toRobot;
+		return buffer != null ? buffer.getInputStream( ) : null;
+	}
+
+	/**
+	 * The loopback interface has no translated name.
+	 * 
+	 * @return <code>null</code>
+	 * @see de.xirp.plugin.IPlugable#getNameKey()
+	 */
+	public String getNameKey() {
+		return null;
+	}
+
+	/**
+	 * The loopback interface has no translated description.
+	 * 
+	 * @return <code>null</code>
+	 * @see de.xirp.plugin.IPlugable#getDescriptionKey()
+	 */
+	public String getDescriptionKey() {
+		return null;
+	}
+}
@@ -0,0 +1,249 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * NioSelector.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * A single thread serving the channels of all
+ * {@link AbstractNioCommunicationInterface}s with one selector.<br/><br/>
+ * Registrations and changes of the interest set are executed by the
+ * selector thread itself, so other threads never block on the
+ * selector. The thread also fires the byte statistics of all
+ * interfaces periodically.
+ * 
+ * @author agent
+ */
+final class NioSelector implements Runnable {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logClass = Logger.getLogger(NioSelector.class);
+
+	/**
+	 * Time in milliseconds between two statistic events
+	 */
+	static final long STATS_INTERVAL = 250;
+
+	/**
+	 * The shared instance
+	 */
+	private static NioSelector instance;
+
+	/**
+	 * The selector
+	 */
+	private final Selector selector;
+	/**
+	 * The thread running the selector
+	 */
+	private final Thread thread;
+	/**
+	 * Tasks to be executed by the selector thread
+	 */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>( );
+	/**
+	 * The registered channels and their interfaces, only accessed by
+	 * the selector thread
+	 */
+	private final Map<SocketChannel, AbstractNioCommunicationInterface> interfaces = new HashMap<SocketChannel, AbstractNioCommunicationInterface>( );
+
+	/**
+	 * Opens the selector and starts the thread.
+	 * 
+	 * @throws IOException
+	 *             if the selector could not be opened
+	 */
+	private NioSelector() throws IOException {
+		selector = Selector.open( );
+		thread = new Thread(this, "NioSelector"); //$NON-NLS-1$
+		thread.setDaemon(true);
+		thread.start( );
+	}
+
+	/**
+	 * Gets the shared instance and starts it if necessary.
+	 * 
+	 * @return the shared selector
+	 * @throws IOException
+	 *             if the selector could not be opened
+	 */
+	static synchronized NioSelector getInstance() throws IOException {
+		if (instance == null) {
+			instance = new NioSelector( );
+		}
+		return instance;
+	}
+
+	/**
+	 * Executes the given task in the selector thread.
+	 * 
+	 * @param task
+	 *            the task to execute
+	 */
+	void execute(Runnable task) {
+		tasks.offer(task);
+		if (Thread.currentThread( ) != thread) {
+			selector.wakeup( );
+		}
+	}
+
+	/**
+	 * Registers the given channel for reading.
+	 * 
+	 * @param ci
+	 *            the interface the channel belongs to
+	 * @param channel
+	 *            the connected non blocking channel
+	 */
+	void register(final AbstractNioCommunicationInterface ci,
+			final SocketChannel channel) {
+		execute(new Runnable( ) {
+
+			public void run() {
+				try {
+					channel.register(selector, SelectionKey.OP_READ, ci);
+					interfaces.put(channel, ci);
+				}
+				catch (ClosedChannelException e) {
+					ci.closedBySelector(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes the given channel from the selector and returns the
+	 * buffers of the connection to the {@link DirectBufferPool}.
+	 * 
+	 * @param channel
+	 *            the channel
+	 * @param readBuffer
+	 *            the read buffer of the connection
+	 * @param writeBuffer
+	 *            the write buffer of the connection
+	 */
+	void cancel(final SocketChannel channel, final ByteBuffer readBuffer,
+			final ByteBuffer writeBuffer) {
+		execute(new Runnable( ) {
+
+			public void run() {
+				SelectionKey key = channel.keyFor(selector);
+				if (key != null) {
+					key.cancel( );
+				}
+				if (interfaces.remove(channel) != null) {
+					DirectBufferPool.release(readBuffer);
+					DirectBufferPool.release(writeBuffer);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Adds writing to the interest set of the given channel.
+	 * 
+	 * @param channel
+	 *            the channel which has data to write
+	 */
+	void requestWrite(final SocketChannel channel) {
+		execute(new Runnable( ) {
+
+			public void run() {
+				SelectionKey key = channel.keyFor(selector);
+				if (key != null && key.isValid( )) {
+					key.interestOps(key.interestOps( ) | SelectionKey.OP_WRITE);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Selects ready channels and lets the interfaces read and write
+	 * until the application exits.
+	 * 
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		long nextStats = System.currentTimeMillis( ) + STATS_INTERVAL;
+		while (true) {
+			try {
+				selector.select(STATS_INTERVAL);
+
+				Runnable task;
+				while ((task = tasks.poll( )) != null) {
+					task.run( );
+				}
+
+				Iterator<SelectionKey> it = selector.selectedKeys( ).iterator( );
+				while (it.hasNext( )) {
+					SelectionKey key = it.next( );
+					it.remove( );
+					AbstractNioCommunicationInterface ci = (AbstractNioCommunicationInterface) key.attachment( );
+					if (key.isValid( ) && key.isReadable( )) {
+						ci.handleRead( );
+					}
+					if (key.isValid( ) && key.isWritable( )) {
+						if (!ci.handleWrite( ) && key.isValid( )) {
+							key.interestOps(key.interestOps( )
+									& ~SelectionKey.OP_WRITE);
+						}
+					}
+				}
+
+				long now = System.currentTimeMillis( );
+				if (now >= nextStats) {
+					nextStats = now + STATS_INTERVAL;
+					for (AbstractNioCommunicationInterface ci : interfaces.values( )) {
+						ci.fireStatistics( );
+					}
+				}
+			}
+			catch (Exception e) {
+				// keep serving the other interfaces
+				logClass.error(I18n.getString("NioSelector.log.error", //$NON-NLS-1$
+						e.getMessage( ))
+						+ Constants.LINE_SEPARATOR, e);
+			}
+		}
+	}
+
+}
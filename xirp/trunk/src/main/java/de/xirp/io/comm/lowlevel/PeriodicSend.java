@@ -0,0 +1,197 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * PeriodicSend.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+/**
+ * Data which is sent periodically over a communication interface by
+ * the {@link PeriodicSendScheduler}.<br/><br/>The object also holds
+ * statistics about the timing of the sends. The jitter of a send is
+ * the difference between the time it was due and the time it was
+ * actually sent.
+ * 
+ * @author agent
+ */
+public final class PeriodicSend {
+
+	/**
+	 * The interface to send over
+	 */
+	final ICommunicationInterface<byte[], ?> target;
+	/**
+	 * The name of the periodic send
+	 */
+	private final String name;
+	/**
+	 * The data to send
+	 */
+	final byte[] data;
+	/**
+	 * The period in nanoseconds
+	 */
+	final long periodNanos;
+	/**
+	 * Time in nanoseconds the next send is due, only used by the
+	 * scheduler
+	 */
+	long deadline;
+	/**
+	 * Flag showing if the periodic send was cancelled
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Number of sends
+	 */
+	private volatile long sendCount = 0;
+	/**
+	 * Number of sends skipped because the scheduler was late by more
+	 * than a period
+	 */
+	private volatile long missedCount = 0;
+	/**
+	 * Sum of the jitter of all sends in nanoseconds
+	 */
+	private volatile long jitterNanos = 0;
+	/**
+	 * Largest jitter in nanoseconds
+	 */
+	private volatile long maxJitterNanos = 0;
+
+	/**
+	 * Constructs a new periodic send.
+	 * 
+	 * @param target
+	 *            the interface to send over
+	 * @param name
+	 *            the name of the periodic send
+	 * @param periodNanos
+	 *            the period in nanoseconds
+	 * @param data
+	 *            the data to send
+	 */
+	PeriodicSend(ICommunicationInterface<byte[], ?> target, String name,
+			long periodNanos, byte[] data) {
+		this.target = target;
+		this.name = name;
+		this.periodNanos = periodNanos;
+		this.data = data;
+	}
+
+	/**
+	 * Records a send and calculates the time of the next send. Called
+	 * by the scheduler thread only.
+	 * 
+	 * @param now
+	 *            the current time in nanoseconds
+	 */
+	void sent(long now) {
+		long jitter = Math.abs(now - deadline);
+		sendCount++;
+		jitterNanos += jitter;
+		if (jitter > maxJitterNanos) {
+			maxJitterNanos = jitter;
+		}
+		// fixed rate, so the sends do not drift
+		deadline += periodNanos;
+		if (deadline <= now) {
+			long missed = (now - deadline) / periodNanos + 1;
+			missedCount += missed;
+			deadline += missed * periodNanos;
+		}
+	}
+
+	/**
+	 * Stops sending the data.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Checks if the periodic send was cancelled.
+	 * 
+	 * @return <code>true</code> if cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Gets the name of the periodic send.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the period.
+	 * 
+	 * @return the period in milliseconds
+	 */
+	public long getPeriod() {
+		return periodNanos / 1000000;
+	}
+
+	/**
+	 * Gets the number of sends.
+	 * 
+	 * @return the number of sends
+	 */
+	public long getSendCount() {
+		return sendCount;
+	}
+
+	/**
+	 * Gets the number of sends which were skipped because the
+	 * scheduler was late by more than a period.
+	 * 
+	 * @return the number of skipped sends
+	 */
+	public long getMissedCount() {
+		return missedCount;
+	}
+
+	/**
+	 * Gets the average jitter of the sends.
+	 * 
+	 * @return the average jitter in nanoseconds
+	 */
+	public long getAverageJitterNanos() {
+		long count = sendCount;
+		return count > 0 ? jitterNanos / count : 0;
+	}
+
+	/**
+	 * Gets the largest jitter of the sends.
+	 * 
+	 * @return the largest jitter in nanoseconds
+	 */
+	public long getMaxJitterNanos() {
+		return maxJitterNanos;
+	}
+
+}
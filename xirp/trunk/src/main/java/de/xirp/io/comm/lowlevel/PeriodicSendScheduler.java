@@ -0,0 +1,277 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * PeriodicSendScheduler.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.lowlevel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * A single thread sending the periodic data of all communication
+ * interfaces.<br/><br/>The periodic sends are ordered by the time
+ * their next send is due. Sends which are due within
+ * {@link #COALESCE_NANOS} of each other are sent together, the data
+ * of all sends for the same interface is joined and sent with a
+ * single call of
+ * {@link ICommunicationInterface#send(Object)}.<br/><br/>The sends
+ * are scheduled at a fixed rate with nanosecond precision, the
+ * difference between the due and the actual time of each send is
+ * recorded in the {@link PeriodicSend}.
+ * 
+ * @author agent
+ */
+public final class PeriodicSendScheduler {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logClass = Logger.getLogger(PeriodicSendScheduler.class);
+
+	/**
+	 * Sends due within this time in nanoseconds are sent together
+	 */
+	private static final long COALESCE_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+	/**
+	 * The shared instance
+	 */
+	private static PeriodicSendScheduler instance;
+
+	/**
+	 * The scheduled sends ordered by the time they are due
+	 */
+	private final PriorityQueue<PeriodicSend> queue = new PriorityQueue<PeriodicSend>(16,
+			new Comparator<PeriodicSend>( ) {
+
+				public int compare(PeriodicSend s1, PeriodicSend s2) {
+					long diff = s1.deadline - s2.deadline;
+					return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+				}
+			});
+	/**
+	 * Lock for the queue
+	 */
+	private final ReentrantLock lock = new ReentrantLock( );
+	/**
+	 * Signaled when a send was added to the queue
+	 */
+	private final Condition added = lock.newCondition( );
+
+	/**
+	 * Starts the scheduler thread.
+	 */
+	private PeriodicSendScheduler() {
+		Thread thread = new Thread("PeriodicSendScheduler") { //$NON-NLS-1$
+
+			@Override
+			public void run() {
+				runScheduler( );
+			}
+		};
+		thread.setDaemon(true);
+		thread.start( );
+	}
+
+	/**
+	 * Gets the shared scheduler.
+	 * 
+	 * @return the scheduler
+	 */
+	public static synchronized PeriodicSendScheduler getInstance() {
+		if (instance == null) {
+			instance = new PeriodicSendScheduler( );
+		}
+		return instance;
+	}
+
+	/**
+	 * Schedules the given data to be sent periodically over the given
+	 * interface. The first send is done immediately. Data is only
+	 * sent while the interface is connected.
+	 * 
+	 * @param target
+	 *            the interface to send over
+	 * @param name
+	 *            the name of the periodic send
+	 * @param period
+	 *            the time in milliseconds between two sends
+	 * @param data
+	 *            the data to send
+	 * @return the scheduled send, use {@link PeriodicSend#cancel()}
+	 *         to stop sending
+	 */
+	public PeriodicSend schedule(ICommunicationInterface<byte[], ?> target,
+			String name, long period, byte[] data) {
+		PeriodicSend send = new PeriodicSend(target,
+				name,
+				TimeUnit.MILLISECONDS.toNanos(Math.max(1, period)),
+				data);
+		send.deadline = System.nanoTime( );
+		lock.lock( );
+		try {
+			queue.add(send);
+			added.signal( );
+		}
+		finally {
+			lock.unlock( );
+		}
+		return send;
+	}
+
+	/**
+	 * Waits for the next due sends, sends them and schedules them
+	 * again.
+	 */
+	private void runScheduler() {
+		List<PeriodicSend> due = new ArrayList<PeriodicSend>( );
+		Map<ICommunicationInterface<byte[], ?>, List<PeriodicSend>> targets = new IdentityHashMap<ICommunicationInterface<byte[], ?>, List<PeriodicSend>>( );
+		while (true) {
+			lock.lock( );
+			try {
+				awaitDue( );
+				long now = System.nanoTime( );
+				PeriodicSend send;
+				while ((send = queue.peek( )) != null
+						&& send.deadline - now <= COALESCE_NANOS) {
+					queue.poll( );
+					if (!send.isCancelled( )) {
+						due.add(send);
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				continue;
+			}
+			finally {
+				lock.unlock( );
+			}
+
+			long now = System.nanoTime( );
+			for (PeriodicSend send : due) {
+				List<PeriodicSend> sends = targets.get(send.target);
+				if (sends == null) {
+					sends = new ArrayList<PeriodicSend>(2);
+					targets.put(send.target, sends);
+				}
+				sends.add(send);
+				send.sent(now);
+			}
+			for (Map.Entry<ICommunicationInterface<byte[], ?>, List<PeriodicSend>> entry : targets.entrySet( )) {
+				send(entry.getKey( ), entry.getValue( ));
+			}
+			targets.clear( );
+
+			lock.lock( );
+			try {
+				for (PeriodicSend send : due) {
+					if (!send.isCancelled( )) {
+						queue.add(send);
+					}
+				}
+			}
+			finally {
+				lock.unlock( );
+			}
+			due.clear( );
+		}
+	}
+
+	/**
+	 * Waits until the first send of the queue is due. The lock has
+	 * to be held by the caller.
+	 * 
+	 * @throws InterruptedException
+	 *             if the thread was interrupted while waiting
+	 */
+	private void awaitDue() throws InterruptedException {
+		while (true) {
+			PeriodicSend next = queue.peek( );
+			if (next == null) {
+				added.await( );
+			}
+			else if (next.isCancelled( )) {
+				queue.poll( );
+			}
+			else {
+				long wait = next.deadline - System.nanoTime( );
+				if (wait <= COALESCE_NANOS) {
+					return;
+				}
+				added.awaitNanos(wait);
+			}
+		}
+	}
+
+	/**
+	 * Sends the data of the given sends joined together over the
+	 * given interface.
+	 * 
+	 * @param target
+	 *            the interface
+	 * @param sends
+	 *            the due sends for the interface
+	 */
+	private static void send(ICommunicationInterface<byte[], ?> target,
+			List<PeriodicSend> sends) {
+		try {
+			if (!target.isConnected( )) {
+				return;
+			}
+			if (sends.size( ) == 1) {
+				target.send(sends.get(0).data);
+				return;
+			}
+			int length = 0;
+			for (PeriodicSend send : sends) {
+				length += send.data.length;
+			}
+			byte[] joined = new byte[length];
+			int pos = 0;
+			for (PeriodicSend send : sends) {
+				System.arraycopy(send.data, 0, joined, pos, send.data.length);
+				pos += send.data.length;
+			}
+			target.send(joined);
+		}
+		catch (RuntimeException e) {
+			logClass.error(I18n.getString("PeriodicSendScheduler.log.sendFailed", //$NON-NLS-1$
+					sends.get(0).getName( ),
+					e.getMessage( ))
+					+ Constants.LINE_SEPARATOR, e);
+		}
+	}
+
+}
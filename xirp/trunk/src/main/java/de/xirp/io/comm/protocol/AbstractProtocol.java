@@ -27,6 +27,9 @@ package de.xirp.io.comm.protocol;
 
 import org.apache.log4j.Logger;
 
+import de.xirp.io.comm.CommunicationManager;
+import de.xirp.io.comm.ConnectionStatistics;
+import de.xirp.io.comm.handler.IHandlerMessage;
 import de.xirp.io.comm.lowlevel.ICommunicationInterface;
 import de.xirp.plugin.AbstractPlugin;
 import de.xirp.plugin.PluginInfo;
@@ -121,6 +124,27 @@ public abstract class AbstractProtocol<S, R> extends AbstractPlugin implements
 		this.cInterface = cInterface;
 	}
 
+	/**
+	 * Counts the message as a received packet of the connection and
+	 * forwards it to the handler.<br/><br/>The communication
+	 * interface only knows the bytes, the protocol is the place
+	 * where the frames are known.
+	 * 
+	 * @param message
+	 *            the decoded message to forward to the datapool
+	 * @see de.xirp.plugin.AbstractPlugin#forwardToDatapoolOverHandler(de.xirp.io.comm.handler.IHandlerMessage)
+	 */
+	@Override
+	public void forwardToDatapoolOverHandler(IHandlerMessage message) {
+		if (message != null) {
+			ConnectionStatistics statistics = CommunicationManager.getStatistics(getRobotName( ));
+			if (statistics != null) {
+				statistics.receivedPackets(1);
+			}
+		}
+		super.forwardToDatapoolOverHandler(message);
+	}
+
 	/**
 	 * @see de.xirp.plugin.AbstractPlugin#runInternal()
 	 */
@@ -0,0 +1,114 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * DelimiterFrameDecoder.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes frames which end with a delimiter, f.e. a line feed. The
+ * delimiter is not part of the payload.
+ * 
+ * @author agent
+ */
+public class DelimiterFrameDecoder extends FrameDecoder {
+
+	/**
+	 * The delimiter
+	 */
+	private final byte[] delimiter;
+	/**
+	 * Number of bytes of the current frame which were already
+	 * searched for the delimiter without finding it
+	 */
+	private int scanned;
+
+	/**
+	 * Constructs a new decoder.
+	 * 
+	 * @param in
+	 *            the stream to read from
+	 * @param delimiter
+	 *            the bytes ending a frame
+	 * @param maxFrameLength
+	 *            maximum length of a frame in bytes including the
+	 *            delimiter
+	 * @param order
+	 *            the byte order of the payload
+	 */
+	public DelimiterFrameDecoder(InputStream in, byte[] delimiter,
+			int maxFrameLength, ByteOrder order) {
+		super(in, maxFrameLength, order);
+		if (delimiter == null || delimiter.length == 0) {
+			throw new IllegalArgumentException("delimiter"); //$NON-NLS-1$
+		}
+		this.delimiter = delimiter.clone( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.comm.protocol.FrameDecoder#decode(byte[], int,
+	 *      int)
+	 */
+	@Override
+	protected int decode(byte[] data, int offset, int available)
+			throws IOException {
+		int last = available - delimiter.length;
+		byte first = delimiter[0];
+		for (int i = scanned; i <= last; i++) {
+			if (data[offset + i] == first && matches(data, offset + i)) {
+				scanned = 0;
+				setPayload(offset, i);
+				return i + delimiter.length;
+			}
+		}
+		scanned = Math.max(0, last + 1);
+		if (available >= maxFrameLength) {
+			scanned = 0;
+			throw frameTooLong(available);
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks if the delimiter starts at the given offset.
+	 * 
+	 * @param data
+	 *            the data
+	 * @param offset
+	 *            the offset
+	 * @return <code>true</code> if the delimiter was found
+	 */
+	private boolean matches(byte[] data, int offset) {
+		for (int i = 1; i < delimiter.length; i++) {
+			if (data[offset + i] != delimiter[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,69 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FixedLengthFrameDecoder.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.protocol;
+
+import java.io.InputStream;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes frames which all have the same length.
+ * 
+ * @author agent
+ */
+public class FixedLengthFrameDecoder extends FrameDecoder {
+
+	/**
+	 * Constructs a new decoder.
+	 * 
+	 * @param in
+	 *            the stream to read from
+	 * @param frameLength
+	 *            the length of each frame in bytes
+	 * @param order
+	 *            the byte order of the payload
+	 */
+	public FixedLengthFrameDecoder(InputStream in, int frameLength,
+			ByteOrder order) {
+		super(in, frameLength, order);
+		if (frameLength <= 0) {
+			throw new IllegalArgumentException("frameLength: " + frameLength); //$NON-NLS-1$
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.comm.protocol.FrameDecoder#decode(byte[], int,
+	 *      int)
+	 */
+	@Override
+	protected int decode(byte[] data, int offset, int available) {
+		if (available < maxFrameLength) {
+			return -1;
+		}
+		setPayload(offset, maxFrameLength);
+		return maxFrameLength;
+	}
+}
@@ -0,0 +1,150 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FrameBufferPool.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.protocol;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of byte arrays which are used by the {@link FrameDecoder}s
+ * for receiving frames.<br/><br/>The arrays are pooled in size
+ * classes of powers of two, so a decoder of a reconnected robot gets
+ * the array used by the previous connection instead of allocating a
+ * new one.
+ * 
+ * @author agent
+ */
+public final class FrameBufferPool {
+
+	/**
+	 * Size of the smallest arrays as power of two (4 kb)
+	 */
+	private static final int MIN_SHIFT = 12;
+	/**
+	 * Size of the largest pooled arrays as power of two (16 Mb),
+	 * larger arrays are not pooled
+	 */
+	private static final int MAX_SHIFT = 24;
+	/**
+	 * Maximum number of arrays kept for each size
+	 */
+	private static final int MAX_POOLED = 16;
+
+	/**
+	 * The free arrays for each size class
+	 */
+	private static final Queue<byte[]>[] pools = createPools( );
+	/**
+	 * Number of free arrays for each size class
+	 */
+	private static final AtomicInteger[] pooled = new AtomicInteger[MAX_SHIFT
+			- MIN_SHIFT + 1];
+
+	static {
+		for (int i = 0; i < pooled.length; i++) {
+			pooled[i] = new AtomicInteger( );
+		}
+	}
+
+	/**
+	 * Utility class
+	 */
+	private FrameBufferPool() {
+		// static access only
+	}
+
+	/**
+	 * Creates the queues for the size classes.
+	 * 
+	 * @return the queues
+	 */
+	@SuppressWarnings("unchecked")
+	private static Queue<byte[]>[] createPools() {
+		Queue<byte[]>[] queues = new Queue[MAX_SHIFT - MIN_SHIFT + 1];
+		for (int i = 0; i < queues.length; i++) {
+			queues[i] = new ConcurrentLinkedQueue<byte[]>( );
+		}
+		return queues;
+	}
+
+	/**
+	 * Gets the size class for the given size.
+	 * 
+	 * @param size
+	 *            the size in bytes
+	 * @return the power of two of the size class
+	 */
+	private static int getShift(int size) {
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+		return Math.max(shift, MIN_SHIFT);
+	}
+
+	/**
+	 * Takes an array from the pool or allocates a new one if the pool
+	 * has no array of the needed size.
+	 * 
+	 * @param size
+	 *            the minimum size in bytes
+	 * @return an array of at least the given size, the size is a
+	 *         power of two
+	 */
+	public static byte[] acquire(int size) {
+		int shift = getShift(size);
+		if (shift <= MAX_SHIFT) {
+			byte[] array = pools[shift - MIN_SHIFT].poll( );
+			if (array != null) {
+				pooled[shift - MIN_SHIFT].decrementAndGet( );
+				return array;
+			}
+		}
+		return new byte[1 << shift];
+	}
+
+	/**
+	 * Returns the given array to the pool. The array must not be used
+	 * by the caller afterwards.
+	 * 
+	 * @param array
+	 *            the array to return, arrays which do not have the
+	 *            size of a size class are ignored
+	 */
+	public static void release(byte[] array) {
+		if (array == null) {
+			return;
+		}
+		int shift = getShift(array.length);
+		if (shift > MAX_SHIFT || array.length != 1 << shift) {
+			return;
+		}
+		int index = shift - MIN_SHIFT;
+		if (pooled[index].incrementAndGet( ) <= MAX_POOLED) {
+			pools[index].offer(array);
+		}
+		else {
+			pooled[index].decrementAndGet( );
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FrameDecoder.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+
+import de.xirp.util.ByteParser;
+import de.xirp.util.ByteParserLittleEndian;
+import de.xirp.util.I18n;
+
+/**
+ * Splits the data received from a stream into frames.<br/><br/>The
+ * data is read in large chunks into an array taken from the
+ * {@link FrameBufferPool}. The frames are parsed directly from this
+ * array: {@link #nextFrame()} returns a {@link ByteParser} over the
+ * payload of the next frame, which is the same parser object for
+ * each frame. So decoding a frame neither copies the data nor
+ * creates objects. Only the bytes of an incomplete frame at the end
+ * of the array are moved to its start before the next read.<br/><br/>
+ * Subclasses define the framing by implementing
+ * {@link #decode(byte[], int, int)}. A decoder is used by a single
+ * thread, usually the receiving thread of a protocol:
+ * 
+ * <pre>
+ * FrameDecoder decoder = new LengthPrefixFrameDecoder(cInterface.receive( ), 2,
+ * 		ByteOrder.BIG_ENDIAN, false, 1024);
+ * ByteParser frame;
+ * while ((frame = decoder.nextFrame( )) != null) {
+ * 	forwardToDatapoolOverHandler(new MyMessage(frame.getNextShort( ),
+ * 			frame.getNextFloat( )));
+ * }
+ * decoder.close( );
+ * </pre>
+ * 
+ * @author agent
+ * @see LengthPrefixFrameDecoder
+ * @see DelimiterFrameDecoder
+ * @see FixedLengthFrameDecoder
+ */
+public abstract class FrameDecoder {
+
+	/**
+	 * Minimum size of the receive array in bytes
+	 */
+	private static final int MIN_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * The stream to read from
+	 */
+	private final InputStream in;
+	/**
+	 * Maximum length of a frame in bytes including its header and
+	 * delimiter
+	 */
+	protected final int maxFrameLength;
+	/**
+	 * Flag showing if the payload is parsed in little endian byte
+	 * order
+	 */
+	private final boolean littleEndian;
+	/**
+	 * The receive array, <code>null</code> if closed
+	 */
+	private byte[] buffer;
+	/**
+	 * Offset of the first byte not decoded yet
+	 */
+	private int readPos;
+	/**
+	 * Offset behind the last received byte
+	 */
+	private int writePos;
+	/**
+	 * The parser returned for each frame
+	 */
+	private ByteParser view;
+	/**
+	 * Offset of the payload of the decoded frame, set by
+	 * {@link #decode(byte[], int, int)}
+	 */
+	private int payloadOffset;
+	/**
+	 * Length of the payload of the decoded frame, set by
+	 * {@link #decode(byte[], int, int)}
+	 */
+	private int payloadLength;
+	/**
+	 * Number of decoded frames
+	 */
+	private long frames;
+
+	/**
+	 * Constructs a new decoder.
+	 * 
+	 * @param in
+	 *            the stream to read from
+	 * @param maxFrameLength
+	 *            maximum length of a frame in bytes including its
+	 *            header and delimiter
+	 * @param order
+	 *            the byte order of the payload
+	 */
+	protected FrameDecoder(InputStream in, int maxFrameLength,
+			ByteOrder order) {
+		this.in = in;
+		this.maxFrameLength = maxFrameLength;
+		this.littleEndian = order == ByteOrder.LITTLE_ENDIAN;
+		this.buffer = FrameBufferPool.acquire(Math.max(maxFrameLength,
+				MIN_BUFFER_SIZE));
+	}
+
+	/**
+	 * Reads the next frame, blocking until it was received
+	 * completely.<br/><br/>The returned parser is only valid until
+	 * the next call of this method, because the same parser is
+	 * returned for each frame and the data may be overwritten by the
+	 * next read. Copy the data with
+	 * {@link ByteParser#getSubArray(int, int)} if it is needed
+	 * longer.
+	 * 
+	 * @return a parser over the payload of the frame or
+	 *         <code>null</code> at the end of the stream or if the
+	 *         decoder was closed
+	 * @throws IOException
+	 *             if reading from the stream failed or the frame is
+	 *             longer than {@link #maxFrameLength}
+	 */
+	public ByteParser nextFrame() throws IOException {
+		while (buffer != null) {
+			if (writePos > readPos) {
+				int length = decode(buffer, readPos, writePos - readPos);
+				if (length > 0) {
+					readPos += length;
+					frames++;
+					if (view == null) {
+						view = littleEndian ? new ByteParserLittleEndian(buffer,
+								payloadOffset,
+								payloadLength)
+								: new ByteParser(buffer,
+										payloadOffset,
+										payloadLength);
+					}
+					else {
+						view.setRange(payloadOffset, payloadLength);
+					}
+					return view;
+				}
+			}
+			if (!fill( )) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Moves the bytes of an incomplete frame to the start of the
+	 * array and reads more data from the stream.
+	 * 
+	 * @return <code>false</code> at the end of the stream
+	 * @throws IOException
+	 *             if reading failed or the incomplete frame already
+	 *             fills the whole array
+	 */
+	private boolean fill() throws IOException {
+		int pending = writePos - readPos;
+		if (readPos > 0) {
+			System.arraycopy(buffer, readPos, buffer, 0, pending);
+			readPos = 0;
+			writePos = pending;
+		}
+		if (writePos == buffer.length) {
+			throw frameTooLong(pending);
+		}
+		int count = in.read(buffer, writePos, buffer.length - writePos);
+		if (count < 0) {
+			return false;
+		}
+		writePos += count;
+		return true;
+	}
+
+	/**
+	 * Checks if the received data starts with a complete frame. If
+	 * this is the case, the payload of the frame has to be set with
+	 * {@link #setPayload(int, int)}.
+	 * 
+	 * @param data
+	 *            the received data
+	 * @param offset
+	 *            offset of the first byte of the frame
+	 * @param available
+	 *            number of received bytes from the offset on
+	 * @return the length of the frame including header and
+	 *         delimiter or <code>-1</code> if the frame is not
+	 *         complete yet
+	 * @throws IOException
+	 *             if the frame is invalid, f.e. longer than
+	 *             {@link #maxFrameLength}
+	 */
+	protected abstract int decode(byte[] data, int offset, int available)
+			throws IOException;
+
+	/**
+	 * Sets the payload of the frame found by
+	 * {@link #decode(byte[], int, int)}.
+	 * 
+	 * @param offset
+	 *            offset of the payload in the array
+	 * @param length
+	 *            length of the payload
+	 */
+	protected final void setPayload(int offset, int length) {
+		this.payloadOffset = offset;
+		this.payloadLength = length;
+	}
+
+	/**
+	 * Creates the exception for a frame which is longer than
+	 * {@link #maxFrameLength}.
+	 * 
+	 * @param length
+	 *            the length of the frame
+	 * @return the exception
+	 */
+	protected IOException frameTooLong(long length) {
+		return new IOException(I18n.getString("FrameDecoder.exception.frameTooLong", //$NON-NLS-1$
+				length,
+				maxFrameLength));
+	}
+
+	/**
+	 * Gets the number of frames decoded so far.
+	 * 
+	 * @return the number of frames
+	 */
+	public long getFrameCount() {
+		return frames;
+	}
+
+	/**
+	 * Returns the receive array to the pool. The stream is not
+	 * closed. The last returned parser must not be used afterwards.
+	 */
+	public void close() {
+		byte[] aux = buffer;
+		buffer = null;
+		view = null;
+		FrameBufferPool.release(aux);
+	}
+}
@@ -0,0 +1,109 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * LengthPrefixFrameDecoder.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.comm.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes frames which start with the length of the frame as
+ * unsigned integer of 1, 2 or 4 bytes.
+ * 
+ * @author agent
+ */
+public class LengthPrefixFrameDecoder extends FrameDecoder {
+
+	/**
+	 * Number of bytes of the length
+	 */
+	private final int prefixLength;
+	/**
+	 * Flag showing if the length is in big endian byte order
+	 */
+	private final boolean bigEndian;
+	/**
+	 * Flag showing if the length includes the bytes of the length
+	 * itself
+	 */
+	private final boolean lengthIncludesPrefix;
+
+	/**
+	 * Constructs a new decoder.
+	 * 
+	 * @param in
+	 *            the stream to read from
+	 * @param prefixLength
+	 *            number of bytes of the length: 1, 2 or 4
+	 * @param order
+	 *            the byte order of the length and the payload
+	 * @param lengthIncludesPrefix
+	 *            <code>true</code> if the length counts the bytes of
+	 *            the length itself, <code>false</code> if it only
+	 *            counts the payload
+	 * @param maxFrameLength
+	 *            maximum length of a frame in bytes including the
+	 *            length
+	 */
+	public LengthPrefixFrameDecoder(InputStream in, int prefixLength,
+			ByteOrder order, boolean lengthIncludesPrefix, int maxFrameLength) {
+		super(in, maxFrameLength, order);
+		if (prefixLength != 1 && prefixLength != 2 && prefixLength != 4) {
+			throw new IllegalArgumentException("prefixLength: " + prefixLength); //$NON-NLS-1$
+		}
+		this.prefixLength = prefixLength;
+		this.bigEndian = order != ByteOrder.LITTLE_ENDIAN;
+		this.lengthIncludesPrefix = lengthIncludesPrefix;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.comm.protocol.FrameDecoder#decode(byte[], int,
+	 *      int)
+	 */
+	@Override
+	protected int decode(byte[] data, int offset, int available)
+			throws IOException {
+		if (available < prefixLength) {
+			return -1;
+		}
+		long length = 0;
+		for (int i = 0; i < prefixLength; i++) {
+			int b = data[offset + (bigEndian ? i : prefixLength - 1 - i)] & 0xFF;
+			length = (length << 8) | b;
+		}
+		long frameLength = lengthIncludesPrefix ? length : length
+				+ prefixLength;
+		if (frameLength < prefixLength || frameLength > maxFrameLength) {
+			throw frameTooLong(frameLength);
+		}
+		if (available < frameLength) {
+			return -1;
+		}
+		setPayload(offset + prefixLength, (int) frameLength - prefixLength);
+		return (int) frameLength;
+	}
+}
@@ -41,6 +41,11 @@ public class ConnectionEvent extends EventObject {
 	 * Name of the robot this event belongs to
 	 */
 	private String robotName;
+	/**
+	 * Flag showing if the connection was lost and a reconnect is
+	 * running
+	 */
+	private boolean reconnecting;
 
 	/**
 	 * Constructs a new event to the given robot
@@ -51,8 +56,25 @@ public class ConnectionEvent extends EventObject {
 	 *            Name of the Robot
 	 */
 	public ConnectionEvent(Object source, String robotName) {
+		this(source, robotName, false);
+	}
+
+	/**
+	 * Constructs a new event to the given robot
+	 * 
+	 * @param source
+	 *            Source of the Event
+	 * @param robotName
+	 *            Name of the Robot
+	 * @param reconnecting
+	 *            <code>true</code> if the connection was lost and a
+	 *            reconnect is running
+	 */
+	public ConnectionEvent(Object source, String robotName,
+			boolean reconnecting) {
 		super(source);
 		this.robotName = robotName;
+		this.reconnecting = reconnecting;
 	}
 
 	/**
@@ -64,4 +86,16 @@ public class ConnectionEvent extends EventObject {
 		return robotName;
 	}
 
+	/**
+	 * Checks if the connection was lost and a reconnect is running.
+	 * A disconnect event with this flag set is followed by a connect
+	 * event if the reconnect succeeds or by another disconnect event
+	 * without this flag if the reconnect is given up or stopped.
+	 * 
+	 * @return <code>true</code> if a reconnect is running
+	 */
+	public boolean isReconnecting() {
+		return reconnecting;
+	}
+
 }
@@ -69,7 +69,12 @@ package de.xirp.io.format;
  * <br>
  * To specify the fraction digits of a float use <code>%f{2}</code>
  * for 2 fraction digits. Floats are converted to doubles when using
- * the <code>FormatParser</code>.
+ * the <code>FormatParser</code>.<br>
+ * <br>
+ * Arrays of shorts, integers, floats and doubles are specified with
+ * the number of values in brackets, f.e. <code>%f[361]</code> for a
+ * laser scan of 361 floats. Arrays are read at once into primitive
+ * arrays, floats of arrays are not rounded.
  * 
  * @author Rabea Gransberger
  * @see FormatParser#FormatParser(String)
@@ -84,6 +89,11 @@ public class Format {
 	 * Length of this format, only usable for char and float
 	 */
 	protected int length = -1;
+	/**
+	 * Number of values of an array format or <code>-1</code> if the
+	 * format is no array
+	 */
+	protected int count = -1;
 
 	/**
 	 * Constructs a new format with the given type
@@ -110,6 +120,43 @@ public class Format {
 		this.length = length;
 	}
 
+	/**
+	 * Constructs a new array format with the given type, length and
+	 * number of values
+	 * 
+	 * @param type
+	 *            type of the values
+	 * @param length
+	 *            length of the format or <code>-1</code>
+	 * @param count
+	 *            number of values or <code>-1</code> if the format
+	 *            is no array
+	 */
+	public Format(FormatType type, int length, int count) {
+		this.type = type;
+		this.length = length;
+		this.count = count;
+	}
+
+	/**
+	 * Gets the number of values of an array format.
+	 * 
+	 * @return the number of values or <code>-1</code> if the format
+	 *         is no array
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Checks if this format is an array, f.e. <code>%f[361]</code>.
+	 * 
+	 * @return <code>true</code> if the format is an array
+	 */
+	public boolean isArray() {
+		return count >= 0;
+	}
+
 	/**
 	 * Gets the length of this format.<br>
 	 * The "length" is defined as:<br>
@@ -138,6 +185,9 @@ public class Format {
 	 */
 	@Override
 	public String toString() {
+		if (isArray( )) {
+			return type.name( ) + "_" + length + "[" + count + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
 		return type.name( ) + "_" + length; //$NON-NLS-1$
 	}
 
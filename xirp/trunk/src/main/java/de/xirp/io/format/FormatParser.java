@@ -24,11 +24,9 @@
  */
 package de.xirp.io.format;
 
-import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
@@ -37,7 +35,12 @@ import de.xirp.util.ByteParser;
 import de.xirp.util.I18n;
 
 /**
- * Parser used for reading a format string.
+ * Parser used for reading a format string.<br/><br/>The format
+ * string is compiled once into a flat array of operations, one for
+ * each field. {@link #decode(ByteParser, FormatSink)} executes these
+ * operations and passes the fields as primitives to a
+ * {@link FormatSink}, f.e. a reusable {@link FormatRecord}, so
+ * decoding a message does not create objects for numeric fields.
  * 
  * @author Rabea Gransberger
  */
@@ -58,6 +61,90 @@ public class FormatParser {
 	 */
 	protected String format;
 
+	/**
+	 * The operation decoding each field
+	 */
+	private int[] operations;
+	/**
+	 * The length of each field
+	 * 
+	 * @see Format#getLength()
+	 */
+	private int[] lengths;
+	/**
+	 * The number of values of each array field
+	 * 
+	 * @see Format#getCount()
+	 */
+	private int[] counts;
+	/**
+	 * Factor for rounding each float field to its fraction digits or
+	 * <code>0</code> if the field is not rounded
+	 */
+	private double[] scales;
+	/**
+	 * <code>false</code> if the format string contained an unknown
+	 * type or an invalid length
+	 */
+	private boolean valid = true;
+
+	/**
+	 * Powers of ten for rounding floats, more fraction digits than a
+	 * double can hold are not rounded
+	 */
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3,
+			1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+			1e15, 1e16};
+
+	/**
+	 * Operation for {@link FormatType#UBYTE}
+	 */
+	private static final int OP_UBYTE = 0;
+	/**
+	 * Operation for {@link FormatType#CHAR}
+	 */
+	private static final int OP_CHAR = 1;
+	/**
+	 * Operation for {@link FormatType#BYTE}
+	 */
+	private static final int OP_BYTE = 2;
+	/**
+	 * Operation for {@link FormatType#SHORT}
+	 */
+	private static final int OP_SHORT = 3;
+	/**
+	 * Operation for {@link FormatType#INTEGER}
+	 */
+	private static final int OP_INTEGER = 4;
+	/**
+	 * Operation for {@link FormatType#DOUBLE}
+	 */
+	private static final int OP_DOUBLE = 5;
+	/**
+	 * Operation for {@link FormatType#FLOAT}
+	 */
+	private static final int OP_FLOAT = 6;
+	/**
+	 * Operation for {@link FormatType#LONG}
+	 */
+	private static final int OP_LONG = 7;
+	/**
+	 * Operation for arrays of {@link FormatType#SHORT}
+	 */
+	private static final int OP_SHORT_ARRAY = 8;
+	/**
+	 * Operation for arrays of {@link FormatType#INTEGER}
+	 */
+	private static final int OP_INTEGER_ARRAY = 9;
+	/**
+	 * Operation for arrays of {@link FormatType#FLOAT}
+	 */
+	private static final int OP_FLOAT_ARRAY = 10;
+	/**
+	 * Operation for arrays of {@link FormatType#DOUBLE}
+	 */
+	private static final int OP_DOUBLE_ARRAY = 11;
+
 	/**
 	 * Constructs a new format parser with the given format.
 	 * 
@@ -67,6 +154,7 @@ public class FormatParser {
 	public FormatParser(String strg) {
 		parse(strg);
 		this.format = strg;
+		compile( );
 	}
 
 	/**
@@ -91,24 +179,269 @@ public class FormatParser {
 		for (String format : arr) {
 			// if the format is not empty
 			if (!StringUtils.isBlank(format)) {
-				// check if there is some length information
-				if (format.indexOf("{") != -1) { //$NON-NLS-1$
-					// split the length information
-					String[] sub = format.split("[\\{\\}]"); //$NON-NLS-1$
-					FormatType type = FormatType.getType(sub[0]);
-					try {
-						int length = Integer.parseInt(sub[1]);
-						formats.add(new Format(type, length));
-					}
-					catch (NumberFormatException e) {
-						logClass.warn(I18n.getString("FormatParser.log.couldNotReadFormat", format)); //$NON-NLS-1$
-						formats.add(new Format(type));
-					}
+				// the type ends with the length or the array size
+				int end = format.length( );
+				int brace = format.indexOf('{');
+				int bracket = format.indexOf('[');
+				if (brace != -1) {
+					end = brace;
 				}
-				else {
-					FormatType type = FormatType.getType(format);
-					formats.add(new Format(type));
+				if (bracket != -1 && bracket < end) {
+					end = bracket;
 				}
+				FormatType type = getType(format.substring(0, end));
+				int length = readNumber(format, brace, '}');
+				int count = readNumber(format, bracket, ']');
+				if (count != -1 && !isArrayType(type)) {
+					logClass.warn(I18n.getString("FormatParser.log.noArrayType", format)); //$NON-NLS-1$
+					valid = false;
+					count = -1;
+				}
+				formats.add(new Format(type, length, count));
+			}
+		}
+	}
+
+	/**
+	 * Reads the number enclosed in braces or brackets in the given
+	 * format part.
+	 * 
+	 * @param format
+	 *            the format part, f.e. <code>f{2}</code>
+	 * @param start
+	 *            the position of the opening brace or bracket or
+	 *            <code>-1</code> if there is none
+	 * @param close
+	 *            the closing brace or bracket
+	 * @return the number or <code>-1</code> if there is no number
+	 *         or the number is invalid
+	 */
+	private int readNumber(String format, int start, char close) {
+		if (start == -1) {
+			return -1;
+		}
+		int end = format.indexOf(close, start);
+		try {
+			int number = Integer.parseInt(format.substring(start + 1, end)
+					.trim( ));
+			if (number >= 0) {
+				return number;
+			}
+		}
+		catch (RuntimeException e) {
+			// no number or no closing brace
+		}
+		logClass.warn(I18n.getString("FormatParser.log.couldNotReadFormat", format)); //$NON-NLS-1$
+		valid = false;
+		return -1;
+	}
+
+	/**
+	 * Checks if arrays of the given type can be read at once.
+	 * 
+	 * @param type
+	 *            the type
+	 * @return <code>true</code> for shorts, integers, floats and
+	 *         doubles
+	 */
+	private static boolean isArrayType(FormatType type) {
+		return type == FormatType.SHORT || type == FormatType.INTEGER
+				|| type == FormatType.FLOAT || type == FormatType.DOUBLE;
+	}
+
+	/**
+	 * Gets the type for the given type string. Unknown types are read
+	 * as byte and mark the format as invalid.
+	 * 
+	 * @param strg
+	 *            the type string
+	 * @return the type
+	 */
+	private FormatType getType(String strg) {
+		FormatType type = FormatType.find(strg);
+		if (type == null) {
+			valid = false;
+			return FormatType.BYTE;
+		}
+		return type;
+	}
+
+	/**
+	 * Checks if the format string could be read completely. Unknown
+	 * types are read as byte and invalid lengths are ignored, so an
+	 * invalid format will most likely not decode the data as
+	 * intended.
+	 * 
+	 * @return <code>true</code> if the format string is valid
+	 */
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Compiles the parsed formats to the operation arrays used for
+	 * decoding.
+	 */
+	private void compile() {
+		int size = formats.size( );
+		operations = new int[size];
+		lengths = new int[size];
+		counts = new int[size];
+		scales = new double[size];
+		for (int i = 0; i < size; i++) {
+			Format f = formats.get(i);
+			operations[i] = getOperation(f.getType( ), f.isArray( ));
+			lengths[i] = f.getLength( );
+			counts[i] = f.getCount( );
+			if (f.getType( ) == FormatType.FLOAT && !f.isArray( )) {
+				// a length of -1 rounds to an integer like before
+				int digits = Math.max(f.getLength( ), 0);
+				scales[i] = digits < POWERS_OF_TEN.length ? POWERS_OF_TEN[digits]
+						: 0;
+			}
+		}
+	}
+
+	/**
+	 * Gets the operation decoding a field of the given type.
+	 * 
+	 * @param type
+	 *            the type of the field
+	 * @param array
+	 *            <code>true</code> if the field is an array
+	 * @return the operation
+	 */
+	private static int getOperation(FormatType type, boolean array) {
+		if (array) {
+			switch (type) {
+				case SHORT:
+					return OP_SHORT_ARRAY;
+				case INTEGER:
+					return OP_INTEGER_ARRAY;
+				case FLOAT:
+					return OP_FLOAT_ARRAY;
+				default:
+					return OP_DOUBLE_ARRAY;
+			}
+		}
+		switch (type) {
+			case UBYTE:
+				return OP_UBYTE;
+			case CHAR:
+				return OP_CHAR;
+			case BYTE:
+				return OP_BYTE;
+			case SHORT:
+				return OP_SHORT;
+			case INTEGER:
+				return OP_INTEGER;
+			case DOUBLE:
+				return OP_DOUBLE;
+			case FLOAT:
+				return OP_FLOAT;
+			default:
+				return OP_LONG;
+		}
+	}
+
+	/**
+	 * Rounds the given float to the fraction digits given by the
+	 * scale, rounding half to even.
+	 * 
+	 * @param value
+	 *            the value to round
+	 * @param scale
+	 *            ten to the power of the fraction digits or
+	 *            <code>0</code> to not round the value
+	 * @return the rounded value
+	 */
+	private static double round(float value, double scale) {
+		if (scale == 0 || Float.isNaN(value) || Float.isInfinite(value)) {
+			return value;
+		}
+		return Math.rint(value * scale) / scale;
+	}
+
+	/**
+	 * Creates a record which can hold the fields of this format.
+	 * 
+	 * @return a new record
+	 * @see #decode(ByteParser, FormatSink)
+	 */
+	public FormatRecord createRecord() {
+		return new FormatRecord(operations.length);
+	}
+
+	/**
+	 * Gets the number of fields of this format.
+	 * 
+	 * @return the number of fields
+	 */
+	public int getFieldCount() {
+		return operations.length;
+	}
+
+	/**
+	 * Decodes the given data according to this format and passes the
+	 * fields to the given sink. No objects are created besides the
+	 * strings of char fields. Array fields are read at once into the
+	 * arrays provided by the sink.
+	 * 
+	 * @param parser
+	 *            the data encapsulated in a parser
+	 * @param sink
+	 *            the sink for the fields, f.e. a record created by
+	 *            {@link #createRecord()}
+	 */
+	public void decode(ByteParser parser, FormatSink sink) {
+		final int[] ops = operations;
+		for (int i = 0; i < ops.length; i++) {
+			switch (ops[i]) {
+				case OP_UBYTE:
+					sink.putLong(i, parser.getNextUnsignedByte( ));
+					break;
+				case OP_CHAR:
+					sink.putString(i, lengths[i] == -1 ? parser.getNextString( )
+							: parser.getNextString(lengths[i]));
+					break;
+				case OP_BYTE:
+					sink.putLong(i, parser.getNextByte( ));
+					break;
+				case OP_SHORT:
+					sink.putLong(i, parser.getNextShort( ));
+					break;
+				case OP_INTEGER:
+					sink.putLong(i, parser.getNextInt( ));
+					break;
+				case OP_DOUBLE:
+					sink.putDouble(i, parser.getNextDouble( ));
+					break;
+				case OP_FLOAT:
+					sink.putDouble(i, round(parser.getNextFloat( ), scales[i]));
+					break;
+				case OP_SHORT_ARRAY:
+					parser.getNextShorts(sink.getShortArray(i, counts[i]),
+							0,
+							counts[i]);
+					break;
+				case OP_INTEGER_ARRAY:
+					parser.getNextInts(sink.getIntArray(i, counts[i]),
+							0,
+							counts[i]);
+					break;
+				case OP_FLOAT_ARRAY:
+					parser.getNextFloats(sink.getFloatArray(i, counts[i]),
+							0,
+							counts[i]);
+					break;
+				case OP_DOUBLE_ARRAY:
+					parser.getNextDoubles(sink.getDoubleArray(i, counts[i]),
+							0,
+							counts[i]);
+					break;
+				default:
+					sink.putLong(i, parser.getNextLong( ));
+					break;
 			}
 		}
 	}
@@ -120,42 +453,57 @@ public class FormatParser {
 	 *            the data encapsulated in a parser
 	 * @return Object with the formatted data<br>
 	 *         NOTE: Floats are formatted to double for convenience.
+	 *         Arrays are returned as new primitive arrays.
+	 * @see #decode(ByteParser, FormatSink)
 	 */
 	public Object formatData(ByteParser parser) {
-		ArrayList<Object> parsedData = new ArrayList<Object>(formats.size( ));
-		for (Format format : formats) {
-			switch (format.getType( )) {
-				case CHAR:
-					if (format.getLength( ) == -1) {
-						parsedData.add(parser.getNextString( ));
-					}
-					else {
-						parsedData.add(parser.getNextString(format.getLength( )));
-					}
-					break;
-				case BYTE:
-					parsedData.add(parser.getNextByte( ));
-					break;
-				case UBYTE:
+		final int[] ops = operations;
+		ArrayList<Object> parsedData = new ArrayList<Object>(ops.length);
+		for (int i = 0; i < ops.length; i++) {
+			switch (ops[i]) {
+				case OP_UBYTE:
 					parsedData.add(parser.getNextUnsignedByte( ));
 					break;
-				case SHORT:
+				case OP_CHAR:
+					parsedData.add(lengths[i] == -1 ? parser.getNextString( )
+							: parser.getNextString(lengths[i]));
+					break;
+				case OP_BYTE:
+					parsedData.add(parser.getNextByte( ));
+					break;
+				case OP_SHORT:
 					parsedData.add(parser.getNextShort( ));
 					break;
-				case INTEGER:
+				case OP_INTEGER:
 					parsedData.add(parser.getNextInt( ));
 					break;
-				case DOUBLE:
+				case OP_DOUBLE:
 					parsedData.add(parser.getNextDouble( ));
 					break;
-				case FLOAT:
-					Float f = parser.getNextFloat( );
-					NumberFormat nf = NumberFormat.getInstance(Locale.ENGLISH);
-					nf.setMaximumFractionDigits(format.getLength( ));
-					double d = Double.parseDouble(nf.format(f));
-					parsedData.add(d);
+				case OP_FLOAT:
+					parsedData.add(round(parser.getNextFloat( ), scales[i]));
+					break;
+				case OP_SHORT_ARRAY:
+					short[] shorts = new short[counts[i]];
+					parser.getNextShorts(shorts, 0, shorts.length);
+					parsedData.add(shorts);
+					break;
+				case OP_INTEGER_ARRAY:
+					int[] ints = new int[counts[i]];
+					parser.getNextInts(ints, 0, ints.length);
+					parsedData.add(ints);
+					break;
+				case OP_FLOAT_ARRAY:
+					float[] floats = new float[counts[i]];
+					parser.getNextFloats(floats, 0, floats.length);
+					parsedData.add(floats);
+					break;
+				case OP_DOUBLE_ARRAY:
+					double[] doubles = new double[counts[i]];
+					parser.getNextDoubles(doubles, 0, doubles.length);
+					parsedData.add(doubles);
 					break;
-				case LONG:
+				default:
 					parsedData.add(parser.getNextLong( ));
 					break;
 			}
@@ -0,0 +1,214 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FormatParserBenchmark.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.format;
+
+import java.nio.ByteBuffer;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import de.xirp.util.ByteParser;
+
+/**
+ * Compares decoding messages with the compiled
+ * {@link FormatParser#decode(ByteParser, FormatSink)} against
+ * {@link FormatParser#formatData(ByteParser)} and against the former
+ * implementation, which interpreted the list of formats for each
+ * message and rounded floats with a {@link NumberFormat}.<br/><br/>
+ * Usage: <code>FormatParserBenchmark [messages] [format]</code>
+ * 
+ * @author agent
+ */
+final class FormatParserBenchmark {
+
+	/**
+	 * The default format of the benchmark messages
+	 */
+	private static final String FORMAT = "%i%s%f{2}%f{3}%d%u%l"; //$NON-NLS-1$
+
+	/**
+	 * Utility class, no instances.
+	 */
+	private FormatParserBenchmark() {
+		// no instances
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args
+	 *            optional number of messages and format without char
+	 *            fields
+	 */
+	public static void main(String[] args) {
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		String format = args.length > 1 ? args[1] : FORMAT;
+
+		FormatParser parser = new FormatParser(format);
+		byte[] data = createMessage(parser.getFormats( ));
+		ByteParser byteParser = new ByteParser(data);
+		FormatRecord record = parser.createRecord( );
+
+		for (int round = 0; round < 3; round++) {
+			long start = System.nanoTime( );
+			Object check = null;
+			for (int i = 0; i < messages; i++) {
+				byteParser.reset( );
+				check = interpret(parser.getFormats( ), byteParser);
+			}
+			print("interpreted", messages, start, check); //$NON-NLS-1$
+
+			start = System.nanoTime( );
+			for (int i = 0; i < messages; i++) {
+				byteParser.reset( );
+				check = parser.formatData(byteParser);
+			}
+			print("formatData", messages, start, check); //$NON-NLS-1$
+
+			start = System.nanoTime( );
+			double sum = 0;
+			for (int i = 0; i < messages; i++) {
+				byteParser.reset( );
+				parser.decode(byteParser, record);
+				sum += record.getDouble(2);
+			}
+			print("decode", messages, start, sum); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Prints the throughput of a run.
+	 * 
+	 * @param name
+	 *            the name of the run
+	 * @param messages
+	 *            the number of decoded messages
+	 * @param start
+	 *            the start time of the run in nanoseconds
+	 * @param check
+	 *            a result of the run, printed so the work is not
+	 *            optimized away
+	 */
+	private static void print(String name, int messages, long start,
+			Object check) {
+		double seconds = (System.nanoTime( ) - start) / 1e9;
+		System.out.println(name + ": " + Math.round(messages / seconds) //$NON-NLS-1$
+				+ " msg/s (" + check + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Creates a message with test values for the given formats.
+	 * 
+	 * @param formats
+	 *            the formats
+	 * @return the message
+	 */
+	private static byte[] createMessage(List<Format> formats) {
+		ByteBuffer buffer = ByteBuffer.allocate(formats.size( ) * 8);
+		for (Format format : formats) {
+			switch (format.getType( )) {
+				case BYTE:
+				case UBYTE:
+				case CHAR:
+					buffer.put((byte) 200);
+					break;
+				case SHORT:
+					buffer.putShort((short) 12345);
+					break;
+				case INTEGER:
+					buffer.putInt(123456789);
+					break;
+				case FLOAT:
+					buffer.putFloat(3.14159f);
+					break;
+				case DOUBLE:
+					buffer.putDouble(2.718281828);
+					break;
+				case LONG:
+					buffer.putLong(1234567890123L);
+					break;
+			}
+		}
+		byte[] data = new byte[buffer.position( )];
+		System.arraycopy(buffer.array( ), 0, data, 0, data.length);
+		return data;
+	}
+
+	/**
+	 * The former implementation of
+	 * {@link FormatParser#formatData(ByteParser)}.
+	 * 
+	 * @param formats
+	 *            the formats
+	 * @param parser
+	 *            the data encapsulated in a parser
+	 * @return the decoded fields
+	 */
+	private static Object interpret(List<Format> formats, ByteParser parser) {
+		ArrayList<Object> parsedData = new ArrayList<Object>(formats.size( ));
+		for (Format format : formats) {
+			switch (format.getType( )) {
+				case CHAR:
+					if (format.getLength( ) == -1) {
+						parsedData.add(parser.getNextString( ));
+					}
+					else {
+						parsedData.add(parser.getNextString(format.getLength( )));
+					}
+					break;
+				case BYTE:
+					parsedData.add(parser.getNextByte( ));
+					break;
+				case UBYTE:
+					parsedData.add(parser.getNextUnsignedByte( ));
+					break;
+				case SHORT:
+					parsedData.add(parser.getNextShort( ));
+					break;
+				case INTEGER:
+					parsedData.add(parser.getNextInt( ));
+					break;
+				case DOUBLE:
+					parsedData.add(parser.getNextDouble( ));
+					break;
+				case FLOAT:
+					Float f = parser.getNextFloat( );
+					NumberFormat nf = NumberFormat.getInstance(Locale.ENGLISH);
+					nf.setMaximumFractionDigits(format.getLength( ));
+					double d = Double.parseDouble(nf.format(f));
+					parsedData.add(d);
+					break;
+				case LONG:
+					parsedData.add(parser.getNextLong( ));
+					break;
+			}
+		}
+		if (parsedData.size( ) == 1) {
+			return parsedData.get(0);
+		}
+		return parsedData;
+	}
+}
@@ -0,0 +1,261 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FormatRecord.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.format;
+
+/**
+ * A reusable record holding the fields of one decoded message as
+ * primitives. The arrays of array fields are created on first use
+ * and then reused for each message.<br/><br/>The record is created once for a
+ * {@link FormatParser} and filled for each message:
+ * 
+ * <pre>
+ * FormatRecord record = parser.createRecord( );
+ * ...
+ * parser.decode(byteParser, record);
+ * int id = record.getInt(0);
+ * double speed = record.getDouble(1);
+ * </pre>
+ * 
+ * @author agent
+ */
+public final class FormatRecord implements FormatSink {
+
+	/**
+	 * Values of the integral fields
+	 */
+	private final long[] longs;
+	/**
+	 * Values of the floating point fields
+	 */
+	private final double[] doubles;
+	/**
+	 * Values of the char fields
+	 */
+	private final String[] strings;
+	/**
+	 * Values of the array fields
+	 */
+	private final Object[] arrays;
+
+	/**
+	 * Constructs a new record for the given number of fields.
+	 * 
+	 * @param fields
+	 *            the number of fields
+	 */
+	public FormatRecord(int fields) {
+		longs = new long[fields];
+		doubles = new double[fields];
+		strings = new String[fields];
+		arrays = new Object[fields];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.format.FormatSink#putLong(int, long)
+	 */
+	public void putLong(int field, long value) {
+		longs[field] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.format.FormatSink#putDouble(int, double)
+	 */
+	public void putDouble(int field, double value) {
+		doubles[field] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.format.FormatSink#putString(int,
+	 *      java.lang.String)
+	 */
+	public void putString(int field, String value) {
+		strings[field] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.format.FormatSink#getShortArray(int, int)
+	 */
+	public short[] getShortArray(int field, int length) {
+		Object array = arrays[field];
+		if (!(array instanceof short[]) || ((short[]) array).length < length) {
+			array = new short[length];
+			arrays[field] = array;
+		}
+		return (short[]) array;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.format.FormatSink#getIntArray(int, int)
+	 */
+	public int[] getIntArray(int field, int length) {
+		Object array = arrays[field];
+		if (!(array instanceof int[]) || ((int[]) array).length < length) {
+			array = new int[length];
+			arrays[field] = array;
+		}
+		return (int[]) array;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.format.FormatSink#getFloatArray(int, int)
+	 */
+	public float[] getFloatArray(int field, int length) {
+		Object array = arrays[field];
+		if (!(array instanceof float[]) || ((float[]) array).length < length) {
+			array = new float[length];
+			arrays[field] = array;
+		}
+		return (float[]) array;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.xirp.io.format.FormatSink#getDoubleArray(int, int)
+	 */
+	public double[] getDoubleArray(int field, int length) {
+		Object array = arrays[field];
+		if (!(array instanceof double[])
+				|| ((double[]) array).length < length) {
+			array = new double[length];
+			arrays[field] = array;
+		}
+		return (double[]) array;
+	}
+
+	/**
+	 * Gets the values of an array field of shorts.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the values or <code>null</code> if the field was not
+	 *         decoded yet
+	 */
+	public short[] getShorts(int field) {
+		return (short[]) arrays[field];
+	}
+
+	/**
+	 * Gets the values of an array field of integers.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the values or <code>null</code> if the field was not
+	 *         decoded yet
+	 */
+	public int[] getInts(int field) {
+		return (int[]) arrays[field];
+	}
+
+	/**
+	 * Gets the values of an array field of floats, f.e. a laser
+	 * scan.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the values or <code>null</code> if the field was not
+	 *         decoded yet
+	 */
+	public float[] getFloats(int field) {
+		return (float[]) arrays[field];
+	}
+
+	/**
+	 * Gets the values of an array field of doubles.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the values or <code>null</code> if the field was not
+	 *         decoded yet
+	 */
+	public double[] getDoubles(int field) {
+		return (double[]) arrays[field];
+	}
+
+	/**
+	 * Gets the number of fields of this record.
+	 * 
+	 * @return the number of fields
+	 */
+	public int size() {
+		return longs.length;
+	}
+
+	/**
+	 * Gets the value of an integral field.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the value
+	 */
+	public long getLong(int field) {
+		return longs[field];
+	}
+
+	/**
+	 * Gets the value of an integral field as int.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the value
+	 */
+	public int getInt(int field) {
+		return (int) longs[field];
+	}
+
+	/**
+	 * Gets the value of a floating point field.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the value
+	 */
+	public double getDouble(int field) {
+		return doubles[field];
+	}
+
+	/**
+	 * Gets the value of a char field.
+	 * 
+	 * @param field
+	 *            the position of the field
+	 * @return the string
+	 */
+	public String getString(int field) {
+		return strings[field];
+	}
+}
@@ -0,0 +1,147 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FormatRegistry.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.format;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import de.xirp.profile.CommunicationDatum;
+import de.xirp.profile.CommunicationProtocol;
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * Process wide registry of the parsed format strings.<br/><br/>Each
+ * format string is parsed and compiled only once and the resulting
+ * {@link FormatParser} is shared by all protocols and robots using
+ * the same format. A format parser holds no state while decoding, so
+ * it may be used by several threads at once.<br/><br/>The receive
+ * formats of the {@link CommunicationDatum}s of a robots
+ * {@link CommunicationProtocol} are loaded when the robot is
+ * connected, so invalid formats are reported at connect time and the
+ * first received message does not have to parse its format.
+ * 
+ * @author agent
+ */
+public final class FormatRegistry {
+
+	/**
+	 * Log4j Logger for this class
+	 */
+	private static Logger logClass = Logger.getLogger(FormatRegistry.class);
+
+	/**
+	 * The parsers by their format string
+	 */
+	private static final ConcurrentMap<String, FormatParser> parsers = new ConcurrentHashMap<String, FormatParser>( );
+
+	/**
+	 * Utility class
+	 */
+	private FormatRegistry() {
+		// static access only
+	}
+
+	/**
+	 * Gets the parser for the given format string. The format is only
+	 * parsed if it was not requested before.
+	 * 
+	 * @param format
+	 *            the format string
+	 * @return the shared parser for the format
+	 */
+	public static FormatParser getParser(String format) {
+		FormatParser parser = parsers.get(format);
+		if (parser == null) {
+			parser = new FormatParser(format);
+			FormatParser aux = parsers.putIfAbsent(format, parser);
+			if (aux != null) {
+				parser = aux;
+			}
+		}
+		return parser;
+	}
+
+	/**
+	 * Gets the parser for the receive format of the datum with the
+	 * given datapool key.
+	 * 
+	 * @param protocol
+	 *            the communication protocol of the robot
+	 * @param datapoolKey
+	 *            the datapool key of the datum
+	 * @return the shared parser or <code>null</code> if the protocol
+	 *         has no datum with a receive format for the key
+	 */
+	public static FormatParser getParser(CommunicationProtocol protocol,
+			String datapoolKey) {
+		for (CommunicationDatum datum : protocol.getDates( )) {
+			if (datum.getDatapoolKey( ).equals(datapoolKey)
+					&& !StringUtils.isBlank(datum.getReceiveFormat( ))) {
+				return getParser(datum.getReceiveFormat( ));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the receive formats of all datums of the given
+	 * communication protocol. Invalid formats are logged.
+	 * 
+	 * @param robotName
+	 *            the name of the robot, used for logging
+	 * @param protocol
+	 *            the communication protocol of the robot
+	 * @return <code>true</code> if all formats are valid
+	 */
+	public static boolean preload(String robotName,
+			CommunicationProtocol protocol) {
+		boolean valid = true;
+		for (CommunicationDatum datum : protocol.getDates( )) {
+			String format = datum.getReceiveFormat( );
+			if (!StringUtils.isBlank(format) && !getParser(format).isValid( )) {
+				logClass.warn(I18n.getString("FormatRegistry.log.invalidFormat", //$NON-NLS-1$
+						format,
+						datum.getDatapoolKey( ),
+						robotName)
+						+ Constants.LINE_SEPARATOR);
+				valid = false;
+			}
+		}
+		return valid;
+	}
+
+	/**
+	 * Gets the number of registered formats.
+	 * 
+	 * @return the number of formats
+	 */
+	public static int size() {
+		return parsers.size( );
+	}
+}
@@ -0,0 +1,124 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * FormatSink.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.io.format;
+
+/**
+ * Receiver for the fields decoded by
+ * {@link FormatParser#decode(de.xirp.util.ByteParser, FormatSink)}.
+ * The fields are passed as primitives, so decoding does not create
+ * objects for numeric fields.
+ * 
+ * @author agent
+ * @see FormatRecord
+ */
+public interface FormatSink {
+
+	/**
+	 * Receives an integral field, that is a field of type
+	 * {@link FormatType#BYTE}, {@link FormatType#UBYTE},
+	 * {@link FormatType#SHORT}, {@link FormatType#INTEGER} or
+	 * {@link FormatType#LONG}.
+	 * 
+	 * @param field
+	 *            the position of the field in the format
+	 * @param value
+	 *            the value
+	 */
+	public void putLong(int field, long value);
+
+	/**
+	 * Receives a field of type {@link FormatType#FLOAT} or
+	 * {@link FormatType#DOUBLE}. Floats are already rounded to the
+	 * fraction digits of the format.
+	 * 
+	 * @param field
+	 *            the position of the field in the format
+	 * @param value
+	 *            the value
+	 */
+	public void putDouble(int field, double value);
+
+	/**
+	 * Receives a field of type {@link FormatType#CHAR}.
+	 * 
+	 * @param field
+	 *            the position of the field in the format
+	 * @param value
+	 *            the string
+	 */
+	public void putString(int field, String value);
+
+	/**
+	 * Gets the array to read an array field of type
+	 * {@link FormatType#SHORT} into.
+	 * 
+	 * @param field
+	 *            the position of the field in the format
+	 * @param length
+	 *            the number of values of the field
+	 * @return an array of at least the given length, the values are
+	 *         written from index <code>0</code> on
+	 */
+	public short[] getShortArray(int field, int length);
+
+	/**
+	 * Gets the array to read an array field of type
+	 * {@link FormatType#INTEGER} into.
+	 * 
+	 * @param field
+	 *            the position of the field in the format
+	 * @param length
+	 *            the number of values of the field
+	 * @return an array of at least the given length, the values are
+	 *         written from index <code>0</code> on
+	 */
+	public int[] getIntArray(int field, int length);
+
+	/**
+	 * Gets the array to read an array field of type
+	 * {@link FormatType#FLOAT} into.
+	 * 
+	 * @param field
+	 *            the position of the field in the format
+	 * @param length
+	 *            the number of values of the field
+	 * @return an array of at least the given length, the values are
+	 *         written from index <code>0</code> on
+	 */
+	public float[] getFloatArray(int field, int length);
+
+	/**
+	 * Gets the array to read an array field of type
+	 * {@link FormatType#DOUBLE} into.
+	 * 
+	 * @param field
+	 *            the position of the field in the format
+	 * @param length
+	 *            the number of values of the field
+	 * @return an array of at least the given length, the values are
+	 *         written from index <code>0</code> on
+	 */
+	public double[] getDoubleArray(int field, int length);
+}
@@ -70,6 +70,19 @@ public enum FormatType {
 	 *         format was found
 	 */
 	public static FormatType getType(final String strg) {
+		FormatType type = find(strg);
+		return type != null ? type : BYTE;
+	}
+
+	/**
+	 * Gets the format type according to the format string in the xml
+	 * 
+	 * @param strg
+	 *            the format string, like c,b,d...
+	 * @return Type according to the format string or
+	 *         <code>null</code> if no format was found
+	 */
+	static FormatType find(final String strg) {
 		String typeStrg = strg.trim( );
 		if (typeStrg.equalsIgnoreCase("c")) { //$NON-NLS-1$
 			return CHAR;
@@ -96,7 +109,7 @@ public enum FormatType {
 			return UBYTE;
 		}
 		else {
-			return BYTE;
+			return null;
 		}
 	}
 }
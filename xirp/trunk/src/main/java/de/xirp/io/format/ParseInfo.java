@@ -53,7 +53,7 @@ public final class ParseInfo {
 	 */
 	public ParseInfo(String datapoolKey, String receiveFormat) {
 		this.datapoolKey = datapoolKey;
-		this.receiveFormat = new FormatParser(receiveFormat);
+		this.receiveFormat = FormatRegistry.getParser(receiveFormat);
 
 	}
 
@@ -68,7 +68,8 @@ public final class ParseInfo {
 
 	/**
 	 * NOTE: Use {@link de.xirp.io.format.FormatParser}
-	 * for parsing this format.
+	 * for parsing this format. The parser is shared by all users of
+	 * the same format.
 	 * 
 	 * @return Returns the receiveFormat.
 	 */
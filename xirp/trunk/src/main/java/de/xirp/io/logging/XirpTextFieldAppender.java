@@ -25,6 +25,7 @@
 package de.xirp.io.logging;
 
 import java.util.HashMap;
+import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.AppenderSkeleton;
@@ -34,12 +35,17 @@ import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.RGB;
 
+import de.xirp.ui.util.CoalescingUpdater;
+import de.xirp.ui.util.CoalescingUpdater.Mode;
 import de.xirp.ui.util.SWTUtil;
 import de.xirp.ui.util.ressource.ColorManager;
 
 /**
  * Log4j appender for text fields (StyledText).<br>
- * Messages are logged in special colors for each level.
+ * Messages are logged in special colors for each level.<br>
+ * The messages are appended to the text fields at most with the
+ * configured frame rate, so a burst of messages does not flood the UI
+ * thread.
  * 
  * @author Rabea Gransberger
  */
@@ -73,6 +79,59 @@ public class XirpTextFieldAppender extends AppenderSkeleton {
 	 * Color for Logging Type INFO
 	 */
 	private static final RGB INFO = new RGB(0, 0, 0);
+	/**
+	 * Collects the log messages for each text field and appends them
+	 * in the UI thread. No message is discarded, the number of
+	 * messages is already bounded by the log levels.
+	 */
+	private static final CoalescingUpdater<StyledText, LogEntry> updater = new CoalescingUpdater<StyledText, LogEntry>(null,
+			Mode.BATCH,
+			CoalescingUpdater.UI_FRAME_RATE,
+			CoalescingUpdater.UNLIMITED) {
+
+		@Override
+		protected void update(StyledText textField, List<LogEntry> entries) {
+			if (SWTUtil.swtAssert(textField)) {
+				for (LogEntry entry : entries) {
+					StyleRange range = (StyleRange) entry.range.clone( );
+					range.start = textField.getCharCount( );
+					textField.append(entry.rendered);
+					textField.setStyleRange(range);
+				}
+				// Scroll to end
+				textField.setCaretOffset(textField.getCharCount( ));
+				textField.showSelection( );
+			}
+		}
+	};
+
+	/**
+	 * A log message waiting to be appended to a text field.
+	 */
+	private static final class LogEntry {
+
+		/**
+		 * The range used for formatting
+		 */
+		private final StyleRange range;
+		/**
+		 * The rendered text
+		 */
+		private final String rendered;
+
+		/**
+		 * Constructs a new entry.
+		 * 
+		 * @param range
+		 *            the range used for formatting
+		 * @param rendered
+		 *            the rendered text
+		 */
+		private LogEntry(StyleRange range, String rendered) {
+			this.range = range;
+			this.rendered = rendered;
+		}
+	}
 
 	/**
 	 * Sets the text field to which this appender should append the
@@ -138,8 +197,8 @@ public class XirpTextFieldAppender extends AppenderSkeleton {
 	 * Writes the log message of the event to the styled Text (of a
 	 * robot if a robot is available) and shows it in different colors
 	 * for the different log types. For example error messages are
-	 * shown in Red. If the current Thread is not the UI Thread, a
-	 * asyncExec is called to display the message.
+	 * shown in Red. The message is displayed with the next update of
+	 * the text fields.
 	 * 
 	 * @param logEvent
 	 *            The event holding the type and message
@@ -193,7 +252,7 @@ public class XirpTextFieldAppender extends AppenderSkeleton {
 
 	/**
 	 * Writes the log message with the given style to the given text
-	 * field using an asyncExec.
+	 * field with the next update of the text fields.
 	 * 
 	 * @param textField
 	 *            the text field the log message to
@@ -205,21 +264,7 @@ public class XirpTextFieldAppender extends AppenderSkeleton {
 	private void log(final StyledText textField, final StyleRange range,
 			final String rendered) {
 		if (SWTUtil.swtAssert(textField)) {
-			// Minimal Code needed for async Exec
-			SWTUtil.asyncExec(new Runnable( ) {
-
-				public void run() {
-					if (SWTUtil.swtAssert(textField)) {
-						int start = textField.getText( ).length( );
-						range.start = start;
-						textField.append(rendered);
-						textField.setStyleRange(range);
-						// Scroll to end
-						textField.setCaretOffset(textField.getText( ).length( ));
-						textField.showSelection( );
-					}
-				}
-			});
+			updater.post(textField, new LogEntry(range, rendered));
 		}
 	}
 
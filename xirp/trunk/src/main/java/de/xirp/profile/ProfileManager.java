@@ -27,12 +27,15 @@ package de.xirp.profile;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
 
+import de.xirp.io.comm.data.DatapoolKey;
 import de.xirp.io.comm.data.DatapoolUtil;
 import de.xirp.managers.AbstractManager;
 import de.xirp.managers.ManagerException;
@@ -78,6 +81,10 @@ public final class ProfileManager extends AbstractManager {
 	 * The unique profile names.
 	 */
 	private static Set<String> profileNames = Collections.emptySet( );
+	/**
+	 * The resolved datapool key handles of the sensors for each robot.
+	 */
+	private static Map<String, List<DatapoolKey>> sensorKeyHandles = Collections.emptyMap( );
 
 	/**
 	 * Constructor needed for the
@@ -243,6 +250,44 @@ public final class ProfileManager extends AbstractManager {
 		return Collections.unmodifiableList(keys);
 	}
 
+	/**
+	 * Gets the datapool key handles for all sensors of the given
+	 * robot. The handles are resolved once when the profiles are
+	 * loaded.
+	 * 
+	 * @param robotName
+	 *            the name of the robot
+	 * @return the handles for the sensors of the robot
+	 * @see #getSensorDatapoolKeys(String)
+	 */
+	public static List<DatapoolKey> getSensorDatapoolKeyHandles(
+			String robotName) {
+		List<DatapoolKey> handles = sensorKeyHandles.get(robotName);
+		if (handles == null) {
+			return Collections.emptyList( );
+		}
+		return handles;
+	}
+
+	/**
+	 * Resolves the datapool key handles for the sensors of all loaded
+	 * robots.
+	 */
+	private static void resolveDatapoolKeys() {
+		Map<String, List<DatapoolKey>> aux = new HashMap<String, List<DatapoolKey>>( );
+		for (Robot robot : getRobots( )) {
+			List<DatapoolKey> handles = new ArrayList<DatapoolKey>( );
+			for (Sensorgroup sg : robot.getSensorgroups( )) {
+				for (Sensor s : sg.getSensors( )) {
+					handles.add(DatapoolUtil.getDatapoolKey(sg, s));
+				}
+			}
+			aux.put(robot.getName( ),
+					Collections.unmodifiableList(handles));
+		}
+		sensorKeyHandles = aux;
+	}
+
 	/**
 	 * Starts the parsing of the existing <code>*.pro</code> files.
 	 * The profile data is not available until this manager has
@@ -262,6 +307,7 @@ public final class ProfileManager extends AbstractManager {
 		profiles = ProfileParser.getProfiles( );
 		incompleteProfiles = ProfileParser.getIncompleteProfiles( );
 		profileNames = ProfileParser.getProfileNames( );
+		resolveDatapoolKeys( );
 		logClass.info(I18n.getString("ProfileManager.log.finished") + Constants.LINE_SEPARATOR); //$NON-NLS-1$ 
 	}
 
@@ -248,6 +248,52 @@ public final class PropertiesManager extends AbstractManager {
 	 * @see de.xirp.mail.MailManager
 	 */
 	private static String noReplyAddress;
+	/**
+	 * Maximum number of datapool events waiting for dispatching to
+	 * the listeners.
+	 * 
+	 * @see de.xirp.io.comm.data.DatapoolDispatcher
+	 */
+	private static int dispatchBacklog;
+	/**
+	 * The policy used if the datapool dispatch backlog is full:
+	 * <code>drop_oldest</code> or <code>block</code>.
+	 * 
+	 * @see de.xirp.io.comm.data.DatapoolDispatcher
+	 */
+	private static String dispatchPolicy;
+	/**
+	 * Maximum number of updates per second of widgets which show
+	 * datapool values.
+	 * 
+	 * @see de.xirp.ui.util.CoalescingUpdater
+	 */
+	private static int uiFrameRate;
+	/**
+	 * Flag showing if lost connections to robots are reestablished
+	 * automatically.
+	 * 
+	 * @see de.xirp.io.comm.ReconnectSupervisor
+	 */
+	private static boolean reconnect;
+	/**
+	 * What to do with commands while reconnecting:
+	 * <code>keep</code>, <code>coalesce</code> or <code>drop</code>.
+	 */
+	private static String reconnectPolicy;
+	/**
+	 * Delay in milliseconds before the first reconnect attempt.
+	 */
+	private static long reconnectMinDelay;
+	/**
+	 * Maximum delay in milliseconds between two reconnect attempts.
+	 */
+	private static long reconnectMaxDelay;
+	/**
+	 * Number of reconnect attempts before giving up, <code>0</code>
+	 * for unlimited attempts.
+	 */
+	private static int reconnectMaxAttempts;
 
 	/**
 	 * Constructs a new manager. <br>
@@ -367,6 +413,26 @@ public final class PropertiesManager extends AbstractManager {
 		exportJPG = Boolean.parseBoolean(get(chart, "export_jpg", "false")); //$NON-NLS-1$ //$NON-NLS-2$
 		exportCSV = Boolean.parseBoolean(get(chart, "export_csv", "false")); //$NON-NLS-1$ //$NON-NLS-2$
 
+		/* [Datapool] */
+		Section datapool = ini.get("Datapool"); //$NON-NLS-1$
+		if (datapool == null) {
+			datapool = ini.add("Datapool"); //$NON-NLS-1$
+		}
+		dispatchBacklog = Integer.parseInt(get(datapool, "dispatch_backlog", "4096")); //$NON-NLS-1$ //$NON-NLS-2$
+		dispatchPolicy = get(datapool, "dispatch_policy", "block"); //$NON-NLS-1$ //$NON-NLS-2$
+		uiFrameRate = Integer.parseInt(get(datapool, "ui_frame_rate", "30")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		/* [Communication] */
+		Section communication = ini.get("Communication"); //$NON-NLS-1$
+		if (communication == null) {
+			communication = ini.add("Communication"); //$NON-NLS-1$
+		}
+		reconnect = Boolean.parseBoolean(get(communication, "reconnect", "true")); //$NON-NLS-1$ //$NON-NLS-2$
+		reconnectPolicy = get(communication, "reconnect_policy", "coalesce"); //$NON-NLS-1$ //$NON-NLS-2$
+		reconnectMinDelay = Long.parseLong(get(communication, "reconnect_min_delay", "500")); //$NON-NLS-1$ //$NON-NLS-2$
+		reconnectMaxDelay = Long.parseLong(get(communication, "reconnect_max_delay", "30000")); //$NON-NLS-1$ //$NON-NLS-2$
+		reconnectMaxAttempts = Integer.parseInt(get(communication, "reconnect_max_attempts", "0")); //$NON-NLS-1$ //$NON-NLS-2$
+
 		/* [View] */
 		Section view = ini.get("View"); //$NON-NLS-1$
 		if (view != null) {
@@ -570,6 +636,174 @@ public final class PropertiesManager extends AbstractManager {
 		return pluginInfo;
 	}
 
+	/**
+	 * Returns the maximum number of datapool events waiting for
+	 * dispatching to the listeners.
+	 * 
+	 * @return The dispatch backlog.
+	 */
+	public static int getDispatchBacklog() {
+		return dispatchBacklog;
+	}
+
+	/**
+	 * Sets the maximum number of datapool events waiting for
+	 * dispatching to the listeners. Takes effect after a restart.
+	 * 
+	 * @param dispatchBacklog
+	 *            The dispatch backlog to set.
+	 */
+	public static void setDispatchBacklog(int dispatchBacklog) {
+		PropertiesManager.dispatchBacklog = dispatchBacklog;
+	}
+
+	/**
+	 * Returns the policy used if the datapool dispatch backlog is
+	 * full.
+	 * 
+	 * @return <code>drop_oldest</code> or <code>block</code>.
+	 */
+	public static String getDispatchPolicy() {
+		return dispatchPolicy;
+	}
+
+	/**
+	 * Sets the policy used if the datapool dispatch backlog is full.
+	 * Takes effect after a restart.
+	 * 
+	 * @param dispatchPolicy
+	 *            <code>drop_oldest</code> or <code>block</code>.
+	 */
+	public static void setDispatchPolicy(String dispatchPolicy) {
+		PropertiesManager.dispatchPolicy = dispatchPolicy;
+	}
+
+	/**
+	 * Returns the maximum number of updates per second of widgets
+	 * which show datapool values.
+	 * 
+	 * @return The frame rate.
+	 */
+	public static int getUIFrameRate() {
+		return uiFrameRate;
+	}
+
+	/**
+	 * Sets the maximum number of updates per second of widgets which
+	 * show datapool values. Takes effect for newly created widgets.
+	 * 
+	 * @param uiFrameRate
+	 *            The frame rate to set.
+	 */
+	public static void setUIFrameRate(int uiFrameRate) {
+		PropertiesManager.uiFrameRate = uiFrameRate;
+	}
+
+	/**
+	 * Returns if lost connections to robots are reestablished
+	 * automatically.
+	 * 
+	 * @return <code>true</code> if reconnecting is enabled.
+	 */
+	public static boolean isReconnect() {
+		return reconnect;
+	}
+
+	/**
+	 * Sets if lost connections to robots are reestablished
+	 * automatically. Takes effect on the next connect.
+	 * 
+	 * @param reconnect
+	 *            <code>true</code> to enable reconnecting.
+	 */
+	public static void setReconnect(boolean reconnect) {
+		PropertiesManager.reconnect = reconnect;
+	}
+
+	/**
+	 * Returns what to do with commands while reconnecting.
+	 * 
+	 * @return <code>keep</code>, <code>coalesce</code> or
+	 *         <code>drop</code>.
+	 */
+	public static String getReconnectPolicy() {
+		return reconnectPolicy;
+	}
+
+	/**
+	 * Sets what to do with commands while reconnecting. Takes effect
+	 * on the next connect.
+	 * 
+	 * @param reconnectPolicy
+	 *            <code>keep</code>, <code>coalesce</code> or
+	 *            <code>drop</code>.
+	 */
+	public static void setReconnectPolicy(String reconnectPolicy) {
+		PropertiesManager.reconnectPolicy = reconnectPolicy;
+	}
+
+	/**
+	 * Returns the delay before the first reconnect attempt.
+	 * 
+	 * @return The delay in milliseconds.
+	 */
+	public static long getReconnectMinDelay() {
+		return reconnectMinDelay;
+	}
+
+	/**
+	 * Sets the delay before the first reconnect attempt. Takes effect
+	 * on the next connect.
+	 * 
+	 * @param reconnectMinDelay
+	 *            The delay in milliseconds.
+	 */
+	public static void setReconnectMinDelay(long reconnectMinDelay) {
+		PropertiesManager.reconnectMinDelay = reconnectMinDelay;
+	}
+
+	/**
+	 * Returns the maximum delay between two reconnect attempts.
+	 * 
+	 * @return The delay in milliseconds.
+	 */
+	public static long getReconnectMaxDelay() {
+		return reconnectMaxDelay;
+	}
+
+	/**
+	 * Sets the maximum delay between two reconnect attempts. Takes
+	 * effect on the next connect.
+	 * 
+	 * @param reconnectMaxDelay
+	 *            The delay in milliseconds.
+	 */
+	public static void setReconnectMaxDelay(long reconnectMaxDelay) {
+		PropertiesManager.reconnectMaxDelay = reconnectMaxDelay;
+	}
+
+	/**
+	 * Returns the number of reconnect attempts before giving up.
+	 * 
+	 * @return The number of attempts, <code>0</code> for unlimited
+	 *         attempts.
+	 */
+	public static int getReconnectMaxAttempts() {
+		return reconnectMaxAttempts;
+	}
+
+	/**
+	 * Sets the number of reconnect attempts before giving up. Takes
+	 * effect on the next connect.
+	 * 
+	 * @param reconnectMaxAttempts
+	 *            The number of attempts, <code>0</code> for unlimited
+	 *            attempts.
+	 */
+	public static void setReconnectMaxAttempts(int reconnectMaxAttempts) {
+		PropertiesManager.reconnectMaxAttempts = reconnectMaxAttempts;
+	}
+
 	/**
 	 * Returns the timer waring level.
 	 * 
@@ -1022,6 +1256,20 @@ public final class PropertiesManager extends AbstractManager {
 		chart.put("export_jpg", Boolean.toString(exportJPG)); //$NON-NLS-1$
 		chart.put("export_csv", Boolean.toString(exportCSV)); //$NON-NLS-1$
 
+		/* [Datapool] */
+		Section datapool = ini.get("Datapool"); //$NON-NLS-1$
+		datapool.put("dispatch_backlog", Integer.toString(dispatchBacklog)); //$NON-NLS-1$
+		datapool.put("dispatch_policy", dispatchPolicy); //$NON-NLS-1$
+		datapool.put("ui_frame_rate", Integer.toString(uiFrameRate)); //$NON-NLS-1$
+
+		/* [Communication] */
+		Section communication = ini.get("Communication"); //$NON-NLS-1$
+		communication.put("reconnect", Boolean.toString(reconnect)); //$NON-NLS-1$
+		communication.put("reconnect_policy", reconnectPolicy); //$NON-NLS-1$
+		communication.put("reconnect_min_delay", Long.toString(reconnectMinDelay)); //$NON-NLS-1$
+		communication.put("reconnect_max_delay", Long.toString(reconnectMaxDelay)); //$NON-NLS-1$
+		communication.put("reconnect_max_attempts", Integer.toString(reconnectMaxAttempts)); //$NON-NLS-1$
+
 		/* [View] */
 		Section view = ini.get("View"); //$NON-NLS-1$
 		if (view == null) {
@@ -0,0 +1,107 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * CoalescingDatapoolListener.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.ui.util;
+
+import java.util.List;
+
+import org.eclipse.swt.widgets.Widget;
+
+import de.xirp.io.comm.data.DatapoolEvent;
+import de.xirp.io.comm.data.DatapoolListener;
+
+/**
+ * Datapool listener for widgets which coalesces the received events
+ * and updates the widget at most with the configured frame rate.<br/><br/>
+ * Register it like any other {@link DatapoolListener}, the events are
+ * handed to {@link #update(Object, List)} in the UI thread.
+ * 
+ * @author agent
+ * @see CoalescingUpdater
+ */
+public abstract class CoalescingDatapoolListener extends
+		CoalescingUpdater<String, DatapoolEvent> implements DatapoolListener {
+
+	/**
+	 * Flag showing if the listener should only be notified if the
+	 * value has changed
+	 */
+	private final boolean onlyWhenChanged;
+
+	/**
+	 * Constructs a new listener using the frame rate configured in
+	 * the preferences.
+	 * 
+	 * @param widget
+	 *            the widget to update, no more updates are flushed
+	 *            after it was disposed. May be <code>null</code>.
+	 * @param mode
+	 *            the mode of coalescing
+	 * @param onlyWhenChanged
+	 *            <code>true</code> if the listener should only be
+	 *            notified if the value has changed
+	 */
+	public CoalescingDatapoolListener(Widget widget, Mode mode,
+			boolean onlyWhenChanged) {
+		super(widget, mode);
+		this.onlyWhenChanged = onlyWhenChanged;
+	}
+
+	/**
+	 * Constructs a new listener.
+	 * 
+	 * @param widget
+	 *            the widget to update, no more updates are flushed
+	 *            after it was disposed. May be <code>null</code>.
+	 * @param mode
+	 *            the mode of coalescing
+	 * @param onlyWhenChanged
+	 *            <code>true</code> if the listener should only be
+	 *            notified if the value has changed
+	 * @param framesPerSecond
+	 *            the maximum number of updates per second
+	 */
+	public CoalescingDatapoolListener(Widget widget, Mode mode,
+			boolean onlyWhenChanged, int framesPerSecond) {
+		super(widget, mode, framesPerSecond);
+		this.onlyWhenChanged = onlyWhenChanged;
+	}
+
+	/**
+	 * Posts the event for the next update of the widget.
+	 * 
+	 * @see de.xirp.io.comm.data.DatapoolListener#valueChanged(de.xirp.io.comm.data.DatapoolEvent)
+	 */
+	public void valueChanged(DatapoolEvent e) {
+		post(e.getKey( ), e);
+	}
+
+	/**
+	 * @see de.xirp.io.comm.data.DatapoolListener#notifyOnlyWhenChanged()
+	 */
+	public boolean notifyOnlyWhenChanged() {
+		return onlyWhenChanged;
+	}
+
+}
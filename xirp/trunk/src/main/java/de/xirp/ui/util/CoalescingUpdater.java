@@ -0,0 +1,402 @@
+/** 
+ * ============================================================================
+ * Xirp 2: eXtendable interface for robotic purposes.
+ * ============================================================================
+ * 
+ * Copyright (C) 2005-2007, by Authors and Contributors listed in CREDITS.txt
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Common Public License v1.0
+ * which accompanies this distribution, and is available at:
+ *
+ * 				http://www.opensource.org/licenses/cpl1.0.php
+ *
+ * ----------------------------
+ * CoalescingUpdater.java
+ * ----------------------------
+ *
+ * Original Author:  agent [agent AT local]
+ * Contributor(s):   
+ *
+ * Changes
+ * -------
+ * 18.10.2026:		Created by agent.
+ */
+package de.xirp.ui.util;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.log4j.Logger;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Widget;
+
+import de.xirp.settings.PropertiesManager;
+import de.xirp.util.Constants;
+import de.xirp.util.I18n;
+
+/**
+ * Coalesces updates of widgets which are posted from other threads
+ * than the UI thread.<br/><br/>Instead of calling
+ * {@link SWTUtil#asyncExec(Runnable)} for every single value, the
+ * values are collected per key and flushed to the UI thread at most
+ * with the configured frame rate using a single
+ * <code>asyncExec</code>. Depending on the {@link Mode} only the latest
+ * value or all values posted since the last flush are handed to
+ * {@link #update(Object, List)}. In mode {@link Mode#BATCH} at most
+ * {@link #DEFAULT_BATCH_LIMIT} values (or the limit given to the
+ * constructor) are kept per key, if the UI thread falls behind the
+ * oldest values are discarded. With the limit {@link #UNLIMITED}
+ * all values are kept.<br/><br/>The number of posted values
+ * which were merged into a pending flush or discarded is counted, so
+ * the effect can be monitored.
+ * 
+ * @param <K>
+ *            type of the keys
+ * @param <V>
+ *            type of the values
+ * @author agent
+ */
+public abstract class CoalescingUpdater<K, V> {
+
+	/**
+	 * Logger for this class
+	 */
+	private static final Logger logClass = Logger.getLogger(CoalescingUpdater.class);
+
+	/**
+	 * Default maximum number of values kept per key in mode
+	 * {@link Mode#BATCH}
+	 */
+	public static final int DEFAULT_BATCH_LIMIT = 1000;
+	/**
+	 * Batch limit for keeping all values in mode {@link Mode#BATCH}
+	 */
+	public static final int UNLIMITED = 0;
+	/**
+	 * Frame rate for flushing with the frame rate of the preferences
+	 */
+	public static final int UI_FRAME_RATE = -1;
+
+	/**
+	 * Modes of coalescing.
+	 */
+	public enum Mode {
+		/**
+		 * Only the latest value for each key is flushed
+		 */
+		LATEST,
+		/**
+		 * All values for each key are flushed in the order they were
+		 * posted, up to the batch limit of the updater
+		 */
+		BATCH
+	}
+
+	/**
+	 * The mode of coalescing
+	 */
+	private final Mode mode;
+	/**
+	 * Minimum time between two flushes in milliseconds or
+	 * <code>-1</code> if the frame rate of the preferences is used
+	 */
+	private final long framePeriod;
+	/**
+	 * Maximum number of values kept per key in mode
+	 * {@link Mode#BATCH}
+	 */
+	private final int batchLimit;
+	/**
+	 * The widget the updates are for or <code>null</code>
+	 */
+	private final Widget widget;
+	/**
+	 * Lock guarding the pending values and the counters
+	 */
+	private final Object lock = new Object( );
+	/**
+	 * Values posted since the last flush
+	 */
+	private Map<K, LinkedList<V>> pending = new LinkedHashMap<K, LinkedList<V>>( );
+	/**
+	 * Values currently flushed, only used by the UI thread
+	 */
+	private Map<K, LinkedList<V>> flushing = new LinkedHashMap<K, LinkedList<V>>( );
+	/**
+	 * Flag showing if a flush is scheduled
+	 */
+	private boolean scheduled = false;
+	/**
+	 * Flag showing if this updater was disposed
+	 */
+	private boolean disposed = false;
+	/**
+	 * Time of the last flush, only used by the UI thread
+	 */
+	private long lastFlush = 0;
+	/**
+	 * Number of posted values
+	 */
+	private long postedCount = 0;
+	/**
+	 * Number of posted values which were merged into a pending flush
+	 */
+	private long mergedCount = 0;
+	/**
+	 * Number of flushes
+	 */
+	private long flushCount = 0;
+	/**
+	 * Number of values discarded because the batch limit of their key
+	 * was reached
+	 */
+	private long discardedCount = 0;
+
+	/**
+	 * Runnable executed in the UI thread for flushing the values
+	 */
+	private final Runnable flushRunnable = new Runnable( ) {
+
+		public void run() {
+			flush( );
+		}
+	};
+
+	/**
+	 * Constructs a new updater using the frame rate configured in the
+	 * preferences. The preferences are read when flushing, so the
+	 * updater may be created before the preferences are loaded.
+	 * 
+	 * @param widget
+	 *            the widget to update, no more updates are flushed
+	 *            after it was disposed. May be <code>null</code>.
+	 * @param mode
+	 *            the mode of coalescing
+	 * @see PropertiesManager#getUIFrameRate()
+	 */
+	public CoalescingUpdater(Widget widget, Mode mode) {
+		this(widget, mode, UI_FRAME_RATE, DEFAULT_BATCH_LIMIT);
+	}
+
+	/**
+	 * Constructs a new updater.
+	 * 
+	 * @param widget
+	 *            the widget to update, no more updates are flushed
+	 *            after it was disposed. May be <code>null</code>.
+	 * @param mode
+	 *            the mode of coalescing
+	 * @param framesPerSecond
+	 *            the maximum number of flushes per second, a value
+	 *            <= 0 means no limit
+	 */
+	public CoalescingUpdater(Widget widget, Mode mode, int framesPerSecond) {
+		this(widget, mode, framesPerSecond, DEFAULT_BATCH_LIMIT);
+	}
+
+	/**
+	 * Constructs a new updater.
+	 * 
+	 * @param widget
+	 *            the widget to update, no more updates are flushed
+	 *            after it was disposed. May be <code>null</code>.
+	 * @param mode
+	 *            the mode of coalescing
+	 * @param framesPerSecond
+	 *            the maximum number of flushes per second, a value
+	 *            <= 0 means no limit, {@link #UI_FRAME_RATE} uses the
+	 *            frame rate of the preferences
+	 * @param batchLimit
+	 *            the maximum number of values kept per key in mode
+	 *            {@link Mode#BATCH} or {@link #UNLIMITED} for keeping
+	 *            all values
+	 */
+	public CoalescingUpdater(Widget widget, Mode mode, int framesPerSecond,
+			int batchLimit) {
+		this.widget = widget;
+		this.mode = mode;
+		this.framePeriod = framesPerSecond == UI_FRAME_RATE ? -1
+				: getFramePeriod(framesPerSecond);
+		this.batchLimit = batchLimit > UNLIMITED ? batchLimit
+				: Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Calculates the minimum time between two flushes.
+	 * 
+	 * @param framesPerSecond
+	 *            the maximum number of flushes per second
+	 * @return the time in milliseconds
+	 */
+	private static long getFramePeriod(int framesPerSecond) {
+		return framesPerSecond > 0 ? 1000 / framesPerSecond : 0;
+	}
+
+	/**
+	 * Posts the given value for the given key. The value is handed to
+	 * {@link #update(Object, List)} with the next flush. This method
+	 * may be called from any thread.
+	 * 
+	 * @param key
+	 *            the key of the value
+	 * @param value
+	 *            the value
+	 */
+	public void post(K key, V value) {
+		boolean schedule = false;
+		synchronized (lock) {
+			if (disposed) {
+				return;
+			}
+			postedCount++;
+			LinkedList<V> values = pending.get(key);
+			if (values == null) {
+				values = new LinkedList<V>( );
+				pending.put(key, values);
+			}
+			else if (mode == Mode.LATEST) {
+				values.clear( );
+			}
+			else if (values.size( ) >= batchLimit) {
+				// the UI thread falls behind, keep the newest values
+				values.removeFirst( );
+				discardedCount++;
+			}
+			values.add(value);
+			if (scheduled) {
+				mergedCount++;
+			}
+			else {
+				scheduled = true;
+				schedule = true;
+			}
+		}
+		if (schedule) {
+			SWTUtil.asyncExec(flushRunnable);
+		}
+	}
+
+	/**
+	 * Flushes the pending values if the frame period has elapsed
+	 * since the last flush, otherwise the flush is delayed. Must be
+	 * called in the UI thread.
+	 */
+	private void flush() {
+		if (widget != null && widget.isDisposed( )) {
+			dispose( );
+			return;
+		}
+		long now = System.currentTimeMillis( );
+		long period = framePeriod >= 0 ? framePeriod
+				: getFramePeriod(PropertiesManager.getUIFrameRate( ));
+		long wait = lastFlush + period - now;
+		if (wait > 0) {
+			Display.getCurrent( ).timerExec((int) wait, flushRunnable);
+			return;
+		}
+		lastFlush = now;
+
+		synchronized (lock) {
+			if (disposed) {
+				return;
+			}
+			Map<K, LinkedList<V>> aux = pending;
+			pending = flushing;
+			flushing = aux;
+			scheduled = false;
+			flushCount++;
+		}
+
+		for (Entry<K, LinkedList<V>> entry : flushing.entrySet( )) {
+			try {
+				update(entry.getKey( ), entry.getValue( ));
+			}
+			catch (RuntimeException e) {
+				logClass.error(I18n.getString("CoalescingUpdater.log.updateFailed", //$NON-NLS-1$
+						entry.getKey( ),
+						e.getMessage( ))
+						+ Constants.LINE_SEPARATOR, e);
+			}
+		}
+		flushing.clear( );
+	}
+
+	/**
+	 * Updates the widget with the values posted for the given key
+	 * since the last flush. Called in the UI thread.
+	 * 
+	 * @param key
+	 *            the key of the values
+	 * @param values
+	 *            the values in the order they were posted, contains
+	 *            only the latest value in mode {@link Mode#LATEST} and
+	 *            at most the latest values up to the batch limit in
+	 *            mode {@link Mode#BATCH}.
+	 *            The list must not be kept after this call.
+	 */
+	protected abstract void update(K key, List<V> values);
+
+	/**
+	 * Discards all pending values. Values posted afterwards are
+	 * ignored.
+	 */
+	public void dispose() {
+		synchronized (lock) {
+			disposed = true;
+			pending.clear( );
+		}
+	}
+
+	/**
+	 * Gets the number of values posted to this updater.
+	 * 
+	 * @return the number of posted values
+	 */
+	public long getPostedCount() {
+		synchronized (lock) {
+			return postedCount;
+		}
+	}
+
+	/**
+	 * Gets the number of posted values which did not need an own
+	 * <code>asyncExec</code> because they were merged into a pending
+	 * flush.
+	 * 
+	 * @return the number of merged values
+	 */
+	public long getMergedCount() {
+		synchronized (lock) {
+			return mergedCount;
+		}
+	}
+
+	/**
+	 * Gets the number of flushes to the UI thread.
+	 * 
+	 * @return the number of flushes
+	 */
+	public long getFlushCount() {
+		synchronized (lock) {
+			return flushCount;
+		}
+	}
+
+	/**
+	 * Gets the number of values which were discarded in mode
+	 * {@link Mode#BATCH} because the batch limit of their key was
+	 * reached before the UI thread flushed them.
+	 * 
+	 * @return the number of discarded values
+	 */
+	public long getDiscardedCount() {
+		synchronized (lock) {
+			return discardedCount;
+		}
+	}
+
+}
@@ -61,10 +61,11 @@ import de.xirp.chart.ChartUtil;
 import de.xirp.io.comm.data.Datapool;
 import de.xirp.io.comm.data.DatapoolEvent;
 import de.xirp.io.comm.data.DatapoolException;
-import de.xirp.io.comm.data.DatapoolListener;
 import de.xirp.io.comm.data.DatapoolManager;
 import de.xirp.profile.ProfileManager;
 import de.xirp.settings.PropertiesManager;
+import de.xirp.ui.util.CoalescingDatapoolListener;
+import de.xirp.ui.util.CoalescingUpdater.Mode;
 import de.xirp.ui.util.SWTUtil;
 import de.xirp.ui.util.ressource.ImageManager;
 import de.xirp.ui.util.ressource.ImageManager.SystemImage;
@@ -119,7 +120,7 @@ public class LiveChartComposite extends XComposite {
 	 * 
 	 * @see de.xirp.io.comm.data.DatapoolListener
 	 */
-	private DatapoolListener listener;
+	private CoalescingDatapoolListener listener;
 	/**
 	 * The menu.
 	 */
@@ -167,6 +168,7 @@ public class LiveChartComposite extends XComposite {
 
 			public void widgetDisposed(DisposeEvent e) {
 				pool.removeDatapoolReceiveListener(listener);
+				listener.dispose( );
 			}
 
 		});
@@ -419,27 +421,29 @@ public class LiveChartComposite extends XComposite {
 					+ Constants.LINE_SEPARATOR, e);
 		}
 
-		listener = new DatapoolListener( ) {
+		// all values are drawn, but the chart is updated at most
+		// with the configured frame rate
+		listener = new CoalescingDatapoolListener(this, Mode.BATCH, false) {
 
-			public void valueChanged(DatapoolEvent e) {
-				try {
-					addValueToChart(e.getKey( ),
-							(Number) e.getValue( ),
-							e.getTimestamp( ));
-				}
-				catch (ClassCastException ex) {
-					logClass.info("Error: " + ex.getMessage( ) + " (check your protocol for key: " + e.getKey( ) + ")" + Constants.LINE_SEPARATOR, ex); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			@Override
+			protected void update(String key, List<DatapoolEvent> events) {
+				for (DatapoolEvent e : events) {
+					try {
+						addValueToChart(e.getKey( ),
+								(Number) e.getValue( ),
+								e.getTimestamp( ));
+					}
+					catch (ClassCastException ex) {
+						logClass.info("Error: " + ex.getMessage( ) + " (check your protocol for key: " + e.getKey( ) + ")" + Constants.LINE_SEPARATOR, ex); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					}
 				}
 			}
-
-			public boolean notifyOnlyWhenChanged() {
-				return false;
-			}
 		};
 	}
 
 	/**
-	 * Adds the given value to the chart.
+	 * Adds the given value to the chart. Must be called in the UI
+	 * thread.
 	 * 
 	 * @param key
 	 * 				The key.
@@ -450,24 +454,16 @@ public class LiveChartComposite extends XComposite {
 	 */
 	private void addValueToChart(final String key, final Number number,
 			final long timestamp) {
-		SWTUtil.asyncExec(new Runnable( ) {
-
-			/* (non-Javadoc)
-			 * @see java.lang.Runnable#run()
-			 */
-			public void run() {
-				if (!isDisposed( )) {
-					try {
-						keySeriesMap.get(key)
-								.addOrUpdate(new Millisecond(new Date(timestamp)),
-										number.doubleValue( ));
-					}
-					catch (NullPointerException e) {
-						logClass.trace("Trace: " + e.getMessage( ) + Constants.LINE_SEPARATOR, e); //$NON-NLS-1$
-					}
-				}
+		if (!isDisposed( )) {
+			try {
+				keySeriesMap.get(key)
+						.addOrUpdate(new Millisecond(new Date(timestamp)),
+								number.doubleValue( ));
 			}
-		});
+			catch (NullPointerException e) {
+				logClass.trace("Trace: " + e.getMessage( ) + Constants.LINE_SEPARATOR, e); //$NON-NLS-1$
+			}
+		}
 	}
 
 	/**
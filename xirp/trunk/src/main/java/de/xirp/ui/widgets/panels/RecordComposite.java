@@ -37,7 +37,7 @@ import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.widgets.Composite;
 
-import de.xirp.db.Observed;
+import de.xirp.db.ObservedRecorder;
 import de.xirp.db.Record;
 import de.xirp.db.RecordDatabaseUtil;
 import de.xirp.io.comm.CommunicationManager;
@@ -53,12 +53,15 @@ import de.xirp.ui.util.SWTUtil;
 import de.xirp.ui.util.ressource.ImageManager;
 import de.xirp.ui.util.ressource.ImageManager.SystemImage;
 import de.xirp.ui.widgets.custom.XButton;
+import de.xirp.ui.widgets.custom.XButton.XButtonType;
 import de.xirp.ui.widgets.custom.XCheckBox;
 import de.xirp.ui.widgets.custom.XComposite;
 import de.xirp.ui.widgets.custom.XGroup;
 import de.xirp.ui.widgets.custom.XList;
 import de.xirp.ui.widgets.custom.XToggleButton;
 import de.xirp.ui.widgets.dialogs.InputDialog;
+import de.xirp.ui.widgets.dialogs.XMessageBox;
+import de.xirp.ui.widgets.dialogs.XMessageBox.HMessageBoxType;
 import de.xirp.util.Constants;
 
 /**
@@ -115,6 +118,13 @@ public class RecordComposite extends XComposite {
 	 * @see de.xirp.db.Record
 	 */
 	private Record recordObserved;
+	/**
+	 * Writes the observed values of the current record to the
+	 * database.
+	 * 
+	 * @see de.xirp.db.ObservedRecorder
+	 */
+	private volatile ObservedRecorder recorder;
 	/**
 	 * The connection status.
 	 */
@@ -264,22 +274,34 @@ public class RecordComposite extends XComposite {
 			public void widgetSelected(SelectionEvent e) {
 				XToggleButton btn = (XToggleButton) e.widget;
 				boolean selection = btn.getSelection( );
-				observed.setEnabled(!selection);
-				select.setEnabled(!selection);
-				if (selection) {
-					btn.setTextForLocaleKey("RecordComposite.button.stopRecord"); //$NON-NLS-1$
-					btn.setImage(ImageManager.getSystemImage(SystemImage.DATABASE_STOP_RECORD));
-				}
-				else {
-					btn.setTextForLocaleKey("RecordComposite.button.startRecord"); //$NON-NLS-1$
-					btn.setImage(ImageManager.getSystemImage(SystemImage.DATABASE_START_RECORD));
-				}
+				setRecordingState(selection);
 				setRecordingEnabled(selection);
 			}
 
 		});
 	}
 
+	/**
+	 * Sets the state of the start stop button and the options.
+	 * 
+	 * @param recording
+	 *            <code>true</code>: the button shows that recording
+	 *            is running and the options are disabled.
+	 */
+	private void setRecordingState(boolean recording) {
+		startStop.setSelection(recording);
+		observed.setEnabled(!recording);
+		select.setEnabled(!recording && observed.getSelection( ));
+		if (recording) {
+			startStop.setTextForLocaleKey("RecordComposite.button.stopRecord"); //$NON-NLS-1$
+			startStop.setImage(ImageManager.getSystemImage(SystemImage.DATABASE_STOP_RECORD));
+		}
+		else {
+			startStop.setTextForLocaleKey("RecordComposite.button.startRecord"); //$NON-NLS-1$
+			startStop.setImage(ImageManager.getSystemImage(SystemImage.DATABASE_START_RECORD));
+		}
+	}
+
 	/**
 	 * Initializes the datapool.
 	 */
@@ -357,34 +379,68 @@ public class RecordComposite extends XComposite {
 	 *            The value.
 	 */
 	private void saveObservedValue(long timestamp, String key, Number value) {
-		Observed obs = new Observed(timestamp, key, value.doubleValue( ));
-		recordObserved.addObserved(obs);
+		ObservedRecorder rec = recorder;
+		if (rec != null) {
+			rec.record(timestamp, key, value.doubleValue( ));
+		}
 	}
 
 	/**
-	 * Persists the recording.
+	 * Persists the recording. Waits in a background thread until the
+	 * remaining observed values are written, tells the user about
+	 * values which were lost and updates the record afterwards.
 	 * 
 	 * @param record
 	 *            The record.
+	 * @param rec
+	 *            The recorder which wrote the values.
 	 * @see de.xirp.db.Record
 	 */
-	private void persistRecording(final Record record) {
+	private void persistRecording(final Record record,
+			final ObservedRecorder rec) {
 
-		SWTUtil.showBusyWhile(getShell( ), new Runnable( ) {
+		Thread thread = new Thread(new Runnable( ) {
 
 			public void run() {
-				InputDialog id = new InputDialog(getShell( ),
-						"RecordComposite.inputdialog.value.one.name", //$NON-NLS-1$
-						"RecordComposite.inputdialog.value.two.comment"); //$NON-NLS-1$
-				List<String> result = id.open(1);
-
-				if (result != null && !result.isEmpty( )) {
-					record.setName(result.get(0));
-					record.setComment(result.get(1));
-				}
-				RecordDatabaseUtil.persistRecord(record);
+				rec.stop( );
+				SWTUtil.asyncExec(new Runnable( ) {
+
+					public void run() {
+						if (!SWTUtil.swtAssert(RecordComposite.this)) {
+							RecordDatabaseUtil.updateRecord(record);
+							return;
+						}
+						long dropped = rec.getDroppedCount( );
+						long failed = rec.getFailedCount( );
+						if (dropped > 0 || failed > 0) {
+							XMessageBox box = new XMessageBox(getShell( ),
+									HMessageBoxType.WARN,
+									XButtonType.OK);
+							box.setTextForLocaleKey("RecordComposite.box.text.valuesLost"); //$NON-NLS-1$
+							box.setMessageForLocaleKey("RecordComposite.box.msg.valuesLost", //$NON-NLS-1$
+									Constants.LINE_SEPARATOR,
+									rec.getRowsWritten( ),
+									dropped,
+									failed);
+							box.open( );
+						}
+
+						InputDialog id = new InputDialog(getShell( ),
+								"RecordComposite.inputdialog.value.one.name", //$NON-NLS-1$
+								"RecordComposite.inputdialog.value.two.comment"); //$NON-NLS-1$
+						List<String> result = id.open(1);
+
+						if (result != null && !result.isEmpty( )) {
+							record.setName(result.get(0));
+							record.setComment(result.get(1));
+						}
+						RecordDatabaseUtil.updateRecord(record);
+					}
+				});
 			}
-		});
+		}, "RecordPersist_" + robotName); //$NON-NLS-1$
+		thread.setDaemon(true);
+		thread.start( );
 	}
 
 	/**
@@ -414,6 +470,20 @@ public class RecordComposite extends XComposite {
 				recordObserved.setStart(new Date( ).getTime( ));
 				recordObserved.setName(""); //$NON-NLS-1$
 				recordObserved.setComment(""); //$NON-NLS-1$
+				ObservedRecorder rec = new ObservedRecorder(recordObserved);
+				if (!rec.start( )) {
+					setRecordingState(false);
+					XMessageBox box = new XMessageBox(getShell( ),
+							HMessageBoxType.ERROR,
+							XButtonType.OK);
+					box.setTextForLocaleKey("RecordComposite.box.text.notStarted"); //$NON-NLS-1$
+					box.setMessageForLocaleKey("RecordComposite.box.msg.notStarted", //$NON-NLS-1$
+							Constants.LINE_SEPARATOR,
+							robotName);
+					box.open( );
+					return;
+				}
+				recorder = rec;
 				for (String key : chosen.getItems( )) {
 					pool.addDatapoolReceiveListener(key, observedListener);
 				}
@@ -424,8 +494,12 @@ public class RecordComposite extends XComposite {
 				for (String key : chosen.getItems( )) {
 					pool.removeDatapoolReceiveListener(key, observedListener);
 				}
-				recordObserved.setStop(new Date( ).getTime( ));
-				persistRecording(recordObserved);
+				ObservedRecorder rec = recorder;
+				recorder = null;
+				if (rec != null) {
+					recordObserved.setStop(new Date( ).getTime( ));
+					persistRecording(recordObserved, rec);
+				}
 			}
 		}
 	}
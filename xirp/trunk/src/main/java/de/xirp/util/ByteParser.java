@@ -24,11 +24,22 @@
  */
 package de.xirp.util;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 /**
- * Parser for reading data out of a byte array.
+ * Parser for reading data out of a byte array.<br/><br/>The parser
+ * may also read from any {@link ByteBuffer}, including direct or
+ * memory mapped buffers, without copying the data. Sub parts of the
+ * data are available as buffers or parsers sharing the same memory
+ * and strings are decoded directly from the data with a
+ * {@link CharsetDecoder} reused by the parser.
  * 
  * @author Rabea Gransberger
  */
@@ -42,6 +53,26 @@ public class ByteParser {
 	 * The byte buffer used for parsing
 	 */
 	private ByteBuffer buffer;
+	/**
+	 * Offset of the first byte to parse in the array
+	 */
+	private int start;
+	/**
+	 * The byte order of the data
+	 */
+	private final ByteOrder order;
+	/**
+	 * The charset of strings in the data
+	 */
+	private Charset charset = Charset.defaultCharset( );
+	/**
+	 * Decoder for strings, created on first use
+	 */
+	private CharsetDecoder decoder;
+	/**
+	 * Buffer for decoded strings, created on first use
+	 */
+	private CharBuffer chars;
 
 	/**
 	 * Constructs a new Parser for the given data.
@@ -51,6 +82,55 @@ public class ByteParser {
 	 */
 	public ByteParser(byte[] data) {
 		buffer = ByteBuffer.wrap(data);
+		order = ByteOrder.BIG_ENDIAN;
+	}
+
+	/**
+	 * Constructs a new parser for the remaining data of the given
+	 * buffer, that is the data from its position to its limit. The
+	 * data is not copied. The parser reads directly from the given
+	 * buffer, so it moves its position and sets its byte order to big
+	 * endian. Offsets used by this parser are offsets in the buffer.
+	 * 
+	 * @param buffer
+	 *            the buffer with the data to parse, may be a direct
+	 *            buffer
+	 */
+	public ByteParser(ByteBuffer buffer) {
+		this(buffer, ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Constructs a new parser for the remaining data of the given
+	 * buffer with the given byte order.
+	 * 
+	 * @param buffer
+	 *            the buffer with the data to parse
+	 * @param order
+	 *            the byte order (little or big endian)
+	 * @see #ByteParser(ByteBuffer)
+	 */
+	protected ByteParser(ByteBuffer buffer, ByteOrder order) {
+		this.order = order;
+		setBuffer(buffer);
+	}
+
+	/**
+	 * Constructs a new parser for a part of the given data. The data
+	 * is not copied. Offsets used by this parser are offsets in the
+	 * whole array.
+	 * 
+	 * @param data
+	 *            Received Data to parse
+	 * @param offset
+	 *            offset of the first byte to parse
+	 * @param length
+	 *            number of bytes to parse
+	 */
+	public ByteParser(byte[] data, int offset, int length) {
+		buffer = ByteBuffer.wrap(data, offset, length);
+		start = offset;
+		order = ByteOrder.BIG_ENDIAN;
 	}
 
 	/**
@@ -63,6 +143,84 @@ public class ByteParser {
 	 */
 	protected ByteParser(byte[] data, ByteOrder order) {
 		buffer = ByteBuffer.wrap(data).order(order);
+		this.order = order;
+	}
+
+	/**
+	 * Construct a new parser for a part of the given data and byte
+	 * order.
+	 * 
+	 * @param data
+	 *            Received Data to parse
+	 * @param offset
+	 *            offset of the first byte to parse
+	 * @param length
+	 *            number of bytes to parse
+	 * @param order
+	 *            the byte order (little or big endian)
+	 */
+	protected ByteParser(byte[] data, int offset, int length, ByteOrder order) {
+		buffer = ByteBuffer.wrap(data, offset, length).order(order);
+		start = offset;
+		this.order = order;
+	}
+
+	/**
+	 * Lets this parser read the remaining data of another buffer,
+	 * that is the data from its position to its limit. No objects are
+	 * created, so a parser may be reused for each message received by
+	 * a NIO transport. The parser reads directly from the given
+	 * buffer, so it moves its position and sets its byte order to the
+	 * order of this parser.
+	 * 
+	 * @param buffer
+	 *            the buffer with the data to parse
+	 */
+	public void setBuffer(ByteBuffer buffer) {
+		this.buffer = buffer.order(order);
+		this.start = buffer.position( );
+	}
+
+	/**
+	 * Sets the charset of the strings read with
+	 * {@link #getNextString(int)}. The default is the default charset
+	 * of the platform.
+	 * 
+	 * @param charset
+	 *            the charset
+	 */
+	public void setCharset(Charset charset) {
+		if (!charset.equals(this.charset)) {
+			this.charset = charset;
+			this.decoder = null;
+		}
+	}
+
+	/**
+	 * Gets the byte order of this parser.
+	 * 
+	 * @return the byte order
+	 */
+	public ByteOrder getOrder() {
+		return order;
+	}
+
+	/**
+	 * Moves this parser to another part of the same array and resets
+	 * the offset to the start of that part. No objects are created,
+	 * so a parser may be reused for each frame received into the
+	 * same buffer.
+	 * 
+	 * @param offset
+	 *            offset of the first byte to parse
+	 * @param length
+	 *            number of bytes to parse
+	 */
+	public void setRange(int offset, int length) {
+		buffer.clear( );
+		buffer.limit(offset + length);
+		buffer.position(offset);
+		start = offset;
 	}
 
 	/**
@@ -124,6 +282,96 @@ public class ByteParser {
 		return buffer.get( );
 	}
 
+	/**
+	 * Reads the next bytes from the data into the given array.
+	 * 
+	 * @param dst
+	 *            the array to read into
+	 * @param off
+	 *            offset of the first value in the array
+	 * @param len
+	 *            number of values to read
+	 */
+	public void getNextBytes(byte[] dst, int off, int len) {
+		buffer.get(dst, off, len);
+	}
+
+	/**
+	 * Reads the next shorts from the data into the given array. The
+	 * values are copied at once through a view of the data.
+	 * 
+	 * @param dst
+	 *            the array to read into
+	 * @param off
+	 *            offset of the first value in the array
+	 * @param len
+	 *            number of values to read
+	 */
+	public void getNextShorts(short[] dst, int off, int len) {
+		buffer.asShortBuffer( ).get(dst, off, len);
+		skip(len * 2);
+	}
+
+	/**
+	 * Reads the next ints from the data into the given array. The
+	 * values are copied at once through a view of the data.
+	 * 
+	 * @param dst
+	 *            the array to read into
+	 * @param off
+	 *            offset of the first value in the array
+	 * @param len
+	 *            number of values to read
+	 */
+	public void getNextInts(int[] dst, int off, int len) {
+		buffer.asIntBuffer( ).get(dst, off, len);
+		skip(len * 4);
+	}
+
+	/**
+	 * Reads the next floats from the data into the given array, f.e.
+	 * the values of a laser scan. The values are copied at once
+	 * through a view of the data.
+	 * 
+	 * @param dst
+	 *            the array to read into
+	 * @param off
+	 *            offset of the first value in the array
+	 * @param len
+	 *            number of values to read
+	 */
+	public void getNextFloats(float[] dst, int off, int len) {
+		buffer.asFloatBuffer( ).get(dst, off, len);
+		skip(len * 4);
+	}
+
+	/**
+	 * Reads the next doubles from the data into the given array. The
+	 * values are copied at once through a view of the data.
+	 * 
+	 * @param dst
+	 *            the array to read into
+	 * @param off
+	 *            offset of the first value in the array
+	 * @param len
+	 *            number of values to read
+	 */
+	public void getNextDoubles(double[] dst, int off, int len) {
+		buffer.asDoubleBuffer( ).get(dst, off, len);
+		skip(len * 8);
+	}
+
+	/**
+	 * Skips the given number of bytes after a bulk read through a
+	 * view, which does not move the position of the data.
+	 * 
+	 * @param bytes
+	 *            the number of bytes
+	 */
+	private void skip(int bytes) {
+		buffer.position(buffer.position( ) + bytes);
+	}
+
 	/**
 	 * Reads the next unsigned byte from the data. Note that short is
 	 * returned because byte is unable to contain values greater 127.
@@ -143,20 +391,61 @@ public class ByteParser {
 	 * @return Read string without terminating \0
 	 */
 	public String getNextString(int length) {
+		if (length > buffer.remaining( )) {
+			throw new BufferUnderflowException( );
+		}
 		int newLength = length;
-		byte[] data = buffer.array( );
 		int offset = buffer.position( );
-		if (data[offset + length - 1] == 0) {
+		if (length > 0 && buffer.get(offset + length - 1) == 0) {
 			newLength -= 1;
 		}
 
-		String strg = Conversion.byteArrayToString(getSubArray(data,
-				offset,
-				newLength));
+		int limit = buffer.limit( );
+		buffer.limit(offset + newLength);
+		String strg = decode( );
+		buffer.limit(limit);
 		setOffset(offset + length);
 		return strg;
 	}
 
+	/**
+	 * Decodes the data from the position to the limit of the buffer
+	 * to a string without copying the bytes.
+	 * 
+	 * @return the decoded string
+	 */
+	private String decode() {
+		if (decoder == null) {
+			decoder = charset.newDecoder( )
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+		int capacity = (int) Math.ceil(buffer.remaining( )
+				* (double) decoder.maxCharsPerByte( ));
+		if (chars == null || chars.capacity( ) < capacity) {
+			chars = CharBuffer.allocate(Math.max(capacity, 16));
+		}
+		chars.clear( );
+		decoder.reset( );
+		CoderResult result = decoder.decode(buffer, chars, true);
+		if (!result.isOverflow( )) {
+			result = decoder.flush(chars);
+		}
+		while (result.isOverflow( )) {
+			// should not happen as the buffer was large enough
+			CharBuffer aux = CharBuffer.allocate(chars.capacity( ) * 2);
+			chars.flip( );
+			aux.put(chars);
+			chars = aux;
+			result = decoder.decode(buffer, chars, true);
+			if (!result.isOverflow( )) {
+				result = decoder.flush(chars);
+			}
+		}
+		chars.flip( );
+		return chars.toString( );
+	}
+
 	/**
 	 * Reads the next string from the data.
 	 * 
@@ -175,7 +464,7 @@ public class ByteParser {
 	 * @return String representation of data
 	 */
 	public String getString() {
-		return Conversion.debugString(buffer.array( ));
+		return Conversion.debugString(getData( ));
 	}
 
 	/**
@@ -202,44 +491,79 @@ public class ByteParser {
 	 * Next call to getNextX will return start of data.
 	 */
 	public void reset() {
-		buffer.rewind( );
+		buffer.position(start);
 	}
 
 	/**
-	 * Gets the remaining unread data from the array.
+	 * Gets a copy of the remaining unread data. The offset is not
+	 * changed.
 	 * 
 	 * @return Byte array with unread data
+	 * @see #getRemainingBuffer()
 	 */
 	public byte[] getRemainingData() {
-		// not using sub array because direct call should
-		// be faster buffer.
-		return buffer.slice( ).array( );
+		return getSubArray(buffer.position( ), buffer.remaining( ));
 	}
 
 	/**
-	 * Gets a sub-array of the data.
+	 * Gets the remaining unread data as buffer sharing the data of
+	 * this parser. The offset is not changed.
+	 * 
+	 * @return a buffer from the current offset to the end of the data
+	 *         in the byte order of this parser
+	 */
+	public ByteBuffer getRemainingBuffer() {
+		return buffer.slice( ).order(order);
+	}
+
+	/**
+	 * Gets part of the data as buffer sharing the data of this
+	 * parser.
 	 * 
-	 * @param data
-	 *            the byte array for which a sub array should be get
 	 * @param start
-	 *            Starting position in the array
+	 *            start position of the part
 	 * @param length
-	 *            Length of the returned array
-	 * @return byte array as sub-array of the data
-	 * @throws ArrayIndexOutOfBoundsException
+	 *            the length of the part
+	 * @return a buffer in the byte order of this parser, its position
+	 *         <code>0</code> is the given start position
+	 * @throws IndexOutOfBoundsException
 	 *             Thrown when the data does not contain the bytes
 	 *             requested
 	 */
-	private byte[] getSubArray(byte[] data, int start, int length)
-			throws ArrayIndexOutOfBoundsException {
-		// int end = start + length;
+	public ByteBuffer getSubBuffer(int start, int length)
+			throws IndexOutOfBoundsException {
+		ByteBuffer aux = buffer.duplicate( );
+		aux.clear( );
+		try {
+			aux.position(start);
+			aux.limit(start + length);
+		}
+		catch (IllegalArgumentException e) {
+			throw new IndexOutOfBoundsException(start + "+" + length); //$NON-NLS-1$
+		}
+		return aux.slice( ).order(order);
+	}
 
-		byte[] newArray = new byte[length];
-		// for (int i = start, cnt = 0; i < start + length; i++) {
-		// newArray[cnt++] = data[i];
-		// }
-		System.arraycopy(data, start, newArray, 0, length);
-		return newArray;
+	/**
+	 * Gets a parser for part of the data. The new parser shares the
+	 * data of this parser and has the same byte order.
+	 * 
+	 * @param start
+	 *            start position of the part
+	 * @param length
+	 *            the length of the part
+	 * @return a parser for the part, its offset <code>0</code> is the
+	 *         given start position
+	 * @throws IndexOutOfBoundsException
+	 *             Thrown when the data does not contain the bytes
+	 *             requested
+	 */
+	public ByteParser getSubParser(int start, int length)
+			throws IndexOutOfBoundsException {
+		ByteParser parser = new ByteParser(getSubBuffer(start, length),
+				order);
+		parser.setCharset(charset);
+		return parser;
 	}
 
 	/**
@@ -256,16 +580,44 @@ public class ByteParser {
 	 */
 	public byte[] getSubArray(int start, int length)
 			throws ArrayIndexOutOfBoundsException {
-		return getSubArray(buffer.array( ), start, length);
+		// the backing array of a slice may hold more data than the
+		// slice, so the buffer bounds are checked in both cases
+		if (start < 0 || length < 0 || start + length > buffer.capacity( )) {
+			throw new ArrayIndexOutOfBoundsException(start + length);
+		}
+		byte[] newArray = new byte[length];
+		if (buffer.hasArray( )) {
+			System.arraycopy(buffer.array( ),
+					buffer.arrayOffset( ) + start,
+					newArray,
+					0,
+					length);
+		}
+		else {
+			ByteBuffer aux = buffer.duplicate( );
+			aux.clear( );
+			aux.position(start);
+			aux.get(newArray);
+		}
+		return newArray;
 	}
 
 	/**
-	 * Returns the whole data of this parser.
+	 * Returns the whole data of this parser, that is the data from
+	 * the start of its range to the limit. If the range covers the
+	 * whole backing array, the array itself is returned. Otherwise,
+	 * f.e. for a direct buffer, a pooled frame buffer or a part of an
+	 * array, the range is copied.
 	 * 
 	 * @return Byte array with data of this frame
 	 */
 	public byte[] getData() {
-		return buffer.array( );
+		int length = buffer.limit( ) - start;
+		if (buffer.hasArray( ) && buffer.arrayOffset( ) == 0 && start == 0
+				&& length == buffer.array( ).length) {
+			return buffer.array( );
+		}
+		return getSubArray(start, length);
 	}
 
 	/**
@@ -24,6 +24,7 @@
  */
 package de.xirp.util;
 
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 /**
@@ -47,4 +48,32 @@ public class ByteParserLittleEndian extends ByteParser {
 	public ByteParserLittleEndian(byte[] data) {
 		super(data, BYTE_ORDER);
 	}
+
+	/**
+	 * Constructs a new parser which will work on a part of the given
+	 * data without copying it.
+	 * 
+	 * @param data
+	 *            the byte array with the data which should be parsed.
+	 * @param offset
+	 *            offset of the first byte to parse
+	 * @param length
+	 *            number of bytes to parse
+	 */
+	public ByteParserLittleEndian(byte[] data, int offset, int length) {
+		super(data, offset, length, BYTE_ORDER);
+	}
+
+	/**
+	 * Constructs a new parser which will work on the remaining data
+	 * of the given buffer without copying it. The byte order of the
+	 * buffer is set to little endian.
+	 * 
+	 * @param buffer
+	 *            the buffer with the data which should be parsed, may
+	 *            be a direct buffer
+	 */
+	public ByteParserLittleEndian(ByteBuffer buffer) {
+		super(buffer, BYTE_ORDER);
+	}
 }
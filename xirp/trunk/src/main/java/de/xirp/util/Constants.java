@@ -60,6 +60,9 @@ public final class Constants {
 	/** Path to plugin directory */
 	@CreateOnStartup
 	public static final String PLUGIN_DIR = USER_DIR + FS + "plugins"; //$NON-NLS-1$
+	/** Path to the directory for datapool journals */
+	@CreateOnStartup
+	public static final String JOURNAL_DIR = USER_DIR + FS + "journals"; //$NON-NLS-1$
 	/** Path to chart image directory */
 	@CreateOnStartup
 	public static final String CHART_DIR = USER_DIR + FS + "charts"; //$NON-NLS-1$
@@ -156,6 +159,8 @@ public final class Constants {
 	public static final String COMM_SPEC_POSTFIX = ".cms"; //$NON-NLS-1$
 	/** Postfix for robot configuration files */
 	public static final String ROBOT_POSTFIX = ".bot"; //$NON-NLS-1$
+	/** Postfix for datapool journal files */
+	public static final String JOURNAL_POSTFIX = ".xjl"; //$NON-NLS-1$
 	/** Directory for snapshots */
 	public static final String SNAPSHOT_DIR = USER_DIR + FS + "snapshots"; //$NON-NLS-1$
 	/** File in which the preferences of the plugins are saved */